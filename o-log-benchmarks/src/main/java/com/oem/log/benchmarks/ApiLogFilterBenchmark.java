@@ -0,0 +1,154 @@
+package com.oem.log.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.filter.ApiLogFilter;
+import com.oem.log.core.filter.DefaultApiLogProcessor;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.store.LogStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * ApiLogFilter在请求线程上的额外开销
+ * 使用Mock请求响应和只返回JSON的Servlet，对比不经过过滤器的基线；
+ * 存储为空实现，只统计条数，不计入写入线程的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ApiLogFilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean deferredRendering;
+
+    /**
+     * 请求体和响应体长度（字节）
+     */
+    @Param({"200", "8000"})
+    private int bodyLength;
+
+    private ApiLogFilter filter;
+    private HttpServlet servlet;
+    private byte[] requestBody;
+    private final NoopLogStore logStore = new NoopLogStore();
+
+    @Setup
+    public void setup() throws Exception {
+        char[] chars = new char[bodyLength];
+        Arrays.fill(chars, 'a');
+        String json = "{\"data\":\"" + new String(chars, 0, Math.max(0, bodyLength - 11)) + "\"}";
+        byte[] responseBody = json.getBytes(StandardCharsets.UTF_8);
+        requestBody = responseBody.clone();
+
+        servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                // 模拟业务读取请求体并返回JSON
+                byte[] buffer = new byte[4096];
+                while (req.getInputStream().read(buffer) != -1) {
+                    // 读完请求体
+                }
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(responseBody);
+            }
+        };
+
+        filter = new ApiLogFilter(logStore, Collections.singletonList("/api/**"));
+        filter.addProcessor(new DefaultApiLogProcessor(new ObjectMapper(), 1000));
+        filter.setDeferredRendering(deferredRendering);
+        filter.setMaxCaptureBytes(4000);
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.setContentType("application/json");
+        request.setContent(requestBody);
+        request.setQueryString("page=1&size=20");
+        request.addHeader("X-User-ID", "10086");
+        return request;
+    }
+
+    /**
+     * 基线：直接调用Servlet
+     */
+    @Benchmark
+    public MockHttpServletResponse baseline() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(servlet).doFilter(newRequest(), response);
+        return response;
+    }
+
+    /**
+     * 经过ApiLogFilter
+     */
+    @Benchmark
+    public MockHttpServletResponse filtered() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(newRequest(), response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    /**
+     * 空存储实现，只计数
+     */
+    private static class NoopLogStore implements LogStore {
+
+        private final LongAdder stored = new LongAdder();
+
+        @Override
+        public void store(ApiLog log) {
+            stored.increment();
+        }
+
+        @Override
+        public void storeDeferred(Supplier<ApiLog> logSupplier) {
+            stored.increment();
+        }
+
+        @Override
+        public void storeBatch(List<ApiLog> logs) {
+            stored.add(logs.size());
+        }
+
+        @Override
+        public List<ApiLog> query(Predicate<ApiLog> predicate, long startTime, long endTime, int limit) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
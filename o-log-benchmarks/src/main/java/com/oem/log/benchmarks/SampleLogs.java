@@ -0,0 +1,68 @@
+package com.oem.log.benchmarks;
+
+import com.oem.log.core.model.ApiLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试使用的样例日志与临时目录工具
+ */
+public final class SampleLogs {
+
+    private static final String[] PATHS = {
+            "/api/orders", "/api/orders/detail", "/api/users/profile", "/api/payments/notify", "/api/products/search"
+    };
+
+    private SampleLogs() {
+    }
+
+    /**
+     * 构造一条样例日志
+     * @param seq 序号，用于生成不同的路径、状态码和耗时
+     * @param bodyLength 响应体长度（字符）
+     */
+    public static ApiLog sample(int seq, int bodyLength) {
+        char[] body = new char[bodyLength];
+        Arrays.fill(body, 'x');
+
+        return ApiLog.builder()
+                .id(UUID.randomUUID().toString())
+                .hostname("bench-host")
+                .requestTime(LocalDateTime.now().minusSeconds(seq % 3600))
+                .path(PATHS[seq % PATHS.length])
+                .method(seq % 3 == 0 ? "POST" : "GET")
+                .requestParams("{\"orderId\":" + seq + ",\"page\":1,\"size\":20}")
+                .responseBody(new String(body))
+                .statusCode(seq % 50 == 0 ? 500 : 200)
+                .executionTime(seq % 200)
+                .clientIp("10.0.0." + (seq % 255))
+                .exceptionMsg(seq % 50 == 0 ? "java.lang.IllegalStateException: order " + seq + " not found" : null)
+                .build();
+    }
+
+    /**
+     * 创建临时目录
+     */
+    public static File createTempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /**
+     * 递归删除目录
+     */
+    public static void deleteRecursively(File dir) throws IOException {
+        if (dir == null || !dir.exists()) {
+            return;
+        }
+        try (Stream<java.nio.file.Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+}
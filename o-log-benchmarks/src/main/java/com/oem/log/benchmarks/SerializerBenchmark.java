@@ -0,0 +1,58 @@
+package com.oem.log.benchmarks;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonLogSerializer序列化/反序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    /**
+     * 响应体长度，对应max-content-length截断前后的典型大小
+     */
+    @Param({"100", "1000", "10000"})
+    private int bodyLength;
+
+    private final JsonLogSerializer serializer = new JsonLogSerializer();
+
+    private ApiLog apiLog;
+
+    private ByteBuffer serialized;
+
+    @Setup
+    public void setup() {
+        apiLog = SampleLogs.sample(1, bodyLength);
+        serialized = serializer.serialize(apiLog);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return serializer.serialize(apiLog);
+    }
+
+    @Benchmark
+    public ApiLog deserialize() {
+        return serializer.deserialize(serialized.duplicate());
+    }
+}
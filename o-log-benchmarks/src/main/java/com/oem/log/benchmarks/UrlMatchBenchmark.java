@@ -0,0 +1,67 @@
+package com.oem.log.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过滤器URL匹配（AntPathMatcher）
+ * 与ApiLogFilter.isUrlMatch一致：依次匹配配置的模式，命中即返回
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlMatchBenchmark {
+
+    /**
+     * 配置的模式个数，最后一个模式为/api/**
+     */
+    @Param({"1", "5", "20"})
+    private int patternCount;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<String> patterns = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 1; i < patternCount; i++) {
+            patterns.add("/module" + i + "/**/*.do");
+        }
+        patterns.add("/api/**");
+    }
+
+    private boolean isUrlMatch(String path) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean hit() {
+        return isUrlMatch("/api/orders/12345/items");
+    }
+
+    @Benchmark
+    public boolean miss() {
+        return isUrlMatch("/static/js/app.7f3a2c.js");
+    }
+}
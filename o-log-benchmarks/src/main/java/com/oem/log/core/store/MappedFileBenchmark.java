@@ -0,0 +1,135 @@
+package com.oem.log.core.store;
+
+import com.oem.log.benchmarks.SampleLogs;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 映射文件追加与批量刷盘
+ * 与MappedFileLogStore同包以访问包级可见的MappedFile和flushToFile；
+ * 每轮迭代结束删除生成的文件，避免占满临时目录
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedFileBenchmark {
+
+    private static final long FILE_SIZE = 1024 * 1024 * 64;
+
+    @State(Scope.Thread)
+    public static class AppendState {
+
+        /**
+         * 单条记录字节数
+         */
+        @Param({"256", "1024", "4096"})
+        private int recordSize;
+
+        private File dir;
+        private ByteBuffer record;
+        private MappedFileLogStore.MappedFile file;
+        private int fileSeq;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            dir = SampleLogs.createTempDir("o-log-append");
+            record = ByteBuffer.allocateDirect(recordSize);
+            while (record.hasRemaining()) {
+                record.put((byte) 'x');
+            }
+            record.flip();
+            file = newFile();
+        }
+
+        MappedFileLogStore.MappedFile newFile() throws IOException {
+            return new MappedFileLogStore.MappedFile(dir + File.separator + (fileSeq++) + ".data", FILE_SIZE);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            file.close();
+            SampleLogs.deleteRecursively(dir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FlushState {
+
+        /**
+         * 每次刷盘的记录条数，100为默认FLUSH_THRESHOLD
+         */
+        @Param({"1", "10", "100"})
+        private int batchSize;
+
+        /**
+         * 响应体长度
+         */
+        @Param({"1000"})
+        private int bodyLength;
+
+        private File dir;
+        private MappedFileLogStore store;
+        private List<ApiLog> batch;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            dir = SampleLogs.createTempDir("o-log-flush");
+            // 按正常生命周期启动和关闭，关闭时解除当前文件的映射；没有发布事件，写入线程和定时刷盘空转
+            store = new MappedFileLogStore(dir.getAbsolutePath(), new JsonLogSerializer());
+            store.start();
+            batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(SampleLogs.sample(i, bodyLength));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            // 先关闭存储解除映射再删除目录，避免已删除的映射文件占用后续迭代的页缓存和磁盘
+            store.shutdown();
+            SampleLogs.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * 单条追加到映射缓冲区，文件写满时换新文件
+     */
+    @Benchmark
+    public void append(AppendState state) throws IOException {
+        if (state.file.getWritePosition() + state.recordSize > FILE_SIZE) {
+            state.file.close();
+            state.file = state.newFile();
+        }
+        state.file.append(state.record.duplicate());
+    }
+
+    /**
+     * 批量序列化并写入数据文件和索引文件，吞吐量单位为批次/秒
+     */
+    @Benchmark
+    public void flushToFile(FlushState state) {
+        state.store.flushToFile(state.batch);
+    }
+}
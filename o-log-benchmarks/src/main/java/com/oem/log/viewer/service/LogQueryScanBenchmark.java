@@ -0,0 +1,140 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.benchmarks.SampleLogs;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.viewer.model.LogQueryRequest;
+import com.oem.log.viewer.query.QueryCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查看器单文件扫描速率
+ * 与DataFileCursor同包，按查询服务打开游标的方式（映射池、先探测字段再解码命中记录）倒序扫描整个文件，结果按记录/秒计
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogQueryScanBenchmark {
+
+    private static final int RECORD_COUNT = 20_000;
+
+    /**
+     * 响应体长度
+     */
+    @Param({"200", "1000"})
+    private int bodyLength;
+
+    private File dir;
+    private File dataFile;
+    private File indexFile;
+    private final JsonLogSerializer serializer = new JsonLogSerializer();
+    private final MappedSegmentPool pool = new MappedSegmentPool();
+    private LogQueryRequest matchAll;
+    private LogQueryRequest selective;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = SampleLogs.createTempDir("o-log-scan");
+        dataFile = new File(dir, "bench-host_20240101000000_1.data");
+        indexFile = new File(dir, "bench-host_20240101000000_1.index");
+
+        // 与写入端格式一致：数据文件[4字节长度][JSON]，索引文件[8字节位置][4字节记录长度]
+        try (FileChannel data = new FileOutputStream(dataFile).getChannel();
+             FileChannel index = new FileOutputStream(indexFile).getChannel()) {
+            ByteBuffer entry = ByteBuffer.allocate(DataFileCursor.INDEX_ENTRY_SIZE);
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                ByteBuffer buffer = serializer.serialize(SampleLogs.sample(i, bodyLength));
+                entry.clear();
+                entry.putLong(data.position()).putInt(buffer.remaining()).flip();
+                while (buffer.hasRemaining()) {
+                    data.write(buffer);
+                }
+                while (entry.hasRemaining()) {
+                    index.write(entry);
+                }
+            }
+        }
+
+        matchAll = new LogQueryRequest();
+        matchAll.setStartTime(new Date(0));
+        matchAll.setEndTime(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)));
+
+        selective = new LogQueryRequest();
+        selective.setStartTime(matchAll.getStartTime());
+        selective.setEndTime(matchAll.getEndTime());
+        selective.setPath("/api/orders");
+        selective.setStatusCode(500);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.close();
+        SampleLogs.deleteRecursively(dir);
+    }
+
+    /**
+     * 全部匹配
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public int scanMatchAll() throws IOException {
+        return scan(matchAll);
+    }
+
+    /**
+     * 选择性过滤（路径+状态码）
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public int scanSelective() throws IOException {
+        return scan(selective);
+    }
+
+    private int scan(LogQueryRequest request) throws IOException {
+        LogPredicate predicate = QueryCompiler.compile(request);
+        LocalDateTime startTime = LocalDateTime.ofInstant(request.getStartTime().toInstant(), ZoneId.systemDefault());
+        LocalDateTime endTime = LocalDateTime.ofInstant(request.getEndTime().toInstant(), ZoneId.systemDefault());
+        MappedSegment data = pool.acquire(dataFile);
+        MappedSegment index = pool.acquire(indexFile);
+        int hash = 0;
+        try (DataFileCursor cursor = new DataFileCursor(dataFile, data, index, serializer,
+                log -> LogQueryService.matches(log, predicate, startTime, endTime), startTime, -1, DataFileCursor.FROM_END)) {
+            if (predicate.level() == DecodeLevel.FULL) {
+                cursor.requireFullDecode();
+            } else if (predicate.level() == DecodeLevel.DIMENSION) {
+                cursor.requireDimensions();
+            }
+            while (cursor.advance()) {
+                hash += cursor.current().getId().hashCode();
+            }
+        }
+        return hash;
+    }
+}
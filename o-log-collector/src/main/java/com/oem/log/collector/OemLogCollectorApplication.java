@@ -0,0 +1,15 @@
+package com.oem.log.collector;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * OEM日志收集端应用程序
+ */
+@SpringBootApplication
+public class OemLogCollectorApplication {
+    
+    public static void main(String[] args) {
+        SpringApplication.run(OemLogCollectorApplication.class, args);
+    }
+}
@@ -0,0 +1,178 @@
+package com.oem.log.collector.service;
+
+import com.oem.log.core.ship.ShipProtocol;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 单个应用节点连接的接收过程
+ * 追加文件从本地已有的长度续写，一次写成的文件先写入.part，收齐后原子替换；每个文件写入后刷盘再确认。
+ * 报头和文件内容都经套接字的输入流读取，读取超时（idle-timeout-ms）对整个会话生效，节点失联后会话线程随即退出
+ */
+@Slf4j
+final class ReceiveSession {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final SegmentReceiver receiver;
+    private final SocketChannel channel;
+    private final String remote;
+
+    private DataInputStream in;
+    private ReadableByteChannel source;
+    private DataOutputStream out;
+
+    ReceiveSession(SegmentReceiver receiver, SocketChannel channel) {
+        this.receiver = receiver;
+        this.channel = channel;
+        this.remote = String.valueOf(channel.socket().getRemoteSocketAddress());
+    }
+
+    void run() {
+        try {
+            channel.socket().setKeepAlive(true);
+            // 超时只对套接字的流生效，直接读通道不受限制，所以文件内容也从流读取
+            channel.socket().setSoTimeout(receiver.getIdleTimeoutMs());
+            in = new DataInputStream(channel.socket().getInputStream());
+            source = Channels.newChannel(channel.socket().getInputStream());
+            out = new DataOutputStream(new BufferedOutputStream(channel.socket().getOutputStream()));
+            if (!handshake()) {
+                return;
+            }
+            log.info("应用节点已连接: {}", remote);
+
+            while (true) {
+                byte kind;
+                try {
+                    kind = in.readByte();
+                } catch (EOFException e) {
+                    log.info("应用节点已断开: {}", remote);
+                    return;
+                } catch (SocketTimeoutException e) {
+                    log.warn("应用节点超过{}毫秒没有报价，关闭连接: {}", receiver.getIdleTimeoutMs(), remote);
+                    return;
+                }
+                byte dir = in.readByte();
+                String name = in.readUTF();
+                long length = in.readLong();
+
+                File target = receiver.resolve(dir, name);
+                if (target == null || length < 0
+                        || (kind != ShipProtocol.KIND_APPEND && kind != ShipProtocol.KIND_WHOLE)) {
+                    log.warn("拒绝不合法的文件报价: {} {}", remote, name);
+                    out.writeLong(ShipProtocol.REJECTED);
+                    out.flush();
+                    continue;
+                }
+                if (kind == ShipProtocol.KIND_APPEND) {
+                    receiveAppend(target, length);
+                } else {
+                    receiveWhole(target, length);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("接收日志文件中断: {}，{}", remote, e.toString());
+        }
+    }
+
+    private boolean handshake() throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        String requestToken = in.readUTF();
+        byte status;
+        if (magic != ShipProtocol.MAGIC || version != ShipProtocol.VERSION) {
+            status = ShipProtocol.STATUS_UNSUPPORTED;
+        } else if (!receiver.isAuthorized(requestToken)) {
+            status = ShipProtocol.STATUS_DENIED;
+        } else {
+            status = ShipProtocol.STATUS_OK;
+        }
+        out.writeByte(status);
+        out.flush();
+        if (status != ShipProtocol.STATUS_OK) {
+            log.warn("拒绝应用节点连接: {}，{}", remote, status == ShipProtocol.STATUS_DENIED ? "访问令牌无效" : "协议不兼容");
+            return false;
+        }
+        return true;
+    }
+
+    // 已有的字节数即续传起点；本地比报价长时不再写入
+    private void receiveAppend(File target, long length) throws IOException {
+        try (FileChannel file = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = file.size();
+            long count = exchangeOffset(offset, length);
+            receive(file, offset, count);
+            if (count > 0) {
+                file.force(false);
+            }
+            acknowledge(offset + count);
+        }
+    }
+
+    // 已收齐时回复完整长度；否则从.part的长度续传，.part比报价长（源文件被重写）时从头开始
+    private void receiveWhole(File target, long length) throws IOException {
+        if (target.isFile() && target.length() == length) {
+            exchangeOffset(length, length);
+            acknowledge(length);
+            return;
+        }
+        File part = new File(target.getPath() + PART_SUFFIX);
+        try (FileChannel file = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = file.size();
+            if (offset > length) {
+                file.truncate(0);
+                offset = 0;
+            }
+            long count = exchangeOffset(offset, length);
+            receive(file, offset, count);
+            file.force(false);
+        }
+        long received = part.length();
+        if (received == length) {
+            Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        acknowledge(received);
+    }
+
+    // 回复续传起点并读取随后的字节数
+    private long exchangeOffset(long offset, long length) throws IOException {
+        out.writeLong(offset);
+        out.flush();
+        long count = in.readLong();
+        if (count < 0 || count > Math.max(0, length - offset)) {
+            throw new IOException("字节数与报价不符: " + count);
+        }
+        return count;
+    }
+
+    private void receive(FileChannel file, long position, long count) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long received = file.transferFrom(source, position, end - position);
+            if (received <= 0) {
+                // 不完整的尾部留在文件中，下次报价时从实际长度续传
+                throw new EOFException("传输中连接已关闭");
+            }
+            position += received;
+        }
+    }
+
+    private void acknowledge(long confirmed) throws IOException {
+        out.writeLong(confirmed);
+        out.flush();
+    }
+}
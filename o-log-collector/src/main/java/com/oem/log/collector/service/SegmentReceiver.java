@@ -0,0 +1,172 @@
+package com.oem.log.collector.service;
+
+import com.oem.log.core.ship.ShipProtocol;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 日志文件接收服务
+ * 监听应用节点的传送连接，每个连接一个线程，按应用节点上相同的文件名写入{base-dir}/data和{base-dir}/index，
+ * 查看端把search-dir指向{base-dir}/data即可查询所有节点；各节点主机名须不同，文件名中的主机名用于区分节点
+ */
+@Slf4j
+@Service
+public class SegmentReceiver {
+
+    @Value("${oem.log.collector.base-dir:/logs/api}")
+    private String baseDir;
+
+    @Value("${oem.log.collector.port:" + ShipProtocol.DEFAULT_PORT + "}")
+    private int port;
+
+    @Value("${oem.log.collector.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${oem.log.collector.token:}")
+    private String token;
+
+    @Value("${oem.log.collector.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${oem.log.collector.idle-timeout-ms:300000}")
+    private int idleTimeoutMs;
+
+    private File dataDir;
+    private File indexDir;
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor executor;
+    private Thread acceptThread;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() throws IOException {
+        dataDir = new File(baseDir, "data");
+        indexDir = new File(baseDir, "index");
+        Files.createDirectories(dataDir.toPath());
+        Files.createDirectories(indexDir.toPath());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "log-collector-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        InetSocketAddress address = bindAddress == null || bindAddress.isEmpty()
+                ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port);
+        // 收到的文件会覆盖接收目录中的同名文件，没有令牌时只允许本机连接
+        if (token == null || token.isEmpty()) {
+            if (address.getAddress() == null || !address.getAddress().isLoopbackAddress()) {
+                throw new IllegalStateException("日志收集端监听" + address + "时必须配置oem.log.collector.token");
+            }
+            log.warn("日志收集端未配置访问令牌，仅接受本机连接");
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(address);
+
+        // 接收线程不是守护线程，没有Web容器时保持进程运行
+        acceptThread = new Thread(this::acceptLoop, "log-collector-accept");
+        acceptThread.start();
+        log.info("日志收集端已启动，监听: {}，接收目录: {}", address, new File(baseDir).getAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.debug("关闭监听端口失败", e);
+        }
+        // 关闭连接使接收线程退出，未确认的部分由节点重连后续传
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+        executor.shutdownNow();
+        log.info("日志收集端已关闭");
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("接受连接失败", e);
+                continue;
+            }
+            connections.add(connection);
+            try {
+                executor.execute(() -> {
+                    try {
+                        new ReceiveSession(this, connection).run();
+                    } finally {
+                        connections.remove(connection);
+                        closeQuietly(connection);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("连接数已达上限{}，关闭新连接", maxConnections);
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * 报价文件在接收目录中的位置，文件名或目录不合法时返回null
+     */
+    File resolve(byte dir, String name) {
+        if (!ShipProtocol.isValidName(dir, name)) {
+            return null;
+        }
+        return new File(dir == ShipProtocol.DIR_DATA ? dataDir : indexDir, name);
+    }
+
+    /**
+     * 读取应用节点数据的超时（毫秒），节点断电或网络中断时会话线程在此之后退出，不再占用连接数
+     */
+    int getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    // 按字节逐一比较，耗时与令牌内容无关；未配置令牌时启动时已限定为本机连接
+    boolean isAuthorized(String requestToken) {
+        if (token == null || token.isEmpty()) {
+            return true;
+        }
+        return requestToken != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void closeQuietly(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.debug("关闭连接失败", e);
+        }
+    }
+}
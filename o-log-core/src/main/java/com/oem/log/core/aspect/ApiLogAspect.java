@@ -11,15 +11,20 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * API日志记录切面
@@ -35,6 +40,15 @@ public class ApiLogAspect {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Value("${oem.log.max-content-length:1000}")
+    private int maxContentLength;
+    
+    // 按方法缓存的监控元数据，避免每次调用都做注解反射
+    private final Map<Method, MonitorMetadata> metadataCache = new ConcurrentHashMap<>();
+    
+    // 本机主机名，只解析一次
+    private final String hostname = resolveHostname();
+    
     /**
      * 定义切点：所有标注了@ApiMonitor注解的方法
      */
@@ -56,7 +70,6 @@ public class ApiLogAspect {
         }
         
         HttpServletRequest request = attributes.getRequest();
-        String hostname = InetAddress.getLocalHost().getHostName();
         ApiLog.ApiLogBuilder logBuilder = ApiLog.builder()
                 .id(UUID.randomUUID().toString())
                 .hostname(hostname)
@@ -65,33 +78,30 @@ public class ApiLogAspect {
                 .method(request.getMethod())
                 .clientIp(getClientIp(request));
         
-        // 获取请求参数
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        ApiMonitor apiMonitor = signature.getMethod().getAnnotation(ApiMonitor.class);
+        // 获取方法监控元数据
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MonitorMetadata metadata = metadataCache.computeIfAbsent(method, MonitorMetadata::new);
         
         // 记录请求体
-        if (apiMonitor.logRequest()) {
+        if (metadata.logRequest) {
             try {
                 Object[] args = joinPoint.getArgs();
-                StringBuilder requestParams = new StringBuilder();
+                BoundedJsonWriter requestParams = new BoundedJsonWriter(objectMapper, maxContentLength);
                 
-                for (Object arg : args) {
+                for (int i = 0; i < args.length; i++) {
+                    Object arg = args[i];
                     // 跳过请求和响应对象
-                    if (arg instanceof HttpServletRequest || arg instanceof HttpServletResponse) {
+                    if (metadata.isSkippedArg(i) || arg instanceof ServletRequest || arg instanceof ServletResponse) {
                         continue;
                     }
                     
-                    try {
-                        // 转换为JSON字符串
-                        String argJson = objectMapper.writeValueAsString(arg);
-                        requestParams.append(argJson).append(", ");
-                    } catch (Exception e) {
-                        // 忽略序列化异常
-                        requestParams.append(arg.toString()).append(", ");
+                    // 流式转换为JSON，达到长度上限后不再序列化后续参数
+                    if (!requestParams.appendJson(arg) || !requestParams.appendText(", ")) {
+                        break;
                     }
                 }
                 
-                logBuilder.requestParams(requestParams.toString());
+                logBuilder.requestParams(requestParams.getContent());
             } catch (Exception e) {
                 log.warn("记录请求参数失败", e);
             }
@@ -103,14 +113,12 @@ public class ApiLogAspect {
             result = joinPoint.proceed();
             
             // 记录响应结果
-            if (apiMonitor.logResponse() && result != null) {
+            if (metadata.logResponse && result != null) {
                 try {
-                    String responseJson = objectMapper.writeValueAsString(result);
-                    // 过长的响应可以截断
-                    if (responseJson.length() > 1000) {
-                        responseJson = responseJson.substring(0, 1000) + "...";
-                    }
-                    logBuilder.responseBody(responseJson);
+                    // 过长的响应在达到上限时直接中断序列化
+                    BoundedJsonWriter responseJson = new BoundedJsonWriter(objectMapper, maxContentLength);
+                    responseJson.appendJson(result);
+                    logBuilder.responseBody(responseJson.getContent());
                 } catch (Exception e) {
                     log.warn("记录响应数据失败", e);
                     logBuilder.responseBody(result.toString());
@@ -142,6 +150,18 @@ public class ApiLogAspect {
         return result;
     }
     
+    /**
+     * 获取主机名
+     */
+    private static String resolveHostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            log.warn("获取主机名失败", e);
+            return "unknown";
+        }
+    }
+    
     /**
      * 获取客户端真实IP
      */
@@ -164,4 +184,34 @@ public class ApiLogAspect {
         }
         return ip;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 方法级监控元数据
+     */
+    private static final class MonitorMetadata {
+        
+        private final boolean logRequest;
+        
+        private final boolean logResponse;
+        
+        // 声明类型为请求/响应对象的参数位置
+        private final boolean[] skippedArgs;
+        
+        MonitorMetadata(Method method) {
+            ApiMonitor apiMonitor = method.getAnnotation(ApiMonitor.class);
+            this.logRequest = apiMonitor == null || apiMonitor.logRequest();
+            this.logResponse = apiMonitor == null || apiMonitor.logResponse();
+            
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.skippedArgs = new boolean[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                skippedArgs[i] = ServletRequest.class.isAssignableFrom(parameterTypes[i])
+                        || ServletResponse.class.isAssignableFrom(parameterTypes[i]);
+            }
+        }
+        
+        boolean isSkippedArg(int index) {
+            return index < skippedArgs.length && skippedArgs[index];
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.oem.log.core.aspect;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 有长度上限的JSON输出
+ * 通过流式JsonGenerator写入，字符数达到上限时立即中断序列化，
+ * 避免先完整序列化大对象再截断（中断粒度为生成器内部缓冲区大小）
+ */
+class BoundedJsonWriter extends Writer {
+
+    private final ObjectMapper objectMapper;
+    private final StringBuilder buffer;
+    private final int maxChars;
+    private boolean truncated = false;
+
+    BoundedJsonWriter(ObjectMapper objectMapper, int maxChars) {
+        this.objectMapper = objectMapper;
+        this.maxChars = maxChars;
+        this.buffer = new StringBuilder(Math.min(maxChars, 256));
+    }
+
+    /**
+     * 以JSON写入对象，序列化失败时退化为toString
+     * @return 还有剩余空间返回true，已达到上限返回false
+     */
+    boolean appendJson(Object value) {
+        if (truncated) {
+            return false;
+        }
+
+        int mark = buffer.length();
+        JsonGenerator generator = null;
+        try {
+            generator = objectMapper.getFactory().createGenerator(this);
+            objectMapper.writeValue(generator, value);
+            generator.flush();
+        } catch (Exception e) {
+            if (!truncated) {
+                // 忽略序列化异常，回退已写入的部分内容后按toString记录
+                buffer.setLength(mark);
+                appendText(String.valueOf(value));
+            }
+        } finally {
+            closeQuietly(generator);
+        }
+        return !truncated;
+    }
+
+    private void closeQuietly(JsonGenerator generator) {
+        if (generator == null) {
+            return;
+        }
+        try {
+            generator.close();
+        } catch (Exception e) {
+            // 达到上限后关闭时的残余刷新同样会被中断，忽略即可
+        }
+    }
+
+    /**
+     * 写入普通文本
+     * @return 还有剩余空间返回true，已达到上限返回false
+     */
+    boolean appendText(String text) {
+        try {
+            write(text, 0, text.length());
+        } catch (BudgetExceededException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 是否因达到上限而被截断
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 已写入的内容，截断时追加"..."
+     */
+    String getContent() {
+        return truncated ? buffer + "..." : buffer.toString();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws BudgetExceededException {
+        int remaining = maxChars - buffer.length();
+        if (len > remaining) {
+            buffer.append(cbuf, off, Math.max(remaining, 0));
+            truncated = true;
+            throw new BudgetExceededException();
+        }
+        buffer.append(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws BudgetExceededException {
+        int remaining = maxChars - buffer.length();
+        if (len > remaining) {
+            buffer.append(str, off, off + Math.max(remaining, 0));
+            truncated = true;
+            throw new BudgetExceededException();
+        }
+        buffer.append(str, off, off + len);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 达到长度上限时用于中断序列化，不采集堆栈
+     * 继承IOException，Jackson会原样向上抛出而不包装
+     */
+    static class BudgetExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super("JSON输出达到长度上限", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -2,11 +2,16 @@ package com.oem.log.core.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.oem.log.core.controller.LogQueryEndpoint;
+import com.oem.log.core.metrics.LogMetricsBinder;
 import com.oem.log.core.serializer.JsonLogSerializer;
 import com.oem.log.core.serializer.LogSerializer;
+import com.oem.log.core.ship.SegmentShipper;
 import com.oem.log.core.store.LogStore;
 import com.oem.log.core.store.MappedFileLogStore;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -14,9 +19,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
-
 /**
  * API日志自动配置类
  */
@@ -29,7 +31,20 @@ public class ApiLogAutoConfiguration {
     @Value("${oem.log.base-dir:./logs/api}")
     private String baseDir;
     
-    private LogStore logStore;
+    @Value("${oem.log.rollup.enabled:false}")
+    private boolean rollupEnabled;
+    
+    @Value("${oem.log.rollup.max-keys:1000}")
+    private int rollupMaxKeys;
+    
+    @Value("${oem.log.token-index.enabled:false}")
+    private boolean tokenIndexEnabled;
+    
+    @Value("${oem.log.token-index.ngrams:true}")
+    private boolean tokenIndexNgrams;
+    
+    @Value("${oem.log.segment-summary.enabled:false}")
+    private boolean segmentSummaryEnabled;
     
     @Bean
     @ConditionalOnMissingBean
@@ -45,24 +60,58 @@ public class ApiLogAutoConfiguration {
         return new JsonLogSerializer();
     }
     
-    @Bean
+    // 由容器在创建后启动、关闭时停止；配置类自身的@PostConstruct早于该方法执行，无法用来启动存储
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
     @ConditionalOnMissingBean
     public LogStore logStore(LogSerializer logSerializer) {
-        logStore = new MappedFileLogStore(baseDir, logSerializer);
-        return logStore;
+        MappedFileLogStore mappedFileLogStore = new MappedFileLogStore(baseDir, logSerializer);
+        mappedFileLogStore.setRollupEnabled(rollupEnabled);
+        mappedFileLogStore.setRollupMaxKeys(rollupMaxKeys);
+        mappedFileLogStore.setTokenIndexEnabled(tokenIndexEnabled);
+        mappedFileLogStore.setTokenIndexNgrams(tokenIndexNgrams);
+        mappedFileLogStore.setSegmentSummaryEnabled(segmentSummaryEnabled);
+        return mappedFileLogStore;
     }
     
-    @PostConstruct
-    public void init() {
-        if (logStore != null) {
-            logStore.start();
-        }
+    // 应用只扫描自身包时也能注册本机查询端点，已被组件扫描注册时不重复注册
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oem.log.query-endpoint", name = "enabled", havingValue = "true")
+    public LogQueryEndpoint logQueryEndpoint() {
+        return new LogQueryEndpoint();
+    }
+    
+    // 依赖存储，关闭时先于存储停止；自定义存储没有本地文件布局，所有文件都按已封存处理
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oem.log.shipper", name = "enabled", havingValue = "true")
+    public SegmentShipper segmentShipper(LogStore logStore, ApiLogProperties properties) {
+        ApiLogProperties.Shipper config = properties.getShipper();
+        SegmentShipper shipper = new SegmentShipper(baseDir, config.getCollector(),
+                logStore instanceof MappedFileLogStore ? ((MappedFileLogStore) logStore)::getCurrentDataFileName : () -> null);
+        shipper.setToken(config.getToken());
+        shipper.setIntervalMs(config.getIntervalMs());
+        shipper.setMaxBytesPerSecond(config.getMaxBytesPerSecond());
+        shipper.setIncludeLive(config.isIncludeLive());
+        shipper.setConnectTimeoutMs(config.getConnectTimeoutMs());
+        return shipper;
     }
     
-    @PreDestroy
-    public void destroy() {
-        if (logStore != null) {
-            logStore.shutdown();
+    /**
+     * Micrometer 指标绑定配置
+     */
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    @ConditionalOnProperty(prefix = "oem.log.metrics", name = "micrometer-enabled", havingValue = "true", matchIfMissing = true)
+    static class MicrometerConfiguration {
+        
+        @Bean
+        public MeterBinder logMetricsBinder(LogStore logStore) {
+            if (logStore instanceof MappedFileLogStore) {
+                return new LogMetricsBinder(((MappedFileLogStore) logStore).getMetrics());
+            }
+            // 自定义存储实现没有LogMetrics，不注册任何指标
+            return registry -> { };
         }
     }
-} 
\ No newline at end of file
+}
@@ -7,19 +7,24 @@ import com.oem.log.core.store.LogStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * API日志过滤器配置
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ConditionalOnProperty(prefix = "oem.log", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class ApiLogFilterConfig {
 
@@ -28,6 +33,15 @@ public class ApiLogFilterConfig {
     
     @Value("${oem.log.max-content-length:1000}")
     private int maxContentLength;
+    
+    @Value("${oem.log.deferred-rendering:false}")
+    private boolean deferredRendering;
+    
+    @Value("${oem.log.log-headers:false}")
+    private boolean logHeaders;
+    
+    @Value("${oem.log.phase-timing:false}")
+    private boolean phaseTiming;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -43,12 +57,47 @@ public class ApiLogFilterConfig {
         // 添加默认处理器
         filter.addProcessor(new DefaultApiLogProcessor(objectMapper, maxContentLength));
         
+        // 延迟渲染：按UTF-8单字符最多4字节截取原始字节，保证解码后仍能截出maxContentLength个字符
+        filter.setDeferredRendering(deferredRendering);
+        filter.setMaxCaptureBytes(maxContentLength * 4);
+        filter.setCaptureHeaders(logHeaders);
+        filter.setPhaseTiming(phaseTiming);
+        
         FilterRegistrationBean<ApiLogFilter> registration = new FilterRegistrationBean<>();
         registration.setFilter(filter);
-        registration.setUrlPatterns(patterns);
+        registration.setUrlPatterns(toServletPatterns(patterns));
         registration.setName("apiLogFilter");
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100); // 确保在基本过滤器之后执行
         
         return registration;
     }
+
+    /**
+     * 把Ant风格的模式转换为Servlet映射
+     * Servlet映射只支持前缀/*和后缀*.ext，/api/**会被当作精确路径而永远不匹配，
+     * 这里取第一个通配符之前的目录作为前缀映射，精确匹配仍由过滤器内的AntPathMatcher完成
+     */
+    static List<String> toServletPatterns(List<String> patterns) {
+        Set<String> servletPatterns = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            int wildcard = indexOfWildcard(pattern);
+            if (wildcard < 0) {
+                servletPatterns.add(pattern);
+                continue;
+            }
+            int slash = pattern.lastIndexOf('/', wildcard);
+            servletPatterns.add(slash <= 0 ? "/*" : pattern.substring(0, slash) + "/*");
+        }
+        return new ArrayList<>(servletPatterns);
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
 } 
\ No newline at end of file
@@ -68,11 +68,46 @@ public class ApiLogProperties {
      */
     private boolean logHeaders = false;
     
+    /**
+     * 是否启用延迟渲染（请求线程只采集原始字节，解码和处理器增强在写入线程执行）
+     */
+    private boolean deferredRendering = false;
+    
+    /**
+     * 是否记录纳秒级阶段耗时分解（前置处理、业务处理、响应处理、队列等待）
+     */
+    private boolean phaseTiming = false;
+    
     /**
      * 监控配置
      */
     private Metrics metrics = new Metrics();
     
+    /**
+     * 接口RED汇总配置
+     */
+    private Rollup rollup = new Rollup();
+    
+    /**
+     * 全文词元索引配置
+     */
+    private TokenIndex tokenIndex = new TokenIndex();
+    
+    /**
+     * 文件摘要配置
+     */
+    private SegmentSummary segmentSummary = new SegmentSummary();
+    
+    /**
+     * 本机日志查询端点配置
+     */
+    private QueryEndpoint queryEndpoint = new QueryEndpoint();
+    
+    /**
+     * 日志文件传送配置
+     */
+    private Shipper shipper = new Shipper();
+    
     @Data
     public static class Metrics {
         /**
@@ -94,5 +129,100 @@ public class ApiLogProperties {
          * 性能警告阈值(毫秒)
          */
         private long performanceThreshold = 100;
+        
+        /**
+         * 存在Micrometer时是否注册o-log自身指标
+         */
+        private boolean micrometerEnabled = true;
+    }
+    
+    @Data
+    public static class Rollup {
+        /**
+         * 是否在写入时生成10秒/1分钟粒度的接口汇总文件，汇总在写入线程上进行，默认关闭
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 每个汇总窗口最多保留的路径/方法/状态码组合数，超出部分归并为_other_
+         */
+        private int maxKeys = 1000;
+    }
+    
+    @Data
+    public static class TokenIndex {
+        /**
+         * 是否在数据文件封存后为异常信息、请求参数和响应体建立词元索引，默认关闭
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 是否同时索引词内三元组，关闭后只有被分隔符隔开的完整词能用索引加速
+         */
+        private boolean ngrams = true;
+    }
+    
+    @Data
+    public static class SegmentSummary {
+        /**
+         * 是否在数据文件封存时写出摘要（时间范围、状态码/路径/方法分布），供查看端跳过不可能命中的文件，默认关闭
+         */
+        private boolean enabled = false;
+    }
+    
+    @Data
+    public static class QueryEndpoint {
+        /**
+         * 是否开放/oem-log/query，供查看端跨节点查询本机日志
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 访问令牌，不为空时请求头X-OLog-Token须与之一致
+         */
+        private String token = "";
+        
+        /**
+         * 单次查询最多返回的条数
+         */
+        private int maxLimit = 1000;
+    }
+    
+    @Data
+    public static class Shipper {
+        /**
+         * 是否把本机的日志文件传送到收集端，由收集端按相同的目录布局集中存放，替代共享存储
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 收集端地址，host:port
+         */
+        private String collector = "";
+        
+        /**
+         * 收集端的访问令牌，须与收集端的oem.log.collector.token一致
+         */
+        private String token = "";
+        
+        /**
+         * 检查新内容的间隔(毫秒)
+         */
+        private long intervalMs = 1000;
+        
+        /**
+         * 传送速率上限(字节/秒)，0表示不限
+         */
+        private long maxBytesPerSecond = 0;
+        
+        /**
+         * 是否传送正在写入的文件，关闭时只传送已封存的文件
+         */
+        private boolean includeLive = true;
+        
+        /**
+         * 连接收集端的超时(毫秒)
+         */
+        private int connectTimeoutMs = 3000;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.oem.log.core.config;
+
+import com.oem.log.core.filter.ReactiveApiLogFilter;
+import com.oem.log.core.store.LogStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.WebFilter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 响应式API日志过滤器自动配置（Spring WebFlux应用）
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass(WebFilter.class)
+@ConditionalOnProperty(prefix = "oem.log", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(ApiLogAutoConfiguration.class)
+public class ReactiveApiLogAutoConfiguration {
+
+    @Value("${oem.log.url-patterns:/api/**}")
+    private String[] urlPatterns;
+    
+    @Value("${oem.log.max-content-length:1000}")
+    private int maxContentLength;
+
+    @Bean
+    @ConditionalOnBean(LogStore.class)
+    public ReactiveApiLogFilter reactiveApiLogFilter(LogStore logStore) {
+        List<String> patterns = urlPatterns != null ? 
+                Arrays.asList(urlPatterns) : 
+                Collections.singletonList("/**");
+        
+        return new ReactiveApiLogFilter(logStore, patterns, maxContentLength);
+    }
+}
@@ -1,6 +1,9 @@
 package com.oem.log.core.controller;
 
 import com.oem.log.core.metrics.LogMetrics;
+import com.oem.log.core.metrics.OpenMetricsWriter;
+import com.oem.log.core.metrics.SlidingWindowHistogram;
+import com.oem.log.core.rollup.RollupAggregator;
 import com.oem.log.core.store.LogStore;
 import com.oem.log.core.store.MappedFileLogStore;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,10 +13,13 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -41,6 +47,23 @@ public class LogMetricsEndpoint {
         return new HashMap<>();
     }
     
+    /**
+     * OpenMetrics文本格式指标，供Prometheus等抓取；不依赖Servlet API，响应式应用同样可用
+     */
+    @GetMapping(value = "/metrics/prometheus", produces = OpenMetricsWriter.CONTENT_TYPE)
+    public ResponseEntity<String> getPrometheusMetrics() throws IOException {
+        StringWriter writer = new StringWriter();
+        
+        if (logStore instanceof MappedFileLogStore) {
+            MappedFileLogStore store = (MappedFileLogStore) logStore;
+            RollupAggregator rollup = store.getRollupAggregator();
+            new OpenMetricsWriter(writer).write(store.getMetrics(), rollup != null ? rollup.getEndpointTotals() : null);
+        } else {
+            writer.write("# EOF\n");
+        }
+        return ResponseEntity.ok(writer.toString());
+    }
+    
     /**
      * 重置最大写入延迟指标
      */
@@ -68,15 +91,39 @@ public class LogMetricsEndpoint {
         result.put("currentIndexSize", formatSize(metrics.getCurrentIndexSize()));
         result.put("totalFiles", metrics.getTotalFiles());
         result.put("cacheOverflows", metrics.getCacheOverflows());
+        result.put("lastSecondThroughput", metrics.getLastSecondThroughput() + " /s");
+        result.put("minuteThroughput", String.format("%.1f /s", metrics.getMinuteThroughput()));
+        
+        SlidingWindowHistogram.Snapshot ingestLatency = metrics.getIngestLatency();
+        result.put("ingestLatency", formatSnapshot(ingestLatency, " µs"));
+        result.put("flushBatchSize", formatSnapshot(metrics.getFlushBatchSize(), ""));
+        result.put("ringOccupancy", formatSnapshot(metrics.getRingOccupancy(), ""));
+        
+        Map<String, Object> phaseTiming = new HashMap<>();
+        for (LogMetrics.Phase phase : LogMetrics.Phase.values()) {
+            phaseTiming.put(phase.getKey(), String.format("%.1f µs", metrics.getPhaseAvgMicros(phase)));
+        }
+        phaseTiming.put("requestOverhead", String.format("%.1f µs", metrics.getRequestOverheadAvgMicros()));
+        result.put("phaseTiming", phaseTiming);
         
         Map<String, Object> status = new HashMap<>();
         status.put("health", metrics.getTotalErrors() > 0 ? "warning" : "good");
-        status.put("performance", metrics.getMaxWriteLatency() > 100 ? "warning" : "good");
+        status.put("performance", ingestLatency.getP99() > 100_000 ? "warning" : "good");
         result.put("status", status);
         
         return result;
     }
     
+    private Map<String, Object> formatSnapshot(SlidingWindowHistogram.Snapshot snapshot, String unit) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", snapshot.getCount());
+        result.put("p50", snapshot.getP50() + unit);
+        result.put("p99", snapshot.getP99() + unit);
+        result.put("p999", snapshot.getP999() + unit);
+        result.put("max", snapshot.getMax() + unit);
+        return result;
+    }
+    
     private String formatSize(long bytes) {
         if (bytes < 1024) {
             return bytes + " B";
@@ -97,7 +144,6 @@ public class LogMetricsEndpoint {
     static class LogMetricsActuatorConfiguration {
         
         @Bean
-        @Endpoint(id = "oemlog")
         public LogMetricsActuator logMetricsActuator(LogStore logStore) {
             return new LogMetricsActuator(logStore);
         }
@@ -106,6 +152,7 @@ public class LogMetricsEndpoint {
     /**
      * Actuator 端点实现
      */
+    @Endpoint(id = "oemlog")
     static class LogMetricsActuator {
         
         private final LogStore logStore;
@@ -127,11 +174,33 @@ public class LogMetricsEndpoint {
                 result.put("totalBytes", metrics.getTotalBytes());
                 result.put("maxWriteLatency", metrics.getMaxWriteLatency());
                 result.put("totalFiles", metrics.getTotalFiles());
+                result.put("lastSecondThroughput", metrics.getLastSecondThroughput());
+                result.put("minuteThroughput", metrics.getMinuteThroughput());
+                result.put("ingestLatencyMicros", toMap(metrics.getIngestLatency()));
+                result.put("flushBatchSize", toMap(metrics.getFlushBatchSize()));
+                result.put("ringOccupancy", toMap(metrics.getRingOccupancy()));
+                
+                Map<String, Object> phaseTiming = new HashMap<>();
+                for (LogMetrics.Phase phase : LogMetrics.Phase.values()) {
+                    phaseTiming.put(phase.getKey(), metrics.getPhaseAvgMicros(phase));
+                }
+                phaseTiming.put("requestOverhead", metrics.getRequestOverheadAvgMicros());
+                result.put("phaseTimingMicros", phaseTiming);
                 
                 return result;
             }
             
             return new HashMap<>();
         }
+        
+        private Map<String, Object> toMap(SlidingWindowHistogram.Snapshot snapshot) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("count", snapshot.getCount());
+            result.put("p50", snapshot.getP50());
+            result.put("p99", snapshot.getP99());
+            result.put("p999", snapshot.getP999());
+            result.put("max", snapshot.getMax());
+            return result;
+        }
     }
 } 
\ No newline at end of file
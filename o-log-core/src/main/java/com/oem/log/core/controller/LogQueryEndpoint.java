@@ -0,0 +1,95 @@
+package com.oem.log.core.controller;
+
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QueryParser;
+import com.oem.log.core.query.QuerySyntaxException;
+import com.oem.log.core.store.LogQueryPage;
+import com.oem.log.core.store.LogStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本机日志查询端点，供查看端跨节点查询
+ * 返回的是日志原文（含请求参数和响应体），默认关闭，开启时应只对内网开放或配置访问令牌
+ */
+@RestController
+@RequestMapping("/oem-log")
+@ConditionalOnProperty(prefix = "oem.log.query-endpoint", name = "enabled", havingValue = "true")
+public class LogQueryEndpoint {
+
+    public static final String TOKEN_HEADER = "X-OLog-Token";
+
+    @Autowired
+    private LogStore logStore;
+
+    @Value("${oem.log.query-endpoint.token:}")
+    private String token;
+
+    @Value("${oem.log.query-endpoint.max-limit:1000}")
+    private int maxLimit;
+
+    // 单次查询的扫描时间预算（毫秒），超过后返回已找到的记录并标记partial，不大于0时不限
+    @Value("${oem.log.query-endpoint.max-scan-millis:2000}")
+    private long maxScanMillis;
+
+    /**
+     * 按请求时间倒序返回时间范围内满足查询语句的最新limit条日志
+     * 扫描超过max-scan-millis时提前返回，partial为true，此时结果只是已扫描的较新文件中最新的记录
+     * @param startTime 开始时间戳（毫秒，含），为空时不限
+     * @param endTime 结束时间戳（毫秒，含），为空时不限
+     * @param query 查询语句，语法与查看端相同，为空时不过滤
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Map<String, Object>> query(
+            @RequestParam(value = "startTime", required = false) Long startTime,
+            @RequestParam(value = "endTime", required = false) Long endTime,
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestHeader(value = TOKEN_HEADER, required = false) String requestToken) {
+        Map<String, Object> result = new HashMap<>();
+        if (!isAuthorized(requestToken)) {
+            result.put("message", "访问令牌无效");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(result);
+        }
+        LogPredicate predicate;
+        try {
+            predicate = QueryParser.parse(query);
+        } catch (QuerySyntaxException e) {
+            result.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        long begin = System.currentTimeMillis();
+        LogQueryPage page = logStore.query(predicate,
+                startTime != null ? startTime : Long.MIN_VALUE,
+                endTime != null ? endTime : Long.MAX_VALUE,
+                Math.max(0, Math.min(limit, maxLimit)),
+                maxScanMillis);
+        result.put("logs", page.getLogs());
+        result.put("partial", page.isPartial());
+        result.put("elapsedMillis", System.currentTimeMillis() - begin);
+        return ResponseEntity.ok(result);
+    }
+
+    // 按字节逐一比较，耗时与令牌内容无关
+    private boolean isAuthorized(String requestToken) {
+        if (token == null || token.isEmpty()) {
+            return true;
+        }
+        return requestToken != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,150 @@
+package com.oem.log.core.filter;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.model.ApiLogTiming;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 请求捕获记录（延迟渲染模式）
+ * 请求线程只保存原始字节片段、状态码和耗时，
+ * 字符串解码、截断以及处理器增强都推迟到日志写入线程上执行
+ */
+@Data
+@Builder
+@Slf4j
+public class ApiLogCapture {
+
+    /**
+     * 请求开始时间戳（毫秒）
+     */
+    private long requestTimeMillis;
+
+    /**
+     * 主机名
+     */
+    private String hostname;
+
+    /**
+     * 请求路径
+     */
+    private String path;
+
+    /**
+     * 请求方法
+     */
+    private String method;
+
+    /**
+     * 原始查询字符串
+     */
+    private String queryString;
+
+    /**
+     * 请求IP
+     */
+    private String clientIp;
+
+    /**
+     * 请求内容类型
+     */
+    private String requestContentType;
+
+    /**
+     * 请求体字节片段（最多截取maxCaptureBytes字节）
+     */
+    private byte[] requestBody;
+
+    /**
+     * 请求体原始长度
+     */
+    private long requestBodyLength;
+
+    /**
+     * 响应内容类型
+     */
+    private String responseContentType;
+
+    /**
+     * 响应体字节片段（最多截取maxCaptureBytes字节）
+     */
+    private byte[] responseBody;
+
+    /**
+     * 响应体原始长度
+     */
+    private long responseBodyLength;
+
+    /**
+     * 请求头快照（仅在开启log-headers时采集）
+     */
+    private Map<String, String> requestHeaders;
+
+    /**
+     * 响应状态码
+     */
+    private int statusCode;
+
+    /**
+     * 捕获的异常（如果有）
+     */
+    private Exception exception;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private long executionTime;
+
+    /**
+     * 阶段耗时分解（开启phase-timing时记录）
+     */
+    private ApiLogTiming timing;
+
+    /**
+     * 需要参与渲染的处理器
+     */
+    private List<ApiLogProcessor> processors;
+
+    /**
+     * 渲染为ApiLog，在日志写入线程上调用
+     */
+    public ApiLog render() {
+        ApiLog.ApiLogBuilder logBuilder = ApiLog.builder()
+                .id(UUID.randomUUID().toString())
+                .hostname(hostname)
+                .requestTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(requestTimeMillis), ZoneId.systemDefault()))
+                .path(path)
+                .method(method)
+                .clientIp(clientIp)
+                .statusCode(statusCode)
+                .executionTime(executionTime)
+                .timing(timing);
+
+        if (exception != null) {
+            logBuilder.exceptionMsg(exception.getMessage());
+        }
+
+        if (processors != null) {
+            for (ApiLogProcessor processor : processors) {
+                try {
+                    processor.processCapture(this, logBuilder);
+                    if (exception != null) {
+                        processor.processException(exception, logBuilder);
+                    }
+                } catch (Exception e) {
+                    log.warn("渲染延迟日志时出错", e);
+                }
+            }
+        }
+
+        return logBuilder.build();
+    }
+}
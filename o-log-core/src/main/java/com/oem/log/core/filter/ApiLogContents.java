@@ -0,0 +1,129 @@
+package com.oem.log.core.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Servlet与响应式过滤器共用的日志内容工具：URL匹配、内容类型过滤、客户端IP/主机名解析和内容截断
+ */
+@Slf4j
+final class ApiLogContents {
+
+    // 截断内容后追加的标记
+    static final String TRUNCATED_MARKER = "... (content truncated)";
+
+    // 不记录二进制内容的媒体类型
+    private static final List<String> INVISIBLE_CONTENT_TYPES = Arrays.asList(
+            MediaType.IMAGE_JPEG_VALUE,
+            MediaType.IMAGE_PNG_VALUE,
+            MediaType.IMAGE_GIF_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            MediaType.APPLICATION_PDF_VALUE,
+            MediaType.MULTIPART_FORM_DATA_VALUE
+    );
+
+    // 依次尝试的客户端IP请求头
+    private static final String[] CLIENT_IP_HEADERS = {
+            "X-Forwarded-For",
+            "Proxy-Client-IP",
+            "WL-Proxy-Client-IP",
+            "HTTP_CLIENT_IP",
+            "HTTP_X_FORWARDED_FOR"
+    };
+
+    private ApiLogContents() {
+    }
+
+    /**
+     * 检查请求路径是否匹配配置的模式，未配置时监控所有请求
+     */
+    static boolean isUrlMatch(AntPathMatcher pathMatcher, List<String> urlPatterns, String path) {
+        if (urlPatterns == null || urlPatterns.isEmpty()) {
+            return true;
+        }
+
+        for (String pattern : urlPatterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断是否应该捕获内容
+     */
+    static boolean shouldCaptureContent(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+
+        String lowerCase = contentType.toLowerCase();
+        for (String type : INVISIBLE_CONTENT_TYPES) {
+            if (lowerCase.contains(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 截断过长内容
+     */
+    static String truncate(String content, int maxContentLength) {
+        if (content.length() > maxContentLength) {
+            return content.substring(0, maxContentLength) + TRUNCATED_MARKER;
+        }
+        return content;
+    }
+
+    /**
+     * 解码截取的字节片段，片段短于原始长度或字符数超限时追加截断标记
+     */
+    static String decodeSlice(byte[] slice, long originalLength, int maxContentLength) {
+        if (slice == null || slice.length == 0) {
+            return null;
+        }
+
+        String content = new String(slice, StandardCharsets.UTF_8);
+        if (content.length() > maxContentLength || slice.length < originalLength) {
+            return content.substring(0, Math.min(content.length(), maxContentLength)) + TRUNCATED_MARKER;
+        }
+        return content;
+    }
+
+    /**
+     * 获取客户端IP，依次检查代理请求头，都没有时使用连接的远端地址
+     * @param headers 按名称读取请求头
+     * @param remoteAddress 远端地址，只在请求头都缺失时才读取
+     */
+    static String getClientIp(Function<String, String> headers, Supplier<String> remoteAddress) {
+        for (String name : CLIENT_IP_HEADERS) {
+            String ip = headers.apply(name);
+            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
+                return ip;
+            }
+        }
+        return remoteAddress.get();
+    }
+
+    /**
+     * 获取主机名，启动时解析一次，避免每个请求都做一次解析
+     */
+    static String resolveHostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            log.warn("获取主机名失败", e);
+            return "unknown";
+        }
+    }
+}
@@ -1,154 +1,315 @@
 package com.oem.log.core.filter;
 
 import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.model.ApiLogTiming;
 import com.oem.log.core.store.LogStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.AntPathMatcher;
+import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 import org.springframework.web.util.UrlPathHelper;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.net.InetAddress;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * API日志记录过滤器
  * 替代原有AOP实现，提供更高性能和灵活性
+ * 支持Servlet异步请求（DeferredResult/Callable/CompletableFuture），在异步响应真正完成时记录一次日志
  */
 @Slf4j
 public class ApiLogFilter extends OncePerRequestFilter {
 
+    // 异步请求期间保存日志记录过程的请求属性名
+    private static final String RECORDING_ATTRIBUTE = ApiLogFilter.class.getName() + ".RECORDING";
+
     private final LogStore logStore;
     private final List<String> urlPatterns;
     private final List<ApiLogProcessor> processors = new ArrayList<>();
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
     private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final String hostname;
+
+    private static final byte[] EMPTY_CONTENT = new byte[0];
+
+    // 延迟渲染模式：请求线程只采集原始字节，解码和处理器增强在写入线程执行
+    private boolean deferredRendering = false;
+
+    // 延迟渲染模式下单个请求/响应体最多截取的字节数
+    private int maxCaptureBytes = 4096;
+
+    // 延迟渲染模式下是否采集请求头快照
+    private boolean captureHeaders = false;
+
+    // 是否记录纳秒级阶段耗时分解
+    private boolean phaseTiming = false;
 
     public ApiLogFilter(LogStore logStore, List<String> urlPatterns) {
         this.logStore = logStore;
         this.urlPatterns = urlPatterns;
+        this.hostname = ApiLogContents.resolveHostname();
         loadProcessors();
     }
 
+    /**
+     * 异步派发也需要经过过滤器，以便在最后一次派发结束时采集响应内容
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        
+
+        // 异步派发：延续首次请求创建的记录过程
+        if (isAsyncDispatch(request)) {
+            LogRecording recording = (LogRecording) request.getAttribute(RECORDING_ATTRIBUTE);
+            if (recording == null) {
+                filterChain.doFilter(request, response);
+            } else {
+                recording.proceed(request, response, filterChain);
+            }
+            return;
+        }
+
         String path = urlPathHelper.getPathWithinApplication(request);
-        
+
         // 检查是否匹配URL模式
-        if (!isUrlMatch(path)) {
+        if (!ApiLogContents.isUrlMatch(pathMatcher, urlPatterns, path)) {
             filterChain.doFilter(request, response);
             return;
         }
-        
+
         // 检查自定义处理器是否认为应该处理此请求
-        boolean shouldProcess = false;
-        for (ApiLogProcessor processor : processors) {
-            if (processor.shouldProcess(request)) {
-                shouldProcess = true;
-                break;
-            }
-        }
-        
+        List<ApiLogProcessor> matchedProcessors = resolveProcessors(request);
+
         // 如果没有配置处理器且URL匹配，默认处理
-        if (!shouldProcess && processors.size() > 0) {
+        if (matchedProcessors.isEmpty() && processors.size() > 0) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        // 包装请求和响应以捕获内容
-        ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(request);
-        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        LogRecording recording = deferredRendering
+                ? new DeferredLogRecording(request, response, path, matchedProcessors)
+                : new ImmediateLogRecording(request, response, path, matchedProcessors);
+        recording.proceed(request, response, filterChain);
+    }
 
-        long startTime = System.currentTimeMillis();
-        String hostname;
-        try {
-            hostname = InetAddress.getLocalHost().getHostName();
-        } catch (Exception e) {
-            hostname = "unknown";
-            log.warn("获取主机名失败", e);
+    /**
+     * 筛选应处理当前请求的处理器，全部匹配时直接复用处理器列表
+     */
+    private List<ApiLogProcessor> resolveProcessors(HttpServletRequest request) {
+        List<ApiLogProcessor> matched = null;
+        for (int i = 0; i < processors.size(); i++) {
+            ApiLogProcessor processor = processors.get(i);
+            if (processor.shouldProcess(request)) {
+                if (matched != null) {
+                    matched.add(processor);
+                }
+            } else if (matched == null) {
+                matched = new ArrayList<>(processors.subList(0, i));
+            }
         }
+        return matched != null ? matched : processors;
+    }
 
-        ApiLog.ApiLogBuilder logBuilder = ApiLog.builder()
-                .id(UUID.randomUUID().toString())
-                .hostname(hostname)
-                .requestTime(LocalDateTime.now())
-                .path(path)
-                .method(request.getMethod())
-                .clientIp(getClientIp(request));
-
-        Exception exception = null;
+    /**
+     * 从响应缓存中截取不超过maxCaptureBytes的字节片段
+     */
+    private byte[] readResponseSlice(ContentCachingResponseWrapper responseWrapper) {
+        int size = Math.min(responseWrapper.getContentSize(), maxCaptureBytes);
+        if (size <= 0) {
+            return EMPTY_CONTENT;
+        }
 
-        try {
-            // 处理请求阶段
-            for (ApiLogProcessor processor : processors) {
-                if (processor.shouldProcess(request)) {
-                    try {
-                        processor.processRequest(requestWrapper, logBuilder);
-                    } catch (Exception e) {
-                        log.warn("处理请求日志时出错", e);
-                    }
+        byte[] slice = new byte[size];
+        try (InputStream in = responseWrapper.getContentInputStream()) {
+            int read = 0;
+            while (read < size) {
+                int n = in.read(slice, read, size - read);
+                if (n < 0) {
+                    break;
                 }
+                read += n;
             }
+        } catch (IOException e) {
+            log.warn("读取响应内容失败", e);
+            return EMPTY_CONTENT;
+        }
+        return slice;
+    }
 
-            // 继续过滤器链
-            filterChain.doFilter(requestWrapper, responseWrapper);
+    /**
+     * 采集请求头快照
+     */
+    private Map<String, String> snapshotHeaders(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedCaseInsensitiveMap<>();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            headers.put(name, request.getHeader(name));
+        }
+        return headers;
+    }
 
-            // 设置状态码
-            logBuilder.statusCode(responseWrapper.getStatus());
+    /**
+     * 使用SPI加载处理器
+     */
+    private void loadProcessors() {
+        // 加载SPI定义的处理器
+        ServiceLoader<ApiLogProcessor> serviceLoader = ServiceLoader.load(ApiLogProcessor.class);
+        for (ApiLogProcessor processor : serviceLoader) {
+            processors.add(processor);
+            log.info("加载API日志处理器: {}", processor.getClass().getName());
+        }
+    }
 
-            // 处理响应阶段
-            for (ApiLogProcessor processor : processors) {
-                if (processor.shouldProcess(request)) {
-                    try {
-                        processor.processResponse(responseWrapper, logBuilder);
-                    } catch (Exception e) {
-                        log.warn("处理响应日志时出错", e);
-                    }
-                }
+    /**
+     * 添加处理器(程序化配置)
+     */
+    public void addProcessor(ApiLogProcessor processor) {
+        processors.add(processor);
+    }
+
+    /**
+     * 设置是否启用延迟渲染模式
+     */
+    public void setDeferredRendering(boolean deferredRendering) {
+        this.deferredRendering = deferredRendering;
+    }
+
+    /**
+     * 设置延迟渲染模式下单个请求/响应体最多截取的字节数
+     */
+    public void setMaxCaptureBytes(int maxCaptureBytes) {
+        this.maxCaptureBytes = maxCaptureBytes;
+    }
+
+    /**
+     * 设置延迟渲染模式下是否采集请求头快照
+     */
+    public void setCaptureHeaders(boolean captureHeaders) {
+        this.captureHeaders = captureHeaders;
+    }
+
+    /**
+     * 设置是否记录纳秒级阶段耗时分解
+     */
+    public void setPhaseTiming(boolean phaseTiming) {
+        this.phaseTiming = phaseTiming;
+    }
+
+    /**
+     * 单次请求的日志记录过程
+     * 同步请求在过滤器链返回时记录；异步请求在最后一次派发结束时采集响应，
+     * 并通过AsyncListener在异步响应真正完成时记录一次日志
+     */
+    private abstract class LogRecording implements AsyncListener {
+
+        protected final ContentCachingRequestWrapper requestWrapper;
+        protected final ContentCachingResponseWrapper responseWrapper;
+        protected final long startTime = System.currentTimeMillis();
+        protected final long startNanos = System.nanoTime();
+
+        // 阶段耗时打点（纳秒）
+        private volatile long handlerStartNanos;
+        private volatile long handlerEndNanos;
+        private volatile long responseEndNanos;
+
+        private final AtomicBoolean recorded = new AtomicBoolean(false);
+        private volatile boolean responseCaptured = false;
+
+        LogRecording(ContentCachingRequestWrapper requestWrapper, ContentCachingResponseWrapper responseWrapper) {
+            this.requestWrapper = requestWrapper;
+            this.responseWrapper = responseWrapper;
+        }
+
+        /**
+         * 采集状态码和响应内容（在响应体复制到原始响应之前调用）
+         */
+        protected abstract void onResponse();
+
+        /**
+         * 记录异常
+         */
+        protected abstract void onException(Exception exception);
+
+        /**
+         * 保存日志
+         */
+        protected abstract void store(long executionTime);
+
+        /**
+         * 执行过滤器链（首次请求或异步派发）
+         */
+        void proceed(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            boolean firstDispatch = !isAsyncDispatch(request);
+            boolean failed = false;
+            if (firstDispatch) {
+                handlerStartNanos = System.nanoTime();
             }
 
-        } catch (Exception e) {
-            exception = e;
-            logBuilder.statusCode(500);
-            logBuilder.exceptionMsg(e.getMessage());
+            try {
+                // 继续过滤器链
+                if (firstDispatch) {
+                    filterChain.doFilter(requestWrapper, responseWrapper);
+                } else {
+                    filterChain.doFilter(request, response);
+                }
+            } catch (Exception e) {
+                failed = true;
+                onException(e);
 
-            // 处理异常阶段
-            for (ApiLogProcessor processor : processors) {
-                if (processor.shouldProcess(request)) {
-                    try {
-                        processor.processException(e, logBuilder);
-                    } catch (Exception ex) {
-                        log.warn("处理异常日志时出错", ex);
+                if (e instanceof ServletException) {
+                    throw (ServletException) e;
+                } else if (e instanceof IOException) {
+                    throw (IOException) e;
+                } else {
+                    throw new ServletException(e);
+                }
+            } finally {
+                handlerEndNanos = System.nanoTime();
+                if (request.isAsyncStarted()) {
+                    // 异步处理中：等待后续派发或完成回调
+                    if (firstDispatch) {
+                        request.setAttribute(RECORDING_ATTRIBUTE, this);
+                        request.getAsyncContext().addListener(this);
+                    }
+                } else {
+                    finishResponse(!failed);
+                    if (firstDispatch) {
+                        record();
                     }
                 }
             }
+        }
 
-            if (e instanceof ServletException) {
-                throw (ServletException) e;
-            } else if (e instanceof IOException) {
-                throw (IOException) e;
-            } else {
-                throw new ServletException(e);
+        /**
+         * 采集响应并把缓存内容复制到原始响应
+         */
+        private void finishResponse(boolean captureResponse) {
+            if (responseCaptured) {
+                return;
             }
-        } finally {
-            // 计算执行时间
-            long executionTime = System.currentTimeMillis() - startTime;
-            logBuilder.executionTime(executionTime);
+            responseCaptured = true;
 
-            // 保存日志
-            try {
-                logStore.store(logBuilder.build());
-            } catch (Exception e) {
-                log.error("保存API日志失败", e);
+            if (captureResponse) {
+                onResponse();
             }
 
             // 确保响应内容被复制到原始响应
@@ -157,64 +318,187 @@ public class ApiLogFilter extends OncePerRequestFilter {
             } catch (IOException e) {
                 log.error("复制响应内容失败", e);
             }
+            responseEndNanos = System.nanoTime();
         }
-    }
 
-    /**
-     * 检查请求URL是否匹配配置的模式
-     */
-    private boolean isUrlMatch(String path) {
-        if (urlPatterns == null || urlPatterns.isEmpty()) {
-            return true; // 默认监控所有请求
+        /**
+         * 构建阶段耗时分解，未开启时返回null；队列等待耗时由写入线程补充
+         */
+        protected ApiLogTiming buildTiming() {
+            if (!phaseTiming) {
+                return null;
+            }
+
+            long handlerEnd = handlerEndNanos != 0 ? handlerEndNanos : System.nanoTime();
+            long responseEnd = responseEndNanos != 0 ? responseEndNanos : handlerEnd;
+            return ApiLogTiming.builder()
+                    .preProcessNanos(handlerStartNanos - startNanos)
+                    .handlerNanos(handlerEnd - handlerStartNanos)
+                    .responseProcessNanos(responseEnd - handlerEnd)
+                    .build();
         }
 
-        for (String pattern : urlPatterns) {
-            if (pathMatcher.match(pattern, path)) {
-                return true;
+        /**
+         * 计算执行时间并保存日志，只执行一次
+         */
+        private void record() {
+            if (!recorded.compareAndSet(false, true)) {
+                return;
+            }
+
+            long executionTime = System.currentTimeMillis() - startTime;
+            try {
+                store(executionTime);
+            } catch (Exception e) {
+                log.error("保存API日志失败", e);
             }
         }
-        return false;
-    }
 
-    /**
-     * 使用SPI加载处理器
-     */
-    private void loadProcessors() {
-        // 加载SPI定义的处理器
-        ServiceLoader<ApiLogProcessor> serviceLoader = ServiceLoader.load(ApiLogProcessor.class);
-        for (ApiLogProcessor processor : serviceLoader) {
-            processors.add(processor);
-            log.info("加载API日志处理器: {}", processor.getClass().getName());
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // 未经过派发直接complete的异步请求，在此补充采集响应
+            finishResponse(true);
+            record();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            onException(new TimeoutException("异步请求超时"));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            Throwable throwable = event.getThrowable();
+            onException(throwable instanceof Exception ? (Exception) throwable : new ServletException(throwable));
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 再次startAsync时监听器会被清空，需要重新注册
+            event.getAsyncContext().addListener(this);
         }
     }
 
     /**
-     * 添加处理器(程序化配置)
+     * 即时渲染：在请求线程上执行处理器并构建ApiLog
      */
-    public void addProcessor(ApiLogProcessor processor) {
-        processors.add(processor);
+    private class ImmediateLogRecording extends LogRecording {
+
+        private final List<ApiLogProcessor> matchedProcessors;
+        private final ApiLog.ApiLogBuilder logBuilder;
+
+        ImmediateLogRecording(HttpServletRequest request, HttpServletResponse response, String path,
+                              List<ApiLogProcessor> matchedProcessors) {
+            // 包装请求和响应以捕获内容
+            super(new ContentCachingRequestWrapper(request), new ContentCachingResponseWrapper(response));
+            this.matchedProcessors = matchedProcessors;
+            this.logBuilder = ApiLog.builder()
+                    .id(UUID.randomUUID().toString())
+                    .hostname(hostname)
+                    .requestTime(LocalDateTime.now())
+                    .path(path)
+                    .method(request.getMethod())
+                    .clientIp(ApiLogContents.getClientIp(request::getHeader, request::getRemoteAddr));
+
+            // 处理请求阶段
+            for (ApiLogProcessor processor : matchedProcessors) {
+                try {
+                    processor.processRequest(requestWrapper, logBuilder);
+                } catch (Exception e) {
+                    log.warn("处理请求日志时出错", e);
+                }
+            }
+        }
+
+        @Override
+        protected void onResponse() {
+            // 设置状态码
+            logBuilder.statusCode(responseWrapper.getStatus());
+
+            // 处理响应阶段
+            for (ApiLogProcessor processor : matchedProcessors) {
+                try {
+                    processor.processResponse(responseWrapper, logBuilder);
+                } catch (Exception e) {
+                    log.warn("处理响应日志时出错", e);
+                }
+            }
+        }
+
+        @Override
+        protected void onException(Exception exception) {
+            logBuilder.statusCode(500);
+            logBuilder.exceptionMsg(exception.getMessage());
+
+            // 处理异常阶段
+            for (ApiLogProcessor processor : matchedProcessors) {
+                try {
+                    processor.processException(exception, logBuilder);
+                } catch (Exception ex) {
+                    log.warn("处理异常日志时出错", ex);
+                }
+            }
+        }
+
+        @Override
+        protected void store(long executionTime) {
+            logBuilder.executionTime(executionTime);
+            logBuilder.timing(buildTiming());
+            logStore.store(logBuilder.build());
+        }
     }
 
     /**
-     * 获取客户端IP
+     * 延迟渲染：只采集原始字节片段、状态码和耗时，发布到存储后由写入线程渲染
      */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
+    private class DeferredLogRecording extends LogRecording {
+
+        private final ApiLogCapture.ApiLogCaptureBuilder captureBuilder;
+        private final long requestContentLength;
+
+        DeferredLogRecording(HttpServletRequest request, HttpServletResponse response, String path,
+                             List<ApiLogProcessor> matchedProcessors) {
+            // 请求体缓存上限即为截取上限，避免请求线程复制完整内容
+            super(new ContentCachingRequestWrapper(request, maxCaptureBytes), new ContentCachingResponseWrapper(response));
+            this.requestContentLength = request.getContentLengthLong();
+            this.captureBuilder = ApiLogCapture.builder()
+                    .requestTimeMillis(startTime)
+                    .hostname(hostname)
+                    .path(path)
+                    .method(request.getMethod())
+                    .queryString(request.getQueryString())
+                    .clientIp(ApiLogContents.getClientIp(request::getHeader, request::getRemoteAddr))
+                    .requestContentType(request.getContentType())
+                    .requestHeaders(captureHeaders ? snapshotHeaders(request) : null)
+                    .processors(matchedProcessors);
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
+
+        @Override
+        protected void onResponse() {
+            // 设置状态码并截取响应体的原始字节
+            captureBuilder.statusCode(responseWrapper.getStatus())
+                    .responseContentType(responseWrapper.getContentType())
+                    .responseBody(readResponseSlice(responseWrapper))
+                    .responseBodyLength(responseWrapper.getContentSize());
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
+
+        @Override
+        protected void onException(Exception exception) {
+            captureBuilder.statusCode(500);
+            captureBuilder.exception(exception);
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+
+        @Override
+        protected void store(long executionTime) {
+            // 截取请求体的原始字节（读取的是包装器自身的缓存）
+            byte[] requestBody = requestWrapper.getContentAsByteArray();
+            captureBuilder.executionTime(executionTime)
+                    .timing(buildTiming())
+                    .requestBody(requestBody)
+                    .requestBodyLength(Math.max(requestContentLength, requestBody.length));
+
+            // 发布捕获记录，渲染在写入线程完成
+            logStore.storeDeferred(captureBuilder.build()::render);
         }
-        return ip;
     }
-} 
\ No newline at end of file
+}
@@ -33,6 +33,15 @@ public interface ApiLogProcessor {
      */
     void processException(Exception exception, ApiLog.ApiLogBuilder logBuilder);
     
+    /**
+     * 处理延迟渲染模式下的捕获记录，在日志写入线程上调用
+     * 默认不做处理，需要在延迟渲染模式下补充日志内容的处理器可覆盖此方法
+     * @param capture 请求捕获记录
+     * @param logBuilder 日志构建器
+     */
+    default void processCapture(ApiLogCapture capture, ApiLog.ApiLogBuilder logBuilder) {
+    }
+    
     /**
      * 判断是否应处理此请求
      * @param request HTTP请求
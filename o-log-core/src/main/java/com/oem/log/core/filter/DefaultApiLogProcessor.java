@@ -3,14 +3,11 @@ package com.oem.log.core.filter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oem.log.core.model.ApiLog;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.MediaType;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import javax.servlet.http.HttpServletRequest;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * 默认的API日志处理器实现
@@ -20,16 +17,6 @@ public class DefaultApiLogProcessor implements ApiLogProcessor {
 
     private final ObjectMapper objectMapper;
     private final int maxContentLength;
-    
-    // 不记录二进制内容的媒体类型
-    private static final List<String> INVISIBLE_CONTENT_TYPES = Arrays.asList(
-            MediaType.IMAGE_JPEG_VALUE,
-            MediaType.IMAGE_PNG_VALUE, 
-            MediaType.IMAGE_GIF_VALUE,
-            MediaType.APPLICATION_OCTET_STREAM_VALUE,
-            MediaType.APPLICATION_PDF_VALUE,
-            MediaType.MULTIPART_FORM_DATA_VALUE
-    );
 
     public DefaultApiLogProcessor(ObjectMapper objectMapper, int maxContentLength) {
         this.objectMapper = objectMapper;
@@ -46,14 +33,11 @@ public class DefaultApiLogProcessor implements ApiLogProcessor {
             }
             
             // 记录请求体
-            if (shouldCaptureContent(request.getContentType()) && request.getContentLength() > 0) {
+            if (ApiLogContents.shouldCaptureContent(request.getContentType()) && request.getContentLength() > 0) {
                 byte[] content = request.getContentAsByteArray();
                 if (content.length > 0) {
-                    String contentAsString = new String(content, StandardCharsets.UTF_8);
                     // 截断过长内容
-                    if (contentAsString.length() > maxContentLength) {
-                        contentAsString = contentAsString.substring(0, maxContentLength) + "... (content truncated)";
-                    }
+                    String contentAsString = ApiLogContents.truncate(new String(content, StandardCharsets.UTF_8), maxContentLength);
                     logBuilder.requestParams(contentAsString);
                 }
             }
@@ -69,14 +53,11 @@ public class DefaultApiLogProcessor implements ApiLogProcessor {
     public void processResponse(ContentCachingResponseWrapper response, ApiLog.ApiLogBuilder logBuilder) {
         try {
             // 记录响应体
-            if (shouldCaptureContent(response.getContentType()) && response.getContentSize() > 0) {
+            if (ApiLogContents.shouldCaptureContent(response.getContentType()) && response.getContentSize() > 0) {
                 byte[] content = response.getContentAsByteArray();
                 if (content.length > 0) {
-                    String contentAsString = new String(content, StandardCharsets.UTF_8);
                     // 截断过长内容
-                    if (contentAsString.length() > maxContentLength) {
-                        contentAsString = contentAsString.substring(0, maxContentLength) + "... (content truncated)";
-                    }
+                    String contentAsString = ApiLogContents.truncate(new String(content, StandardCharsets.UTF_8), maxContentLength);
                     logBuilder.responseBody(contentAsString);
                 }
             }
@@ -85,6 +66,40 @@ public class DefaultApiLogProcessor implements ApiLogProcessor {
         }
     }
 
+    @Override
+    public void processCapture(ApiLogCapture capture, ApiLog.ApiLogBuilder logBuilder) {
+        try {
+            // 记录查询参数
+            String queryString = capture.getQueryString();
+            if (queryString != null && !queryString.isEmpty()) {
+                logBuilder.requestParams("Query: " + queryString);
+            }
+            
+            // 记录请求体
+            if (ApiLogContents.shouldCaptureContent(capture.getRequestContentType()) && capture.getRequestBodyLength() > 0) {
+                String contentAsString = ApiLogContents.decodeSlice(capture.getRequestBody(), capture.getRequestBodyLength(), maxContentLength);
+                if (contentAsString != null) {
+                    logBuilder.requestParams(contentAsString);
+                }
+            }
+            
+            // 记录请求头
+            if (capture.getRequestHeaders() != null) {
+                logBuilder.requestHeaders(capture.getRequestHeaders().toString());
+            }
+            
+            // 记录响应体
+            if (ApiLogContents.shouldCaptureContent(capture.getResponseContentType()) && capture.getResponseBodyLength() > 0) {
+                String contentAsString = ApiLogContents.decodeSlice(capture.getResponseBody(), capture.getResponseBodyLength(), maxContentLength);
+                if (contentAsString != null) {
+                    logBuilder.responseBody(contentAsString);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("处理捕获内容异常", e);
+        }
+    }
+
     @Override
     public void processException(Exception exception, ApiLog.ApiLogBuilder logBuilder) {
         // 记录异常信息
@@ -108,16 +123,4 @@ public class DefaultApiLogProcessor implements ApiLogProcessor {
         // 默认处理所有请求
         return true;
     }
-    
-    /**
-     * 判断是否应该捕获内容
-     */
-    private boolean shouldCaptureContent(String contentType) {
-        if (contentType == null) {
-            return true;
-        }
-        
-        return !INVISIBLE_CONTENT_TYPES.stream()
-                .anyMatch(type -> contentType.toLowerCase().contains(type.toLowerCase()));
-    }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,338 @@
+package com.oem.log.core.filter;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.store.LogStore;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 响应式API日志记录过滤器（Spring WebFlux）
+ * 只截取请求/响应DataBuffer的有限片段，不阻塞也不聚合完整报文；
+ * 耗时由Mono信号计算，捕获内容打包成{@link ApiLogCapture}，解码、截断与处理器增强在日志写入线程上完成
+ */
+@Slf4j
+public class ReactiveApiLogFilter implements WebFilter, Ordered {
+
+    private final LogStore logStore;
+    private final List<String> urlPatterns;
+    private final int maxCaptureBytes;
+    private final List<ApiLogProcessor> processors = new ArrayList<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final String hostname;
+
+    public ReactiveApiLogFilter(LogStore logStore, List<String> urlPatterns, int maxContentLength) {
+        this.logStore = logStore;
+        this.urlPatterns = urlPatterns;
+        // UTF-8单字符最多4字节，保证解码后仍能截出maxContentLength个字符
+        this.maxCaptureBytes = maxContentLength * 4;
+        this.hostname = ApiLogContents.resolveHostname();
+        // 基础内容（查询参数、请求体、响应体）由内置处理器在写入线程上渲染
+        processors.add(new CaptureContentProcessor(maxContentLength));
+        loadProcessors();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+
+        // 检查是否匹配URL模式
+        if (!ApiLogContents.isUrlMatch(pathMatcher, urlPatterns, path)) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> {
+            ExchangeCapture capture = new ExchangeCapture(exchange.getRequest(), path);
+            ServerWebExchange capturingExchange = exchange.mutate()
+                    .request(new CapturingRequest(exchange.getRequest(), capture.requestBody))
+                    .response(new CapturingResponse(exchange.getResponse(), capture.responseBody))
+                    .build();
+
+            return chain.filter(capturingExchange)
+                    .doOnError(capture::setError)
+                    .doFinally(signal -> record(exchange.getResponse(), capture, signal));
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    /**
+     * 采集状态码和耗时并发布到存储，渲染在写入线程完成
+     */
+    private void record(ServerHttpResponse response, ExchangeCapture capture, SignalType signal) {
+        capture.executionTime = System.currentTimeMillis() - capture.startTime;
+
+        HttpStatus status = response.getStatusCode();
+        if (status != null) {
+            capture.statusCode = status.value();
+        } else {
+            capture.statusCode = capture.error != null ? 500 : 200;
+        }
+        if (capture.error == null && signal == SignalType.CANCEL) {
+            capture.cancelled = true;
+        }
+        MediaType contentType = response.getHeaders().getContentType();
+        capture.responseContentType = contentType != null ? contentType.toString() : null;
+
+        try {
+            logStore.storeDeferred(() -> capture.toCapture().render());
+        } catch (Exception e) {
+            log.error("保存API日志失败", e);
+        }
+    }
+
+    /**
+     * 使用SPI加载处理器
+     * 响应式请求没有Servlet请求对象，处理器只会收到与Web栈无关的processCapture/processException回调
+     */
+    private void loadProcessors() {
+        ServiceLoader<ApiLogProcessor> serviceLoader = ServiceLoader.load(ApiLogProcessor.class);
+        for (ApiLogProcessor processor : serviceLoader) {
+            processors.add(processor);
+            log.info("加载API日志处理器: {}", processor.getClass().getName());
+        }
+    }
+
+    /**
+     * 添加处理器(程序化配置)
+     */
+    public void addProcessor(ApiLogProcessor processor) {
+        processors.add(processor);
+    }
+
+    /**
+     * 获取客户端IP
+     */
+    private static String getClientIp(ServerHttpRequest request) {
+        return ApiLogContents.getClientIp(request.getHeaders()::getFirst, () -> {
+            InetSocketAddress remoteAddress = request.getRemoteAddress();
+            return remoteAddress != null && remoteAddress.getAddress() != null
+                    ? remoteAddress.getAddress().getHostAddress() : null;
+        });
+    }
+
+    /**
+     * 单次请求的捕获记录，请求处理期间只保存原始数据
+     */
+    private class ExchangeCapture {
+
+        private final long startTime = System.currentTimeMillis();
+        private final String path;
+        private final String method;
+        private final String queryString;
+        private final String clientIp;
+        private final String requestContentType;
+        private final BodySlice requestBody = new BodySlice(maxCaptureBytes);
+        private final BodySlice responseBody = new BodySlice(maxCaptureBytes);
+
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        private volatile int statusCode;
+        private volatile long executionTime;
+        private volatile String responseContentType;
+
+        ExchangeCapture(ServerHttpRequest request, String path) {
+            MediaType contentType = request.getHeaders().getContentType();
+            this.path = path;
+            this.method = request.getMethodValue();
+            this.queryString = request.getURI().getRawQuery();
+            this.clientIp = getClientIp(request);
+            this.requestContentType = contentType != null ? contentType.toString() : null;
+        }
+
+        void setError(Throwable error) {
+            this.error = error;
+        }
+
+        /**
+         * 转换为捕获记录，在日志写入线程上调用
+         */
+        ApiLogCapture toCapture() {
+            Exception exception = null;
+            if (error instanceof Exception) {
+                exception = (Exception) error;
+            } else if (error != null) {
+                exception = new IllegalStateException(error.getMessage(), error);
+            } else if (cancelled) {
+                exception = new CancellationException("请求已被客户端取消");
+            }
+
+            return ApiLogCapture.builder()
+                    .requestTimeMillis(startTime)
+                    .hostname(hostname)
+                    .path(path)
+                    .method(method)
+                    .queryString(queryString)
+                    .clientIp(clientIp)
+                    .requestContentType(requestContentType)
+                    .requestBody(requestBody.toByteArray())
+                    .requestBodyLength(requestBody.totalLength)
+                    .responseContentType(responseContentType)
+                    .responseBody(responseBody.toByteArray())
+                    .responseBodyLength(responseBody.totalLength)
+                    .statusCode(statusCode)
+                    .exception(exception)
+                    .executionTime(executionTime)
+                    .processors(processors)
+                    .build();
+        }
+    }
+
+    /**
+     * 有上限的字节片段，按需扩容，最多保留limit字节，同时统计原始总长度
+     * 同一数据流的信号是串行的，无需加锁
+     */
+    private static class BodySlice {
+
+        private final int limit;
+        private byte[] buffer = new byte[0];
+        private int size;
+        private long totalLength;
+
+        BodySlice(int limit) {
+            this.limit = limit;
+        }
+
+        void append(DataBuffer dataBuffer) {
+            int readable = dataBuffer.readableByteCount();
+            totalLength += readable;
+
+            int n = Math.min(readable, limit - size);
+            if (n <= 0) {
+                return;
+            }
+            if (size + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(limit, Math.max(size + n, buffer.length * 2)));
+            }
+            // 按绝对位置读取，不改变DataBuffer的读指针
+            dataBuffer.asByteBuffer(dataBuffer.readPosition(), n).get(buffer, size, n);
+            size += n;
+        }
+
+        byte[] toByteArray() {
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * 请求装饰器：消费请求体时顺带截取片段
+     */
+    private static class CapturingRequest extends ServerHttpRequestDecorator {
+
+        private final BodySlice slice;
+
+        CapturingRequest(ServerHttpRequest delegate, BodySlice slice) {
+            super(delegate);
+            this.slice = slice;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody().doOnNext(slice::append);
+        }
+    }
+
+    /**
+     * 响应装饰器：写出响应体时顺带截取片段
+     */
+    private static class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final BodySlice slice;
+
+        CapturingResponse(ServerHttpResponse delegate, BodySlice slice) {
+            super(delegate);
+            this.slice = slice;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(slice::append));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(p -> Flux.from(p).doOnNext(slice::append)));
+        }
+    }
+
+    /**
+     * 内置处理器：渲染查询参数、请求体和响应体，与Servlet延迟渲染模式的输出一致
+     */
+    private static class CaptureContentProcessor implements ApiLogProcessor {
+
+        private final int maxContentLength;
+
+        CaptureContentProcessor(int maxContentLength) {
+            this.maxContentLength = maxContentLength;
+        }
+
+        @Override
+        public void processCapture(ApiLogCapture capture, ApiLog.ApiLogBuilder logBuilder) {
+            // 记录查询参数
+            String queryString = capture.getQueryString();
+            if (queryString != null && !queryString.isEmpty()) {
+                logBuilder.requestParams("Query: " + queryString);
+            }
+
+            // 记录请求体
+            if (ApiLogContents.shouldCaptureContent(capture.getRequestContentType())) {
+                String content = ApiLogContents.decodeSlice(capture.getRequestBody(), capture.getRequestBodyLength(), maxContentLength);
+                if (content != null) {
+                    logBuilder.requestParams(content);
+                }
+            }
+
+            // 记录响应体
+            if (ApiLogContents.shouldCaptureContent(capture.getResponseContentType())) {
+                String content = ApiLogContents.decodeSlice(capture.getResponseBody(), capture.getResponseBodyLength(), maxContentLength);
+                if (content != null) {
+                    logBuilder.responseBody(content);
+                }
+            }
+        }
+
+        @Override
+        public void processRequest(ContentCachingRequestWrapper request, ApiLog.ApiLogBuilder logBuilder) {
+        }
+
+        @Override
+        public void processResponse(ContentCachingResponseWrapper response, ApiLog.ApiLogBuilder logBuilder) {
+        }
+
+        @Override
+        public void processException(Exception exception, ApiLog.ApiLogBuilder logBuilder) {
+        }
+
+        @Override
+        public boolean shouldProcess(HttpServletRequest request) {
+            return true;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.oem.log.core.filter.example;
 
+import com.oem.log.core.filter.ApiLogCapture;
 import com.oem.log.core.filter.ApiLogProcessor;
 import com.oem.log.core.model.ApiLog;
 import org.springframework.web.util.ContentCachingRequestWrapper;
@@ -39,6 +40,26 @@ public class ApiPathLogProcessor implements ApiLogProcessor {
         }
     }
 
+    @Override
+    public void processCapture(ApiLogCapture capture, ApiLog.ApiLogBuilder logBuilder) {
+        // 延迟渲染模式下请求已结束，只能从请求头快照中读取（需开启log-headers）
+        if (capture.getRequestHeaders() == null) {
+            return;
+        }
+        
+        String userId = capture.getRequestHeaders().get("X-User-ID");
+        if (userId != null && !userId.isEmpty()) {
+            String existingParams = logBuilder.build().getRequestParams();
+            String userInfo = "UserID: " + userId;
+            
+            if (existingParams != null && !existingParams.isEmpty()) {
+                logBuilder.requestParams(existingParams + ", " + userInfo);
+            } else {
+                logBuilder.requestParams(userInfo);
+            }
+        }
+    }
+
     @Override
     public void processResponse(ContentCachingResponseWrapper response, ApiLog.ApiLogBuilder logBuilder) {
         // 此示例中不做额外处理
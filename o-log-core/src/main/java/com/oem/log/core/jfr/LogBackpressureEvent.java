@@ -0,0 +1,23 @@
+package com.oem.log.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 背压事件，环形缓冲区已满时请求线程阻塞等待写入线程腾出槽位
+ * 保留调用栈，便于定位被阻塞的业务接口
+ */
+@Name("com.oem.log.Backpressure")
+@Label("o-log背压")
+@Description("环形缓冲区已满，请求线程等待空闲槽位")
+@Category({"o-log", "存储"})
+public class LogBackpressureEvent extends jdk.jfr.Event {
+
+    @Label("环形缓冲区大小")
+    public int bufferSize;
+
+    @Label("延迟渲染")
+    public boolean deferred;
+}
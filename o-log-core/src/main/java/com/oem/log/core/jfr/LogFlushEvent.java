@@ -0,0 +1,32 @@
+package com.oem.log.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 批量刷盘事件，覆盖一批日志序列化并写入数据文件和索引文件的全过程
+ */
+@Name("com.oem.log.Flush")
+@Label("o-log批量刷盘")
+@Description("一批日志序列化并写入映射文件")
+@Category({"o-log", "存储"})
+@StackTrace(false)
+public class LogFlushEvent extends jdk.jfr.Event {
+
+    @Label("日志条数")
+    public int count;
+
+    @Label("写入字节数")
+    @DataAmount
+    public long bytes;
+
+    @Label("数据文件")
+    public String dataFile;
+
+    @Label("是否失败")
+    public boolean failed;
+}
@@ -0,0 +1,26 @@
+package com.oem.log.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 映射文件强制刷盘（msync）事件
+ */
+@Name("com.oem.log.Force")
+@Label("o-log强制刷盘")
+@Description("MappedByteBuffer.force把映射页写回磁盘")
+@Category({"o-log", "存储"})
+@StackTrace(false)
+public class LogForceEvent extends jdk.jfr.Event {
+
+    @Label("文件")
+    public String file;
+
+    @Label("已写字节数")
+    @DataAmount
+    public long bytes;
+}
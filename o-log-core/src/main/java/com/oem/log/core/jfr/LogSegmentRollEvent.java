@@ -0,0 +1,36 @@
+package com.oem.log.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 文件滚动事件，耗时包括关闭旧文件（刷盘、解除映射）和映射新文件
+ */
+@Name("com.oem.log.SegmentRoll")
+@Label("o-log文件滚动")
+@Description("关闭已写满的数据/索引文件并映射新文件")
+@Category({"o-log", "存储"})
+@StackTrace(false)
+public class LogSegmentRollEvent extends jdk.jfr.Event {
+
+    @Label("旧数据文件")
+    public String previousDataFile;
+
+    @Label("旧数据文件已写字节数")
+    @DataAmount
+    public long previousDataBytes;
+
+    @Label("旧索引文件已写字节数")
+    @DataAmount
+    public long previousIndexBytes;
+
+    @Label("新数据文件")
+    public String dataFile;
+
+    @Label("文件序号")
+    public long sequence;
+}
@@ -0,0 +1,29 @@
+package com.oem.log.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 单条日志序列化事件
+ * 每条日志一个事件，默认只记录超过1毫秒的慢序列化，需要全部记录时在jfc中把阈值调为0
+ */
+@Name("com.oem.log.Serialize")
+@Label("o-log序列化")
+@Description("单条日志序列化为字节")
+@Category({"o-log", "存储"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class LogSerializeEvent extends jdk.jfr.Event {
+
+    @Label("请求路径")
+    public String path;
+
+    @Label("序列化字节数")
+    @DataAmount
+    public int bytes;
+}
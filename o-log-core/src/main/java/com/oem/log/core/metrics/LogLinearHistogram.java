@@ -0,0 +1,119 @@
+package com.oem.log.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁、固定内存的对数线性直方图
+ * 每个2的幂区间再线性划分为16个子桶，相对误差约6%，覆盖全部非负long值，共960个桶
+ */
+public class LogLinearHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 4;
+    
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    
+    // 最高位从SUB_BUCKET_BITS到62，每个区间16个子桶，再加上低位的16个精确桶
+    public static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    
+    /**
+     * 记录一个值，负数按0处理
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucketIndex(Math.max(value, 0)));
+    }
+    
+    /**
+     * 清空计数
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+    
+    /**
+     * 累加到目标计数数组
+     */
+    void addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                target[i] += count;
+            }
+        }
+    }
+    
+    /**
+     * 一次遍历计算各上界的累计计数，桶跨越上界时不计入该上界（误差不超过一个子桶宽度）
+     * @param bounds 升序排列的上界
+     * @param cumulative 输出各上界对应的累计计数，长度与bounds一致
+     * @return 总计数
+     */
+    public long cumulativeCounts(long[] bounds, long[] cumulative) {
+        long running = 0;
+        int j = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count == 0) {
+                continue;
+            }
+            long upper = bucketUpperBound(i);
+            while (j < bounds.length && upper > bounds[j]) {
+                cumulative[j++] = running;
+            }
+            running += count;
+        }
+        while (j < bounds.length) {
+            cumulative[j++] = running;
+        }
+        return running;
+    }
+    
+    /**
+     * 计算值所在桶
+     */
+    public static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKET_COUNT + (subBucket - SUB_BUCKET_COUNT);
+    }
+    
+    /**
+     * 桶内最大值
+     */
+    public static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+    
+    /**
+     * 根据合并后的计数计算百分位值（返回所在桶的上界）
+     * @param counts 桶计数
+     * @param total 总计数
+     * @param percentile 百分位，取值0~100
+     */
+    public static long valueAtPercentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(counts.length - 1);
+    }
+}
@@ -11,11 +11,8 @@ public class LogMetrics {
     // 总请求处理数
     private final LongAdder totalProcessed = new LongAdder();
     
-    // 最近一分钟请求数
-    private final LongAdder recentProcessed = new LongAdder();
-    
-    // 最近重置时间
-    private final AtomicLong lastResetTime = new AtomicLong(System.currentTimeMillis());
+    // 按秒滚动的吞吐量
+    private final RateMeter throughput = new RateMeter();
     
     // 总错误数
     private final LongAdder totalErrors = new LongAdder();
@@ -41,17 +38,71 @@ public class LogMetrics {
     // 缓存溢出次数
     private final LongAdder cacheOverflows = new LongAdder();
     
+    // 入盘延迟(微秒)：从发布到Disruptor到写入映射文件，1分钟滑动窗口
+    private final SlidingWindowHistogram ingestLatency = new SlidingWindowHistogram(10_000, 6);
+    
+    // 每次刷盘的批量条数，1分钟滑动窗口
+    private final SlidingWindowHistogram flushBatchSize = new SlidingWindowHistogram(10_000, 6);
+    
+    // 环形缓冲区占用，1分钟滑动窗口
+    private final SlidingWindowHistogram ringOccupancy = new SlidingWindowHistogram(10_000, 6);
+    
+    // 入盘延迟(微秒)累计分布与总和，供Prometheus等按差值计算
+    private final LogLinearHistogram ingestLatencyTotal = new LogLinearHistogram();
+    private final LongAdder ingestLatencySumMicros = new LongAdder();
+    
+    // 刷盘批量条数累计分布与总和
+    private final LogLinearHistogram flushBatchTotal = new LogLinearHistogram();
+    private final LongAdder flushBatchSum = new LongAdder();
+    
+    // 各阶段累计耗时(纳秒)
+    private final LongAdder[] phaseTotalNanos = newAdders(Phase.values().length);
+    
+    // 各阶段采样次数
+    private final LongAdder[] phaseCounts = newAdders(Phase.values().length);
+    
+    /**
+     * 日志链路的耗时阶段
+     */
+    public enum Phase {
+        // 请求线程：前置处理
+        PRE_PROCESS("preProcess"),
+        // 请求线程：业务处理
+        HANDLER("handler"),
+        // 请求线程：响应处理
+        RESPONSE_PROCESS("responseProcess"),
+        // 请求线程：发布到Disruptor
+        ENQUEUE("enqueue"),
+        // 写入线程：队列等待
+        QUEUE_WAIT("queueWait"),
+        // 写入线程：延迟渲染
+        RENDER("render"),
+        // 写入线程：序列化
+        SERIALIZE("serialize");
+        
+        private final String key;
+        
+        Phase(String key) {
+            this.key = key;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+    }
+    
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+    
     // 记录处理请求
     public void recordProcessed() {
         totalProcessed.increment();
-        recentProcessed.increment();
-        
-        // 每分钟重置最近处理计数
-        long now = System.currentTimeMillis();
-        long last = lastResetTime.get();
-        if (now - last > 60000 && lastResetTime.compareAndSet(last, now)) {
-            recentProcessed.reset();
-        }
+        throughput.mark();
     }
     
     // 记录错误
@@ -95,14 +146,112 @@ public class LogMetrics {
         cacheOverflows.increment();
     }
     
+    // 记录入盘延迟(微秒)
+    public void recordIngestLatency(long latencyMicros) {
+        ingestLatency.record(latencyMicros);
+        ingestLatencyTotal.record(latencyMicros);
+        ingestLatencySumMicros.add(latencyMicros);
+    }
+    
+    // 记录刷盘批量条数
+    public void recordFlushBatch(int batchSize) {
+        flushBatchSize.record(batchSize);
+        flushBatchTotal.record(batchSize);
+        flushBatchSum.add(batchSize);
+    }
+    
+    // 记录环形缓冲区占用
+    public void recordRingOccupancy(long occupancy) {
+        ringOccupancy.record(occupancy);
+    }
+    
+    // 获取入盘延迟分布
+    public SlidingWindowHistogram.Snapshot getIngestLatency() {
+        return ingestLatency.snapshot();
+    }
+    
+    // 获取刷盘批量分布
+    public SlidingWindowHistogram.Snapshot getFlushBatchSize() {
+        return flushBatchSize.snapshot();
+    }
+    
+    // 获取环形缓冲区占用分布
+    public SlidingWindowHistogram.Snapshot getRingOccupancy() {
+        return ringOccupancy.snapshot();
+    }
+    
+    // 获取入盘延迟累计分布(微秒)
+    public LogLinearHistogram getIngestLatencyTotal() {
+        return ingestLatencyTotal;
+    }
+    
+    // 获取入盘延迟累计样本数
+    public long getIngestLatencyCount() {
+        return ingestLatencyTotal.cumulativeCounts(new long[0], new long[0]);
+    }
+    
+    // 获取入盘延迟累计总和(微秒)
+    public long getIngestLatencySumMicros() {
+        return ingestLatencySumMicros.sum();
+    }
+    
+    // 获取刷盘批量累计分布
+    public LogLinearHistogram getFlushBatchTotal() {
+        return flushBatchTotal;
+    }
+    
+    // 获取刷盘批量累计条数
+    public long getFlushBatchSum() {
+        return flushBatchSum.sum();
+    }
+    
+    // 获取上一秒吞吐量
+    public long getLastSecondThroughput() {
+        return throughput.getCount(1);
+    }
+    
+    // 获取最近一分钟平均每秒吞吐量
+    public double getMinuteThroughput() {
+        return throughput.getRate(60);
+    }
+    
+    // 记录阶段耗时
+    public void recordPhase(Phase phase, long nanos) {
+        phaseTotalNanos[phase.ordinal()].add(nanos);
+        phaseCounts[phase.ordinal()].increment();
+    }
+    
+    // 获取阶段采样次数
+    public long getPhaseCount(Phase phase) {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+    
+    // 获取阶段累计耗时(纳秒)
+    public long getPhaseTotalNanos(Phase phase) {
+        return phaseTotalNanos[phase.ordinal()].sum();
+    }
+    
+    // 获取阶段平均耗时(微秒)
+    public double getPhaseAvgMicros(Phase phase) {
+        long count = phaseCounts[phase.ordinal()].sum();
+        return count == 0 ? 0 : phaseTotalNanos[phase.ordinal()].sum() / 1000.0 / count;
+    }
+    
+    // 获取日志系统在请求线程上的平均额外耗时(微秒)：前置处理 + 响应处理 + 入队
+    public double getRequestOverheadAvgMicros() {
+        return getPhaseAvgMicros(Phase.PRE_PROCESS)
+                + getPhaseAvgMicros(Phase.RESPONSE_PROCESS)
+                + getPhaseAvgMicros(Phase.ENQUEUE);
+    }
+    
     // 获取总处理数
     public long getTotalProcessed() {
         return totalProcessed.sum();
     }
     
-    // 获取最近处理数
+    // 获取最近一分钟处理数
     public long getRecentProcessed() {
-        return recentProcessed.sum();
+        return throughput.getCount(60);
     }
     
     // 获取总错误数
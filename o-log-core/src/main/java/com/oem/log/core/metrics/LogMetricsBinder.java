@@ -0,0 +1,83 @@
+package com.oem.log.core.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer绑定
+ * 以函数式计量器直接读取LogMetrics的计数器，不在写入路径上额外记录
+ */
+public class LogMetricsBinder implements MeterBinder {
+
+    private final LogMetrics metrics;
+
+    public LogMetricsBinder(LogMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("oemlog.processed", metrics, LogMetrics::getTotalProcessed)
+                .description("提交到日志队列的记录数")
+                .register(registry);
+        FunctionCounter.builder("oemlog.errors", metrics, LogMetrics::getTotalErrors)
+                .description("日志链路错误数")
+                .register(registry);
+        FunctionCounter.builder("oemlog.cache.overflows", metrics, LogMetrics::getCacheOverflows)
+                .description("写入缓存积压次数")
+                .register(registry);
+        FunctionCounter.builder("oemlog.files.created", metrics, LogMetrics::getTotalFiles)
+                .description("创建的数据文件数")
+                .register(registry);
+        FunctionCounter.builder("oemlog.written", metrics, LogMetrics::getTotalBytes)
+                .baseUnit("bytes")
+                .description("写入数据文件的字节数")
+                .register(registry);
+
+        Gauge.builder("oemlog.queue.size", metrics, LogMetrics::getCurrentQueueSize)
+                .description("当前写入队列积压")
+                .register(registry);
+        Gauge.builder("oemlog.current.file", metrics, LogMetrics::getCurrentFileSize)
+                .baseUnit("bytes")
+                .description("当前数据文件写入位置")
+                .register(registry);
+        Gauge.builder("oemlog.current.index", metrics, LogMetrics::getCurrentIndexSize)
+                .baseUnit("bytes")
+                .description("当前索引文件写入位置")
+                .register(registry);
+
+        FunctionTimer.builder("oemlog.ingest.latency", metrics,
+                        LogMetrics::getIngestLatencyCount, LogMetrics::getIngestLatencySumMicros, TimeUnit.MICROSECONDS)
+                .description("从发布到写入映射文件的延迟")
+                .register(registry);
+        TimeGauge.builder("oemlog.ingest.latency.window", metrics, TimeUnit.MICROSECONDS,
+                        m -> m.getIngestLatency().getP50())
+                .tag("quantile", "0.5")
+                .description("近1分钟入盘延迟分位数")
+                .register(registry);
+        TimeGauge.builder("oemlog.ingest.latency.window", metrics, TimeUnit.MICROSECONDS,
+                        m -> m.getIngestLatency().getP99())
+                .tag("quantile", "0.99")
+                .description("近1分钟入盘延迟分位数")
+                .register(registry);
+        TimeGauge.builder("oemlog.ingest.latency.window", metrics, TimeUnit.MICROSECONDS,
+                        m -> m.getIngestLatency().getP999())
+                .tag("quantile", "0.999")
+                .description("近1分钟入盘延迟分位数")
+                .register(registry);
+
+        for (LogMetrics.Phase phase : LogMetrics.Phase.values()) {
+            FunctionTimer.builder("oemlog.phase", metrics,
+                            m -> m.getPhaseCount(phase), m -> m.getPhaseTotalNanos(phase), TimeUnit.NANOSECONDS)
+                    .tag("phase", phase.getKey())
+                    .description("日志链路各阶段耗时")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.oem.log.core.metrics;
+
+import com.oem.log.core.rollup.EndpointTotals;
+import com.oem.log.core.rollup.RollupKey;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * OpenMetrics文本格式输出
+ * 直接从LogMetrics的计数器和累计直方图流式写出，不构造中间Map，也不做字符串格式化
+ * 直方图的le边界落在子桶中间时按保守方式计数，误差不超过一个子桶宽度（约6%）
+ */
+public class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final String PREFIX = "oemlog_";
+
+    // 入盘延迟直方图上界(微秒)及对应的秒值标签
+    private static final long[] LATENCY_BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+    private static final String[] LATENCY_BOUND_LABELS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+            "0.1", "0.25", "0.5", "1.0", "2.5", "5.0", "10.0"
+    };
+
+    // 刷盘批量条数直方图上界
+    private static final long[] BATCH_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000};
+    private static final String[] BATCH_BOUND_LABELS = {
+            "1.0", "2.0", "5.0", "10.0", "20.0", "50.0", "100.0", "200.0", "500.0", "1000.0"
+    };
+
+    private final Writer out;
+
+    public OpenMetricsWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * 写出全部指标并以# EOF结束
+     * @param metrics 日志系统指标
+     * @param endpoints 各接口累计值，未开启汇总时传null
+     */
+    public void write(LogMetrics metrics, Collection<EndpointTotals> endpoints) throws IOException {
+        counter("processed", "提交到日志队列的记录数", metrics.getTotalProcessed());
+        counter("errors", "日志链路错误数", metrics.getTotalErrors());
+        counter("cache_overflows", "写入缓存积压次数", metrics.getCacheOverflows());
+        counter("files_created", "创建的数据文件数", metrics.getTotalFiles());
+
+        header("written_bytes", "counter", "bytes", "写入数据文件的字节数");
+        sample("written_bytes_total", null, metrics.getTotalBytes());
+
+        gauge("queue_size", "当前写入队列积压", metrics.getCurrentQueueSize());
+
+        header("current_file_bytes", "gauge", "bytes", "当前数据文件写入位置");
+        sample("current_file_bytes", null, metrics.getCurrentFileSize());
+
+        header("current_index_bytes", "gauge", "bytes", "当前索引文件写入位置");
+        sample("current_index_bytes", null, metrics.getCurrentIndexSize());
+
+        header("max_write_latency_seconds", "gauge", "seconds", "单条处理的最大耗时（可重置）");
+        sampleSeconds("max_write_latency_seconds", null, metrics.getMaxWriteLatency() * 1000);
+
+        histogram("ingest_latency_seconds", "seconds", "从发布到写入映射文件的延迟",
+                metrics.getIngestLatencyTotal(), LATENCY_BOUNDS_MICROS, LATENCY_BOUND_LABELS);
+        sampleSeconds("ingest_latency_seconds_sum", null, metrics.getIngestLatencySumMicros());
+
+        histogram("flush_batch_size", null, "每次刷盘的记录数",
+                metrics.getFlushBatchTotal(), BATCH_BOUNDS, BATCH_BOUND_LABELS);
+        sample("flush_batch_size_sum", null, metrics.getFlushBatchSum());
+
+        header("phase_seconds", "summary", "seconds", "日志链路各阶段耗时");
+        for (LogMetrics.Phase phase : LogMetrics.Phase.values()) {
+            String labels = "phase=\"" + phase.getKey() + "\"";
+            sample("phase_seconds_count", labels, metrics.getPhaseCount(phase));
+            sampleNanosAsSeconds("phase_seconds_sum", labels, metrics.getPhaseTotalNanos(phase));
+        }
+
+        if (endpoints != null) {
+            writeEndpoints(endpoints);
+        }
+
+        out.write("# EOF\n");
+    }
+
+    private void writeEndpoints(Collection<EndpointTotals> endpoints) throws IOException {
+        header("endpoint_duration_seconds", "summary", "seconds", "各接口请求数与总耗时");
+        for (EndpointTotals totals : endpoints) {
+            String labels = endpointLabels(totals.getKey());
+            sample("endpoint_duration_seconds_count", labels, totals.getCount());
+            sampleSeconds("endpoint_duration_seconds_sum", labels, totals.getTotalMillis() * 1000);
+        }
+
+        header("endpoint_errors", "counter", null, "各接口错误数（5xx或带异常信息）");
+        for (EndpointTotals totals : endpoints) {
+            sample("endpoint_errors_total", endpointLabels(totals.getKey()), totals.getErrorCount());
+        }
+    }
+
+    private void histogram(String name, String unit, String help, LogLinearHistogram histogram,
+                           long[] bounds, String[] labels) throws IOException {
+        long[] cumulative = new long[bounds.length];
+        long total = histogram.cumulativeCounts(bounds, cumulative);
+
+        header(name, "histogram", unit, help);
+        for (int i = 0; i < bounds.length; i++) {
+            sample(name + "_bucket", "le=\"" + labels[i] + "\"", cumulative[i]);
+        }
+        sample(name + "_bucket", "le=\"+Inf\"", total);
+        sample(name + "_count", null, total);
+    }
+
+    private void counter(String name, String help, long value) throws IOException {
+        header(name, "counter", null, help);
+        sample(name + "_total", null, value);
+    }
+
+    private void gauge(String name, String help, long value) throws IOException {
+        header(name, "gauge", null, help);
+        sample(name, null, value);
+    }
+
+    private void header(String name, String type, String unit, String help) throws IOException {
+        out.write("# TYPE ");
+        out.write(PREFIX);
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+        if (unit != null) {
+            out.write("# UNIT ");
+            out.write(PREFIX);
+            out.write(name);
+            out.write(' ');
+            out.write(unit);
+            out.write('\n');
+        }
+        out.write("# HELP ");
+        out.write(PREFIX);
+        out.write(name);
+        out.write(' ');
+        out.write(help);
+        out.write('\n');
+    }
+
+    private void sample(String name, String labels, long value) throws IOException {
+        sampleName(name, labels);
+        out.write(Long.toString(value));
+        out.write('\n');
+    }
+
+    // 微秒转秒
+    private void sampleSeconds(String name, String labels, long micros) throws IOException {
+        sampleName(name, labels);
+        out.write(Double.toString(micros / 1_000_000.0));
+        out.write('\n');
+    }
+
+    private void sampleNanosAsSeconds(String name, String labels, long nanos) throws IOException {
+        sampleName(name, labels);
+        out.write(Double.toString(nanos / 1_000_000_000.0));
+        out.write('\n');
+    }
+
+    private void sampleName(String name, String labels) throws IOException {
+        out.write(PREFIX);
+        out.write(name);
+        if (labels != null) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+    }
+
+    private static String endpointLabels(RollupKey key) {
+        StringBuilder labels = new StringBuilder(64);
+        labels.append("path=\"");
+        escape(labels, key.getPath());
+        labels.append("\",method=\"");
+        escape(labels, key.getMethod());
+        labels.append("\",status_class=\"");
+        escape(labels, key.getStatusClass());
+        labels.append('"');
+        return labels.toString();
+    }
+
+    // 标签值转义：反斜杠、双引号和换行
+    private static void escape(StringBuilder target, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                target.append("\\\\");
+            } else if (c == '"') {
+                target.append("\\\"");
+            } else if (c == '\n') {
+                target.append("\\n");
+            } else {
+                target.append(c);
+            }
+        }
+    }
+}
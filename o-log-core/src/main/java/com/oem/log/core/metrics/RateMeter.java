@@ -0,0 +1,88 @@
+package com.oem.log.core.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按秒滚动的吞吐量计量器
+ * 保留最近60个完整秒加当前秒的计数，无锁记录；每秒一个LongAdder，请求线程之间不争用同一个计数，
+ * 进入新的一秒时整体替换槽位而不是清零，其他线程已计入新一秒的次数不会丢失
+ */
+public class RateMeter {
+    
+    private static final int MAX_SECONDS = 60;
+    
+    private static final int SLOT_COUNT = MAX_SECONDS + 1;
+    
+    private static final Slot EMPTY = new Slot(-1);
+    
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOT_COUNT);
+    
+    public RateMeter() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slots.set(i, EMPTY);
+        }
+    }
+    
+    /**
+     * 记录一次事件
+     */
+    public void mark() {
+        mark(1);
+    }
+    
+    /**
+     * 记录n次事件
+     */
+    public void mark(long n) {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % SLOT_COUNT);
+        Slot slot = slots.get(index);
+        while (slot.second != second) {
+            // 槽位仍是60秒前的，替换失败说明其他线程已换上新的一秒，重新读取
+            Slot next = new Slot(second);
+            if (slots.compareAndSet(index, slot, next)) {
+                slot = next;
+            } else {
+                slot = slots.get(index);
+            }
+        }
+        slot.count.add(n);
+    }
+    
+    /**
+     * 最近seconds个完整秒（不含当前秒）的事件数
+     */
+    public long getCount(int seconds) {
+        int window = Math.min(Math.max(seconds, 1), MAX_SECONDS);
+        long currentSecond = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            Slot slot = slots.get(i);
+            if (slot.second >= currentSecond - window && slot.second < currentSecond) {
+                total += slot.count.sum();
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * 最近seconds个完整秒的平均每秒事件数
+     */
+    public double getRate(int seconds) {
+        int window = Math.min(Math.max(seconds, 1), MAX_SECONDS);
+        return getCount(window) / (double) window;
+    }
+    
+    // 某一秒的计数
+    private static final class Slot {
+        
+        private final long second;
+        
+        private final LongAdder count = new LongAdder();
+        
+        private Slot(long second) {
+            this.second = second;
+        }
+    }
+}
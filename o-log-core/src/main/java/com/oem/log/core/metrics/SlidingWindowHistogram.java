@@ -0,0 +1,119 @@
+package com.oem.log.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口直方图
+ * 按固定时间间隔轮转若干个子直方图，查询时合并窗口内的子直方图计算百分位；
+ * 轮转时的清空与并发写入之间不加锁，可能丢失极少量样本，适用于监控场景
+ */
+public class SlidingWindowHistogram {
+    
+    private final long intervalMs;
+    
+    private final LogLinearHistogram[] slots;
+    
+    // 每个槽位当前对应的时间片序号
+    private final AtomicLongArray slotEpochs;
+    
+    /**
+     * @param intervalMs 每个子直方图覆盖的时间(毫秒)
+     * @param slotCount 窗口内的子直方图个数，窗口长度为intervalMs * slotCount
+     */
+    public SlidingWindowHistogram(long intervalMs, int slotCount) {
+        this.intervalMs = intervalMs;
+        this.slots = new LogLinearHistogram[slotCount];
+        this.slotEpochs = new AtomicLongArray(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LogLinearHistogram();
+            slotEpochs.set(i, -1);
+        }
+    }
+    
+    /**
+     * 记录一个值
+     */
+    public void record(long value) {
+        long epoch = System.currentTimeMillis() / intervalMs;
+        int index = (int) (epoch % slots.length);
+        long slotEpoch = slotEpochs.get(index);
+        if (slotEpoch != epoch && slotEpochs.compareAndSet(index, slotEpoch, epoch)) {
+            // 槽位已过期，轮转到当前时间片
+            slots[index].reset();
+        }
+        slots[index].record(value);
+    }
+    
+    /**
+     * 窗口长度(毫秒)
+     */
+    public long getWindowMs() {
+        return intervalMs * slots.length;
+    }
+    
+    /**
+     * 合并窗口内的数据生成快照
+     */
+    public Snapshot snapshot() {
+        long currentEpoch = System.currentTimeMillis() / intervalMs;
+        long[] merged = new long[LogLinearHistogram.BUCKET_COUNT];
+        for (int i = 0; i < slots.length; i++) {
+            long slotEpoch = slotEpochs.get(i);
+            if (slotEpoch > currentEpoch - slots.length && slotEpoch <= currentEpoch) {
+                slots[i].addTo(merged);
+            }
+        }
+        return new Snapshot(merged);
+    }
+    
+    /**
+     * 直方图快照
+     */
+    public static class Snapshot {
+        
+        private final long[] counts;
+        
+        private final long count;
+        
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+        
+        // 样本数
+        public long getCount() {
+            return count;
+        }
+        
+        // 指定百分位的值(0~100)
+        public long getPercentile(double percentile) {
+            return LogLinearHistogram.valueAtPercentile(counts, count, percentile);
+        }
+        
+        public long getP50() {
+            return getPercentile(50);
+        }
+        
+        public long getP99() {
+            return getPercentile(99);
+        }
+        
+        public long getP999() {
+            return getPercentile(99.9);
+        }
+        
+        // 最大值（所在桶的上界）
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return LogLinearHistogram.bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
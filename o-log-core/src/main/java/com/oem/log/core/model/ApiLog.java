@@ -1,7 +1,10 @@
 package com.oem.log.core.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -11,6 +14,8 @@ import java.time.LocalDateTime;
  */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ApiLog implements Serializable {
     
     private static final long serialVersionUID = 1L;
@@ -74,4 +79,10 @@ public class ApiLog implements Serializable {
      * 执行耗时（毫秒）
      */
     private long executionTime;
+    
+    /**
+     * 阶段耗时分解（开启phase-timing时记录）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ApiLogTiming timing;
 } 
\ No newline at end of file
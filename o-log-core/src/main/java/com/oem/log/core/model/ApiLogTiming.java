@@ -0,0 +1,41 @@
+package com.oem.log.core.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 单次请求的阶段耗时分解（纳秒，基于System.nanoTime）
+ * 入队耗时和序列化耗时发生在日志落盘之前或之中，只汇总到LogMetrics中
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiLogTiming implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * 前置处理耗时：包装请求响应、构建日志、执行processRequest
+     */
+    private long preProcessNanos;
+    
+    /**
+     * 业务处理耗时：过滤器链执行时间
+     */
+    private long handlerNanos;
+    
+    /**
+     * 响应处理耗时：采集响应内容、执行processResponse、复制响应体
+     */
+    private long responseProcessNanos;
+    
+    /**
+     * 队列等待耗时：发布到Disruptor到写入线程开始处理
+     */
+    private long queueWaitNanos;
+}
@@ -0,0 +1,26 @@
+package com.oem.log.core.query;
+
+/**
+ * 判断条件所需的解码程度，按从轻到重排列
+ */
+public enum DecodeLevel {
+
+    /**
+     * 字段探测即可取出：请求时间、路径、状态码、耗时、异常信息
+     */
+    PROBE,
+
+    /**
+     * 字段探测时需同时取出方法和主机名
+     */
+    DIMENSION,
+
+    /**
+     * 需要完整反序列化：请求参数、请求头、响应体、客户端IP、ID
+     */
+    FULL;
+
+    public DecodeLevel max(DecodeLevel other) {
+        return other.ordinal() > ordinal() ? other : this;
+    }
+}
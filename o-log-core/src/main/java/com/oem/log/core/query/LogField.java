@@ -0,0 +1,103 @@
+package com.oem.log.core.query;
+
+import com.oem.log.core.model.ApiLog;
+
+import java.util.Locale;
+
+/**
+ * 查询语句中可用的字段
+ */
+public enum LogField {
+
+    PATH("path", DecodeLevel.PROBE, false),
+    METHOD("method", DecodeLevel.DIMENSION, false),
+    STATUS("status", DecodeLevel.PROBE, true),
+    DURATION("duration", DecodeLevel.PROBE, true),
+    EXCEPTION("exception", DecodeLevel.PROBE, false),
+    HOST("host", DecodeLevel.DIMENSION, false),
+    IP("ip", DecodeLevel.FULL, false),
+    HEADER("header", DecodeLevel.FULL, false),
+    PARAMS("params", DecodeLevel.FULL, false),
+    RESPONSE("response", DecodeLevel.FULL, false),
+    // 请求参数或响应体，任一命中即可
+    BODY("body", DecodeLevel.FULL, false),
+    ID("id", DecodeLevel.FULL, false);
+
+    private final String label;
+    private final DecodeLevel level;
+    private final boolean numeric;
+
+    LogField(String label, DecodeLevel level, boolean numeric) {
+        this.label = label;
+        this.level = level;
+        this.numeric = numeric;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public DecodeLevel getLevel() {
+        return level;
+    }
+
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * 按名称查找字段，不区分大小写，不存在时返回null
+     */
+    public static LogField of(String label) {
+        String lower = label.toLowerCase(Locale.ROOT);
+        for (LogField field : values()) {
+            if (field.label.equals(lower)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 数值字段的取值
+     */
+    long number(ApiLog log) {
+        return this == STATUS ? log.getStatusCode() : log.getExecutionTime();
+    }
+
+    /**
+     * 文本字段的取值，BODY返回请求参数，响应体由text2取出
+     */
+    String text(ApiLog log) {
+        switch (this) {
+            case PATH:
+                return log.getPath();
+            case METHOD:
+                return log.getMethod();
+            case EXCEPTION:
+                return log.getExceptionMsg();
+            case HOST:
+                return log.getHostname();
+            case IP:
+                return log.getClientIp();
+            case HEADER:
+                return log.getRequestHeaders();
+            case PARAMS:
+            case BODY:
+                return log.getRequestParams();
+            case RESPONSE:
+                return log.getResponseBody();
+            case ID:
+                return log.getId();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 文本字段的第二个取值，只有BODY有（响应体）
+     */
+    String text2(ApiLog log) {
+        return this == BODY ? log.getResponseBody() : null;
+    }
+}
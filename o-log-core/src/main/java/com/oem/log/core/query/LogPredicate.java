@@ -0,0 +1,329 @@
+package com.oem.log.core.query;
+
+import com.oem.log.core.model.ApiLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的过滤条件树
+ * 叶子为单个字段的匹配，内部节点为与、或、非。树是不可变的，可在多个线程中同时使用；
+ * 查询计划按树的结构判断能否用文件摘要或词元索引缩小扫描范围
+ */
+public abstract class LogPredicate {
+
+    /**
+     * 没有任何条件
+     */
+    public static final LogPredicate ALL = new LogPredicate() {
+        @Override
+        public boolean test(ApiLog log) {
+            return true;
+        }
+
+        @Override
+        public DecodeLevel level() {
+            return DecodeLevel.PROBE;
+        }
+
+        @Override
+        public String toString() {
+            return "*";
+        }
+    };
+
+    /**
+     * 判断记录是否满足条件，记录至少需按level()解码
+     */
+    public abstract boolean test(ApiLog log);
+
+    /**
+     * 判断条件所需的解码程度
+     */
+    public abstract DecodeLevel level();
+
+    /**
+     * 合并为与条件，忽略ALL，只剩一个条件时直接返回
+     */
+    public static LogPredicate and(List<LogPredicate> parts) {
+        List<LogPredicate> children = new ArrayList<>(parts.size());
+        for (LogPredicate part : parts) {
+            if (part instanceof And) {
+                children.addAll(((And) part).children);
+            } else if (part != ALL) {
+                children.add(part);
+            }
+        }
+        if (children.isEmpty()) {
+            return ALL;
+        }
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    /**
+     * 与
+     */
+    public static final class And extends LogPredicate {
+
+        private final List<LogPredicate> children;
+        private final DecodeLevel level;
+
+        And(List<LogPredicate> children) {
+            this.children = Collections.unmodifiableList(new ArrayList<>(children));
+            this.level = maxLevel(children);
+        }
+
+        public List<LogPredicate> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean test(ApiLog log) {
+            for (LogPredicate child : children) {
+                if (!child.test(log)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DecodeLevel level() {
+            return level;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " AND ");
+        }
+    }
+
+    /**
+     * 或
+     */
+    public static final class Or extends LogPredicate {
+
+        private final List<LogPredicate> children;
+        private final DecodeLevel level;
+
+        Or(List<LogPredicate> children) {
+            this.children = Collections.unmodifiableList(new ArrayList<>(children));
+            this.level = maxLevel(children);
+        }
+
+        public List<LogPredicate> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean test(ApiLog log) {
+            for (LogPredicate child : children) {
+                if (child.test(log)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public DecodeLevel level() {
+            return level;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " OR ");
+        }
+    }
+
+    /**
+     * 非
+     */
+    public static final class Not extends LogPredicate {
+
+        private final LogPredicate child;
+
+        Not(LogPredicate child) {
+            this.child = child;
+        }
+
+        public LogPredicate getChild() {
+            return child;
+        }
+
+        @Override
+        public boolean test(ApiLog log) {
+            return !child.test(log);
+        }
+
+        @Override
+        public DecodeLevel level() {
+            return child.level();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+
+    /**
+     * 单个字段的匹配：文本字段为包含、相等、正则或通配符，数值字段为闭区间
+     */
+    public static final class Match extends LogPredicate {
+
+        public enum Op {
+            CONTAINS, EQUALS, REGEX, WILDCARD, RANGE
+        }
+
+        private final LogField field;
+        private final Op op;
+        private final String value;
+        private final Pattern pattern;
+        private final long low;
+        private final long high;
+
+        private Match(LogField field, Op op, String value, Pattern pattern, long low, long high) {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+            this.pattern = pattern;
+            this.low = low;
+            this.high = high;
+        }
+
+        /**
+         * 文本包含或相等
+         */
+        public static Match text(LogField field, Op op, String value) {
+            return new Match(field, op, value, null, 0, 0);
+        }
+
+        /**
+         * 正则表达式，在字段中查找（find语义）
+         */
+        public static Match regex(LogField field, Pattern pattern) {
+            return new Match(field, Op.REGEX, pattern.pattern(), pattern, 0, 0);
+        }
+
+        /**
+         * 通配符，*匹配任意字符，须匹配整个字段
+         */
+        public static Match wildcard(LogField field, String value) {
+            StringBuilder regex = new StringBuilder();
+            int from = 0;
+            int star;
+            while ((star = value.indexOf('*', from)) >= 0) {
+                regex.append(Pattern.quote(value.substring(from, star))).append(".*");
+                from = star + 1;
+            }
+            regex.append(Pattern.quote(value.substring(from)));
+            return new Match(field, Op.WILDCARD, value, Pattern.compile(regex.toString(), Pattern.DOTALL), 0, 0);
+        }
+
+        /**
+         * 数值闭区间
+         */
+        public static Match range(LogField field, long low, long high) {
+            return new Match(field, Op.RANGE, null, null, low, high);
+        }
+
+        public LogField getField() {
+            return field;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getLow() {
+            return low;
+        }
+
+        public long getHigh() {
+            return high;
+        }
+
+        @Override
+        public boolean test(ApiLog log) {
+            if (op == Op.RANGE) {
+                long number = field.number(log);
+                return number >= low && number <= high;
+            }
+            return matchesText(field.text(log)) || (field == LogField.BODY && matchesText(field.text2(log)));
+        }
+
+        /**
+         * 判断单个文本值是否匹配，值为null时不匹配；文件摘要中的路径和方法也用它判断
+         */
+        public boolean matchesText(String text) {
+            if (text == null) {
+                return false;
+            }
+            switch (op) {
+                case CONTAINS:
+                    return text.contains(value);
+                case EQUALS:
+                    return text.equals(value);
+                case REGEX:
+                    return pattern.matcher(text).find();
+                case WILDCARD:
+                    return pattern.matcher(text).matches();
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public DecodeLevel level() {
+            return field.getLevel();
+        }
+
+        @Override
+        public String toString() {
+            String name = field.getLabel();
+            switch (op) {
+                case CONTAINS:
+                    return name + ":" + quote(value);
+                case EQUALS:
+                    return name + ":=" + quote(value);
+                case REGEX:
+                    return name + ":~" + quote(value);
+                case WILDCARD:
+                    return name + ":" + value;
+                default:
+                    return name + ":[" + (low == Long.MIN_VALUE ? "*" : String.valueOf(low)) + ".."
+                            + (high == Long.MAX_VALUE ? "*" : String.valueOf(high)) + "]";
+            }
+        }
+
+        private static String quote(String text) {
+            return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+
+    private static DecodeLevel maxLevel(List<LogPredicate> children) {
+        DecodeLevel level = DecodeLevel.PROBE;
+        for (LogPredicate child : children) {
+            level = level.max(child.level());
+        }
+        return level;
+    }
+
+    private static String join(List<LogPredicate> children, String separator) {
+        StringBuilder text = new StringBuilder("(");
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) {
+                text.append(separator);
+            }
+            text.append(children.get(i));
+        }
+        return text.append(')').toString();
+    }
+}
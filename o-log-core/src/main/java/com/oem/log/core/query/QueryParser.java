@@ -0,0 +1,289 @@
+package com.oem.log.core.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 查询语句解析器，把查询语句解析为条件树，查看端和应用节点的查询接口共用
+ *
+ * 语法：
+ * <pre>
+ * 表达式  := 或条件
+ * 或条件  := 与条件 (OR 与条件)*
+ * 与条件  := 一元条件 ([AND] 一元条件)*        相邻条件之间省略AND时按与处理
+ * 一元条件 := (NOT | -) 一元条件 | "(" 表达式 ")" | 字段条件
+ * 字段条件 := 字段 ":" [= | ~ | > | >= | < | <=] 值
+ * 值      := "带引号的文本" | 不含空白和括号的文本
+ * </pre>
+ * 文本字段默认按包含匹配，":="为完全相等，":~"为正则查找，不带引号且含*的值为通配符（匹配整个字段）；
+ * 路径本身以/开头，正则不使用/.../定界，含空白或括号的正则需加引号；
+ * 数值字段（status、duration）默认为相等，支持比较运算、[下限..上限]闭区间（*表示不限）和5xx形式的状态码段。
+ * 条件树的toString()是可重新解析的规范形式，查看端据此把条件转发给应用节点。关键字不区分大小写。
+ * 例：path:/api/order AND (status:5xx OR duration:>1000) AND NOT ip:10.0.*
+ */
+public final class QueryParser {
+
+    // 语句长度和嵌套深度上限，避免超长语句耗尽解析栈
+    private static final int MAX_LENGTH = 4096;
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private QueryParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * 解析查询语句，空语句返回ALL
+     * @throws QuerySyntaxException 语句有误
+     */
+    public static LogPredicate parse(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return LogPredicate.ALL;
+        }
+        if (query.length() > MAX_LENGTH) {
+            throw new QuerySyntaxException("查询语句过长，最多" + MAX_LENGTH + "个字符");
+        }
+        QueryParser parser = new QueryParser(query);
+        LogPredicate predicate = parser.parseOr();
+        parser.skipSpaces();
+        if (parser.pos < query.length()) {
+            throw parser.error("多余的内容");
+        }
+        return predicate;
+    }
+
+    private LogPredicate parseOr() {
+        List<LogPredicate> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (keyword("OR") || symbol("||")) {
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : new LogPredicate.Or(children);
+    }
+
+    private LogPredicate parseAnd() {
+        List<LogPredicate> children = new ArrayList<>();
+        children.add(parseUnary());
+        while (true) {
+            skipSpaces();
+            if (pos >= text.length() || text.charAt(pos) == ')' || peekKeyword("OR") || text.startsWith("||", pos)) {
+                break;
+            }
+            if (!keyword("AND")) {
+                symbol("&&");
+            }
+            children.add(parseUnary());
+        }
+        return LogPredicate.and(children);
+    }
+
+    private LogPredicate parseUnary() {
+        if (++depth > MAX_DEPTH) {
+            throw error("嵌套层数过多");
+        }
+        try {
+            skipSpaces();
+            if (keyword("NOT") || symbol("-") || symbol("!")) {
+                return new LogPredicate.Not(parseUnary());
+            }
+            if (symbol("(")) {
+                LogPredicate inner = parseOr();
+                if (!symbol(")")) {
+                    throw error("缺少右括号");
+                }
+                return inner;
+            }
+            return parseMatch();
+        } finally {
+            depth--;
+        }
+    }
+
+    private LogPredicate parseMatch() {
+        int start = pos;
+        while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos == start) {
+            throw error("期望字段名");
+        }
+        String name = text.substring(start, pos);
+        LogField field = LogField.of(name);
+        if (field == null) {
+            pos = start;
+            throw error("未知字段" + name + "，可用字段：" + fieldNames());
+        }
+        if (!symbol(":")) {
+            throw error("字段名后缺少冒号");
+        }
+        return field.isNumeric() ? parseRange(field) : parseText(field);
+    }
+
+    private LogPredicate parseText(LogField field) {
+        LogPredicate.Match.Op op = LogPredicate.Match.Op.CONTAINS;
+        if (text.startsWith("=", pos)) {
+            pos++;
+            op = LogPredicate.Match.Op.EQUALS;
+        } else if (text.startsWith("~", pos)) {
+            pos++;
+            op = LogPredicate.Match.Op.REGEX;
+        }
+        boolean quoted = text.startsWith("\"", pos);
+        String value = quoted ? readQuoted() : readBare();
+        if (op == LogPredicate.Match.Op.REGEX) {
+            return LogPredicate.Match.regex(field, compileRegex(value));
+        }
+        if (!quoted && op == LogPredicate.Match.Op.CONTAINS && value.indexOf('*') >= 0) {
+            return LogPredicate.Match.wildcard(field, value);
+        }
+        return LogPredicate.Match.text(field, op, value);
+    }
+
+    private LogPredicate parseRange(LogField field) {
+        String op = "";
+        for (String candidate : new String[]{">=", "<=", ">", "<", "="}) {
+            if (text.startsWith(candidate, pos)) {
+                op = candidate;
+                pos += candidate.length();
+                break;
+            }
+        }
+        int start = pos;
+        String value = readBare();
+        // 状态码段：5xx表示500~599
+        if (op.isEmpty() && field == LogField.STATUS && value.length() == 3
+                && Character.isDigit(value.charAt(0)) && value.substring(1).equalsIgnoreCase("xx")) {
+            long low = (value.charAt(0) - '0') * 100L;
+            return LogPredicate.Match.range(field, low, low + 99);
+        }
+        // 闭区间：[500..599]、[1000..*]
+        if (op.isEmpty() && value.startsWith("[") && value.endsWith("]") && value.contains("..")) {
+            String[] bounds = value.substring(1, value.length() - 1).split("\\.\\.", -1);
+            if (bounds.length == 2) {
+                long low = bounds[0].equals("*") ? Long.MIN_VALUE : parseNumber(field, bounds[0], start);
+                long high = bounds[1].equals("*") ? Long.MAX_VALUE : parseNumber(field, bounds[1], start);
+                return LogPredicate.Match.range(field, low, high);
+            }
+        }
+        long number = parseNumber(field, value, start);
+        switch (op) {
+            case ">":
+                return LogPredicate.Match.range(field, number + 1, Long.MAX_VALUE);
+            case ">=":
+                return LogPredicate.Match.range(field, number, Long.MAX_VALUE);
+            case "<":
+                return LogPredicate.Match.range(field, Long.MIN_VALUE, number - 1);
+            case "<=":
+                return LogPredicate.Match.range(field, Long.MIN_VALUE, number);
+            default:
+                return LogPredicate.Match.range(field, number, number);
+        }
+    }
+
+    private long parseNumber(LogField field, String value, int start) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error(field.getLabel() + "的值应为整数");
+        }
+    }
+
+    // 读取引号之间的内容，反斜杠转义引号和反斜杠本身，正则中的其他转义原样保留
+    private String readQuoted() {
+        int start = pos;
+        pos++;
+        StringBuilder value = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && pos < text.length()) {
+                char next = text.charAt(pos);
+                if (next == '"' || next == '\\') {
+                    value.append(next);
+                    pos++;
+                    continue;
+                }
+            }
+            value.append(c);
+        }
+        pos = start;
+        throw error("缺少结束的引号");
+    }
+
+    private String readBare() {
+        int start = pos;
+        while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+                && text.charAt(pos) != '(' && text.charAt(pos) != ')') {
+            pos++;
+        }
+        if (pos == start) {
+            throw error("缺少值");
+        }
+        return text.substring(start, pos);
+    }
+
+    private Pattern compileRegex(String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new QuerySyntaxException("正则表达式有误：" + e.getDescription() + "：" + regex);
+        }
+    }
+
+    // 匹配关键字，关键字后须为空白、括号或结尾
+    private boolean keyword(String word) {
+        skipSpaces();
+        if (!peekKeyword(word)) {
+            return false;
+        }
+        pos += word.length();
+        return true;
+    }
+
+    private boolean peekKeyword(String word) {
+        int end = pos + word.length();
+        if (!text.regionMatches(true, pos, word, 0, word.length())) {
+            return false;
+        }
+        return end == text.length() || Character.isWhitespace(text.charAt(end))
+                || text.charAt(end) == '(' || text.charAt(end) == ')';
+    }
+
+    private boolean symbol(String symbol) {
+        skipSpaces();
+        if (text.startsWith(symbol, pos)) {
+            pos += symbol.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private QuerySyntaxException error(String message) {
+        return new QuerySyntaxException("查询语句第" + (pos + 1) + "个字符处：" + message);
+    }
+
+    private static String fieldNames() {
+        StringBuilder names = new StringBuilder();
+        for (LogField field : LogField.values()) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(field.getLabel());
+        }
+        return names.toString();
+    }
+}
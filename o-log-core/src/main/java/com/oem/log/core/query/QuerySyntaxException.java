@@ -0,0 +1,13 @@
+package com.oem.log.core.query;
+
+/**
+ * 查询语句有误，由解析器抛出并在查询入口处转换为提示信息
+ */
+public class QuerySyntaxException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QuerySyntaxException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,43 @@
+package com.oem.log.core.rollup;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口自启动以来的累计请求数、错误数和总耗时
+ * 由写入线程累加，监控抓取线程无锁读取
+ */
+public class EndpointTotals {
+
+    private final RollupKey key;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+
+    public EndpointTotals(RollupKey key) {
+        this.key = key;
+    }
+
+    void record(long millis, boolean error) {
+        count.increment();
+        if (error) {
+            errorCount.increment();
+        }
+        totalMillis.add(Math.max(millis, 0));
+    }
+
+    public RollupKey getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalMillis() {
+        return totalMillis.sum();
+    }
+}
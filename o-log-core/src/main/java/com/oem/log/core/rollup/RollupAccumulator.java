@@ -0,0 +1,148 @@
+package com.oem.log.core.rollup;
+
+import com.oem.log.core.metrics.LogLinearHistogram;
+
+import java.util.Arrays;
+
+/**
+ * 汇总累加器
+ * 写入端用于累加单条日志，查看端用于合并多个RollupRecord；非线程安全
+ * 直方图数组按实际出现的最大桶下标扩容，毫秒级耗时通常只占用前两百个桶
+ */
+public class RollupAccumulator {
+
+    private long count;
+    private long errorCount;
+    private long totalMillis;
+    private long maxMillis;
+    private long[] latencyCounts = new long[0];
+
+    /**
+     * 累加一条请求
+     */
+    public void record(long millis, boolean error) {
+        long value = Math.max(millis, 0);
+        count++;
+        if (error) {
+            errorCount++;
+        }
+        totalMillis += value;
+        maxMillis = Math.max(maxMillis, value);
+        addBucket(LogLinearHistogram.bucketIndex(value), 1);
+    }
+
+    /**
+     * 合并一条汇总记录
+     */
+    public void merge(RollupRecord record) {
+        count += record.getCount();
+        errorCount += record.getErrorCount();
+        totalMillis += record.getTotalMillis();
+        maxMillis = Math.max(maxMillis, record.getMaxMillis());
+
+        int[] buckets = record.getLatencyBuckets();
+        long[] counts = record.getLatencyCounts();
+        if (buckets != null && counts != null) {
+            for (int i = 0; i < Math.min(buckets.length, counts.length); i++) {
+                addBucket(buckets[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * 合并另一个累加器，用于合并并行计算的部分结果
+     */
+    public void merge(RollupAccumulator other) {
+        count += other.count;
+        errorCount += other.errorCount;
+        totalMillis += other.totalMillis;
+        maxMillis = Math.max(maxMillis, other.maxMillis);
+        for (int i = other.latencyCounts.length - 1; i >= 0; i--) {
+            if (other.latencyCounts[i] != 0) {
+                addBucket(i, other.latencyCounts[i]);
+            }
+        }
+    }
+
+    private void addBucket(int index, long n) {
+        if (index >= latencyCounts.length) {
+            latencyCounts = Arrays.copyOf(latencyCounts,
+                    Math.min(LogLinearHistogram.BUCKET_COUNT, Math.max(index + 1, latencyCounts.length * 2)));
+        }
+        latencyCounts[index] += n;
+    }
+
+    /**
+     * 转换为汇总记录，直方图只保留非空桶
+     */
+    public RollupRecord toRecord(long windowStart, int windowSeconds, RollupKey key) {
+        int nonEmpty = 0;
+        for (long c : latencyCounts) {
+            if (c != 0) {
+                nonEmpty++;
+            }
+        }
+        int[] buckets = new int[nonEmpty];
+        long[] counts = new long[nonEmpty];
+        int j = 0;
+        for (int i = 0; i < latencyCounts.length; i++) {
+            if (latencyCounts[i] != 0) {
+                buckets[j] = i;
+                counts[j] = latencyCounts[i];
+                j++;
+            }
+        }
+
+        return RollupRecord.builder()
+                .windowStart(windowStart)
+                .windowSeconds(windowSeconds)
+                .path(key.getPath())
+                .method(key.getMethod())
+                .statusClass(key.getStatusClass())
+                .count(count)
+                .errorCount(errorCount)
+                .totalMillis(totalMillis)
+                .maxMillis(maxMillis)
+                .latencyBuckets(buckets)
+                .latencyCounts(counts)
+                .build();
+    }
+
+    /**
+     * 耗时百分位（毫秒，返回所在桶上界）
+     * @param percentile 百分位，取值0~100
+     */
+    public long getPercentile(double percentile) {
+        return Math.min(LogLinearHistogram.valueAtPercentile(latencyCounts, count, percentile), maxMillis);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    public double getAvgMillis() {
+        return count > 0 ? (double) totalMillis / count : 0;
+    }
+
+    /**
+     * 错误率，取值0~1
+     */
+    public double getErrorRate() {
+        return count > 0 ? (double) errorCount / count : 0;
+    }
+}
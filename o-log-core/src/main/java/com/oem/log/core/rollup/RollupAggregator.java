@@ -0,0 +1,188 @@
+package com.oem.log.core.rollup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.model.ApiLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 写入端的接口RED汇总
+ * 在日志写入线程上按路径、方法、状态码分类累加请求数、错误数和耗时直方图，
+ * 同时维护10秒和1分钟两种窗口，窗口结束后追加写入对应的汇总文件；非线程安全，由调用方加锁
+ */
+@Slf4j
+public class RollupAggregator {
+
+    // 窗口结束后再等待的时间，容纳写入队列中稍晚到达的日志
+    private static final long SEAL_GRACE_MS = 2000;
+
+    private final String rollupDir;
+    private final String hostname;
+    private final int maxKeys;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Window[] windows = {new Window(10), new Window(60)};
+
+    // 各接口累计值，维度上限与窗口一致
+    private final Map<RollupKey, EndpointTotals> totals = new ConcurrentHashMap<>();
+
+    public RollupAggregator(String rollupDir, String hostname, int maxKeys) {
+        this.rollupDir = rollupDir;
+        this.hostname = hostname;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 累加一条日志，按请求完成时间归入窗口
+     */
+    public void record(ApiLog apiLog) {
+        if (apiLog.getRequestTime() == null) {
+            return;
+        }
+
+        long completedAt = apiLog.getRequestTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + apiLog.getExecutionTime();
+        String path = apiLog.getPath() != null ? apiLog.getPath() : "";
+        RollupKey key = new RollupKey(path, apiLog.getMethod(), RollupKey.statusClassOf(apiLog.getStatusCode()));
+        boolean error = apiLog.getStatusCode() >= 500 || apiLog.getExceptionMsg() != null;
+
+        for (Window window : windows) {
+            window.record(completedAt, key, apiLog.getExecutionTime(), error);
+        }
+        
+        EndpointTotals endpointTotals = totals.get(key);
+        if (endpointTotals == null) {
+            if (totals.size() >= maxKeys) {
+                key = new RollupKey(RollupKey.OTHER_PATH, key.getMethod(), key.getStatusClass());
+            }
+            endpointTotals = totals.computeIfAbsent(key, EndpointTotals::new);
+        }
+        endpointTotals.record(apiLog.getExecutionTime(), error);
+    }
+
+    /**
+     * 各接口自启动以来的累计值，可在任意线程读取
+     */
+    public Collection<EndpointTotals> getEndpointTotals() {
+        return Collections.unmodifiableCollection(totals.values());
+    }
+
+    /**
+     * 封存已经结束的窗口，由定时刷盘任务调用
+     */
+    public void sealExpired(long now) {
+        for (Window window : windows) {
+            if (window.start >= 0 && now >= window.start + window.lengthMs + SEAL_GRACE_MS) {
+                window.seal();
+            }
+        }
+    }
+
+    /**
+     * 封存所有窗口并关闭文件
+     */
+    public void close() {
+        for (Window window : windows) {
+            window.seal();
+            window.closeChannel();
+        }
+    }
+
+    /**
+     * 单一粒度的当前窗口
+     */
+    private class Window {
+
+        private final int seconds;
+        private final long lengthMs;
+        private final Map<RollupKey, RollupAccumulator> entries = new HashMap<>();
+        private long start = -1;
+
+        private String currentFileName;
+        private FileChannel channel;
+
+        Window(int seconds) {
+            this.seconds = seconds;
+            this.lengthMs = seconds * 1000L;
+        }
+
+        void record(long time, RollupKey key, long millis, boolean error) {
+            if (start < 0) {
+                start = time - Math.floorMod(time, lengthMs);
+            } else if (time >= start + lengthMs) {
+                seal();
+                start = time - Math.floorMod(time, lengthMs);
+            }
+            // 早于当前窗口的迟到日志计入当前窗口
+
+            RollupAccumulator accumulator = entries.get(key);
+            if (accumulator == null) {
+                if (entries.size() >= maxKeys) {
+                    // 维度过多（如路径中带ID）时归并到同一个桶，限制内存和文件大小
+                    key = new RollupKey(RollupKey.OTHER_PATH, key.getMethod(), key.getStatusClass());
+                    accumulator = entries.get(key);
+                }
+                if (accumulator == null) {
+                    accumulator = new RollupAccumulator();
+                    entries.put(key, accumulator);
+                }
+            }
+            accumulator.record(millis, error);
+        }
+
+        void seal() {
+            if (start < 0) {
+                return;
+            }
+            try {
+                if (!entries.isEmpty()) {
+                    FileChannel target = channelFor(start);
+                    for (Map.Entry<RollupKey, RollupAccumulator> entry : entries.entrySet()) {
+                        ByteBuffer buffer = RollupFiles.encode(
+                                entry.getValue().toRecord(start, seconds, entry.getKey()), objectMapper);
+                        while (buffer.hasRemaining()) {
+                            target.write(buffer);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.error("写入汇总文件失败", e);
+            } finally {
+                entries.clear();
+                start = -1;
+            }
+        }
+
+        private FileChannel channelFor(long windowStart) throws IOException {
+            String fileName = RollupFiles.fileName(hostname, windowStart, seconds);
+            if (channel == null || !fileName.equals(currentFileName)) {
+                closeChannel();
+                channel = new FileOutputStream(rollupDir + File.separator + fileName, true).getChannel();
+                currentFileName = fileName;
+            }
+            return channel;
+        }
+
+        void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.error("关闭汇总文件失败", e);
+                }
+                channel = null;
+                currentFileName = null;
+            }
+        }
+    }
+}
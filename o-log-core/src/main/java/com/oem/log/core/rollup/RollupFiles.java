@@ -0,0 +1,97 @@
+package com.oem.log.core.rollup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 汇总文件命名与读写格式
+ * 文件与.data数据文件放在同一目录，按小时和窗口粒度拆分：{hostname}_{yyyyMMddHH}_{10s|1m}.rollup
+ * 每条记录与数据文件一致，为[4字节长度][JSON]
+ */
+public final class RollupFiles {
+
+    public static final String EXTENSION = ".rollup";
+
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private RollupFiles() {
+    }
+
+    /**
+     * 窗口粒度对应的文件名标记
+     */
+    public static String resolutionTag(int windowSeconds) {
+        return windowSeconds >= 60 ? (windowSeconds / 60) + "m" : windowSeconds + "s";
+    }
+
+    /**
+     * 窗口所属的汇总文件名
+     */
+    public static String fileName(String hostname, long windowStart, int windowSeconds) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(windowStart), ZoneId.systemDefault());
+        return hostname + "_" + time.format(HOUR_FORMATTER) + "_" + resolutionTag(windowSeconds) + EXTENSION;
+    }
+
+    /**
+     * 文件是否为指定粒度的汇总文件
+     */
+    public static boolean isRollupFile(String fileName, int windowSeconds) {
+        return fileName.endsWith("_" + resolutionTag(windowSeconds) + EXTENSION);
+    }
+
+    /**
+     * 从文件名解析所在小时的开始时间戳（毫秒），无法解析时返回-1
+     */
+    public static long parseHourStart(String fileName) {
+        try {
+            String name = fileName.substring(0, fileName.lastIndexOf('_'));
+            String hour = name.substring(name.lastIndexOf('_') + 1);
+            return LocalDateTime.parse(hour, HOUR_FORMATTER)
+                    .atZone(ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 编码单条汇总记录
+     */
+    public static ByteBuffer encode(RollupRecord record, ObjectMapper objectMapper) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + json.length);
+        buffer.putInt(json.length);
+        buffer.put(json);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 读取汇总文件中的全部记录，遇到不完整的尾部记录时停止
+     */
+    public static List<RollupRecord> read(File file, ObjectMapper objectMapper) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        List<RollupRecord> records = new ArrayList<>();
+
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            records.add(objectMapper.readValue(buffer.array(), buffer.position(), length, RollupRecord.class));
+            buffer.position(buffer.position() + length);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,33 @@
+package com.oem.log.core.rollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 汇总维度：路径 + 方法 + 状态码分类
+ */
+@Data
+@AllArgsConstructor
+public class RollupKey {
+
+    /**
+     * 超出维度上限后归并使用的路径
+     */
+    public static final String OTHER_PATH = "_other_";
+
+    private final String path;
+
+    private final String method;
+
+    private final String statusClass;
+
+    /**
+     * 根据状态码计算分类，如200 -> 2xx
+     */
+    public static String statusClassOf(int statusCode) {
+        if (statusCode < 100 || statusCode > 599) {
+            return "unknown";
+        }
+        return (statusCode / 100) + "xx";
+    }
+}
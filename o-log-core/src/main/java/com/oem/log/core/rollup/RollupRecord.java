@@ -0,0 +1,72 @@
+package com.oem.log.core.rollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 接口RED汇总记录
+ * 一个时间窗口内同一路径、方法、状态码分类的请求数、错误数和耗时分布
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupRecord {
+
+    /**
+     * 窗口开始时间戳（毫秒）
+     */
+    private long windowStart;
+
+    /**
+     * 窗口长度（秒），10或60
+     */
+    private int windowSeconds;
+
+    /**
+     * 请求路径
+     */
+    private String path;
+
+    /**
+     * 请求方法
+     */
+    private String method;
+
+    /**
+     * 状态码分类，如2xx、5xx
+     */
+    private String statusClass;
+
+    /**
+     * 请求数
+     */
+    private long count;
+
+    /**
+     * 错误数（5xx或带异常信息）
+     */
+    private long errorCount;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long totalMillis;
+
+    /**
+     * 最大耗时（毫秒）
+     */
+    private long maxMillis;
+
+    /**
+     * 耗时直方图中非空桶的下标（对数线性分桶，与LogLinearHistogram一致）
+     */
+    private int[] latencyBuckets;
+
+    /**
+     * 与latencyBuckets一一对应的计数
+     */
+    private long[] latencyCounts;
+}
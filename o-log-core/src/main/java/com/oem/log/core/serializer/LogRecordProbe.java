@@ -0,0 +1,363 @@
+package com.oem.log.core.serializer;
+
+import com.oem.log.core.model.ApiLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * 只解析过滤字段的记录扫描器（JsonLogSerializer写出的记录）
+ * 直接在记录的UTF-8字节上扫描顶层字段，只取出请求时间、路径、状态码、耗时和异常信息，填入复用的ApiLog；
+ * 请求参数、请求头、响应体等大字段只跳过不解码，不生成字符串。过滤命中后再由序列化器完整反序列化。
+ * 聚合查询还需要方法和主机名作为分组维度，构造时指定后一并取出。
+ * 每个扫描线程一个实例，不是线程安全的
+ */
+public final class LogRecordProbe {
+
+    private static final byte[] REQUEST_TIME = ascii("requestTime");
+    private static final byte[] PATH = ascii("path");
+    private static final byte[] STATUS_CODE = ascii("statusCode");
+    private static final byte[] EXECUTION_TIME = ascii("executionTime");
+    private static final byte[] EXCEPTION_MSG = ascii("exceptionMsg");
+    private static final byte[] METHOD = ascii("method");
+    private static final byte[] HOSTNAME = ascii("hostname");
+
+    // SWAR常量：每个字节分别为0x01、0x80、引号、反斜杠
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long QUOTES = ONES * '"';
+    private static final long BACKSLASHES = ONES * '\\';
+
+    // 记录字节的复用缓冲，只在遇到更长的记录时扩容
+    private byte[] buf = new byte[4096];
+    private ByteBuffer words = wordsOf(buf);
+    private int pos;
+    private int end;
+
+    private final ApiLog probe = new ApiLog();
+    private final int[] dateParts = new int[7];
+
+    // 是否同时取出方法和主机名
+    private final boolean dimensions;
+
+    public LogRecordProbe() {
+        this(false);
+    }
+
+    public LogRecordProbe(boolean dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * 解析记录中的过滤字段，返回的对象在下一次调用时被覆盖
+     * @param data 数据文件映射
+     * @param position 记录起点（长度前缀处）
+     * @param size 记录大小（含4字节长度前缀）
+     */
+    public ApiLog read(ByteBuffer data, int position, int size) throws IOException {
+        int length = size - 4;
+        if (buf.length < length) {
+            buf = new byte[Math.max(length, buf.length * 2)];
+            words = wordsOf(buf);
+        }
+        ByteBuffer view = data.duplicate();
+        view.position(position + 4);
+        view.get(buf, 0, length);
+        pos = 0;
+        end = length;
+
+        probe.setRequestTime(null);
+        probe.setPath(null);
+        probe.setStatusCode(0);
+        probe.setExecutionTime(0);
+        probe.setExceptionMsg(null);
+        probe.setMethod(null);
+        probe.setHostname(null);
+
+        expect('{');
+        if (peek() == '}') {
+            return probe;
+        }
+        while (true) {
+            expect('"');
+            int keyStart = pos;
+            skipStringBody();
+            int keyEnd = pos - 1;
+            expect(':');
+
+            if (peek() == 'n') {
+                skipValue();
+            } else if (keyEquals(keyStart, keyEnd, REQUEST_TIME)) {
+                probe.setRequestTime(readDateTime());
+            } else if (keyEquals(keyStart, keyEnd, PATH)) {
+                probe.setPath(readString());
+            } else if (keyEquals(keyStart, keyEnd, STATUS_CODE)) {
+                probe.setStatusCode((int) readLong());
+            } else if (keyEquals(keyStart, keyEnd, EXECUTION_TIME)) {
+                probe.setExecutionTime(readLong());
+            } else if (keyEquals(keyStart, keyEnd, EXCEPTION_MSG)) {
+                probe.setExceptionMsg(readString());
+            } else if (dimensions && keyEquals(keyStart, keyEnd, METHOD)) {
+                probe.setMethod(readString());
+            } else if (dimensions && keyEquals(keyStart, keyEnd, HOSTNAME)) {
+                probe.setHostname(readString());
+            } else {
+                skipValue();
+            }
+
+            byte next = next();
+            if (next == '}') {
+                return probe;
+            }
+            if (next != ',') {
+                throw malformed();
+            }
+        }
+    }
+
+    /**
+     * JavaTimeModule默认把LocalDateTime写成[年,月,日,时,分,秒,纳秒]数组（秒和纳秒为0时省略），
+     * 也兼容ISO字符串
+     */
+    private LocalDateTime readDateTime() throws IOException {
+        if (peek() == '"') {
+            return LocalDateTime.parse(readString());
+        }
+        expect('[');
+        int[] parts = dateParts;
+        int count = 0;
+        if (peek() != ']') {
+            while (true) {
+                long value = readLong();
+                if (count < parts.length) {
+                    parts[count] = (int) value;
+                }
+                count++;
+                if (next() != ',') {
+                    pos--;
+                    break;
+                }
+            }
+        }
+        expect(']');
+        if (count < 5) {
+            return null;
+        }
+        for (int i = count; i < parts.length; i++) {
+            parts[i] = 0;
+        }
+        return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+    }
+
+    private long readLong() throws IOException {
+        skipWhitespace();
+        boolean negative = false;
+        if (pos < end && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos++] - '0');
+        }
+        if (pos == start) {
+            throw malformed();
+        }
+        // 小数和指数部分不会出现在整数字段中，出现时截断
+        while (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E' || buf[pos] == '+'
+                || buf[pos] == '-' || (buf[pos] >= '0' && buf[pos] <= '9'))) {
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        int start = pos;
+        StringBuilder escaped = null;
+        int segment = start;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String tail = new String(buf, segment, pos - segment, StandardCharsets.UTF_8);
+                pos++;
+                return escaped == null ? tail : escaped.append(tail).toString();
+            }
+            if (b == '\\') {
+                if (escaped == null) {
+                    escaped = new StringBuilder(pos - start + 16);
+                }
+                escaped.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+                escaped.append(readEscape());
+                segment = pos;
+            } else {
+                pos++;
+            }
+        }
+        throw malformed();
+    }
+
+    // pos指向反斜杠，返回转义后的字符并移动到转义序列之后
+    private char readEscape() throws IOException {
+        if (pos + 1 >= end) {
+            throw malformed();
+        }
+        byte c = buf[pos + 1];
+        pos += 2;
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (pos + 4 > end) {
+                    throw malformed();
+                }
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buf[pos++], 16);
+                    if (digit < 0) {
+                        throw malformed();
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw malformed();
+        }
+    }
+
+    // 跳过一个任意JSON值，字符串和嵌套结构只扫描不解码
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        if (pos >= end) {
+            throw malformed();
+        }
+        byte b = buf[pos];
+        if (b == '"') {
+            pos++;
+            skipStringBody();
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                byte c = buf[pos++];
+                if (c == '"') {
+                    skipStringBody();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw malformed();
+        } else {
+            // 数字、true、false、null
+            while (pos < end && buf[pos] != ',' && buf[pos] != '}' && buf[pos] != ']'
+                    && buf[pos] != ' ' && buf[pos] != '\n' && buf[pos] != '\r' && buf[pos] != '\t') {
+                pos++;
+            }
+        }
+    }
+
+    // pos位于开头引号之后，移动到结尾引号之后
+    // 大字段的热点：每次读8字节，按SWAR同时查找引号和反斜杠，找到后再逐字节处理
+    private void skipStringBody() throws IOException {
+        byte[] bytes = buf;
+        ByteBuffer words = this.words;
+        int p = pos;
+        int limit = end;
+        while (p < limit) {
+            while (p + 8 <= limit) {
+                long word = words.getLong(p);
+                long quotes = word ^ QUOTES;
+                long backslashes = word ^ BACKSLASHES;
+                long found = ((quotes - ONES) & ~quotes | (backslashes - ONES) & ~backslashes) & HIGHS;
+                if (found != 0) {
+                    p += Long.numberOfTrailingZeros(found) >>> 3;
+                    break;
+                }
+                p += 8;
+            }
+            if (p >= limit) {
+                break;
+            }
+            byte b = bytes[p++];
+            if (b == '"') {
+                pos = p;
+                return;
+            }
+            if (b == '\\') {
+                p++;
+            }
+        }
+        pos = p;
+        throw malformed();
+    }
+
+    private boolean keyEquals(int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buf[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && (buf[pos] == ' ' || buf[pos] == '\n' || buf[pos] == '\r' || buf[pos] == '\t')) {
+            pos++;
+        }
+    }
+
+    private byte peek() throws IOException {
+        skipWhitespace();
+        if (pos >= end) {
+            throw malformed();
+        }
+        return buf[pos];
+    }
+
+    private byte next() throws IOException {
+        byte b = peek();
+        pos++;
+        return b;
+    }
+
+    private void expect(char c) throws IOException {
+        if (next() != c) {
+            throw malformed();
+        }
+    }
+
+    private IOException malformed() {
+        return new IOException("日志记录格式错误，位置: " + pos);
+    }
+
+    // 小端序读取，最低位字节对应最靠前的位置
+    private static ByteBuffer wordsOf(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
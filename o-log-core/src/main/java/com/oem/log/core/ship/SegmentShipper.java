@@ -0,0 +1,467 @@
+package com.oem.log.core.ship;
+
+import com.oem.log.core.rollup.RollupFiles;
+import com.oem.log.core.summary.SegmentSummary;
+import com.oem.log.core.textindex.TokenIndexFiles;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 把本机的数据文件及其索引、摘要、词元索引、汇总文件传送到收集端，收集端按相同的目录布局落盘，查看端直接查询收集端目录
+ * 后台线程每隔intervalMs检查一次：数据文件按索引中已写入的记录确定可传长度，先传数据再传对应的索引项，
+ * 收集端任何时刻都不会出现指向未到达数据的索引项；文件内容用FileChannel.transferTo直接从页缓存发往套接字。
+ * 每个文件以收集端已有的字节数为续传起点，收集端刷盘后确认；写入线程不参与传送
+ */
+@Slf4j
+public class SegmentShipper {
+
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    // 单次transferTo的字节数上限，限速时按速率的1/10切分
+    private static final int MAX_CHUNK_BYTES = 256 * 1024;
+    private static final int MIN_CHUNK_BYTES = 4096;
+
+    // 等待收集端回复的超时（毫秒）
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    // 超过该时间没有与收集端交换报价时，重新报价一个已确认的文件作为心跳，收集端不会把连接当作空闲关闭
+    private static final long KEEPALIVE_INTERVAL_MS = 60_000;
+
+    // 汇总文件所在小时结束后再过一小时视为不再追加
+    private static final long ROLLUP_SEAL_DELAY_MS = TimeUnit.HOURS.toMillis(2);
+
+    private final File dataDir;
+    private final File indexDir;
+    private final String host;
+    private final int port;
+    private final Supplier<String> liveDataFile;
+
+    private String token = "";
+    private long intervalMs = 1000;
+    private long maxBytesPerSecond = 0;
+    private boolean includeLive = true;
+    private int connectTimeoutMs = 3000;
+
+    private ScheduledExecutorService executor;
+
+    // 以下状态只在传送线程中访问
+    private SocketChannel channel;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private boolean connectFailureLogged;
+    private long lastExchangeNanos;
+
+    // 收集端已确认的字节数，键为"目录/文件名"；重连后清空，以收集端的回复为准
+    private final Map<String, Long> acked = new HashMap<>();
+
+    // 已封存数据文件的可传长度：[记录数, 数据字节数]
+    private final Map<String, long[]> sealedExtents = new HashMap<>();
+
+    // 本轮限速的起点和已发送字节数
+    private long throttleStartNanos;
+    private long throttledBytes;
+
+    private final AtomicLong shippedBytes = new AtomicLong();
+
+    /**
+     * @param baseDir 与存储相同的基础目录
+     * @param collector 收集端地址，host:port
+     * @param liveDataFile 返回正在写入的数据文件名
+     */
+    public SegmentShipper(String baseDir, String collector, Supplier<String> liveDataFile) {
+        if (collector == null || collector.trim().isEmpty()) {
+            throw new IllegalArgumentException("未配置日志收集端地址oem.log.shipper.collector");
+        }
+        String address = collector.trim();
+        int colon = address.lastIndexOf(':');
+        try {
+            this.host = colon > 0 ? address.substring(0, colon) : address;
+            this.port = colon > 0 ? Integer.parseInt(address.substring(colon + 1)) : ShipProtocol.DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("日志收集端地址格式应为host:port: " + collector);
+        }
+        this.dataDir = new File(baseDir, "data");
+        this.indexDir = new File(baseDir, "index");
+        this.liveDataFile = liveDataFile;
+    }
+
+    /**
+     * 设置收集端的访问令牌，需在start之前调用
+     */
+    public void setToken(String token) {
+        this.token = token != null ? token : "";
+    }
+
+    /**
+     * 设置检查新内容的间隔（毫秒），需在start之前调用
+     */
+    public void setIntervalMs(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * 设置传送速率上限（字节/秒），0表示不限，需在start之前调用
+     */
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    /**
+     * 设置是否传送正在写入的文件，关闭时只传送已封存的文件，需在start之前调用
+     */
+    public void setIncludeLive(boolean includeLive) {
+        this.includeLive = includeLive;
+    }
+
+    /**
+     * 设置连接收集端的超时（毫秒），需在start之前调用
+     */
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    /**
+     * 累计已传送的字节数
+     */
+    public long getShippedBytes() {
+        return shippedBytes.get();
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-shipper");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::shipSafely, 0, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("日志文件传送已启动，收集端: {}:{}", host, port);
+    }
+
+    public synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        // 中断阻塞在套接字上的传送，未确认的部分下次启动后续传
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        disconnect();
+        log.info("日志文件传送已停止");
+    }
+
+    private void shipSafely() {
+        try {
+            shipOnce();
+        } catch (Exception e) {
+            log.warn("传送日志文件失败，稍后重连: {}", e.toString());
+            disconnect();
+        }
+    }
+
+    /**
+     * 传送一轮：数据文件按文件名顺序，最后是汇总文件
+     */
+    void shipOnce() throws IOException {
+        if (!ensureConnected()) {
+            return;
+        }
+        throttleStartNanos = System.nanoTime();
+        throttledBytes = 0;
+
+        // 先列目录再取正在写入的文件名，列出的其他数据文件都已封存
+        File[] dataFiles = dataDir.listFiles(file -> file.getName().endsWith(".data"));
+        File[] rollupFiles = dataDir.listFiles(file -> file.getName().endsWith(RollupFiles.EXTENSION));
+        String live = liveDataFile.get();
+        Set<String> present = new HashSet<>();
+        keepAlive();
+
+        if (dataFiles != null) {
+            Arrays.sort(dataFiles, Comparator.comparing(File::getName));
+            for (File dataFile : dataFiles) {
+                boolean sealed = !dataFile.getName().equals(live);
+                if (sealed || includeLive) {
+                    shipSegment(dataFile, sealed, present);
+                }
+            }
+        }
+        if (rollupFiles != null) {
+            Arrays.sort(rollupFiles, Comparator.comparing(File::getName));
+            for (File rollupFile : rollupFiles) {
+                long hourStart = RollupFiles.parseHourStart(rollupFile.getName());
+                boolean sealed = hourStart >= 0 && hourStart + ROLLUP_SEAL_DELAY_MS < System.currentTimeMillis();
+                if (sealed || includeLive) {
+                    offer(ShipProtocol.KIND_APPEND, ShipProtocol.DIR_DATA, rollupFile, rollupFile.length(), present);
+                }
+            }
+        }
+
+        // 已被清理的文件不再跟踪
+        acked.keySet().retainAll(present);
+        sealedExtents.keySet().retainAll(present);
+    }
+
+    // 忘掉一个已确认文件的确认位置，本轮重新报价，收集端回复已有的字节数，不传送内容
+    private void keepAlive() {
+        if (System.nanoTime() - lastExchangeNanos < TimeUnit.MILLISECONDS.toNanos(KEEPALIVE_INTERVAL_MS)) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : acked.entrySet()) {
+            // 被拒绝的文件不再报价
+            if (entry.getValue() != Long.MAX_VALUE) {
+                acked.remove(entry.getKey());
+                return;
+            }
+        }
+    }
+
+    private void shipSegment(File dataFile, boolean sealed, Set<String> present) throws IOException {
+        String stem = dataFile.getName().substring(0, dataFile.getName().length() - ".data".length());
+        File indexFile = new File(indexDir, stem + ".index");
+        if (!indexFile.isFile()) {
+            return;
+        }
+        String key = keyOf(ShipProtocol.DIR_DATA, dataFile);
+        long[] extent = sealed ? sealedExtents.get(key) : null;
+        if (extent == null) {
+            try {
+                extent = extent(dataFile, indexFile);
+            } catch (IOException e) {
+                // 文件已被清理或正在写入的索引暂时不一致，下一轮再试
+                log.debug("计算可传长度失败: {}", dataFile.getName(), e);
+                return;
+            }
+            if (sealed) {
+                sealedExtents.put(key, extent);
+            }
+        }
+
+        // 先传数据再传索引，收集端的索引项只会指向已到达的数据
+        offer(ShipProtocol.KIND_APPEND, ShipProtocol.DIR_DATA, dataFile, extent[1], present);
+        offer(ShipProtocol.KIND_APPEND, ShipProtocol.DIR_INDEX, indexFile, extent[0] * INDEX_ENTRY_SIZE, present);
+
+        // 摘要在封存时写出，词元索引在封存后由后台线程建立，出现后再传
+        if (sealed) {
+            File summaryFile = SegmentSummary.fileFor(indexFile);
+            if (summaryFile.isFile()) {
+                offer(ShipProtocol.KIND_WHOLE, ShipProtocol.DIR_INDEX, summaryFile, summaryFile.length(), present);
+            }
+            File tokensFile = TokenIndexFiles.fileFor(indexFile);
+            if (tokensFile.isFile()) {
+                offer(ShipProtocol.KIND_WHOLE, ShipProtocol.DIR_INDEX, tokensFile, tokensFile.length(), present);
+            }
+        }
+    }
+
+    /**
+     * 报价并传送一个文件，收集端已确认到length时不再报价
+     */
+    private void offer(byte kind, byte dir, File file, long length, Set<String> present) throws IOException {
+        String key = keyOf(dir, file);
+        present.add(key);
+        Long confirmed = acked.get(key);
+        if (confirmed != null && confirmed >= length) {
+            return;
+        }
+
+        // 先打开文件，已被清理的文件不发出报价
+        FileChannel source;
+        try {
+            source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        try {
+            out.writeByte(kind);
+            out.writeByte(dir);
+            out.writeUTF(file.getName());
+            out.writeLong(length);
+            out.flush();
+            long offset = in.readLong();
+            lastExchangeNanos = System.nanoTime();
+            if (offset == ShipProtocol.REJECTED) {
+                log.warn("收集端拒绝了文件: {}", key);
+                acked.put(key, Long.MAX_VALUE);
+                return;
+            }
+
+            long count = Math.max(0, length - offset);
+            out.writeLong(count);
+            out.flush();
+            transfer(source, offset, count, file);
+            acked.put(key, in.readLong());
+            shippedBytes.addAndGet(count);
+        } finally {
+            source.close();
+        }
+    }
+
+    private void transfer(FileChannel source, long position, long count, File file) throws IOException {
+        long end = position + count;
+        long chunk = maxBytesPerSecond > 0
+                ? Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, maxBytesPerSecond / 10))
+                : MAX_CHUNK_BYTES;
+        while (position < end) {
+            long sent = source.transferTo(position, Math.min(chunk, end - position), channel);
+            if (sent <= 0) {
+                // 已承诺的字节数发不出去，只能断开连接，收集端丢弃不完整的部分后重新报价
+                throw new EOFException("文件短于报价长度: " + file.getName());
+            }
+            position += sent;
+            throttle(sent);
+        }
+    }
+
+    // 按本轮已发送的字节数计算应耗的时间，发送过快时休眠补足
+    private void throttle(long bytes) throws IOException {
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        throttledBytes += bytes;
+        long expectedNanos = (long) (throttledBytes * 1e9 / maxBytesPerSecond);
+        long sleepNanos = expectedNanos - (System.nanoTime() - throttleStartNanos);
+        if (sleepNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("传送被中断");
+            }
+        }
+    }
+
+    /**
+     * 按索引文件中已写入的记录计算可传长度：[记录数, 数据字节数]
+     * 索引文件预分配且尾部为0，二分查找第一个大小为0的索引项；最后一项的位置加大小即数据文件已写入的长度
+     */
+    static long[] extent(File dataFile, File indexFile) throws IOException {
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            int low = 0;
+            int high = (int) (index.size() / INDEX_ENTRY_SIZE);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                entry.clear();
+                readFully(index, entry, (long) mid * INDEX_ENTRY_SIZE);
+                if (entry.getInt(8) > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == 0) {
+                return new long[]{0, 0};
+            }
+            entry.clear();
+            readFully(index, entry, (long) (low - 1) * INDEX_ENTRY_SIZE);
+            long dataBytes = entry.getLong(0) + entry.getInt(8);
+            // 数据文件在索引之前写入，长度只会更大；不一致时不传该文件
+            if (dataBytes > dataFile.length()) {
+                throw new IOException("索引项超出数据文件长度: " + indexFile.getName());
+            }
+            return new long[]{low, dataBytes};
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private boolean ensureConnected() {
+        if (channel != null) {
+            return true;
+        }
+        SocketChannel socketChannel = null;
+        try {
+            socketChannel = SocketChannel.open();
+            socketChannel.socket().connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socketChannel.socket().setSoTimeout(READ_TIMEOUT_MS);
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.socket().setKeepAlive(true);
+            DataInputStream input = new DataInputStream(socketChannel.socket().getInputStream());
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socketChannel.socket().getOutputStream()));
+
+            output.writeInt(ShipProtocol.MAGIC);
+            output.writeInt(ShipProtocol.VERSION);
+            output.writeUTF(token);
+            output.flush();
+            byte status = input.readByte();
+            if (status != ShipProtocol.STATUS_OK) {
+                throw new IOException(status == ShipProtocol.STATUS_DENIED ? "访问令牌无效" : "收集端不支持该协议版本");
+            }
+
+            channel = socketChannel;
+            in = input;
+            out = output;
+            acked.clear();
+            lastExchangeNanos = System.nanoTime();
+            connectFailureLogged = false;
+            log.info("已连接日志收集端: {}:{}", host, port);
+            return true;
+        } catch (IOException e) {
+            // 收集端不可用时每次断开只记录一次
+            if (!connectFailureLogged) {
+                log.warn("连接日志收集端失败: {}:{}，{}", host, port, e.getMessage());
+                connectFailureLogged = true;
+            }
+            closeQuietly(socketChannel);
+            return false;
+        }
+    }
+
+    private void disconnect() {
+        closeQuietly(channel);
+        channel = null;
+        in = null;
+        out = null;
+    }
+
+    private static void closeQuietly(SocketChannel socketChannel) {
+        if (socketChannel == null) {
+            return;
+        }
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            log.debug("关闭连接失败", e);
+        }
+    }
+
+    private static String keyOf(byte dir, File file) {
+        return ShipProtocol.dirName(dir) + "/" + file.getName();
+    }
+}
@@ -0,0 +1,70 @@
+package com.oem.log.core.ship;
+
+import com.oem.log.core.rollup.RollupFiles;
+import com.oem.log.core.summary.SegmentSummary;
+import com.oem.log.core.textindex.TokenIndexFiles;
+
+import java.util.regex.Pattern;
+
+/**
+ * 应用节点与收集端之间的文件传送协议（TCP，大端）
+ * 握手：发送端发送[int 魔数][int 版本][UTF 令牌]，收集端回复[byte 状态]，状态不为OK时关闭连接。
+ * 之后发送端逐个报价文件：[byte 种类][byte 目录][UTF 文件名][long 可传长度]，收集端回复[long 已有字节数]，
+ * 为REJECTED时该文件不再继续；否则发送端发送[long 字节数]和从已有字节数开始的文件内容，收集端刷盘后回复[long 已确认字节数]。
+ * 续传位置以收集端磁盘上的文件为准，连接断开或任一端重启后重新报价即可从断点继续
+ */
+public final class ShipProtocol {
+
+    public static final int MAGIC = 0x4F4C5348;
+    public static final int VERSION = 1;
+
+    public static final int DEFAULT_PORT = 7460;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_DENIED = 1;
+    public static final byte STATUS_UNSUPPORTED = 2;
+
+    /**
+     * 只追加的文件（数据文件、索引文件、汇总文件），按收集端已有的字节数续传
+     */
+    public static final byte KIND_APPEND = 1;
+
+    /**
+     * 一次写成的文件（文件摘要、词元索引），收集端收齐后原子替换
+     */
+    public static final byte KIND_WHOLE = 2;
+
+    public static final byte DIR_DATA = 0;
+    public static final byte DIR_INDEX = 1;
+
+    /**
+     * 收集端拒绝报价的文件（文件名或目录不合法）
+     */
+    public static final long REJECTED = -1;
+
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,254}");
+
+    private ShipProtocol() {
+    }
+
+    public static String dirName(byte dir) {
+        return dir == DIR_DATA ? "data" : "index";
+    }
+
+    /**
+     * 文件名只允许字母数字和._-，且扩展名与目录相符，收集端据此防止写出接收目录之外
+     */
+    public static boolean isValidName(byte dir, String name) {
+        if (name == null || !FILE_NAME.matcher(name).matches() || name.contains("..")) {
+            return false;
+        }
+        if (dir == DIR_DATA) {
+            return name.endsWith(".data") || name.endsWith(RollupFiles.EXTENSION);
+        }
+        if (dir == DIR_INDEX) {
+            return name.endsWith(".index") || name.endsWith(SegmentSummary.EXTENSION)
+                    || name.endsWith(TokenIndexFiles.EXTENSION);
+        }
+        return false;
+    }
+}
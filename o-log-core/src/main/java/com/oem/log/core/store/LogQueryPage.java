@@ -0,0 +1,25 @@
+package com.oem.log.core.store;
+
+import com.oem.log.core.model.ApiLog;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 限时查询的结果
+ */
+@Data
+@AllArgsConstructor
+public class LogQueryPage {
+
+    /**
+     * 已找到的日志，按请求时间倒序，最多limit条
+     */
+    private List<ApiLog> logs;
+
+    /**
+     * 是否因超过扫描时间预算而提前停止；为true时logs只是已扫描部分中最新的记录，更早的文件未扫描
+     */
+    private boolean partial;
+}
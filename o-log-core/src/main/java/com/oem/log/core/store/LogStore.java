@@ -1,9 +1,11 @@
 package com.oem.log.core.store;
 
 import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.LogPredicate;
 
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 日志存储接口
@@ -16,6 +18,15 @@ public interface LogStore {
      */
     void store(ApiLog log);
     
+    /**
+     * 延迟渲染存储：由存储实现在写入线程上调用supplier生成日志
+     * 默认实现在调用线程上直接渲染
+     * @param logSupplier 日志渲染函数
+     */
+    default void storeDeferred(Supplier<ApiLog> logSupplier) {
+        store(logSupplier.get());
+    }
+    
     /**
      * 批量存储日志
      * @param logs 日志列表
@@ -25,13 +36,27 @@ public interface LogStore {
     /**
      * 根据条件查询日志
      * @param predicate 过滤条件
-     * @param startTime 开始时间戳（毫秒）
-     * @param endTime 结束时间戳（毫秒）
+     * @param startTime 开始时间戳（毫秒，含）
+     * @param endTime 结束时间戳（毫秒，含）
      * @param limit 最大返回数量
-     * @return 符合条件的日志列表
+     * @return 符合条件的日志列表，按请求时间倒序，最多limit条
      */
     List<ApiLog> query(Predicate<ApiLog> predicate, long startTime, long endTime, int limit);
     
+    /**
+     * 按编译后的条件限时查询日志，扫描超过maxScanMillis时停止并返回已找到的记录
+     * 默认实现不限时，直接按条件逐条过滤
+     * @param predicate 过滤条件
+     * @param startTime 开始时间戳（毫秒，含）
+     * @param endTime 结束时间戳（毫秒，含）
+     * @param limit 最大返回数量
+     * @param maxScanMillis 扫描时间预算（毫秒），不大于0时不限
+     * @return 按请求时间倒序的最多limit条日志，以及是否提前停止
+     */
+    default LogQueryPage query(LogPredicate predicate, long startTime, long endTime, int limit, long maxScanMillis) {
+        return new LogQueryPage(query(predicate::test, startTime, endTime, limit), false);
+    }
+    
     /**
      * 启动存储服务
      */
@@ -1,12 +1,24 @@
 package com.oem.log.core.store;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
+import com.oem.log.core.jfr.LogBackpressureEvent;
+import com.oem.log.core.jfr.LogFlushEvent;
+import com.oem.log.core.jfr.LogForceEvent;
+import com.oem.log.core.jfr.LogSegmentRollEvent;
+import com.oem.log.core.jfr.LogSerializeEvent;
 import com.oem.log.core.metrics.LogMetrics;
 import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.model.ApiLogTiming;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.rollup.RollupAggregator;
 import com.oem.log.core.serializer.LogSerializer;
+import com.oem.log.core.summary.SegmentSummary;
+import com.oem.log.core.textindex.TokenIndexBuilder;
 import jdk.internal.ref.Cleaner;
 import lombok.extern.slf4j.Slf4j;
 import net.openhft.affinity.AffinityStrategies;
@@ -26,8 +38,9 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -35,6 +48,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 基于内存映射文件的日志存储实现
@@ -60,11 +74,17 @@ public class MappedFileLogStore implements LogStore {
     private volatile MappedFile currentDataFile;
     private volatile MappedFile currentIndexFile;
     
+    // 正在写入的数据文件名，在创建文件之前更新
+    private volatile String currentDataFileName;
+    
     // 文件自增序号
     private final AtomicLong fileSequence = new AtomicLong(0);
     
     // 缓存区，批量写入优化
     private final List<ApiLog> logCache = new ArrayList<>();
+    
+    // 与logCache一一对应的发布时间(纳秒)，用于统计入盘延迟
+    private long[] cachePublishNanos = new long[FLUSH_THRESHOLD * 2];
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     
     // 序列化器
@@ -82,6 +102,25 @@ public class MappedFileLogStore implements LogStore {
     // 定时更新指标的任务
     private ScheduledExecutorService metricsExecutor;
     
+    // 接口RED汇总配置，默认关闭
+    private boolean rollupEnabled = false;
+    private int rollupMaxKeys = 1000;
+    
+    // 接口RED汇总，与logCache共用一把锁
+    private RollupAggregator rollupAggregator;
+    
+    // 全文词元索引配置，默认关闭
+    private boolean tokenIndexEnabled = false;
+    private boolean tokenIndexNgrams = true;
+    
+    // 文件封存后在后台建立词元索引，单线程依次处理
+    private ExecutorService tokenIndexExecutor;
+    
+    // 当前文件的摘要，写入线程累加，文件封存时写出；默认关闭
+    private boolean segmentSummaryEnabled = false;
+    private SegmentSummary currentSummary;
+    private final ObjectMapper summaryMapper = new ObjectMapper();
+    
     public MappedFileLogStore(String baseDir, LogSerializer serializer) {
         this.logDir = baseDir + File.separator + "data";
         this.indexDir = baseDir + File.separator + "index";
@@ -108,9 +147,73 @@ public class MappedFileLogStore implements LogStore {
         return metrics;
     }
     
+    /**
+     * 获取正在写入（或即将创建）的数据文件名，尚未创建任何文件时返回null
+     * 文件先登记文件名再创建，先列出目录再调用本方法时，不等于返回值的数据文件都已封存
+     */
+    public String getCurrentDataFileName() {
+        return currentDataFileName;
+    }
+    
+    /**
+     * 获取接口RED汇总，未开启或未启动时返回null
+     */
+    public RollupAggregator getRollupAggregator() {
+        return rollupAggregator;
+    }
+    
+    /**
+     * 设置是否生成接口RED汇总文件，需在start之前调用
+     */
+    public void setRollupEnabled(boolean rollupEnabled) {
+        this.rollupEnabled = rollupEnabled;
+    }
+    
+    /**
+     * 设置每个汇总窗口的最大维度数，需在start之前调用
+     */
+    public void setRollupMaxKeys(int rollupMaxKeys) {
+        this.rollupMaxKeys = rollupMaxKeys;
+    }
+    
+    /**
+     * 设置是否在文件封存后建立全文词元索引，需在start之前调用
+     */
+    public void setTokenIndexEnabled(boolean tokenIndexEnabled) {
+        this.tokenIndexEnabled = tokenIndexEnabled;
+    }
+    
+    /**
+     * 设置词元索引是否包含三元组（支持词内子串查询），需在start之前调用
+     */
+    public void setTokenIndexNgrams(boolean tokenIndexNgrams) {
+        this.tokenIndexNgrams = tokenIndexNgrams;
+    }
+    
+    /**
+     * 设置是否在文件封存时写出文件摘要，需在start之前调用
+     */
+    public void setSegmentSummaryEnabled(boolean segmentSummaryEnabled) {
+        this.segmentSummaryEnabled = segmentSummaryEnabled;
+    }
+    
     @Override
     public void start() {
         if (isRunning.compareAndSet(false, true)) {
+            // 汇总文件与数据文件放在同一目录
+            if (rollupEnabled) {
+                rollupAggregator = new RollupAggregator(logDir, hostname, rollupMaxKeys);
+            }
+            
+            if (tokenIndexEnabled) {
+                tokenIndexExecutor = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "log-token-index");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+            }
+            
             // 创建Disruptor，使用CPU亲和性提高性能
             ThreadFactory threadFactory = new AffinityThreadFactory("log-disruptor", AffinityStrategies.DIFFERENT_CORE);
             disruptor = new Disruptor<>(
@@ -152,9 +255,14 @@ public class MappedFileLogStore implements LogStore {
     @Override
     public void shutdown() {
         if (isRunning.compareAndSet(true, false)) {
-            // 停止定时任务
+            // 停止定时任务，等待正在执行的定时刷盘结束
             if (scheduledExecutor != null) {
                 scheduledExecutor.shutdown();
+                try {
+                    scheduledExecutor.awaitTermination(FLUSH_INTERVAL_MS * 10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
             
             // 停止指标更新
@@ -162,11 +270,21 @@ public class MappedFileLogStore implements LogStore {
                 metricsExecutor.shutdown();
             }
             
+            // 未完成的词元索引不再等待，查看端对没有词元索引的文件逐条扫描
+            if (tokenIndexExecutor != null) {
+                tokenIndexExecutor.shutdownNow();
+            }
+            
+            // 先关闭Disruptor，等待环形缓冲区中已发布的事件处理完，避免写入线程访问已解除映射的文件
+            if (disruptor != null) {
+                disruptor.shutdown();
+            }
+            
             // 强制刷盘
             synchronized (logCache) {
-                if (!logCache.isEmpty()) {
-                    flushToFile(logCache);
-                    logCache.clear();
+                flushCache();
+                if (rollupAggregator != null) {
+                    rollupAggregator.close();
                 }
             }
             
@@ -176,11 +294,7 @@ public class MappedFileLogStore implements LogStore {
             }
             if (currentIndexFile != null) {
                 currentIndexFile.close();
-            }
-            
-            // 关闭Disruptor
-            if (disruptor != null) {
-                disruptor.shutdown();
+                writeSummary(currentIndexFile.getFileName());
             }
             
             log.info("日志存储系统已关闭");
@@ -189,18 +303,34 @@ public class MappedFileLogStore implements LogStore {
 
     @Override
     public void store(ApiLog log) {
+        publish(log, null);
+    }
+
+    @Override
+    public void storeDeferred(Supplier<ApiLog> logSupplier) {
+        // 发布待渲染事件，渲染在写入线程完成
+        publish(null, logSupplier);
+    }
+    
+    // 发布事件到Disruptor
+    private void publish(ApiLog log, Supplier<ApiLog> deferredLog) {
         if (!isRunning.get()) {
             throw new IllegalStateException("日志存储系统未启动");
         }
         
         metrics.recordProcessed();
         
-        // 发布事件到Disruptor
+        long enqueueStart = System.nanoTime();
         try {
-            long sequence = ringBuffer.next();
+            long sequence = nextSequence(deferredLog != null);
             try {
                 LogEvent event = ringBuffer.get(sequence);
-                event.setApiLog(log);
+                if (deferredLog != null) {
+                    event.setDeferredLog(deferredLog);
+                } else {
+                    event.setApiLog(log);
+                }
+                event.setPublishNanos(enqueueStart);
             } finally {
                 ringBuffer.publish(sequence);
             }
@@ -208,6 +338,22 @@ public class MappedFileLogStore implements LogStore {
             metrics.recordError();
             throw e;
         }
+        metrics.recordPhase(LogMetrics.Phase.ENQUEUE, System.nanoTime() - enqueueStart);
+    }
+    
+    // 申请环形缓冲区槽位，缓冲区已满时阻塞等待并记录背压事件
+    private long nextSequence(boolean deferred) {
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            LogBackpressureEvent event = new LogBackpressureEvent();
+            event.begin();
+            long sequence = ringBuffer.next();
+            event.bufferSize = ringBuffer.getBufferSize();
+            event.deferred = deferred;
+            event.commit();
+            return sequence;
+        }
     }
 
     @Override
@@ -223,65 +369,148 @@ public class MappedFileLogStore implements LogStore {
 
     @Override
     public List<ApiLog> query(Predicate<ApiLog> predicate, long startTime, long endTime, int limit) {
-        // 简单实现：扫描索引和数据文件
-        // 实际生产中应该实现更复杂的索引查询和过滤机制
-        
-        // 暂时返回空列表，后续实现查询
-        return Collections.emptyList();
+        // 直接读取本机的数据文件和索引文件，正在写入的文件只读到已追加索引项的记录
+        return new SegmentQuery(new File(logDir), new File(indexDir), serializer, summaryMapper)
+                .query(predicate, startTime, endTime, limit);
+    }
+
+    @Override
+    public LogQueryPage query(LogPredicate predicate, long startTime, long endTime, int limit, long maxScanMillis) {
+        return new SegmentQuery(new File(logDir), new File(indexDir), serializer, summaryMapper)
+                .query(predicate, startTime, endTime, limit, maxScanMillis);
     }
     
     // Disruptor事件处理器
     private void processLogEvent(LogEvent event, long sequence, boolean endOfBatch) {
-        ApiLog log = event.getApiLog();
         long startTime = System.currentTimeMillis();
+        long consumeNanos = System.nanoTime();
+        long publishNanos = event.getPublishNanos();
+        long queueWaitNanos = consumeNanos - publishNanos;
+        ApiLog apiLog = event.getApiLog();
+        Supplier<ApiLog> deferredLog = event.getDeferredLog();
+        
+        // 及时释放环形缓冲区对日志的引用
+        event.clear();
+        metrics.recordPhase(LogMetrics.Phase.QUEUE_WAIT, queueWaitNanos);
+        
+        // 延迟渲染的日志在写入线程上完成解码和处理器增强
+        if (apiLog == null && deferredLog != null) {
+            try {
+                apiLog = deferredLog.get();
+                metrics.recordPhase(LogMetrics.Phase.RENDER, System.nanoTime() - consumeNanos);
+            } catch (Exception e) {
+                metrics.recordError();
+                log.error("渲染延迟日志失败", e);
+            }
+        }
+        
+        // 汇总请求线程上的阶段耗时，并补充队列等待耗时
+        if (apiLog != null && apiLog.getTiming() != null) {
+            ApiLogTiming timing = apiLog.getTiming();
+            timing.setQueueWaitNanos(queueWaitNanos);
+            metrics.recordPhase(LogMetrics.Phase.PRE_PROCESS, timing.getPreProcessNanos());
+            metrics.recordPhase(LogMetrics.Phase.HANDLER, timing.getHandlerNanos());
+            metrics.recordPhase(LogMetrics.Phase.RESPONSE_PROCESS, timing.getResponseProcessNanos());
+        }
         
         synchronized (logCache) {
-            logCache.add(log);
+            if (apiLog != null) {
+                if (logCache.size() == cachePublishNanos.length) {
+                    cachePublishNanos = Arrays.copyOf(cachePublishNanos, cachePublishNanos.length * 2);
+                }
+                cachePublishNanos[logCache.size()] = publishNanos;
+                logCache.add(apiLog);
+                
+                if (rollupAggregator != null) {
+                    rollupAggregator.record(apiLog);
+                }
+            }
             
             // 记录当前队列大小
             metrics.updateQueueSize(logCache.size());
             
             // 达到批量条数阈值时刷盘
             if (logCache.size() >= FLUSH_THRESHOLD || endOfBatch) {
-                flushToFile(logCache);
-                logCache.clear();
+                flushCache();
             } else if (logCache.size() >= FLUSH_THRESHOLD * 2) {
                 // 当积压严重时记录缓存溢出事件
                 metrics.recordCacheOverflow();
             }
         }
         
+        // 每批次采样一次环形缓冲区占用
+        if (endOfBatch) {
+            metrics.recordRingOccupancy(ringBuffer.getBufferSize() - ringBuffer.remainingCapacity());
+        }
+        
         // 记录处理延迟
         long latency = System.currentTimeMillis() - startTime;
         metrics.recordWriteLatency(latency);
     }
     
-    // 定时检查是否需要刷盘
+    // 定时检查是否需要刷盘，并封存已结束的汇总窗口
     private void flushIfNeeded() {
         synchronized (logCache) {
-            if (!logCache.isEmpty()) {
-                flushToFile(logCache);
-                logCache.clear();
+            flushCache();
+            if (rollupAggregator != null) {
+                rollupAggregator.sealExpired(System.currentTimeMillis());
             }
         }
     }
     
-    // 写入文件
-    private void flushToFile(List<ApiLog> logs) {
+    // 刷出缓存区并统计批量大小和入盘延迟，调用方需持有logCache锁
+    private void flushCache() {
+        int batchSize = logCache.size();
+        if (batchSize == 0) {
+            return;
+        }
+        
+        flushToFile(logCache);
+        
+        long flushedNanos = System.nanoTime();
+        for (int i = 0; i < batchSize; i++) {
+            metrics.recordIngestLatency((flushedNanos - cachePublishNanos[i]) / 1000);
+        }
+        metrics.recordFlushBatch(batchSize);
+        logCache.clear();
+    }
+    
+    // 写入文件（包级可见，供基准测试直接调用）
+    void flushToFile(List<ApiLog> logs) {
         if (logs.isEmpty()) {
             return;
         }
         
-        ensureFileAvailable();
+        LogFlushEvent flushEvent = new LogFlushEvent();
+        flushEvent.begin();
+        
+        ensureFileAvailable(0);
         
+        // 本批记录都已到达写入线程，取同一个写入时间计算写入延迟
+        long writeMillis = System.currentTimeMillis();
+        int totalBytes = 0;
         try {
-            int totalBytes = 0;
-            
             for (ApiLog log : logs) {
+                LogSerializeEvent serializeEvent = new LogSerializeEvent();
+                serializeEvent.begin();
+                long serializeStart = System.nanoTime();
                 ByteBuffer buffer = serializer.serialize(log);
+                metrics.recordPhase(LogMetrics.Phase.SERIALIZE, System.nanoTime() - serializeStart);
                 int size = buffer.remaining();
                 totalBytes += size;
                 
+                serializeEvent.end();
+                if (serializeEvent.shouldCommit()) {
+                    serializeEvent.path = log.getPath();
+                    serializeEvent.bytes = size;
+                    serializeEvent.commit();
+                }
+                
+                // 当前文件放不下这条记录时先滚动，避免一批记录跨过文件末尾时丢弃余下的记录
+                if (!currentDataFile.hasRoom(size) || !currentIndexFile.hasRoom(8 + 4)) {
+                    ensureFileAvailable(size);
+                }
+                
                 // 获取当前数据在文件中的位置（用于索引）
                 long position = currentDataFile.getWritePosition();
                 
@@ -294,6 +523,10 @@ public class MappedFileLogStore implements LogStore {
                 indexBuffer.putInt(size);
                 indexBuffer.flip();
                 currentIndexFile.append(indexBuffer);
+                
+                if (currentSummary != null) {
+                    currentSummary.record(log, writeMillis);
+                }
             }
             
             // 更新指标
@@ -301,17 +534,33 @@ public class MappedFileLogStore implements LogStore {
             
         } catch (Exception e) {
             metrics.recordError();
+            flushEvent.failed = true;
             log.error("写入日志文件失败", e);
         }
+        
+        if (flushEvent.shouldCommit()) {
+            flushEvent.count = logs.size();
+            flushEvent.bytes = totalBytes;
+            flushEvent.dataFile = currentDataFile.getFileName();
+            flushEvent.commit();
+        }
     }
     
-    // 确保文件可用，如果文件已满则创建新文件
-    private synchronized void ensureFileAvailable() {
+    // 确保文件可用，如果文件已满或放不下即将写入的字节数则创建新文件
+    private synchronized void ensureFileAvailable(int pendingBytes) {
         try {
             // 初始化或检查文件是否需要滚动
-            if (currentDataFile == null || currentDataFile.isFull() || 
+            if (currentDataFile == null || currentDataFile.isFull() || !currentDataFile.hasRoom(pendingBytes) ||
                     currentIndexFile == null || currentIndexFile.isFull()) {
                 
+                LogSegmentRollEvent rollEvent = new LogSegmentRollEvent();
+                rollEvent.begin();
+                if (rollEvent.isEnabled() && currentDataFile != null) {
+                    rollEvent.previousDataFile = currentDataFile.getFileName();
+                    rollEvent.previousDataBytes = currentDataFile.getWritePosition();
+                    rollEvent.previousIndexBytes = currentIndexFile != null ? currentIndexFile.getWritePosition() : 0;
+                }
+                
                 // 关闭当前文件
                 if (currentDataFile != null) {
                     currentDataFile.close();
@@ -319,6 +568,10 @@ public class MappedFileLogStore implements LogStore {
                 if (currentIndexFile != null) {
                     currentIndexFile.close();
                 }
+                if (currentDataFile != null && currentIndexFile != null) {
+                    writeSummary(currentIndexFile.getFileName());
+                    buildTokenIndex(currentDataFile.getFileName(), currentIndexFile.getFileName());
+                }
                 
                 // 创建新文件
                 String timestamp = LocalDateTime.now().format(FILE_NAME_FORMATTER);
@@ -327,11 +580,17 @@ public class MappedFileLogStore implements LogStore {
                 String dataFileName = String.format("%s_%s_%d.data", hostname, timestamp, seq);
                 String indexFileName = String.format("%s_%s_%d.index", hostname, timestamp, seq);
                 
+                currentDataFileName = dataFileName;
                 currentDataFile = new MappedFile(logDir + File.separator + dataFileName, FILE_SIZE);
                 currentIndexFile = new MappedFile(indexDir + File.separator + indexFileName, FILE_SIZE / 10); // 索引文件通常比数据文件小
+                currentSummary = segmentSummaryEnabled ? new SegmentSummary() : null;
                 
                 // 记录文件创建
                 metrics.recordFileCreated();
+                
+                rollEvent.dataFile = dataFileName;
+                rollEvent.sequence = seq;
+                rollEvent.commit();
             }
             
             // 更新文件大小指标
@@ -347,6 +606,35 @@ public class MappedFileLogStore implements LogStore {
         }
     }
     
+    // 写出已封存文件的摘要，失败时查看端按没有摘要处理
+    private void writeSummary(String indexFileName) {
+        if (currentSummary == null) {
+            return;
+        }
+        try {
+            currentSummary.write(SegmentSummary.fileFor(new File(indexDir, indexFileName)), summaryMapper);
+        } catch (Exception e) {
+            log.warn("写入文件摘要失败: {}", indexFileName, e);
+        }
+        currentSummary = null;
+    }
+    
+    // 已封存的文件在后台建立词元索引
+    private void buildTokenIndex(String dataFileName, String indexFileName) {
+        if (tokenIndexExecutor == null) {
+            return;
+        }
+        File dataFile = new File(logDir, dataFileName);
+        File indexFile = new File(indexDir, indexFileName);
+        tokenIndexExecutor.execute(() -> {
+            try {
+                new TokenIndexBuilder(serializer, tokenIndexNgrams).build(dataFile, indexFile);
+            } catch (Exception e) {
+                log.warn("建立词元索引失败: {}", dataFileName, e);
+            }
+        });
+    }
+    
     // 更新指标信息
     private void updateMetrics() {
         try {
@@ -370,6 +658,8 @@ public class MappedFileLogStore implements LogStore {
     // Disruptor事件
     public static class LogEvent {
         private ApiLog apiLog;
+        private Supplier<ApiLog> deferredLog;
+        private long publishNanos;
         
         public ApiLog getApiLog() {
             return apiLog;
@@ -377,11 +667,35 @@ public class MappedFileLogStore implements LogStore {
         
         public void setApiLog(ApiLog apiLog) {
             this.apiLog = apiLog;
+            this.deferredLog = null;
+        }
+        
+        public Supplier<ApiLog> getDeferredLog() {
+            return deferredLog;
+        }
+        
+        public void setDeferredLog(Supplier<ApiLog> deferredLog) {
+            this.deferredLog = deferredLog;
+            this.apiLog = null;
+        }
+        
+        public long getPublishNanos() {
+            return publishNanos;
+        }
+        
+        public void setPublishNanos(long publishNanos) {
+            this.publishNanos = publishNanos;
+        }
+        
+        public void clear() {
+            this.apiLog = null;
+            this.deferredLog = null;
         }
     }
     
     // 映射文件封装类
-    private static class MappedFile {
+    static class MappedFile {
+        private final String fileName;
         private final FileChannel channel;
         private final MappedByteBuffer mappedBuffer;
         private final long fileSize;
@@ -391,6 +705,7 @@ public class MappedFileLogStore implements LogStore {
             this.fileSize = fileSize;
             
             File file = new File(fileName);
+            this.fileName = file.getName();
             RandomAccessFile raf = new RandomAccessFile(file, "rw");
             channel = raf.getChannel();
             
@@ -417,6 +732,14 @@ public class MappedFileLogStore implements LogStore {
             return writePosition.get();
         }
         
+        public String getFileName() {
+            return fileName;
+        }
+        
+        public boolean hasRoom(int bytes) {
+            return writePosition.get() + bytes <= fileSize;
+        }
+        
         public boolean isFull() {
             // 预留1KB，避免精确填满
             return writePosition.get() > fileSize - 1024;
@@ -425,7 +748,15 @@ public class MappedFileLogStore implements LogStore {
         public void close() {
             // 强制刷盘
             if (mappedBuffer != null) {
+                LogForceEvent forceEvent = new LogForceEvent();
+                forceEvent.begin();
                 mappedBuffer.force();
+                forceEvent.end();
+                if (forceEvent.shouldCommit()) {
+                    forceEvent.file = fileName;
+                    forceEvent.bytes = writePosition.get();
+                    forceEvent.commit();
+                }
             }
             
             // 关闭通道
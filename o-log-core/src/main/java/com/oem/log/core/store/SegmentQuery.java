@@ -0,0 +1,292 @@
+package com.oem.log.core.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.serializer.LogRecordProbe;
+import com.oem.log.core.serializer.LogSerializer;
+import com.oem.log.core.summary.SegmentSummary;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 本机数据文件的查询
+ * 按文件名倒序逐个文件、文件内按索引从新到旧读取记录，满足条件的记录放入以请求时间排序的有界堆，只保留最新的limit条。
+ * 已封存且有摘要的文件先按摘要的请求时间范围跳过，堆满后再跳过整体不晚于堆中最早记录的文件。
+ * 请求时间相同的记录按读取顺序排列，文件集合不变时多次查询的顺序一致，调用方可据此按（时间，同时间已取条数）续读。
+ * 每条记录先用探测器取出过滤字段，时间范围、堆顶和探测级条件都不满足时不做完整反序列化；
+ * 限时查询超过扫描时间预算后停止，已找到的记录是已扫描的较新文件中最新的部分
+ */
+@Slf4j
+final class SegmentQuery {
+
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    // 每次从索引文件读取的索引项数
+    private static final int ENTRIES_PER_READ = 4096;
+
+    // 每扫描多少条记录检查一次扫描时间预算
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private final File dataDir;
+    private final File indexDir;
+    private final LogSerializer serializer;
+    private final ObjectMapper summaryMapper;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // 记录字节的复用缓冲，只在遇到更长的记录时扩容
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+
+    SegmentQuery(File dataDir, File indexDir, LogSerializer serializer, ObjectMapper summaryMapper) {
+        this.dataDir = dataDir;
+        this.indexDir = indexDir;
+        this.serializer = serializer;
+        this.summaryMapper = summaryMapper;
+    }
+
+    /**
+     * @param startTime 开始时间戳（毫秒，含）
+     * @param endTime 结束时间戳（毫秒，含）
+     * @return 按请求时间倒序的最多limit条日志
+     */
+    List<ApiLog> query(Predicate<ApiLog> predicate, long startTime, long endTime, int limit) {
+        return scan(predicate, DecodeLevel.FULL, startTime, endTime, limit, 0).getLogs();
+    }
+
+    /**
+     * 按编译后的条件查询，条件只涉及探测字段时先在原始字节上过滤，命中后才完整反序列化
+     * @param maxScanMillis 扫描时间预算（毫秒），不大于0时不限；超过后停止扫描，返回已找到的记录并标记为部分结果
+     */
+    LogQueryPage query(LogPredicate predicate, long startTime, long endTime, int limit, long maxScanMillis) {
+        return scan(predicate::test, predicate.level(), startTime, endTime, limit, maxScanMillis);
+    }
+
+    private LogQueryPage scan(Predicate<ApiLog> predicate, DecodeLevel level, long startTime, long endTime,
+                              int limit, long maxScanMillis) {
+        if (limit <= 0) {
+            return new LogQueryPage(Collections.emptyList(), false);
+        }
+        File[] dataFiles = dataDir.listFiles(file -> file.getName().endsWith(".data"));
+        if (dataFiles == null || dataFiles.length == 0) {
+            return new LogQueryPage(Collections.emptyList(), false);
+        }
+        Arrays.sort(dataFiles, Comparator.comparing(File::getName).reversed());
+
+        long deadline = maxScanMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxScanMillis) : 0;
+        // 探测器只认识JSON序列化器写出的记录，其他序列化器每条都完整反序列化
+        LogRecordProbe probe = serializer instanceof JsonLogSerializer
+                ? new LogRecordProbe(level == DecodeLevel.DIMENSION) : null;
+        boolean partial = false;
+        long scanned = 0;
+
+        // 堆顶为当前保留的最旧记录：时间早的在前，同时间读取晚的在前
+        PriorityQueue<Hit> hits = new PriorityQueue<>(limit + 1,
+                Comparator.comparingLong((Hit hit) -> hit.time).thenComparing(hit -> -hit.order));
+        long order = 0;
+        files:
+        for (File dataFile : dataFiles) {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                partial = true;
+                break;
+            }
+            String stem = dataFile.getName().substring(0, dataFile.getName().length() - ".data".length());
+            File indexFile = new File(indexDir, stem + ".index");
+            if (!indexFile.isFile()) {
+                continue;
+            }
+            try (RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "r");
+                 RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "r")) {
+                FileChannel data = dataRaf.getChannel();
+                FileChannel index = indexRaf.getChannel();
+                int count = countEntries(index);
+                SegmentSummary summary = summaryFor(indexFile, count);
+                if (summary != null) {
+                    if (summary.getMaxRequestTime() < startTime || summary.getMinRequestTime() > endTime) {
+                        continue;
+                    }
+                    // 同时间的新记录读取顺序更晚，排在堆顶之后，不会入选
+                    if (hits.size() >= limit && summary.getMaxRequestTime() <= hits.peek().time) {
+                        continue;
+                    }
+                }
+                ByteBuffer entries = ByteBuffer.allocate(ENTRIES_PER_READ * INDEX_ENTRY_SIZE);
+                for (int end = count; end > 0; end -= ENTRIES_PER_READ) {
+                    int begin = Math.max(0, end - ENTRIES_PER_READ);
+                    entries.clear();
+                    entries.limit((end - begin) * INDEX_ENTRY_SIZE);
+                    readFully(index, entries, (long) begin * INDEX_ENTRY_SIZE);
+                    for (int entry = end - 1; entry >= begin; entry--) {
+                        if (deadline != 0 && ++scanned % DEADLINE_CHECK_INTERVAL == 0
+                                && System.nanoTime() - deadline > 0) {
+                            partial = true;
+                            break files;
+                        }
+                        int offset = (entry - begin) * INDEX_ENTRY_SIZE;
+                        int size = entries.getInt(offset + 8);
+                        ByteBuffer bytes = readRecord(data, entries.getLong(offset), size);
+                        if (bytes == null) {
+                            continue;
+                        }
+
+                        // 先用探测出的字段按时间范围和堆顶过滤，探测不可用或失败时退回完整反序列化
+                        ApiLog fields = probe != null ? probeQuietly(probe, bytes, size) : null;
+                        ApiLog apiLog = null;
+                        if (fields == null) {
+                            apiLog = decodeQuietly(bytes);
+                            fields = apiLog;
+                        }
+                        if (fields == null || fields.getRequestTime() == null) {
+                            continue;
+                        }
+                        long time = fields.getRequestTime().atZone(zone).toInstant().toEpochMilli();
+                        if (time < startTime || time > endTime) {
+                            continue;
+                        }
+                        if (hits.size() >= limit && time <= hits.peek().time) {
+                            continue;
+                        }
+
+                        // 条件只涉及探测字段时在完整反序列化之前判断
+                        boolean tested = false;
+                        if (apiLog == null && level != DecodeLevel.FULL) {
+                            if (!predicate.test(fields)) {
+                                continue;
+                            }
+                            tested = true;
+                        }
+                        if (apiLog == null && (apiLog = decodeQuietly(bytes)) == null) {
+                            continue;
+                        }
+                        if (!tested && !predicate.test(apiLog)) {
+                            continue;
+                        }
+                        hits.add(new Hit(apiLog, time, order++));
+                        if (hits.size() > limit) {
+                            hits.poll();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("查询日志文件失败: {}", dataFile.getName(), e);
+            }
+        }
+
+        List<ApiLog> result = new ArrayList<>(hits.size());
+        while (!hits.isEmpty()) {
+            result.add(hits.poll().log);
+        }
+        Collections.reverse(result);
+        return new LogQueryPage(result, partial);
+    }
+
+    // 索引文件预分配且尾部为0，二分查找第一个大小为0的索引项
+    private static int countEntries(FileChannel index) throws IOException {
+        ByteBuffer size = ByteBuffer.allocate(4);
+        int low = 0;
+        int high = (int) (index.size() / INDEX_ENTRY_SIZE);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            size.clear();
+            readFully(index, size, (long) mid * INDEX_ENTRY_SIZE + 8);
+            if (size.getInt(0) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 摘要只在记录数与索引一致（文件已封存）时使用
+    private SegmentSummary summaryFor(File indexFile, int count) {
+        File file = SegmentSummary.fileFor(indexFile);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            SegmentSummary summary = SegmentSummary.read(file, summaryMapper);
+            return summary.getRecords() == count ? summary : null;
+        } catch (IOException e) {
+            log.warn("读取文件摘要失败: {}", file.getName(), e);
+            return null;
+        }
+    }
+
+    // 把一条记录读入复用的缓冲，索引项指向的内容不完整（写入中）时返回null
+    private ByteBuffer readRecord(FileChannel data, long position, int size) {
+        if (position < 0 || size <= 4) {
+            return null;
+        }
+        try {
+            if (record.capacity() < size) {
+                record = ByteBuffer.allocate(Math.max(size, record.capacity() * 2));
+            }
+            record.clear();
+            record.limit(size);
+            readFully(data, record, position);
+            record.flip();
+            if (record.remaining() < size || record.getInt(0) != size - 4) {
+                return null;
+            }
+            return record;
+        } catch (IOException e) {
+            log.debug("查询时读取记录失败，位置: {}", position, e);
+            return null;
+        }
+    }
+
+    // 探测失败（格式不符）时返回null
+    private static ApiLog probeQuietly(LogRecordProbe probe, ByteBuffer bytes, int size) {
+        try {
+            return probe.read(bytes, 0, size);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // 解析失败时返回null
+    private ApiLog decodeQuietly(ByteBuffer bytes) {
+        try {
+            bytes.position(0);
+            return serializer.deserialize(bytes);
+        } catch (Exception e) {
+            log.debug("查询时解析记录失败", e);
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // 读满为止
+        }
+    }
+
+    private static final class Hit {
+
+        private final ApiLog log;
+        private final long time;
+        private final long order;
+
+        private Hit(ApiLog log, long time, long order) {
+            this.log = log;
+            this.time = time;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.oem.log.core.summary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.model.ApiLog;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据文件摘要
+ * 写入线程追加记录时顺带累加，文件封存（滚动或关闭）时写到索引目录：{数据文件名}.summary（JSON）。
+ * 查看端在打开文件之前据此判断查询能否命中：请求时间范围、耗时范围、各状态码/路径/方法的记录数和含异常的记录数。
+ * 路径或方法的种类超过上限后不再记录明细（置为null），查看端按未知处理；非线程安全，由写入线程独占
+ */
+@Data
+public class SegmentSummary {
+
+    public static final String EXTENSION = ".summary";
+
+    // 明细种类上限，超出后置为null
+    private static final int MAX_PATHS = 256;
+    private static final int MAX_METHODS = 32;
+
+    /**
+     * 记录数，与索引项数一致时摘要才对应完整文件
+     */
+    private int records;
+
+    /**
+     * 请求时间范围（毫秒时间戳），没有记录时min大于max
+     */
+    private long minRequestTime = Long.MAX_VALUE;
+    private long maxRequestTime = Long.MIN_VALUE;
+
+    /**
+     * 执行耗时范围（毫秒）
+     */
+    private long minExecutionTime = Long.MAX_VALUE;
+    private long maxExecutionTime = Long.MIN_VALUE;
+
+    /**
+     * 记录写入文件的时间与请求完成时间之差的最大值（毫秒），倒序扫描据此判断何时不会再遇到更晚完成的记录；
+     * -1表示未知（旧版本写入的摘要）
+     */
+    private long maxWriteLagMillis = -1;
+
+    /**
+     * 异常信息不为空的记录数
+     */
+    private long exceptionCount;
+
+    /**
+     * 状态码 -> 记录数
+     */
+    private Map<Integer, Long> statusCounts = new HashMap<>();
+
+    /**
+     * 路径 -> 记录数，路径为空的记录不计入，种类超过上限时为null
+     */
+    private Map<String, Long> pathCounts = new HashMap<>();
+
+    /**
+     * 方法 -> 记录数，方法为空的记录不计入，种类超过上限时为null
+     */
+    private Map<String, Long> methodCounts = new HashMap<>();
+
+    /**
+     * 累加一条已写入的记录
+     */
+    public void record(ApiLog apiLog) {
+        records++;
+        if (apiLog.getRequestTime() != null) {
+            long millis = apiLog.getRequestTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            minRequestTime = Math.min(minRequestTime, millis);
+            maxRequestTime = Math.max(maxRequestTime, millis);
+        }
+        minExecutionTime = Math.min(minExecutionTime, apiLog.getExecutionTime());
+        maxExecutionTime = Math.max(maxExecutionTime, apiLog.getExecutionTime());
+        if (apiLog.getExceptionMsg() != null) {
+            exceptionCount++;
+        }
+        statusCounts.merge(apiLog.getStatusCode(), 1L, Long::sum);
+        pathCounts = count(pathCounts, apiLog.getPath(), MAX_PATHS);
+        methodCounts = count(methodCounts, apiLog.getMethod(), MAX_METHODS);
+    }
+
+    /**
+     * 累加一条已写入的记录，并计入其写入延迟
+     * @param writeMillis 写入线程追加这条记录的时间，不早于同一文件中之前写入的记录
+     */
+    public void record(ApiLog apiLog, long writeMillis) {
+        record(apiLog);
+        if (apiLog.getRequestTime() != null) {
+            long completion = apiLog.getRequestTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    + apiLog.getExecutionTime();
+            maxWriteLagMillis = Math.max(maxWriteLagMillis, Math.max(0, writeMillis - completion));
+        }
+    }
+
+    private static Map<String, Long> count(Map<String, Long> counts, String value, int maxKeys) {
+        if (counts == null || value == null) {
+            return counts;
+        }
+        if (!counts.containsKey(value) && counts.size() >= maxKeys) {
+            return null;
+        }
+        counts.merge(value, 1L, Long::sum);
+        return counts;
+    }
+
+    /**
+     * 数据文件对应的摘要文件，与索引文件放在同一目录
+     */
+    public static File fileFor(File indexFile) {
+        String name = indexFile.getName();
+        String stem = name.endsWith(".index") ? name.substring(0, name.length() - ".index".length()) : name;
+        return new File(indexFile.getParentFile(), stem + EXTENSION);
+    }
+
+    /**
+     * 先写临时文件再原子改名，查看端只会读到完整的摘要
+     */
+    public void write(File file, ObjectMapper objectMapper) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            objectMapper.writeValue(temp, this);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SegmentSummary read(File file, ObjectMapper objectMapper) throws IOException {
+        return objectMapper.readValue(file, SegmentSummary.class);
+    }
+}
@@ -0,0 +1,262 @@
+package com.oem.log.core.textindex;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.serializer.LogSerializer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 为已封存的数据文件建立词元索引
+ * 按索引文件逐条读取记录，每条记录的词项去重后与块内序号拼成long，攒满一块后排序写出；
+ * 先写临时文件再原子改名，查看端只会看到完整的索引文件。非线程安全，每次构建使用新实例
+ */
+@Slf4j
+public class TokenIndexBuilder {
+
+    // 每块最多包含的记录数
+    private static final int BLOCK_RECORDS = 8192;
+
+    // 每块最多累积的词项-记录对，约32MB
+    private static final int MAX_BLOCK_POSTINGS = 4 * 1024 * 1024;
+
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    private final LogSerializer serializer;
+    private final boolean ngrams;
+
+    // 当前块的词项-记录对：(词键 << 24) | 块内序号
+    private long[] postings = new long[1024];
+    private int postingCount;
+    private int blockFirst;
+
+    // 当前记录的词项，去重后并入当前块
+    private long[] recordTerms = new long[256];
+    private int recordTermCount;
+
+    private final List<long[]> blocks = new ArrayList<>();
+
+    public TokenIndexBuilder(LogSerializer serializer, boolean ngrams) {
+        this.serializer = serializer;
+        this.ngrams = ngrams;
+    }
+
+    /**
+     * 构建索引文件
+     * @param dataFile 已封存的数据文件
+     * @param indexFile 对应的索引文件
+     * @return 生成的.tokens文件
+     */
+    public File build(File dataFile, File indexFile) throws IOException {
+        long begin = System.currentTimeMillis();
+        File target = TokenIndexFiles.fileFor(indexFile);
+        File temp = new File(target.getPath() + ".tmp");
+
+        try (RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "r");
+             RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "r");
+             RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            FileChannel data = dataRaf.getChannel();
+            FileChannel channel = out.getChannel();
+            out.setLength(0);
+            channel.position(TokenIndexFiles.HEADER_SIZE);
+
+            ByteBuffer entries = readWrittenEntries(indexRaf.getChannel());
+            int records = entries.limit() / INDEX_ENTRY_SIZE;
+            for (int entry = 0; entry < records; entry++) {
+                long position = entries.getLong(entry * INDEX_ENTRY_SIZE);
+                int size = entries.getInt(entry * INDEX_ENTRY_SIZE + 8);
+                addRecord(readRecord(data, position, size), entry - blockFirst);
+                if (entry + 1 - blockFirst >= BLOCK_RECORDS || postingCount >= MAX_BLOCK_POSTINGS) {
+                    writeBlock(channel, entry + 1);
+                }
+            }
+            if (records > blockFirst || blocks.isEmpty()) {
+                writeBlock(channel, records);
+            }
+
+            long directoryOffset = channel.position();
+            ByteBuffer directory = ByteBuffer.allocate(blocks.size() * TokenIndexFiles.BLOCK_ENTRY_SIZE);
+            for (long[] block : blocks) {
+                directory.putInt((int) block[0]);
+                directory.putInt((int) block[1]);
+                directory.putLong(block[2]);
+                directory.putInt((int) block[3]);
+            }
+            directory.flip();
+            writeFully(channel, directory);
+
+            ByteBuffer header = ByteBuffer.allocate(TokenIndexFiles.HEADER_SIZE);
+            header.putInt(TokenIndexFiles.MAGIC);
+            header.putInt(TokenIndexFiles.VERSION);
+            header.putInt(records);
+            header.putInt(ngrams ? TokenIndexFiles.FLAG_NGRAMS : 0);
+            header.putInt(blocks.size());
+            header.putLong(directoryOffset);
+            header.flip();
+            channel.position(0);
+            writeFully(channel, header);
+            channel.force(false);
+
+            log.debug("词元索引已生成: {}, 记录数: {}, 耗时: {}ms", target.getName(), records,
+                    System.currentTimeMillis() - begin);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    // 索引文件预分配且尾部为0，只读取大小大于0的索引项
+    private static ByteBuffer readWrittenEntries(FileChannel index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) index.size());
+        while (buffer.hasRemaining() && index.read(buffer, buffer.position()) > 0) {
+            // 读满为止
+        }
+        int count = 0;
+        while ((count + 1) * INDEX_ENTRY_SIZE <= buffer.position()
+                && buffer.getInt(count * INDEX_ENTRY_SIZE + 8) > 0) {
+            count++;
+        }
+        buffer.position(0);
+        buffer.limit(count * INDEX_ENTRY_SIZE);
+        return buffer;
+    }
+
+    // 读取失败的记录按空记录处理，不影响其余记录的序号
+    private ApiLog readRecord(FileChannel data, long position, int size) {
+        try {
+            ByteBuffer record = ByteBuffer.allocate(size);
+            while (record.hasRemaining() && data.read(record, position + record.position()) > 0) {
+                // 读满为止
+            }
+            record.flip();
+            return serializer.deserialize(record);
+        } catch (Exception e) {
+            log.warn("建立词元索引时读取记录失败，位置: {}", position);
+            return null;
+        }
+    }
+
+    private void addRecord(ApiLog apiLog, long ordinal) {
+        recordTermCount = 0;
+        if (apiLog != null) {
+            TokenIndexFiles.terms(TokenIndexFiles.FIELD_EXCEPTION, apiLog.getExceptionMsg(), ngrams, this::addTerm);
+            TokenIndexFiles.terms(TokenIndexFiles.FIELD_BODY, apiLog.getRequestParams(), ngrams, this::addTerm);
+            TokenIndexFiles.terms(TokenIndexFiles.FIELD_BODY, apiLog.getResponseBody(), ngrams, this::addTerm);
+        }
+        Arrays.sort(recordTerms, 0, recordTermCount);
+
+        long previous = -1;
+        for (int i = 0; i < recordTermCount; i++) {
+            long term = recordTerms[i];
+            if (term == previous) {
+                continue;
+            }
+            previous = term;
+            if (postingCount == postings.length) {
+                postings = Arrays.copyOf(postings, postingCount * 2);
+            }
+            postings[postingCount++] = (term << TokenIndexFiles.ORDINAL_BITS) | ordinal;
+        }
+    }
+
+    private void addTerm(long term) {
+        if (recordTermCount == recordTerms.length) {
+            recordTerms = Arrays.copyOf(recordTerms, recordTermCount * 2);
+        }
+        recordTerms[recordTermCount++] = term;
+    }
+
+    // 写出当前块：词项表（按词键升序）和各词项的倒排表
+    private void writeBlock(FileChannel channel, int nextBlockFirst) throws IOException {
+        Arrays.sort(postings, 0, postingCount);
+        long ordinalMask = (1L << TokenIndexFiles.ORDINAL_BITS) - 1;
+
+        int termCount = 0;
+        for (int i = 0; i < postingCount; i++) {
+            if (i == 0 || (postings[i] >>> TokenIndexFiles.ORDINAL_BITS) != (postings[i - 1] >>> TokenIndexFiles.ORDINAL_BITS)) {
+                termCount++;
+            }
+        }
+
+        ByteBuffer terms = ByteBuffer.allocate(termCount * TokenIndexFiles.TERM_ENTRY_SIZE);
+        VarIntBuffer lists = new VarIntBuffer(postingCount * 2);
+        int i = 0;
+        while (i < postingCount) {
+            long key = postings[i] >>> TokenIndexFiles.ORDINAL_BITS;
+            int listOffset = lists.size();
+            int count = 0;
+            long previous = 0;
+            while (i < postingCount && (postings[i] >>> TokenIndexFiles.ORDINAL_BITS) == key) {
+                long ordinal = postings[i] & ordinalMask;
+                lists.write(ordinal - previous);
+                previous = ordinal;
+                count++;
+                i++;
+            }
+            terms.putLong(key);
+            terms.putInt(listOffset);
+            terms.putInt(count);
+        }
+        terms.flip();
+
+        long offset = channel.position();
+        writeFully(channel, terms);
+        writeFully(channel, ByteBuffer.wrap(lists.bytes(), 0, lists.size()));
+        blocks.add(new long[]{blockFirst, nextBlockFirst - blockFirst, offset, termCount});
+
+        blockFirst = nextBlockFirst;
+        postingCount = 0;
+        if (postings.length > MAX_BLOCK_POSTINGS) {
+            postings = new long[1024];
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 无符号变长整数（每字节7位，最高位表示后续还有字节）的写缓冲
+     */
+    private static final class VarIntBuffer {
+
+        private byte[] bytes;
+        private int size;
+
+        VarIntBuffer(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void write(long value) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
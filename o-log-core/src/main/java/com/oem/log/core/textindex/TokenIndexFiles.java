@@ -0,0 +1,221 @@
+package com.oem.log.core.textindex;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 全文词元索引的文件命名、分词规则与查询词计算
+ * 数据文件封存后在后台为异常信息和请求参数/响应体建立倒排索引，与.index文件放在同一目录：{数据文件名}.tokens。
+ * 文本统一转小写后按字母数字连续段切分为词，每个词索引整词；开启n-gram时再索引不超过MAX_GRAM_TOKEN长度的词的三元组，
+ * 含更长词的记录另外标记，保证子串查询只会多出候选、不会漏掉记录。候选记录仍由查询端按原条件逐条校验
+ *
+ * 文件按记录序号分块写出，建索引时内存只与块大小相关。文件格式（大端）：
+ * [int 魔数][int 版本][int 记录数][int 标志][int 块数][long 块目录偏移]
+ * 每个块：词项数 × [long 词键][int 倒排表相对偏移][int 记录数]（按词键升序），随后为各词项倒排表（块内序号差值的变长编码）
+ * 文件末尾为块目录：块数 × [int 首条记录序号][int 记录数][long 块偏移][int 词项数]
+ */
+public final class TokenIndexFiles {
+
+    public static final String EXTENSION = ".tokens";
+
+    public static final int MAGIC = 0x4F544B31;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 28;
+    public static final int BLOCK_ENTRY_SIZE = 20;
+    public static final int TERM_ENTRY_SIZE = 16;
+
+    /**
+     * 标志位：索引中包含三元组
+     */
+    public static final int FLAG_NGRAMS = 1;
+
+    /**
+     * 字段分组：异常信息
+     */
+    public static final int FIELD_EXCEPTION = 0;
+
+    /**
+     * 字段分组：请求参数和响应体
+     */
+    public static final int FIELD_BODY = 1;
+
+    /**
+     * 超过该长度的词不生成三元组，记录改为带上长词标记
+     */
+    public static final int MAX_GRAM_TOKEN = 32;
+
+    // 词键取39位，与块内序号（24位）拼成的long恒为正数，按long排序即按词键排序
+    static final int ORDINAL_BITS = 24;
+    private static final long KEY_MASK = (1L << 39) - 1;
+
+    private static final int KIND_WORD = 0;
+    private static final int KIND_GRAM = 1;
+    private static final int KIND_LONG = 2;
+
+    private TokenIndexFiles() {
+    }
+
+    /**
+     * 数据文件对应的词元索引文件，与索引文件放在同一目录
+     */
+    public static File fileFor(File indexFile) {
+        String name = indexFile.getName();
+        String stem = name.endsWith(".index") ? name.substring(0, name.length() - ".index".length()) : name;
+        return new File(indexFile.getParentFile(), stem + EXTENSION);
+    }
+
+    /**
+     * 提取文本的全部词项键，同一文本中重复的词项会重复输出
+     */
+    public static void terms(int field, String text, boolean ngrams, LongConsumer out) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        char[] token = new char[Math.min(length, 64)];
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int tokenLength = i - start;
+            if (tokenLength == 0) {
+                continue;
+            }
+            if (token.length < tokenLength) {
+                token = new char[Math.max(tokenLength, token.length * 2)];
+            }
+            for (int j = 0; j < tokenLength; j++) {
+                token[j] = Character.toLowerCase(text.charAt(start + j));
+            }
+            out.accept(key(field, KIND_WORD, token, 0, tokenLength));
+            if (ngrams) {
+                if (tokenLength > MAX_GRAM_TOKEN) {
+                    out.accept(longTokenKey(field));
+                } else {
+                    for (int j = 0; j + 3 <= tokenLength; j++) {
+                        out.accept(key(field, KIND_GRAM, token, j, 3));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 含有超长词的记录的标记键
+     */
+    public static long longTokenKey(int field) {
+        return key(field, KIND_LONG, new char[0], 0, 0);
+    }
+
+    /**
+     * 把包含查询（String.contains语义）转换为索引约束，关键词中没有可用的词时返回null
+     * @param ngrams 索引文件是否包含三元组
+     */
+    public static TokenQuery query(int field, String keyword, boolean ngrams) {
+        if (keyword == null || keyword.isEmpty()) {
+            return null;
+        }
+        long[] words = new long[4];
+        int wordCount = 0;
+        long[] grams = new long[8];
+        int gramCount = 0;
+        boolean longOnly = false;
+
+        int length = keyword.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(keyword.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(keyword.charAt(i))) {
+                i++;
+            }
+            int tokenLength = i - start;
+            if (tokenLength == 0) {
+                continue;
+            }
+            char[] token = new char[tokenLength];
+            for (int j = 0; j < tokenLength; j++) {
+                token[j] = Character.toLowerCase(keyword.charAt(start + j));
+            }
+            // 两侧都有分隔符的词在原文中一定是完整的词；位于关键词首尾的词可能只是原文中某个词的一部分
+            boolean whole = start > 0 && i < length;
+            if (whole) {
+                if (wordCount == words.length) {
+                    words = Arrays.copyOf(words, wordCount * 2);
+                }
+                words[wordCount++] = key(field, KIND_WORD, token, 0, tokenLength);
+            } else if (ngrams && tokenLength > MAX_GRAM_TOKEN) {
+                longOnly = true;
+            } else if (ngrams && tokenLength >= 3) {
+                for (int j = 0; j + 3 <= tokenLength; j++) {
+                    if (gramCount == grams.length) {
+                        grams = Arrays.copyOf(grams, gramCount * 2);
+                    }
+                    grams[gramCount++] = key(field, KIND_GRAM, token, j, 3);
+                }
+            }
+        }
+        if (wordCount == 0 && gramCount == 0 && !longOnly) {
+            return null;
+        }
+        return new TokenQuery(Arrays.copyOf(words, wordCount), Arrays.copyOf(grams, gramCount),
+                longOnly, longTokenKey(field));
+    }
+
+    // FNV-1a，按字段和类型区分种子，截取为39位
+    private static long key(int field, int kind, char[] chars, int from, int length) {
+        long hash = 0xcbf29ce484222325L ^ (field * 3 + kind);
+        hash *= 0x100000001b3L;
+        for (int i = from; i < from + length; i++) {
+            char c = chars[i];
+            hash ^= c & 0xff;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return (hash ^ (hash >>> 39)) & KEY_MASK;
+    }
+
+    /**
+     * 关键词对应的索引约束：候选记录须包含全部整词，且包含全部三元组或带有长词标记；
+     * longOnly为true时关键词首尾有超长的词，候选只能是带长词标记的记录
+     */
+    public static final class TokenQuery {
+
+        private final long[] words;
+        private final long[] grams;
+        private final boolean longOnly;
+        private final long longTokenKey;
+
+        TokenQuery(long[] words, long[] grams, boolean longOnly, long longTokenKey) {
+            this.words = words;
+            this.grams = grams;
+            this.longOnly = longOnly;
+            this.longTokenKey = longTokenKey;
+        }
+
+        public long[] getWords() {
+            return words;
+        }
+
+        public long[] getGrams() {
+            return grams;
+        }
+
+        public boolean isLongOnly() {
+            return longOnly;
+        }
+
+        public long getLongTokenKey() {
+            return longTokenKey;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.oem.log.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateMeterTest {
+
+    @Test
+    void concurrentMarksAcrossSecondRolloverAreNotLost() throws InterruptedException {
+        RateMeter meter = new RateMeter();
+        LongAdder marked = new LongAdder();
+        int threads = 8;
+        CountDownLatch done = new CountDownLatch(threads);
+        // 跨过至少两次秒切换
+        long end = System.currentTimeMillis() + 2500;
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                while (System.currentTimeMillis() < end) {
+                    meter.mark();
+                    marked.increment();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        // 等当前秒结束，全部计数都落在完整秒内
+        Thread.sleep(1100 - System.currentTimeMillis() % 1000);
+        assertEquals(marked.sum(), meter.getCount(10));
+    }
+
+    @Test
+    void countsOnlyCompleteSecondsInWindow() throws InterruptedException {
+        RateMeter meter = new RateMeter();
+        // 从一秒的开头记录，断言前不会跨秒
+        Thread.sleep(1050 - System.currentTimeMillis() % 1000);
+        meter.mark(5);
+        assertEquals(0, meter.getCount(60));
+
+        Thread.sleep(1100 - System.currentTimeMillis() % 1000);
+        meter.mark(3);
+        assertEquals(5, meter.getCount(1));
+        assertEquals(5, meter.getCount(60));
+    }
+}
@@ -0,0 +1,201 @@
+package com.oem.log.core.query;
+
+import com.oem.log.core.model.ApiLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryParserTest {
+
+    // 覆盖引号与转义、正则反斜杠、开区间、状态码段、通配符和各种逻辑组合
+    private static final String[] QUERIES = {
+            "path:/api/order",
+            "path:=\"/api/order\"",
+            "path:\"a \\\"quoted\\\" value\"",
+            "params:\"C:\\\\temp\\\\\"",
+            "params:\"tab\\there\"",
+            "path:~\"^/api/v\\d+/items$\"",
+            "path:~a\\.b",
+            "path:~\"\\\\\\\\\"",
+            "path:~\"(order|user) \\(\\d+\\)\"",
+            "exception:\"\"",
+            "path:/api/*/detail",
+            "id:*-1?",
+            "path:\"/api/*\"",
+            "status:5xx",
+            "status:4XX",
+            "status:200",
+            "status:=404",
+            "status:[500..599]",
+            "duration:[1000..*]",
+            "duration:[*..99]",
+            "duration:[*..*]",
+            "duration:[-5..-1]",
+            "duration:>=1000",
+            "duration:>1000",
+            "duration:<0",
+            "duration:<=10",
+            "path:/a OR path:/b AND NOT status:5xx",
+            "-(path:/a || path:/b) && !exception:timeout",
+            "(path:/a OR (status:5xx AND duration:>1000)) NOT ip:10.0.*",
+            "NOT NOT path:/a",
+            "not (path:/a or path:/b) and status:2xx",
+            "host:\"node (1)\" method:=GET header:\"X-Trace\" response:\"ok\" body:ok",
+    };
+
+    private static final List<ApiLog> SAMPLES = Arrays.asList(
+            ApiLog.builder().path("/api/order").method("GET").statusCode(200).executionTime(12).build(),
+            ApiLog.builder().path("/api/v2/items").method("POST").statusCode(503).executionTime(1500)
+                    .exceptionMsg("timeout").clientIp("10.0.0.1").build(),
+            ApiLog.builder().path("a \"quoted\" value").statusCode(404).executionTime(-3)
+                    .requestParams("C:\\temp\\").build(),
+            ApiLog.builder().path("/api/user/detail").hostname("node (1)").statusCode(500).executionTime(1000)
+                    .requestHeaders("X-Trace: 1").responseBody("ok").build(),
+            ApiLog.builder().path("user (12)").id("abc-12").requestParams("tab\there").statusCode(201).build(),
+            ApiLog.builder().path("a.b\\c").exceptionMsg("").build(),
+            ApiLog.builder().build()
+    );
+
+    @Test
+    void canonicalFormReparsesToEquivalentPredicate() {
+        for (String query : QUERIES) {
+            LogPredicate parsed = QueryParser.parse(query);
+            LogPredicate reparsed = QueryParser.parse(parsed.toString());
+
+            assertEquals(parsed.toString(), reparsed.toString(), query);
+            assertEquals(parsed.level(), reparsed.level(), query);
+            for (ApiLog sample : SAMPLES) {
+                assertEquals(parsed.test(sample), reparsed.test(sample), query + " / " + sample);
+            }
+        }
+    }
+
+    @Test
+    void quotedValuesUnescapeQuotesAndBackslashes() {
+        LogPredicate.Match quoted = (LogPredicate.Match) QueryParser.parse("path:\"a \\\"quoted\\\" value\"");
+        assertEquals("a \"quoted\" value", quoted.getValue());
+
+        LogPredicate.Match backslashes = (LogPredicate.Match) QueryParser.parse("params:\"C:\\\\temp\\\\\"");
+        assertEquals("C:\\temp\\", backslashes.getValue());
+
+        // 引号和反斜杠以外的转义原样保留
+        LogPredicate.Match other = (LogPredicate.Match) QueryParser.parse("params:\"tab\\there\"");
+        assertEquals("tab\\there", other.getValue());
+    }
+
+    @Test
+    void regexKeepsBackslashEscapes() {
+        LogPredicate digits = QueryParser.parse("path:~\"^/api/v\\d+/items$\"");
+        assertTrue(digits.test(ApiLog.builder().path("/api/v2/items").build()));
+        assertFalse(digits.test(ApiLog.builder().path("/api/vx/items").build()));
+
+        LogPredicate dot = QueryParser.parse("path:~a\\.b");
+        assertTrue(dot.test(ApiLog.builder().path("a.b").build()));
+        assertFalse(dot.test(ApiLog.builder().path("axb").build()));
+
+        // 查询语句引号内的\\\\还原为\\，即匹配一个字面反斜杠的正则
+        LogPredicate backslash = QueryParser.parse("path:~\"\\\\\\\\\"");
+        assertTrue(backslash.test(ApiLog.builder().path("a.b\\c").build()));
+        assertFalse(backslash.test(ApiLog.builder().path("a.b").build()));
+    }
+
+    @Test
+    void numericRangesAndStatusClasses() {
+        assertRange("status:5xx", 500, 599);
+        assertRange("status:4XX", 400, 499);
+        assertRange("status:200", 200, 200);
+        assertRange("duration:[1000..*]", 1000, Long.MAX_VALUE);
+        assertRange("duration:[*..99]", Long.MIN_VALUE, 99);
+        assertRange("duration:>1000", 1001, Long.MAX_VALUE);
+        assertRange("duration:<=10", Long.MIN_VALUE, 10);
+
+        assertEquals("status:[500..599]", QueryParser.parse("status:5xx").toString());
+        assertEquals("duration:[1000..*]", QueryParser.parse("duration:>=1000").toString());
+        assertEquals("duration:[*..-1]", QueryParser.parse("duration:<0").toString());
+    }
+
+    @Test
+    void wildcardOnlyForUnquotedValues() {
+        LogPredicate.Match bare = (LogPredicate.Match) QueryParser.parse("path:/api/*/detail");
+        assertEquals(LogPredicate.Match.Op.WILDCARD, bare.getOp());
+        assertTrue(bare.test(ApiLog.builder().path("/api/user/detail").build()));
+        assertFalse(bare.test(ApiLog.builder().path("/api/user/detail/1").build()));
+
+        LogPredicate.Match quoted = (LogPredicate.Match) QueryParser.parse("path:\"/api/*\"");
+        assertEquals(LogPredicate.Match.Op.CONTAINS, quoted.getOp());
+        assertFalse(quoted.test(ApiLog.builder().path("/api/user").build()));
+    }
+
+    @Test
+    void emptyQueryMatchesEverything() {
+        assertSame(LogPredicate.ALL, QueryParser.parse(null));
+        assertSame(LogPredicate.ALL, QueryParser.parse("   "));
+    }
+
+    @Test
+    void syntaxErrors() {
+        String[] invalid = {
+                "(path:/a",
+                "path:/a)",
+                "foo:bar",
+                "path",
+                "path:",
+                "path:\"unterminated",
+                "path:~\"[\"",
+                "status:abc",
+                "status:5xxx",
+                "duration:[1..x]",
+                "duration:>",
+                "AND",
+                "NOT",
+                "path:/a OR",
+                "()",
+        };
+        for (String query : invalid) {
+            assertThrows(QuerySyntaxException.class, () -> QueryParser.parse(query), query);
+        }
+
+        QuerySyntaxException unknown = assertThrows(QuerySyntaxException.class, () -> QueryParser.parse("foo:bar"));
+        assertTrue(unknown.getMessage().startsWith("查询语句第1个字符处：未知字段foo"), unknown.getMessage());
+    }
+
+    @Test
+    void rejectsOverlongAndDeeplyNestedQueries() {
+        StringBuilder longQuery = new StringBuilder("path:");
+        while (longQuery.length() <= 4096) {
+            longQuery.append('a');
+        }
+        assertThrows(QuerySyntaxException.class, () -> QueryParser.parse(longQuery.toString()));
+
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            nested.append('(');
+        }
+        nested.append("path:/a");
+        for (int i = 0; i < 100; i++) {
+            nested.append(')');
+        }
+        assertThrows(QuerySyntaxException.class, () -> QueryParser.parse(nested.toString()));
+
+        StringBuilder negated = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            negated.append("NOT ");
+        }
+        negated.append("path:/a");
+        assertThrows(QuerySyntaxException.class, () -> QueryParser.parse(negated.toString()));
+    }
+
+    private static void assertRange(String query, long low, long high) {
+        LogPredicate.Match match = (LogPredicate.Match) QueryParser.parse(query);
+        assertEquals(LogPredicate.Match.Op.RANGE, match.getOp(), query);
+        assertEquals(low, match.getLow(), query);
+        assertEquals(high, match.getHigh(), query);
+    }
+}
@@ -0,0 +1,245 @@
+package com.oem.log.core.serializer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.model.ApiLogTiming;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogRecordProbeTest {
+
+    // 引号、反斜杠、斜杠、控制字符（写成\\u00XX）、多字节UTF-8和代理对
+    private static final String[] PIECES = {
+            "a", "Z", "0", " ", "\"", "\\", "/", "\\\"", "\"\\", "\n", "\t", "\u0001", "\u001f",
+            "中", "文", "é", "😀", "{", "}", "[", "]", ",", ":", "\\u0041",
+    };
+
+    private final JsonLogSerializer serializer = new JsonLogSerializer();
+
+    // 与查看端完整解码一致，另外容忍手写记录中的未知字段
+    private final ObjectMapper lenientMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void agreesWithJacksonOnRandomRecords() throws IOException {
+        Random random = new Random(17);
+        List<ApiLog> logs = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            logs.add(randomLog(random));
+        }
+        assertAgreesWithSerializer(logs);
+    }
+
+    @Test
+    void escapesAtEveryWordOffset() throws IOException {
+        // 跳过的大字段中，引号、反斜杠和多字节字符落在8字节块的每个位置上
+        List<ApiLog> logs = new ArrayList<>();
+        String[] specials = {"\"", "\\", "\\\"", "\\\\\"", "中", "😀", "\u0001", "é\""};
+        for (String special : specials) {
+            for (int offset = 0; offset < 24; offset++) {
+                String padded = repeat("x", offset) + special + repeat("y", offset % 9);
+                logs.add(baseLog()
+                        .requestParams(padded)
+                        .requestHeaders(special + padded)
+                        .responseBody(padded + special)
+                        .exceptionMsg(padded)
+                        .path("/api/" + padded)
+                        .build());
+            }
+        }
+        assertAgreesWithSerializer(logs);
+    }
+
+    @Test
+    void unicodeEscapesAndNonAscii() throws IOException {
+        String json = "{\"path\":\"/api/\\u4e2d\\u6587\\ud83d\\ude00/\\u0041\",\"statusCode\":200,"
+                + "\"exceptionMsg\":\"\\u0000\\u001f\\\"\\\\\\/\\b\\f\\n\\r\\t末尾\","
+                + "\"requestTime\":[2024,2,29,23,59,59,999999999],\"executionTime\":12}";
+        assertAgreesWithJackson(json);
+    }
+
+    @Test
+    void nestedObjectsAndArraysInSkippedFields() throws IOException {
+        // 嵌套的阶段耗时、新版本增加的对象/数组字段等：只跳过，不影响后续字段
+        String json = "{\"id\":\"1\",\"payload\":{\"items\":[1,{\"a\":\"}]\\\"\"},[[],{}]],\"s\":\"{[\"},"
+                + "\"extra\":[{\"path\":\"/wrong\"},\"]\",-1.5e3,true,false,null],"
+                + "\"timing\":{\"preProcessNanos\":1,\"handlerNanos\":2},"
+                + "\"path\":\"/api/right\",\"statusCode\":503,\"requestTime\":[2024,1,1,8,30],"
+                + "\"executionTime\":7,\"exceptionMsg\":\"boom\",\"method\":\"PUT\",\"hostname\":\"node-1\"}";
+        assertAgreesWithJackson(json);
+
+        String spaced = "{ \"path\" : \"/api/x\" ,\n\t\"statusCode\" : 404 , \"payload\" : { } ,"
+                + " \"requestTime\" : [ 2024 , 1 , 1 , 8 , 30 , 5 ] , \"executionTime\" : 3 }";
+        assertAgreesWithJackson(spaced);
+    }
+
+    @Test
+    void missingAndNullFields() throws IOException {
+        assertAgreesWithJackson("{}");
+        assertAgreesWithJackson("{\"id\":\"1\"}");
+        assertAgreesWithJackson("{\"path\":null,\"requestTime\":null,\"exceptionMsg\":null,\"method\":null,"
+                + "\"hostname\":null,\"responseBody\":null,\"statusCode\":500}");
+        assertAgreesWithSerializer(List.of(new ApiLog()));
+    }
+
+    @Test
+    void localDateTimeArrayForms() throws IOException {
+        // 秒和纳秒为0时省略
+        List<ApiLog> logs = new ArrayList<>();
+        LocalDateTime[] times = {
+                LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 1, 1, 0, 0, 1),
+                LocalDateTime.of(2024, 1, 1, 0, 0, 0, 1),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(1999, 6, 15, 12, 30, 0, 500_000_000),
+        };
+        for (LocalDateTime time : times) {
+            logs.add(baseLog().requestTime(time).build());
+        }
+        assertAgreesWithSerializer(logs);
+
+        // ISO字符串形式
+        assertAgreesWithJackson("{\"requestTime\":\"2024-03-01T10:15:30.123\",\"path\":\"/a\"}");
+    }
+
+    @Test
+    void rejectsTruncatedRecords() {
+        LogRecordProbe probe = new LogRecordProbe();
+        String[] broken = {
+                "{\"path\":\"/api", "{\"path\":\"/api\\", "{\"path\":\"/api\",", "{\"responseBody\":{\"a\":[1,2}",
+                "{\"path\":\"\\u12\"}", "{\"statusCode\":}", "[]",
+        };
+        for (String json : broken) {
+            ByteBuffer record = frame(json);
+            assertThrows(IOException.class, () -> probe.read(record, 0, record.remaining()), json);
+        }
+    }
+
+    // 同一个缓冲中连续写入全部记录，逐条按位置探测，与完整解码对比
+    private void assertAgreesWithSerializer(List<ApiLog> logs) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>();
+        int total = 0;
+        for (ApiLog log : logs) {
+            ByteBuffer record = serializer.serialize(log);
+            records.add(record);
+            total += record.remaining();
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(total);
+        for (ByteBuffer record : records) {
+            data.put(record);
+        }
+
+        LogRecordProbe probe = new LogRecordProbe();
+        LogRecordProbe dimensionProbe = new LogRecordProbe(true);
+        int position = 0;
+        for (int i = 0; i < logs.size(); i++) {
+            int size = data.getInt(position) + 4;
+            ByteBuffer view = data.duplicate();
+            view.position(position);
+            ApiLog decoded = serializer.deserialize(view);
+
+            assertProbeMatches(decoded, probe.read(data, position, size), false, "record " + i);
+            assertProbeMatches(decoded, dimensionProbe.read(data, position, size), true, "record " + i);
+            position += size;
+        }
+    }
+
+    private void assertAgreesWithJackson(String json) throws IOException {
+        ApiLog decoded = lenientMapper.readValue(json, ApiLog.class);
+        ByteBuffer record = frame(json);
+        assertProbeMatches(decoded, new LogRecordProbe().read(record, 0, record.remaining()), false, json);
+        assertProbeMatches(decoded, new LogRecordProbe(true).read(record, 0, record.remaining()), true, json);
+    }
+
+    private static void assertProbeMatches(ApiLog expected, ApiLog probed, boolean dimensions, String message) {
+        assertEquals(expected.getRequestTime(), probed.getRequestTime(), message);
+        assertEquals(expected.getPath(), probed.getPath(), message);
+        assertEquals(expected.getStatusCode(), probed.getStatusCode(), message);
+        assertEquals(expected.getExecutionTime(), probed.getExecutionTime(), message);
+        assertEquals(expected.getExceptionMsg(), probed.getExceptionMsg(), message);
+        if (dimensions) {
+            assertEquals(expected.getMethod(), probed.getMethod(), message);
+            assertEquals(expected.getHostname(), probed.getHostname(), message);
+        } else {
+            assertNull(probed.getMethod(), message);
+            assertNull(probed.getHostname(), message);
+        }
+    }
+
+    private static ByteBuffer frame(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+        record.putInt(bytes.length).put(bytes).flip();
+        return record;
+    }
+
+    private static ApiLog randomLog(Random random) {
+        LocalDateTime time = LocalDateTime.of(2024, 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60),
+                random.nextBoolean() ? 0 : random.nextInt(60),
+                random.nextBoolean() ? 0 : random.nextInt(1_000_000_000));
+        ApiLog.ApiLogBuilder builder = ApiLog.builder()
+                .id(randomText(random, 8))
+                .hostname(nullable(random, randomText(random, 6)))
+                .requestTime(random.nextInt(20) == 0 ? null : time)
+                .path(nullable(random, "/api/" + randomText(random, 12)))
+                .method(nullable(random, random.nextBoolean() ? "GET" : "POST"))
+                .requestParams(nullable(random, randomText(random, random.nextInt(200))))
+                .requestHeaders(nullable(random, randomText(random, random.nextInt(100))))
+                .clientIp(nullable(random, "10.0.0." + random.nextInt(256)))
+                .statusCode(random.nextInt(600))
+                .responseBody(nullable(random, randomText(random, random.nextInt(400))))
+                .exceptionMsg(nullable(random, randomText(random, random.nextInt(60))))
+                .executionTime(random.nextInt(10) == 0 ? -random.nextInt(100) : random.nextInt(100_000));
+        if (random.nextInt(4) == 0) {
+            builder.timing(ApiLogTiming.builder().preProcessNanos(random.nextInt(1000))
+                    .handlerNanos(random.nextInt(1000)).build());
+        }
+        return builder.build();
+    }
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String nullable(Random random, String value) {
+        return random.nextInt(5) == 0 ? null : value;
+    }
+
+    private static ApiLog.ApiLogBuilder baseLog() {
+        return ApiLog.builder()
+                .id("1")
+                .requestTime(LocalDateTime.of(2024, 1, 1, 12, 0, 30))
+                .path("/api/orders")
+                .method("GET")
+                .hostname("node-1")
+                .statusCode(200)
+                .executionTime(15);
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}
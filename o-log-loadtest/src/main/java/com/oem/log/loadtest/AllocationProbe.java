@@ -0,0 +1,49 @@
+package com.oem.log.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+
+/**
+ * 服务端线程分配量采样
+ * 负载线程与被测应用在同一进程，按线程名排除负载线程后累加其余线程的分配字节数，
+ * 包括Tomcat工作线程和o-log写入线程
+ */
+public final class AllocationProbe {
+
+    private AllocationProbe() {
+    }
+
+    /**
+     * JVM是否支持线程分配量统计
+     */
+    public static boolean isSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * 当前存活的非负载线程累计分配字节数
+     * 采样区间内退出的线程会丢失其分配量，因此只在线程池稳定后采样
+     */
+    public static long serverAllocatedBytes() {
+        if (!isSupported()) {
+            return 0;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threadBean.getAllThreadIds();
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids);
+        long[] allocated = threadBean.getThreadAllocatedBytes(ids);
+
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null || allocated[i] < 0) {
+                continue;
+            }
+            if (infos[i].getThreadName().startsWith(LoadGenerator.THREAD_PREFIX)) {
+                continue;
+            }
+            total += allocated[i];
+        }
+        return total;
+    }
+}
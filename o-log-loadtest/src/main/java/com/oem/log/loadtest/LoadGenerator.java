@@ -0,0 +1,170 @@
+package com.oem.log.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地HTTP负载生成器
+ * 开环模式按固定间隔分配计划发送时间，延迟从计划时间算起，服务端变慢时排队时间也计入延迟；
+ * 闭环模式每个连接收到响应后立即发送下一个请求
+ */
+@Slf4j
+public class LoadGenerator {
+
+    /**
+     * 负载线程名前缀，统计服务端分配时据此排除
+     */
+    public static final String THREAD_PREFIX = "load-gen-";
+
+    private final LoadTestOptions options;
+    private final URL url;
+    private final byte[] requestBody;
+
+    public LoadGenerator(LoadTestOptions options, int port) throws IOException {
+        this.options = options;
+        String query = "GET".equals(options.getMethod()) ? "?size=" + options.getPayloadSize() : "";
+        this.url = new URL("http://127.0.0.1:" + port + options.getPath() + query);
+        this.requestBody = LoadTestController.buildPayload(options.getPayloadSize()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 施加负载
+     * @param durationSeconds 持续时间（秒）
+     * @return 本次的延迟分布和计数
+     */
+    public Result run(int durationSeconds) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        AtomicLong ticket = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + durationSeconds * 1_000_000_000L;
+        long intervalNanos = 1_000_000_000L / Math.max(1, options.getRate());
+
+        List<Thread> workers = new ArrayList<>(options.getConnections());
+        for (int i = 0; i < options.getConnections(); i++) {
+            Thread worker = new Thread(() -> {
+                while (true) {
+                    long sendAt;
+                    if (options.isOpenLoop()) {
+                        sendAt = start + ticket.getAndIncrement() * intervalNanos;
+                        if (sendAt >= end) {
+                            break;
+                        }
+                        long wait = sendAt - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        sendAt = System.nanoTime();
+                        if (sendAt >= end) {
+                            break;
+                        }
+                    }
+
+                    if (send()) {
+                        completed.increment();
+                    } else {
+                        errors.increment();
+                    }
+                    recorder.recordValue(Math.max(1, System.nanoTime() - sendAt));
+                }
+            }, THREAD_PREFIX + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return new Result(recorder.getIntervalHistogram(), completed.sum(), errors.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * 发送一个请求并读完响应
+     * @return 2xx返回true
+     */
+    private boolean send() {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(options.getMethod());
+            if ("POST".equals(options.getMethod())) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(requestBody.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(requestBody);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                // 读完并关闭响应流，连接才能复用
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // 丢弃响应内容
+                }
+                in.close();
+            }
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            log.debug("请求失败: {}", e.getMessage());
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 单次负载结果
+     */
+    public static class Result {
+
+        private final Histogram histogram;
+        private final long completed;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(Histogram histogram, long completed, long errors, long elapsedNanos) {
+            this.histogram = histogram;
+            this.completed = completed;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.oem.log.loadtest;
+
+import com.oem.log.core.metrics.LogMetrics;
+import com.oem.log.core.store.LogStore;
+import com.oem.log.core.store.MappedFileLogStore;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 端到端压测入口
+ * 在同一进程内分别以o-log关闭和开启启动内嵌应用，用相同负载测量延迟分位数、服务端分配和日志丢失，
+ * 输出两者的差值即o-log在该负载下增加的开销
+ */
+public class LoadHarness {
+
+    // 等待写入线程把剩余日志刷盘的最长时间
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // HttpURLConnection默认每个目标只保留5个空闲连接，超过后的请求会重新建连
+        System.setProperty("http.maxConnections", String.valueOf(options.getConnections()));
+
+        LoadResult disabled = new LoadResult(false);
+        LoadResult enabled = new LoadResult(true);
+        for (int round = 1; round <= options.getRounds(); round++) {
+            boolean enabledFirst = round % 2 == 0;
+            runRound(options, enabledFirst ? enabled : disabled, round);
+            runRound(options, enabledFirst ? disabled : enabled, round);
+        }
+
+        printReport(options, disabled, enabled);
+    }
+
+    /**
+     * 启动内嵌应用，预热后测量一轮并累加到结果中
+     */
+    private static void runRound(LoadTestOptions options, LoadResult result, int round) throws Exception {
+        Path baseDir = Files.createTempDirectory("o-log-loadtest");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + Math.max(200, options.getConnections()),
+                        "server.tomcat.max-keep-alive-requests=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        // 写入线程在Tomcat停止之后才随容器关闭，屏蔽由此产生的线程泄漏警告
+                        "logging.level.org.apache.catalina.loader=ERROR",
+                        "oem.log.enabled=" + result.isLogEnabled(),
+                        "oem.log.base-dir=" + baseDir.toAbsolutePath(),
+                        "oem.log.url-patterns=/api/**",
+                        "oem.log.deferred-rendering=" + options.isDeferredRendering())
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LogMetrics metrics = findMetrics(context);
+            LoadGenerator generator = new LoadGenerator(options, port);
+
+            System.out.printf("第%d轮 o-log%s: 预热%d秒...%n", round, label(result), options.getWarmupSeconds());
+            generator.run(options.getWarmupSeconds());
+            awaitDrain(metrics);
+            System.gc();
+
+            long writtenBefore = metrics == null ? 0 : metrics.getIngestLatencyCount();
+            long errorsBefore = metrics == null ? 0 : metrics.getTotalErrors();
+            long allocatedBefore = AllocationProbe.serverAllocatedBytes();
+
+            System.out.printf("第%d轮 o-log%s: 测量%d秒...%n", round, label(result), options.getDurationSeconds());
+            LoadGenerator.Result measured = generator.run(options.getDurationSeconds());
+
+            // 分配量在等待刷盘之前采样，只统计负载期间的分配
+            long allocated = AllocationProbe.serverAllocatedBytes() - allocatedBefore;
+            awaitDrain(metrics);
+            long written = metrics == null ? 0 : metrics.getIngestLatencyCount() - writtenBefore;
+            long logErrors = metrics == null ? 0 : metrics.getTotalErrors() - errorsBefore;
+
+            result.add(measured, allocated, written, logErrors);
+        } finally {
+            context.close();
+            deleteRecursively(baseDir);
+        }
+    }
+
+    private static LogMetrics findMetrics(ConfigurableApplicationContext context) {
+        LogStore logStore = context.getBeanProvider(LogStore.class).getIfAvailable();
+        return logStore instanceof MappedFileLogStore ? ((MappedFileLogStore) logStore).getMetrics() : null;
+    }
+
+    /**
+     * 等待已接收的日志全部刷盘
+     */
+    private static void awaitDrain(LogMetrics metrics) throws InterruptedException {
+        if (metrics == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline
+                && metrics.getIngestLatencyCount() + metrics.getTotalErrors() < metrics.getTotalProcessed()) {
+            Thread.sleep(100);
+        }
+    }
+
+    private static void printReport(LoadTestOptions options, LoadResult disabled, LoadResult enabled) {
+        System.out.println();
+        System.out.printf("模式=%s 目标速率=%s 连接数=%d 方法=%s 负载=%dB 路径=%s 延迟渲染=%s 轮数=%d%n",
+                options.getMode(), options.isOpenLoop() ? options.getRate() + "/s" : "-", options.getConnections(),
+                options.getMethod(), options.getPayloadSize(), options.getPath(), options.isDeferredRendering(),
+                options.getRounds());
+        if (!AllocationProbe.isSupported()) {
+            System.out.println("当前JVM不支持线程分配量统计，分配列为0");
+        }
+        System.out.println();
+
+        String header = "%-10s %12s %10s %10s %10s %10s %8s %14s %12s %10s%n";
+        String row = "%-10s %12.0f %10.1f %10.1f %10.1f %10.1f %8d %14.0f %12.1f %10d%n";
+        System.out.printf(header, "配置", "吞吐(req/s)", "p50(µs)", "p99(µs)", "p999(µs)", "max(µs)",
+                "失败", "分配(B/请求)", "分配(MB/s)", "丢失日志");
+        printRow(row, "o-log关闭", disabled);
+        printRow(row, "o-log开启", enabled);
+        System.out.printf(row, "差值",
+                enabled.getThroughput() - disabled.getThroughput(),
+                enabled.getPercentileMicros(50) - disabled.getPercentileMicros(50),
+                enabled.getPercentileMicros(99) - disabled.getPercentileMicros(99),
+                enabled.getPercentileMicros(99.9) - disabled.getPercentileMicros(99.9),
+                enabled.getMaxMicros() - disabled.getMaxMicros(),
+                enabled.getErrors() - disabled.getErrors(),
+                enabled.getAllocatedBytesPerRequest() - disabled.getAllocatedBytesPerRequest(),
+                enabled.getAllocationRateMb() - disabled.getAllocationRateMb(),
+                enabled.getDroppedLogs());
+        System.out.println();
+
+        if (options.isOpenLoop() && enabled.getThroughput() < options.getRate() * 0.95) {
+            System.out.println("注意：o-log开启时未达到目标速率的95%，服务端或负载线程已饱和，分位数主要反映排队时间");
+        }
+        System.out.printf("o-log在%.0f req/s下增加p99延迟%.1fµs，每请求多分配%.0f字节%n",
+                disabled.getThroughput(),
+                enabled.getPercentileMicros(99) - disabled.getPercentileMicros(99),
+                enabled.getAllocatedBytesPerRequest() - disabled.getAllocatedBytesPerRequest());
+    }
+
+    private static void printRow(String format, String name, LoadResult result) {
+        System.out.printf(format, name,
+                result.getThroughput(),
+                result.getPercentileMicros(50),
+                result.getPercentileMicros(99),
+                result.getPercentileMicros(99.9),
+                result.getMaxMicros(),
+                result.getErrors(),
+                result.getAllocatedBytesPerRequest(),
+                result.getAllocationRateMb(),
+                result.getDroppedLogs());
+    }
+
+    private static String label(LoadResult result) {
+        return result.isLogEnabled() ? "开启" : "关闭";
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.oem.log.loadtest;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+/**
+ * 一种配置（o-log开启或关闭）在所有轮次上的累计结果
+ */
+@Data
+public class LoadResult {
+
+    /**
+     * 是否开启o-log
+     */
+    private final boolean logEnabled;
+
+    /**
+     * 延迟分布（纳秒）
+     */
+    private final Histogram histogram = new Histogram(3);
+
+    /**
+     * 成功请求数
+     */
+    private long completed;
+
+    /**
+     * 失败请求数（非2xx或连接异常）
+     */
+    private long errors;
+
+    /**
+     * 测量时长（纳秒）
+     */
+    private long elapsedNanos;
+
+    /**
+     * 服务端线程分配字节数
+     */
+    private long allocatedBytes;
+
+    /**
+     * 已写入文件的日志条数
+     */
+    private long logsWritten;
+
+    /**
+     * 存储报告的写入错误数
+     */
+    private long logErrors;
+
+    /**
+     * 累加一轮的结果
+     */
+    public void add(LoadGenerator.Result round, long allocatedBytes, long logsWritten, long logErrors) {
+        this.histogram.add(round.getHistogram());
+        this.completed += round.getCompleted();
+        this.errors += round.getErrors();
+        this.elapsedNanos += round.getElapsedNanos();
+        this.allocatedBytes += allocatedBytes;
+        this.logsWritten += logsWritten;
+        this.logErrors += logErrors;
+    }
+
+    /**
+     * 实际达到的吞吐量（请求/秒）
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : (completed + errors) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * 延迟分位数（微秒）
+     */
+    public double getPercentileMicros(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * 最大延迟（微秒）
+     */
+    public double getMaxMicros() {
+        return histogram.getMaxValue() / 1000.0;
+    }
+
+    /**
+     * 每个请求的服务端分配字节数
+     */
+    public double getAllocatedBytesPerRequest() {
+        long requests = completed + errors;
+        return requests == 0 ? 0 : (double) allocatedBytes / requests;
+    }
+
+    /**
+     * 服务端分配速率（MB/s）
+     */
+    public double getAllocationRateMb() {
+        return elapsedNanos == 0 ? 0 : allocatedBytes / 1024.0 / 1024.0 * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * 成功响应但未写入文件的日志条数，o-log关闭时为0
+     */
+    public long getDroppedLogs() {
+        return logEnabled ? Math.max(0, completed - logsWritten) + logErrors : 0;
+    }
+}
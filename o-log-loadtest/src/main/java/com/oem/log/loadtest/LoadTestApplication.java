@@ -0,0 +1,11 @@
+package com.oem.log.loadtest;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * 压测用的内嵌应用
+ * 只扫描压测控制器和DemoController，是否启用o-log由oem.log.enabled控制
+ */
+@SpringBootApplication(scanBasePackages = {"com.oem.log.loadtest", "com.oem.log.core.demo"})
+public class LoadTestApplication {
+}
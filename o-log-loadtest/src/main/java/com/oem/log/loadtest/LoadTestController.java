@@ -0,0 +1,49 @@
+package com.oem.log.loadtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压测接口
+ * DemoController的接口带有随机休眠，毫秒级抖动会淹没微秒级的日志开销，
+ * 这里提供无休眠、响应大小可控的接口作为默认压测目标
+ */
+@RestController
+@RequestMapping("/api/load")
+public class LoadTestController {
+
+    // 按大小缓存响应体，避免压测接口自身的分配干扰结果
+    private final Map<Integer, String> payloads = new ConcurrentHashMap<>();
+
+    /**
+     * 返回指定字节数的JSON
+     */
+    @GetMapping(value = "/echo", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String echo(@RequestParam(defaultValue = "256") int size) {
+        return payloads.computeIfAbsent(size, LoadTestController::buildPayload);
+    }
+
+    /**
+     * 原样返回请求体
+     */
+    @PostMapping(value = "/echo", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String echoBody(@RequestBody String body) {
+        return body;
+    }
+
+    static String buildPayload(int size) {
+        int padding = Math.max(0, size - 11);
+        char[] chars = new char[padding];
+        Arrays.fill(chars, 'x');
+        return "{\"data\":\"" + new String(chars) + "\"}";
+    }
+}
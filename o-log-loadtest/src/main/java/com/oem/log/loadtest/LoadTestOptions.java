@@ -0,0 +1,119 @@
+package com.oem.log.loadtest;
+
+import lombok.Data;
+
+/**
+ * 压测参数，命令行格式为--name=value
+ */
+@Data
+public class LoadTestOptions {
+
+    /**
+     * 负载模型：open按固定速率发送（延迟从计划发送时间算起，避免协同遗漏），closed每个连接收到响应后立即发下一个
+     */
+    private String mode = "open";
+
+    /**
+     * open模式的目标速率（请求/秒）
+     */
+    private int rate = 5000;
+
+    /**
+     * 并发连接数（工作线程数）
+     */
+    private int connections = 64;
+
+    /**
+     * 每轮预热时长（秒）
+     */
+    private int warmupSeconds = 10;
+
+    /**
+     * 每轮测量时长（秒）
+     */
+    private int durationSeconds = 30;
+
+    /**
+     * 开启/关闭交替的轮数，奇数轮先测关闭，偶数轮先测开启，减少JIT顺序带来的偏差
+     */
+    private int rounds = 1;
+
+    /**
+     * 请求方法：GET或POST
+     */
+    private String method = "GET";
+
+    /**
+     * 响应体（GET）或请求体（POST）字节数
+     */
+    private int payloadSize = 256;
+
+    /**
+     * 请求路径，默认为无休眠的压测接口，也可指定DemoController的接口
+     */
+    private String path = "/api/load/echo";
+
+    /**
+     * 是否开启o-log的延迟渲染
+     */
+    private boolean deferredRendering = false;
+
+    /**
+     * 解析命令行参数
+     */
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "mode":
+                    options.setMode(value);
+                    break;
+                case "rate":
+                    options.setRate(Integer.parseInt(value));
+                    break;
+                case "connections":
+                    options.setConnections(Integer.parseInt(value));
+                    break;
+                case "warmup":
+                    options.setWarmupSeconds(Integer.parseInt(value));
+                    break;
+                case "duration":
+                    options.setDurationSeconds(Integer.parseInt(value));
+                    break;
+                case "rounds":
+                    options.setRounds(Integer.parseInt(value));
+                    break;
+                case "method":
+                    options.setMethod(value.toUpperCase());
+                    break;
+                case "payload":
+                    options.setPayloadSize(Integer.parseInt(value));
+                    break;
+                case "path":
+                    options.setPath(value);
+                    break;
+                case "deferred":
+                    options.setDeferredRendering(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + name);
+            }
+        }
+        if (!"open".equals(options.getMode()) && !"closed".equals(options.getMode())) {
+            throw new IllegalArgumentException("mode只能为open或closed");
+        }
+        return options;
+    }
+
+    /**
+     * 是否为开环模式
+     */
+    public boolean isOpenLoop() {
+        return "open".equals(mode);
+    }
+}
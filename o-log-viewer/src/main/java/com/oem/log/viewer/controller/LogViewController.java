@@ -1,15 +1,33 @@
 package com.oem.log.viewer.controller;
 
+import com.oem.log.viewer.model.DashboardRequest;
+import com.oem.log.viewer.model.DashboardResult;
+import com.oem.log.viewer.model.LogAggregateRequest;
+import com.oem.log.viewer.model.LogAggregateResult;
 import com.oem.log.viewer.model.LogQueryRequest;
 import com.oem.log.viewer.model.LogQueryResult;
+import com.oem.log.viewer.model.QueryCacheStats;
+import com.oem.log.viewer.model.QueryStats;
+import com.oem.log.viewer.model.SegmentCatalogStats;
+import com.oem.log.viewer.model.SegmentPoolStats;
+import com.oem.log.viewer.service.FederatedQueryService;
+import com.oem.log.viewer.service.LiveTailService;
 import com.oem.log.viewer.service.LogQueryService;
+import com.oem.log.viewer.service.MappedSegmentPool;
+import com.oem.log.viewer.service.QueryScheduler;
+import com.oem.log.viewer.service.RollupQueryService;
+import com.oem.log.viewer.service.SegmentCatalog;
+import com.oem.log.viewer.service.SegmentMatchCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -23,6 +41,27 @@ public class LogViewController {
     @Autowired
     private LogQueryService logQueryService;
     
+    @Autowired
+    private RollupQueryService rollupQueryService;
+    
+    @Autowired
+    private SegmentMatchCache segmentMatchCache;
+    
+    @Autowired
+    private MappedSegmentPool mappedSegmentPool;
+    
+    @Autowired
+    private SegmentCatalog segmentCatalog;
+    
+    @Autowired
+    private QueryScheduler queryScheduler;
+    
+    @Autowired
+    private LiveTailService liveTailService;
+    
+    @Autowired
+    private FederatedQueryService federatedQueryService;
+    
     /**
      * 日志查询页面
      */
@@ -38,6 +77,7 @@ public class LogViewController {
         request.setStartTime(calendar.getTime());
         
         model.addAttribute("request", request);
+        model.addAttribute("federationEnabled", federatedQueryService.isEnabled());
         return "index";
     }
     
@@ -49,4 +89,103 @@ public class LogViewController {
     public LogQueryResult queryLogs(@ModelAttribute LogQueryRequest request) {
         return logQueryService.queryLogs(request);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 跨节点查询API：并行查询配置的各应用节点并按请求时间归并
+     */
+    @PostMapping("/api/logs/federated")
+    @ResponseBody
+    public LogQueryResult queryFederated(@ModelAttribute LogQueryRequest request) {
+        return federatedQueryService.query(request);
+    }
+    
+    /**
+     * 聚合日志API：按维度和时间桶统计请求数、错误率和耗时百分位
+     */
+    @PostMapping("/api/logs/aggregate")
+    @ResponseBody
+    public LogAggregateResult aggregateLogs(@ModelAttribute LogAggregateRequest request) {
+        return logQueryService.aggregateLogs(request);
+    }
+    
+    /**
+     * 取消排队中或执行中的查询，页面关闭或发起新查询时调用
+     */
+    @PostMapping("/api/logs/cancel")
+    @ResponseBody
+    public boolean cancelQuery(@RequestParam("queryId") String queryId) {
+        return queryScheduler.cancel(queryId);
+    }
+    
+    /**
+     * 实时跟踪：以SSE推送之后写入且匹配过滤条件的日志
+     */
+    @GetMapping(value = "/api/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter tail(@ModelAttribute LogQueryRequest request) {
+        return liveTailService.subscribe(request);
+    }
+    
+    /**
+     * 查询调度统计：并发、排队、拒绝、取消、超时
+     */
+    @GetMapping("/api/query/stats")
+    @ResponseBody
+    public QueryStats queryStats() {
+        return queryScheduler.getStats();
+    }
+    
+    /**
+     * 查询结果缓存命中统计
+     */
+    @GetMapping("/api/cache/stats")
+    @ResponseBody
+    public QueryCacheStats cacheStats() {
+        return segmentMatchCache.getStats();
+    }
+    
+    /**
+     * 文件映射池统计
+     */
+    @GetMapping("/api/segment-pool/stats")
+    @ResponseBody
+    public SegmentPoolStats segmentPoolStats() {
+        return mappedSegmentPool.getStats();
+    }
+    
+    /**
+     * 常驻索引统计
+     */
+    @GetMapping("/api/catalog/stats")
+    @ResponseBody
+    public SegmentCatalogStats catalogStats() {
+        return segmentCatalog.getStats();
+    }
+    
+    /**
+     * 接口看板页面
+     */
+    @GetMapping("/dashboard")
+    public String dashboard(Model model) {
+        // 默认展示最近1小时的数据
+        DashboardRequest request = new DashboardRequest();
+        
+        Calendar calendar = Calendar.getInstance();
+        request.setEndTime(calendar.getTime());
+        
+        calendar.add(Calendar.HOUR, -1);
+        request.setStartTime(calendar.getTime());
+        
+        model.addAttribute("request", request);
+        return "dashboard";
+    }
+    
+    /**
+     * 接口看板API，基于写入端生成的汇总文件
+     */
+    @PostMapping("/api/dashboard")
+    @ResponseBody
+    public DashboardResult queryDashboard(@ModelAttribute DashboardRequest request) {
+        return rollupQueryService.queryDashboard(request);
+    }
+}
@@ -0,0 +1,35 @@
+package com.oem.log.viewer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 查询扫描单个数据文件的事件
+ */
+@Name("com.oem.log.FileScan")
+@Label("o-log文件扫描")
+@Description("日志查询扫描并过滤单个数据文件")
+@Category({"o-log", "查询"})
+@StackTrace(false)
+public class LogFileScanEvent extends jdk.jfr.Event {
+
+    @Label("数据文件")
+    public String file;
+
+    @Label("文件字节数")
+    @DataAmount
+    public long fileBytes;
+
+    @Label("扫描条数")
+    public int scanned;
+
+    @Label("匹配条数")
+    public int matched;
+
+    @Label("是否失败")
+    public boolean failed;
+}
@@ -0,0 +1,35 @@
+package com.oem.log.viewer.model;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * 接口看板查询请求
+ */
+@Data
+public class DashboardRequest {
+
+    /**
+     * 开始时间
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date startTime;
+
+    /**
+     * 结束时间
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date endTime;
+
+    /**
+     * 接口路径（模糊匹配）
+     */
+    private String path;
+
+    /**
+     * 请求方法
+     */
+    private String method;
+}
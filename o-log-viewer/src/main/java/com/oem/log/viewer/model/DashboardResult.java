@@ -0,0 +1,76 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 接口看板查询结果
+ */
+@Data
+@Builder
+public class DashboardResult {
+
+    /**
+     * 使用的汇总粒度（秒）
+     */
+    private int resolutionSeconds;
+
+    /**
+     * 各接口汇总，按请求量倒序
+     */
+    private List<EndpointStats> endpoints;
+
+    /**
+     * 按窗口的趋势数据，按时间正序
+     */
+    private List<SeriesPoint> series;
+
+    /**
+     * 读取的汇总文件数
+     */
+    private int scannedFiles;
+
+    /**
+     * 查询耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 提示信息
+     */
+    private String message;
+
+    /**
+     * 单个接口的RED指标
+     */
+    @Data
+    @Builder
+    public static class EndpointStats {
+        private String path;
+        private String method;
+        private String statusClass;
+        private long count;
+        private long errorCount;
+        private double errorRate;
+        private double ratePerSecond;
+        private double avgMillis;
+        private long p50Millis;
+        private long p90Millis;
+        private long p99Millis;
+        private long maxMillis;
+    }
+
+    /**
+     * 单个窗口的趋势点
+     */
+    @Data
+    @Builder
+    public static class SeriesPoint {
+        private long windowStart;
+        private long count;
+        private long errorCount;
+        private long p99Millis;
+    }
+}
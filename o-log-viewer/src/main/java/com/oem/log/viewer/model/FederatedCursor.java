@@ -0,0 +1,46 @@
+package com.oem.log.viewer.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 跨节点查询的翻页游标，编码为Base64后作为不透明的字符串返回给调用方
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FederatedCursor {
+
+    /**
+     * 查询条件和节点列表的指纹，变化后游标失效
+     */
+    private int filterHash;
+
+    /**
+     * 第一页查询时确定的结束时间（毫秒时间戳），之后新写入的记录不出现在后续页中
+     */
+    private long endTime;
+
+    /**
+     * 各节点的续读位置，节点已读完时不在其中
+     */
+    private Map<String, NodePosition> nodes;
+
+    /**
+     * 单个节点的续读位置：从请求时间不晚于time的记录继续，并跳过其中请求时间等于time的前skip条（上一页已返回）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NodePosition {
+
+        private long time;
+
+        private int skip;
+    }
+}
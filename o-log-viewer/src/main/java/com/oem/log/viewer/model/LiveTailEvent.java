@@ -0,0 +1,25 @@
+package com.oem.log.viewer.model;
+
+import com.oem.log.core.model.ApiLog;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 实时跟踪推送的一批日志
+ */
+@Data
+@Builder
+public class LiveTailEvent {
+
+    /**
+     * 自上次推送以来新增的匹配日志，按写入顺序
+     */
+    private List<ApiLog> logs;
+
+    /**
+     * 客户端消费过慢、缓冲溢出而丢弃的日志数
+     */
+    private int dropped;
+}
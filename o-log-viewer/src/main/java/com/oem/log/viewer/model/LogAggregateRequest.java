@@ -0,0 +1,23 @@
+package com.oem.log.viewer.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 日志聚合请求
+ * 过滤条件与日志查询相同，分页和游标参数不生效
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class LogAggregateRequest extends LogQueryRequest {
+    
+    /**
+     * 分组维度，逗号分隔，可选path、method、status、host，为空时不分组
+     */
+    private String groupBy = "path";
+    
+    /**
+     * 时间桶宽度（秒），大于0时按请求时间分桶
+     */
+    private int bucketSeconds;
+}
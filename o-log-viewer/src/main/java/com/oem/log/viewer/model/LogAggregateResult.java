@@ -0,0 +1,80 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 日志聚合结果
+ */
+@Data
+@Builder
+public class LogAggregateResult {
+    
+    /**
+     * 各分组的统计，按时间桶正序、桶内按请求量倒序
+     */
+    private List<GroupStats> groups;
+    
+    /**
+     * 时间桶宽度（秒），0表示未分桶
+     */
+    private int bucketSeconds;
+    
+    /**
+     * 扫描的数据文件数
+     */
+    private int scannedFiles;
+    
+    /**
+     * 扫描的记录数
+     */
+    private long scannedRecords;
+    
+    /**
+     * 匹配过滤条件的记录数
+     */
+    private long matchedRecords;
+    
+    /**
+     * 分组数超过上限，超出部分已归并到路径为_other_的分组
+     */
+    private boolean truncated;
+    
+    /**
+     * 查询耗时（毫秒）
+     */
+    private long elapsedMillis;
+    
+    /**
+     * 提示信息
+     */
+    private String message;
+    
+    /**
+     * 查询计划和执行统计，请求中explain为true时返回
+     */
+    private QueryExplain explain;
+    
+    /**
+     * 单个分组的统计，未参与分组的维度为null
+     */
+    @Data
+    @Builder
+    public static class GroupStats {
+        private Long bucketStart;
+        private String path;
+        private String method;
+        private Integer statusCode;
+        private String hostname;
+        private long count;
+        private long errorCount;
+        private double errorRate;
+        private double avgMillis;
+        private long p50Millis;
+        private long p90Millis;
+        private long p99Millis;
+        private long maxMillis;
+    }
+}
@@ -48,6 +48,21 @@ public class LogQueryRequest {
      */
     private String errorKeyword;
     
+    /**
+     * 请求参数或响应体关键词
+     */
+    private String bodyKeyword;
+    
+    /**
+     * 查询语句，支持AND/OR/NOT、括号、正则和比较运算，与上面的条件按与合并
+     */
+    private String query;
+    
+    /**
+     * 是否在结果中附带查询计划和各阶段统计
+     */
+    private boolean explain;
+    
     /**
      * 当前页
      */
@@ -57,4 +72,14 @@ public class LogQueryRequest {
      * 每页记录数
      */
     private int pageSize = 20;
+    
+    /**
+     * 翻页游标，取自上一页结果的nextCursor，存在时忽略page
+     */
+    private String cursor;
+    
+    /**
+     * 客户端生成的查询标识，用于取消仍在执行或排队的查询
+     */
+    private String queryId;
 } 
\ No newline at end of file
@@ -14,10 +14,20 @@ import java.util.List;
 public class LogQueryResult {
     
     /**
-     * 总记录数
+     * 已归并的记录数，hasMore为true时只是下限
      */
     private int total;
     
+    /**
+     * 当前页之后是否还有记录，查询在页填满后提前终止时为true
+     */
+    private boolean hasMore;
+    
+    /**
+     * 下一页游标，没有更多记录时为null
+     */
+    private String nextCursor;
+    
     /**
      * 日志列表
      */
@@ -27,4 +37,19 @@ public class LogQueryResult {
      * 提示信息
      */
     private String message;
+    
+    /**
+     * 查询计划和执行统计，请求中explain为true时返回
+     */
+    private QueryExplain explain;
+    
+    /**
+     * 跨节点查询时各节点的执行情况
+     */
+    private List<NodeQueryStatus> nodes;
+    
+    /**
+     * 跨节点查询时是否有节点失败或超时，为true时本页只含其余节点的记录
+     */
+    private boolean partial;
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 跨节点查询中单个节点的执行情况
+ */
+@Data
+@Builder
+public class NodeQueryStatus {
+
+    /**
+     * 节点地址
+     */
+    private String node;
+
+    /**
+     * 是否在超时前返回了结果
+     */
+    private boolean success;
+
+    /**
+     * 是否因超时放弃
+     */
+    private boolean timedOut;
+
+    /**
+     * 节点是否因扫描超过时间预算只返回了部分记录
+     */
+    private boolean partial;
+
+    /**
+     * 节点返回的记录数（不含续读时跳过的记录）
+     */
+    private int returned;
+
+    /**
+     * 本页用到的记录数
+     */
+    private int used;
+
+    /**
+     * 请求耗时（毫秒），超时的节点为超时时间
+     */
+    private long elapsedMillis;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+}
@@ -0,0 +1,52 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 查询结果缓存统计
+ */
+@Data
+@Builder
+public class QueryCacheStats {
+
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled;
+
+    /**
+     * 按文件计的命中次数
+     */
+    private long hits;
+
+    /**
+     * 按文件计的未命中次数
+     */
+    private long misses;
+
+    /**
+     * 命中率
+     */
+    private double hitRate;
+
+    /**
+     * 因超出内存上限被淘汰的条目数
+     */
+    private long evictions;
+
+    /**
+     * 当前条目数
+     */
+    private int entries;
+
+    /**
+     * 当前估算占用字节数
+     */
+    private long usedBytes;
+
+    /**
+     * 内存上限（字节）
+     */
+    private long maxBytes;
+}
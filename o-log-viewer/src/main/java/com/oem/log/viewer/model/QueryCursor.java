@@ -0,0 +1,33 @@
+package com.oem.log.viewer.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 翻页游标，编码为Base64后作为不透明的字符串返回给调用方
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryCursor {
+
+    /**
+     * 上一页最后一条记录的请求时间（ISO格式），游标生成后新出现的文件只返回早于该时间的记录
+     */
+    private String lastRequestTime;
+
+    /**
+     * 查询条件指纹，条件变化后游标失效
+     */
+    private int filterHash;
+
+    /**
+     * 各数据文件下一条待读记录的索引序号，-1表示该文件已读完
+     */
+    private Map<String, Integer> segments;
+}
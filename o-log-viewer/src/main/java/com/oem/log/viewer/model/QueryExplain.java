@@ -0,0 +1,125 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 查询计划和执行统计，请求中explain为true时随结果返回
+ */
+@Data
+@Builder
+public class QueryExplain {
+
+    /**
+     * 编译后的条件树（不含时间范围）
+     */
+    private String predicate;
+
+    /**
+     * 判断条件所需的解码程度：PROBE、DIMENSION、FULL
+     */
+    private String decodeLevel;
+
+    /**
+     * 时间窗口内的数据文件数
+     */
+    private int totalSegments;
+
+    /**
+     * 按时间范围、文件摘要或词元索引跳过的文件数
+     */
+    private int skippedSegments;
+
+    /**
+     * 实际打开扫描的文件数
+     */
+    private int scannedSegments;
+
+    /**
+     * 逐条过滤的记录数
+     */
+    private long scannedRecords;
+
+    /**
+     * 完整反序列化的记录数
+     */
+    private long decodedRecords;
+
+    /**
+     * 返回前归并的匹配记录数
+     */
+    private long matchedRecords;
+
+    /**
+     * 解析查询语句耗时（微秒）
+     */
+    private long parseMicros;
+
+    /**
+     * 生成查询计划耗时（微秒），含读取文件摘要和估算索引候选数；聚合查询中各文件并行生成计划，为各文件耗时之和
+     */
+    private long planMicros;
+
+    /**
+     * 扫描和归并耗时（微秒），聚合查询中含生成计划
+     */
+    private long executeMicros;
+
+    /**
+     * 总耗时（微秒）
+     */
+    private long totalMicros;
+
+    /**
+     * 各文件的计划和统计
+     */
+    private List<SegmentExplain> segments;
+
+    /**
+     * 单个文件的计划和统计，跳过的文件没有扫描统计
+     */
+    @Data
+    @Builder
+    public static class SegmentExplain {
+
+        private String file;
+
+        /**
+         * 文件记录数
+         */
+        private int records;
+
+        /**
+         * 扫描方式：SKIP_TIME、SKIP_SUMMARY、SKIP_INDEX、TOKEN_INDEX、PARALLEL_SCAN、FULL_SCAN
+         */
+        private String strategy;
+
+        /**
+         * 选择该方式的依据
+         */
+        private String reason;
+
+        /**
+         * 估算的匹配记录数上限，-1表示无法估算
+         */
+        private long estimatedRecords;
+
+        /**
+         * 词元索引给出的候选记录数，未使用索引时为null
+         */
+        private Integer candidates;
+
+        private long scannedRecords;
+
+        private long decodedRecords;
+
+        private long matchedRecords;
+
+        /**
+         * 在该文件上扫描和解码的耗时（微秒）
+         */
+        private long scanMicros;
+    }
+}
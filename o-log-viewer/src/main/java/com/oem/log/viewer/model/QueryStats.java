@@ -0,0 +1,62 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 查询调度统计
+ */
+@Data
+@Builder
+public class QueryStats {
+
+    /**
+     * 最大并发查询数
+     */
+    private int maxConcurrent;
+
+    /**
+     * 正在执行的查询数
+     */
+    private int running;
+
+    /**
+     * 正在排队的查询数
+     */
+    private int queued;
+
+    /**
+     * 累计执行的查询数
+     */
+    private long admitted;
+
+    /**
+     * 因排队已满或等待超时被拒绝的查询数
+     */
+    private long rejected;
+
+    /**
+     * 被客户端取消的查询数
+     */
+    private long cancelled;
+
+    /**
+     * 执行超时的查询数
+     */
+    private long timedOut;
+
+    /**
+     * 因超出内存预算被截断的查询数
+     */
+    private long truncated;
+
+    /**
+     * 平均排队时间（毫秒）
+     */
+    private double avgQueueWaitMs;
+
+    /**
+     * 最长排队时间（毫秒）
+     */
+    private long maxQueueWaitMs;
+}
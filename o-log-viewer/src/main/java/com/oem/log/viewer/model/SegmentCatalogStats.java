@@ -0,0 +1,52 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 常驻索引统计
+ */
+@Data
+@Builder
+public class SegmentCatalogStats {
+
+    /**
+     * 是否在运行，未运行时查询按原方式列目录和扫描
+     */
+    private boolean running;
+
+    /**
+     * 登记的数据文件数
+     */
+    private int files;
+
+    /**
+     * 建立了内存列的文件数
+     */
+    private int indexedFiles;
+
+    /**
+     * 内存列中的记录数
+     */
+    private long indexedEntries;
+
+    /**
+     * 内存列记录数上限
+     */
+    private long maxEntries;
+
+    /**
+     * 内存列估算占用的字节数（不含路径字典）
+     */
+    private long approxBytes;
+
+    /**
+     * 因超出上限被释放内存列的文件数
+     */
+    private long evictions;
+
+    /**
+     * 重新列目录的次数
+     */
+    private long rescans;
+}
@@ -0,0 +1,52 @@
+package com.oem.log.viewer.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 文件映射池统计
+ */
+@Data
+@Builder
+public class SegmentPoolStats {
+
+    /**
+     * 当前映射的文件数
+     */
+    private int segments;
+
+    /**
+     * 正在被查询使用的文件数
+     */
+    private int inUse;
+
+    /**
+     * 当前映射的字节数
+     */
+    private long mappedBytes;
+
+    /**
+     * 映射字节数上限
+     */
+    private long maxMappedBytes;
+
+    /**
+     * 复用已有映射的次数
+     */
+    private long hits;
+
+    /**
+     * 新建映射的次数
+     */
+    private long misses;
+
+    /**
+     * 映射复用率
+     */
+    private double hitRate;
+
+    /**
+     * 因超出上限被解除映射的文件数
+     */
+    private long evictions;
+}
@@ -0,0 +1,46 @@
+package com.oem.log.viewer.query;
+
+import com.oem.log.core.query.LogField;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QueryParser;
+import com.oem.log.core.query.QuerySyntaxException;
+import com.oem.log.viewer.model.LogQueryRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把查询页面的表单条件和查询语句编译为条件树
+ */
+public final class QueryCompiler {
+
+    private QueryCompiler() {
+    }
+
+    /**
+     * 把表单条件和查询语句合并为一棵条件树（与），不含时间范围
+     * @throws QuerySyntaxException 查询语句有误
+     */
+    public static LogPredicate compile(LogQueryRequest request) {
+        List<LogPredicate> parts = new ArrayList<>();
+        if (request.getPath() != null && !request.getPath().isEmpty()) {
+            parts.add(LogPredicate.Match.text(LogField.PATH, LogPredicate.Match.Op.CONTAINS, request.getPath()));
+        }
+        if (request.getStatusCode() > 0) {
+            parts.add(LogPredicate.Match.range(LogField.STATUS, request.getStatusCode(), request.getStatusCode()));
+        }
+        if (request.getMinDuration() > 0 || request.getMaxDuration() > 0) {
+            parts.add(LogPredicate.Match.range(LogField.DURATION,
+                    request.getMinDuration() > 0 ? request.getMinDuration() : Long.MIN_VALUE,
+                    request.getMaxDuration() > 0 ? request.getMaxDuration() : Long.MAX_VALUE));
+        }
+        if (request.getErrorKeyword() != null && !request.getErrorKeyword().isEmpty()) {
+            parts.add(LogPredicate.Match.text(LogField.EXCEPTION, LogPredicate.Match.Op.CONTAINS, request.getErrorKeyword()));
+        }
+        if (request.getBodyKeyword() != null && !request.getBodyKeyword().isEmpty()) {
+            parts.add(LogPredicate.Match.text(LogField.BODY, LogPredicate.Match.Op.CONTAINS, request.getBodyKeyword()));
+        }
+        parts.add(QueryParser.parse(request.getQuery()));
+        return LogPredicate.and(parts);
+    }
+}
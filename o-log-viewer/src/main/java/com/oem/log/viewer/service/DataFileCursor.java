@@ -0,0 +1,730 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.serializer.LogRecordProbe;
+import com.oem.log.viewer.jfr.LogFileScanEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 单个数据文件的倒序游标
+ * 记录按写入顺序（即请求完成顺序）从新到旧产出，每次只解码一条记录。
+ * 有索引文件时直接从索引末尾向前读取记录位置；没有索引时先顺序扫描长度前缀收集记录起点，再倒序访问。
+ * 启用并行扫描后按序号把文件切成块，每块再按序号区间拆分给fork/join线程过滤，块内命中的记录按序号倒序依次产出
+ */
+@Slf4j
+class DataFileCursor implements Closeable {
+
+    // 索引项：8字节数据位置 + 4字节记录大小（含长度前缀）
+    static final int INDEX_ENTRY_SIZE = 12;
+
+    /**
+     * 从文件末尾开始读取
+     */
+    static final int FROM_END = Integer.MAX_VALUE;
+
+    // 每扫描这么多条记录重新评估一次是否跳过字段探测
+    private static final int PROBE_DECISION_INTERVAL = 256;
+
+    // 并行扫描时每个线程每块至少处理的记录数，块大小从预算×该值开始，逐块翻倍到16倍
+    private static final int ENTRIES_PER_TASK = 1024;
+    private static final int MAX_BLOCK_GROWTH = 16;
+
+    // 并行扫描的工作线程各自复用一个探测器
+    private static final ThreadLocal<LogRecordProbe> TASK_PROBES = ThreadLocal.withInitial(LogRecordProbe::new);
+    private static final ThreadLocal<LogRecordProbe> TASK_DIMENSION_PROBES =
+            ThreadLocal.withInitial(() -> new LogRecordProbe(true));
+
+    private final File dataFile;
+    private final JsonLogSerializer serializer;
+    private final Predicate<ApiLog> filter;
+    private final LocalDateTime stopBefore;
+    private final LogFileScanEvent scanEvent = new LogFileScanEvent();
+    private LogRecordProbe probe = new LogRecordProbe();
+    private boolean dimensions;
+
+    // 映射由调用方获取，游标关闭时释放
+    private final MappedSegment dataSegment;
+    private final MappedSegment indexSegment;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private int[] offsets;
+
+    // 最后一条记录的序号，即打开时的记录数-1
+    private int top;
+
+    // 下一条待读记录的序号，从top递减到0
+    private int nextEntry;
+    private int currentEntry = -1;
+    private ApiLog current;
+    private int scanned;
+    private int matched;
+    private int decoded;
+    private long scanNanos;
+
+    // 大部分记录都命中时，先探测字段再完整解码反而多解析一遍，改为直接完整解码
+    private boolean fullDecode;
+
+    // 过滤条件需要探测范围以外的字段时始终完整解码
+    private boolean fullDecodeRequired;
+
+    // 词元索引给出的候选序号（升序），不为null时只校验候选记录
+    private int[] candidates;
+    private int candidatesCovered = Integer.MAX_VALUE;
+    private int candidatePos;
+
+    // locate定位到的记录位置和大小（含长度前缀）
+    private int recordPosition;
+    private int recordSize;
+
+    // 取消标记，为null时不检查
+    private QueryContext context;
+    private int sinceCheck;
+
+    // 并行扫描：当前块命中的序号（倒序）及产出位置
+    private SegmentScanExecutor scanExecutor;
+    private int blockSize;
+    private int[] block;
+    private int blockCount;
+    private int blockPos;
+
+    // 已缓存的匹配结果，覆盖范围内直接按序号解码，不再逐条过滤
+    private SegmentMatchCache cache;
+    private String cacheKey;
+    private SegmentMatches cached;
+    private int cachedPos;
+
+    // 与缓存覆盖范围相接的新扫描结果，关闭时合并写回缓存
+    private boolean recordingDecided;
+    private boolean recording;
+    private int[] fresh;
+    private int freshCount;
+    private int freshFrontier;
+
+    /**
+     * @param dataFile 数据文件
+     * @param dataSegment 数据文件的映射
+     * @param indexSegment 对应索引文件的映射，没有索引时传null
+     * @param filter 记录过滤条件
+     * @param startTime 查询起点，为null时扫描到文件开头
+     * @param maxWriteLagMillis 文件摘要记录的最大写入延迟，-1表示未知，此时扫描到文件开头
+     * @param resumeEntry 从该序号（含）开始向前读取，FROM_END表示从最后一条开始
+     */
+    DataFileCursor(File dataFile, MappedSegment dataSegment, MappedSegment indexSegment, JsonLogSerializer serializer,
+                   Predicate<ApiLog> filter, LocalDateTime startTime, long maxWriteLagMillis, int resumeEntry) {
+        this.dataFile = dataFile;
+        this.dataSegment = dataSegment;
+        this.indexSegment = indexSegment;
+        this.data = dataSegment.buffer();
+        this.index = indexSegment != null ? indexSegment.buffer() : null;
+        this.serializer = serializer;
+        this.filter = filter;
+        // 写入线程按到达顺序批量追加，完成时间在文件内并非严格递减：一条记录完成时间加上最大写入延迟早于查询起点时，
+        // 之前写入的记录完成得更早，不可能落在时间范围内；延迟未知（没有摘要、文件仍在写入）时不提前停止
+        this.stopBefore = startTime != null && maxWriteLagMillis >= 0
+                ? startTime.minusNanos(maxWriteLagMillis * 1_000_000) : null;
+        scanEvent.begin();
+
+        if (index != null) {
+            // 有索引时按序号直接定位，续读深页与读第一页的代价相同
+            top = countIndexEntries(index) - 1;
+        } else {
+            offsets = scanOffsets(data);
+            top = offsets.length - 1;
+        }
+        nextEntry = Math.min(top, resumeEntry);
+    }
+
+    /**
+     * 启用匹配结果缓存，需在第一次advance之前调用
+     * @param filterKey 规范化的查询条件，过滤条件中含有不属于该条件的部分时不能使用缓存
+     */
+    void attachCache(SegmentMatchCache cache, String filterKey) {
+        this.cache = cache;
+        this.cacheKey = SegmentMatchCache.key(filterKey, dataFile.getName(), top + 1);
+        this.cached = cache.get(cacheKey);
+    }
+
+    /**
+     * 启用块内并行扫描，需在第一次advance之前调用
+     */
+    void attachExecutor(SegmentScanExecutor executor) {
+        this.scanExecutor = executor;
+        this.blockSize = executor.getParallelism() * ENTRIES_PER_TASK;
+    }
+
+    /**
+     * 过滤条件用到字段探测范围以外的字段时调用，所有记录先完整解码再过滤，需在第一次advance之前调用
+     */
+    void requireFullDecode() {
+        fullDecode = true;
+        fullDecodeRequired = true;
+    }
+
+    /**
+     * 过滤条件用到方法或主机名时调用，字段探测时一并取出，需在第一次advance之前调用
+     */
+    void requireDimensions() {
+        dimensions = true;
+        probe = new LogRecordProbe(true);
+    }
+
+    /**
+     * 只校验词元索引给出的候选记录，其余记录不可能命中，直接跳过。需在第一次advance之前调用，不能与并行扫描同时使用
+     * @param candidates 候选记录序号，升序
+     */
+    void attachCandidates(int[] candidates) {
+        attachCandidates(candidates, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 同上，序号不小于covered的记录不在候选范围内，逐条过滤
+     * @param covered 候选序号覆盖的记录数
+     */
+    void attachCandidates(int[] candidates, int covered) {
+        this.candidates = candidates;
+        this.candidatePos = candidates.length - 1;
+        this.candidatesCovered = covered;
+    }
+
+    /**
+     * 在扫描循环中检查取消和超时，需在第一次advance之前调用
+     */
+    void attachContext(QueryContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 打开时的记录数
+     */
+    int entryCount() {
+        return top + 1;
+    }
+
+    /**
+     * 查找数据文件对应的索引文件：同目录下或上级目录的index子目录下的同名.index文件
+     */
+    static File indexFileFor(File dataFile) {
+        String name = dataFile.getName();
+        String indexName = name.substring(0, name.length() - ".data".length()) + ".index";
+        File sibling = new File(dataFile.getParentFile(), indexName);
+        if (sibling.isFile()) {
+            return sibling;
+        }
+        File parent = dataFile.getAbsoluteFile().getParentFile().getParentFile();
+        if (parent != null) {
+            File indexDir = new File(new File(parent, "index"), indexName);
+            if (indexDir.isFile()) {
+                return indexDir;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 移动到下一条满足过滤条件的记录
+     * @return 没有更多记录时返回false
+     */
+    boolean advance() {
+        long begin = System.nanoTime();
+        try {
+            return doAdvance();
+        } finally {
+            scanNanos += System.nanoTime() - begin;
+        }
+    }
+
+    private boolean doAdvance() {
+        current = null;
+        currentEntry = -1;
+
+        // 缓存覆盖范围内只解码匹配的记录
+        if (cached != null && nextEntry > cached.frontier) {
+            int[] ordinals = cached.ordinals;
+            while (cachedPos < ordinals.length && ordinals[cachedPos] > nextEntry) {
+                cachedPos++;
+            }
+            while (cachedPos < ordinals.length) {
+                checkCancelled();
+                int entry = ordinals[cachedPos++];
+                nextEntry = entry - 1;
+                ApiLog apiLog = decodeQuietly(entry);
+                if (apiLog != null) {
+                    scanned++;
+                    matched++;
+                    current = apiLog;
+                    currentEntry = entry;
+                    return true;
+                }
+                if (scanEvent.failed) {
+                    return false;
+                }
+            }
+            // 覆盖范围已读完，从缓存的扫描边界继续向前扫描
+            nextEntry = cached.frontier;
+        }
+
+        if (scanExecutor != null) {
+            return advanceParallel();
+        }
+
+        while (nextEntry >= 0) {
+            checkCancelled();
+            if (!recordingDecided) {
+                recordingDecided = true;
+                recording = cache != null && nextEntry == (cached != null ? cached.frontier : top);
+                fresh = recording ? new int[64] : null;
+            }
+            if (candidates != null && !skipToCandidate()) {
+                return false;
+            }
+            int entry = nextEntry--;
+
+            // 先只解析过滤字段，命中后再完整反序列化；解码方式可能在本条中途切换，以读取时的为准
+            boolean decodedFully = fullDecode;
+            ApiLog fields = decodedFully ? decodeQuietly(entry) : probeQuietly(entry);
+            if (fields == null) {
+                if (scanEvent.failed) {
+                    recording = false;
+                    return false;
+                }
+                markScanned(entry, false);
+                continue;
+            }
+            scanned++;
+            if (scanned % PROBE_DECISION_INTERVAL == 0 && !fullDecodeRequired) {
+                fullDecode = matched * 2 > scanned;
+            }
+
+            // 倒序扫描到完成时间早于查询起点的记录后，更早写入的记录不可能落在时间范围内
+            if (stopBefore != null && fields.getRequestTime() != null
+                    && fields.getRequestTime().plusNanos(fields.getExecutionTime() * 1_000_000).isBefore(stopBefore)) {
+                nextEntry = -1;
+                freshFrontier = -1;
+                return false;
+            }
+
+            if (!filter.test(fields)) {
+                markScanned(entry, false);
+                continue;
+            }
+            ApiLog apiLog = decodedFully ? fields : decodeQuietly(entry);
+            if (apiLog == null) {
+                recording = false;
+                return false;
+            }
+            markScanned(entry, true);
+            matched++;
+            current = apiLog;
+            currentEntry = entry;
+            return true;
+        }
+        return false;
+    }
+
+    // 跳到不大于nextEntry的最大候选序号，跳过的记录视为已扫描且未命中；候选覆盖范围之后的记录不跳过；没有候选时返回false
+    private boolean skipToCandidate() {
+        if (nextEntry >= candidatesCovered) {
+            return true;
+        }
+        while (candidatePos >= 0 && candidates[candidatePos] > nextEntry) {
+            candidatePos--;
+        }
+        int target = candidatePos >= 0 ? candidates[candidatePos] : -1;
+        if (target < nextEntry) {
+            markScanned(target + 1, false);
+            nextEntry = target;
+        }
+        return nextEntry >= 0;
+    }
+
+    // 并行模式：依次产出当前块的命中记录，块用完后并行扫描下一块
+    private boolean advanceParallel() {
+        while (true) {
+            while (blockPos < blockCount) {
+                int entry = block[blockPos++];
+                ApiLog apiLog = decodeQuietly(entry);
+                if (apiLog != null) {
+                    matched++;
+                    current = apiLog;
+                    currentEntry = entry;
+                    return true;
+                }
+                if (scanEvent.failed) {
+                    recording = false;
+                    return false;
+                }
+            }
+            if (nextEntry < 0) {
+                return false;
+            }
+
+            int high = nextEntry;
+            int low = Math.max(0, high - blockSize + 1);
+            if (!recordingDecided) {
+                recordingDecided = true;
+                recording = cache != null && high == (cached != null ? cached.frontier : top);
+                fresh = recording ? new int[64] : null;
+            }
+
+            RangeResult result = scanExecutor.invoke(new RangeScan(high, low, scanExecutor.getParallelism(), new AtomicInteger(-1)));
+            if (context != null) {
+                context.check();
+            }
+            blockSize = Math.min(blockSize * 2, scanExecutor.getParallelism() * ENTRIES_PER_TASK * MAX_BLOCK_GROWTH);
+            scanned += result.scanned;
+            block = result.ordinals;
+            blockCount = result.count;
+            blockPos = 0;
+            nextEntry = result.stopped ? -1 : low - 1;
+
+            if (result.failed) {
+                scanEvent.failed = true;
+                log.error("读取日志文件失败: " + dataFile.getName(), result.error);
+                recording = false;
+            }
+            if (recording) {
+                if (freshCount + blockCount > fresh.length) {
+                    fresh = Arrays.copyOf(fresh, Math.max(fresh.length * 2, freshCount + blockCount));
+                }
+                System.arraycopy(block, 0, fresh, freshCount, blockCount);
+                freshCount += blockCount;
+                freshFrontier = nextEntry;
+            }
+        }
+    }
+
+    /**
+     * 并行过滤[low, high]区间的记录，最多拆成parts个叶子任务，叶子内倒序扫描。
+     * 与顺序扫描语义一致：遇到早于查询起点的记录或解码失败即停止，更小序号上的结果被丢弃
+     */
+    private final class RangeScan extends RecursiveTask<RangeResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        // 检查是否已在更高序号处停止的间隔
+        private static final int STOP_CHECK_INTERVAL = 64;
+
+        private final int high;
+        private final int low;
+        private final int parts;
+
+        // 本块中已停止扫描的最高序号，更低区间的任务据此提前结束
+        private final AtomicInteger stoppedAt;
+
+        RangeScan(int high, int low, int parts, AtomicInteger stoppedAt) {
+            this.high = high;
+            this.low = low;
+            this.parts = parts;
+            this.stoppedAt = stoppedAt;
+        }
+
+        @Override
+        protected RangeResult compute() {
+            int size = high - low + 1;
+            if (parts <= 1 || size < 2 * ENTRIES_PER_TASK) {
+                return scanLeaf();
+            }
+            // 按叶子数比例拆分，较高的一半在当前线程执行，较低的一半交给其他线程窃取
+            int upperParts = parts / 2;
+            int split = high - (int) ((long) size * upperParts / parts);
+            RangeScan lower = new RangeScan(split, low, parts - upperParts, stoppedAt);
+            lower.fork();
+            RangeResult upper = new RangeScan(high, split + 1, upperParts, stoppedAt).compute();
+            // 即使结果会被丢弃也要等待较低区间结束，游标关闭后映射可能被解除
+            RangeResult lowerResult = lower.join();
+            return upper.stopped ? upper : upper.append(lowerResult);
+        }
+
+        private RangeResult scanLeaf() {
+            LogRecordProbe taskProbe = dimensions ? TASK_DIMENSION_PROBES.get() : TASK_PROBES.get();
+            RangeResult result = new RangeResult();
+            for (int entry = high; entry >= low; entry--) {
+                if ((high - entry) % STOP_CHECK_INTERVAL == 0
+                        && (stoppedAt.get() > entry || (context != null && context.isCancelled()))) {
+                    result.stopped = true;
+                    return result;
+                }
+                long location = locateRecord(entry);
+                if (location < 0) {
+                    continue;
+                }
+                ApiLog fields;
+                try {
+                    fields = taskProbe.read(data, (int) (location >>> 32), (int) location);
+                } catch (Exception e) {
+                    result.stopped = true;
+                    result.failed = true;
+                    result.error = e;
+                    stop(entry);
+                    return result;
+                }
+                result.scanned++;
+                if (stopBefore != null && fields.getRequestTime() != null
+                        && fields.getRequestTime().plusNanos(fields.getExecutionTime() * 1_000_000).isBefore(stopBefore)) {
+                    result.stopped = true;
+                    stop(entry);
+                    return result;
+                }
+                if (filter.test(fields)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+
+        private void stop(int entry) {
+            stoppedAt.accumulateAndGet(entry, Math::max);
+        }
+    }
+
+    /**
+     * 区间扫描结果：命中的序号（倒序）、扫描条数，以及是否在区间内停止
+     */
+    private static final class RangeResult {
+
+        int[] ordinals = new int[16];
+        int count;
+        int scanned;
+        boolean stopped;
+        boolean failed;
+        Exception error;
+
+        void add(int entry) {
+            if (count == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, count * 2);
+            }
+            ordinals[count++] = entry;
+        }
+
+        // 拼接序号更小的相邻区间的结果
+        RangeResult append(RangeResult lower) {
+            if (count + lower.count > ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, count + lower.count);
+            }
+            System.arraycopy(lower.ordinals, 0, ordinals, count, lower.count);
+            count += lower.count;
+            scanned += lower.scanned;
+            stopped = lower.stopped;
+            failed = lower.failed;
+            error = lower.error;
+            return this;
+        }
+    }
+
+    // 每隔若干条记录检查一次取消和超时
+    private void checkCancelled() {
+        if (context != null && ++sinceCheck >= QueryContext.CHECK_INTERVAL) {
+            sinceCheck = 0;
+            context.check();
+        }
+    }
+
+    // 记录新扫描的结果，用于关闭时写回缓存
+    private void markScanned(int entry, boolean hit) {
+        if (!recording) {
+            return;
+        }
+        if (hit) {
+            if (freshCount == fresh.length) {
+                fresh = Arrays.copyOf(fresh, freshCount * 2);
+            }
+            fresh[freshCount++] = entry;
+        }
+        freshFrontier = entry - 1;
+    }
+
+    // 解析过滤字段，位置不合法时返回null；解析失败时记录错误并结束扫描，返回null
+    private ApiLog probeQuietly(int entry) {
+        if (!locate(entry)) {
+            return null;
+        }
+        try {
+            return probe.read(data, recordPosition, recordSize);
+        } catch (Exception e) {
+            scanEvent.failed = true;
+            log.error("读取日志文件失败: " + dataFile.getName(), e);
+            nextEntry = -1;
+            return null;
+        }
+    }
+
+    // 完整解码，位置不合法时返回null；解码失败时记录错误并结束扫描，返回null
+    private ApiLog decodeQuietly(int entry) {
+        if (!locate(entry)) {
+            return null;
+        }
+        try {
+            ByteBuffer record = data.duplicate();
+            record.position(recordPosition);
+            record.limit(recordPosition + recordSize);
+            ApiLog apiLog = serializer.deserialize(record);
+            decoded++;
+            return apiLog;
+        } catch (Exception e) {
+            scanEvent.failed = true;
+            log.error("读取日志文件失败: " + dataFile.getName(), e);
+            nextEntry = -1;
+            return null;
+        }
+    }
+
+    /**
+     * 当前记录，advance返回true后有效
+     */
+    ApiLog current() {
+        return current;
+    }
+
+    /**
+     * 当前记录的序列化大小，用于估算结果占用的内存
+     */
+    int currentSize() {
+        return current != null ? recordSize : 0;
+    }
+
+    /**
+     * 当前记录的序号，作为下一页的续读位置
+     */
+    int currentEntry() {
+        return currentEntry;
+    }
+
+    /**
+     * 已逐条过滤的记录数
+     */
+    int scannedCount() {
+        return scanned;
+    }
+
+    /**
+     * 已完整反序列化的记录数
+     */
+    int decodedCount() {
+        return decoded;
+    }
+
+    /**
+     * 已产出的匹配记录数
+     */
+    int matchedCount() {
+        return matched;
+    }
+
+    /**
+     * 在advance中累计的耗时（纳秒）
+     */
+    long scanNanos() {
+        return scanNanos;
+    }
+
+    /**
+     * 数据文件名，作为游标中的文件标识
+     */
+    String getFileName() {
+        return dataFile.getName();
+    }
+
+    @Override
+    public void close() {
+        // 把与缓存相接的新扫描结果合并为新的不可变结果写回
+        if (recording && !scanEvent.failed) {
+            int[] base = cached != null ? cached.ordinals : new int[0];
+            int[] ordinals = Arrays.copyOf(base, base.length + freshCount);
+            System.arraycopy(fresh, 0, ordinals, base.length, freshCount);
+            cache.put(cacheKey, new SegmentMatches(top, freshFrontier, ordinals));
+        }
+
+        scanEvent.end();
+        if (scanEvent.shouldCommit()) {
+            scanEvent.file = dataFile.getName();
+            scanEvent.fileBytes = data != null ? data.capacity() : 0;
+            scanEvent.scanned = scanned;
+            scanEvent.matched = matched;
+            scanEvent.commit();
+        }
+
+        if (indexSegment != null) {
+            indexSegment.release();
+        }
+        dataSegment.release();
+    }
+
+    // 定位第entry条记录，位置或长度不合法时返回false
+    private boolean locate(int entry) {
+        long location = locateRecord(entry);
+        if (location < 0) {
+            return false;
+        }
+        recordPosition = (int) (location >>> 32);
+        recordSize = (int) location;
+        return true;
+    }
+
+    // 返回高32位为位置、低32位为大小的组合值，不合法时返回-1，可在并行任务中调用
+    private long locateRecord(int entry) {
+        int position;
+        int size;
+        if (index != null) {
+            position = (int) index.getLong(entry * INDEX_ENTRY_SIZE);
+            size = index.getInt(entry * INDEX_ENTRY_SIZE + 8);
+        } else {
+            position = offsets[entry];
+            size = 4 + data.getInt(position);
+        }
+        if (position < 0 || size <= 4 || (long) position + size > data.capacity()
+                || data.getInt(position) != size - 4) {
+            return -1;
+        }
+        return ((long) position << 32) | size;
+    }
+
+    /**
+     * 索引文件预分配且尾部为0，已写入的索引项大小均大于0，二分查找第一个大小为0的项
+     */
+    static int countIndexEntries(ByteBuffer index) {
+        int low = 0;
+        int high = index.capacity() / INDEX_ENTRY_SIZE;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getInt(mid * INDEX_ENTRY_SIZE + 8) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 顺序扫描长度前缀收集记录起点，遇到长度为0（预分配的尾部）或越界时停止
+     */
+    static int[] scanOffsets(ByteBuffer data) {
+        int[] result = new int[1024];
+        int count = 0;
+        int position = 0;
+        int limit = data.capacity();
+        while (position + 4 <= limit) {
+            int length = data.getInt(position);
+            if (length <= 0 || (long) position + 4 + length > limit) {
+                break;
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = position;
+            position += 4 + length;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,438 @@
+package com.oem.log.viewer.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.controller.LogQueryEndpoint;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QuerySyntaxException;
+import com.oem.log.viewer.model.FederatedCursor;
+import com.oem.log.viewer.model.LogQueryRequest;
+import com.oem.log.viewer.model.LogQueryResult;
+import com.oem.log.viewer.model.NodeQueryStatus;
+import com.oem.log.viewer.query.QueryCompiler;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 跨节点查询
+ * 各应用节点开放/oem-log/query后，查看端把编译后的条件（规范形式的查询语句）并行发给配置的节点，
+ * 每个节点按请求时间倒序返回最多一页的记录，查看端用按时间排序的堆做k路归并取出一页。
+ * 所有节点共用一个截止时间，超时或失败的节点不阻塞本页，结果标记为部分结果，游标中保留其位置，下一页重试。
+ * 节点扫描超过自身的时间预算时返回已找到的记录并标记partial，这些记录仍可参与归并，但不据此判断节点已读完。
+ * 翻页游标记录每个节点已返回到的请求时间和该时间已返回的条数，续读时从该时间继续并跳过已返回的部分；
+ * 第一页确定的结束时间之后新写入的记录不出现在后续页中。各节点与查看端的时区须一致
+ */
+@Slf4j
+@Service
+public class FederatedQueryService {
+
+    private static final String QUERY_PATH = "/oem-log/query";
+
+    /**
+     * 逗号分隔的节点地址，如http://app1:8080,http://app2:8080（含应用的context-path）
+     */
+    @Value("${oem.log.federation.nodes:}")
+    private String nodeList = "";
+
+    /**
+     * 节点查询端点的访问令牌
+     */
+    @Value("${oem.log.federation.token:}")
+    private String token = "";
+
+    /**
+     * 单次查询等待所有节点的时间（毫秒），超时的节点按部分结果处理
+     */
+    @Value("${oem.log.federation.timeout-ms:3000}")
+    private int timeoutMs = 3000;
+
+    /**
+     * 连接节点的超时（毫秒）
+     */
+    @Value("${oem.log.federation.connect-timeout-ms:1000}")
+    private int connectTimeoutMs = 1000;
+
+    /**
+     * 请求节点的线程数
+     */
+    @Value("${oem.log.federation.threads:8}")
+    private int threads = 8;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private QueryScheduler scheduler;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private List<String> nodes = Collections.emptyList();
+    private RestTemplate restTemplate;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        List<String> parsed = new ArrayList<>();
+        for (String node : nodeList.split(",")) {
+            String trimmed = node.trim();
+            if (!trimmed.isEmpty()) {
+                parsed.add(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            }
+        }
+        nodes = Collections.unmodifiableList(parsed);
+        if (nodes.isEmpty()) {
+            return;
+        }
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(connectTimeoutMs);
+        factory.setReadTimeout(timeoutMs);
+        restTemplate = new RestTemplate(factory);
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "log-federation-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否配置了查询节点
+     */
+    public boolean isEnabled() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * 查询所有节点，按请求时间倒序返回一页；不支持按页码跳页，第一页之后须带游标
+     */
+    public LogQueryResult query(LogQueryRequest request) {
+        if (!isEnabled()) {
+            return failure("未配置查询节点（oem.log.federation.nodes）");
+        }
+        LogPredicate predicate;
+        try {
+            predicate = QueryCompiler.compile(request);
+        } catch (QuerySyntaxException e) {
+            return failure(e.getMessage());
+        }
+        int pageSize = scheduler != null ? scheduler.clampPageSize(request.getPageSize()) : request.getPageSize();
+        String query = predicate == LogPredicate.ALL ? "" : predicate.toString();
+        Long startTime = request.getStartTime() != null ? request.getStartTime().getTime() : null;
+        int filterHash = Objects.hash(startTime, request.getEndTime(), query, pageSize, nodes);
+
+        long endTime;
+        Map<String, FederatedCursor.NodePosition> positions;
+        if (request.getCursor() != null && !request.getCursor().isEmpty()) {
+            FederatedCursor cursor = decodeCursor(request.getCursor());
+            if (cursor == null || cursor.getFilterHash() != filterHash || cursor.getNodes() == null) {
+                return failure("分页游标无效或与查询条件不匹配，请重新查询");
+            }
+            endTime = cursor.getEndTime();
+            positions = cursor.getNodes();
+        } else {
+            endTime = request.getEndTime() != null ? request.getEndTime().getTime() : System.currentTimeMillis();
+            positions = new LinkedHashMap<>();
+            for (String node : nodes) {
+                positions.put(node, new FederatedCursor.NodePosition(endTime, 0));
+            }
+        }
+
+        List<NodeResult> results = fetchAll(positions, startTime, query, pageSize);
+        List<ApiLog> logs = merge(results, pageSize);
+
+        Map<String, FederatedCursor.NodePosition> next = new LinkedHashMap<>();
+        List<NodeQueryStatus> statuses = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        List<String> truncated = new ArrayList<>();
+        for (NodeResult result : results) {
+            if (result.status.isPartial()) {
+                truncated.add(result.node);
+            }
+            if (!result.status.isSuccess()) {
+                failed.add(result.node);
+                next.put(result.node, result.position);
+            } else if (result.next < result.logs.size() || !result.exhausted) {
+                next.put(result.node, result.nextPosition());
+            }
+            result.status.setUsed(result.next);
+            statuses.add(result.status);
+        }
+
+        String nextCursor = null;
+        if (!next.isEmpty()) {
+            try {
+                nextCursor = encodeCursor(FederatedCursor.builder()
+                        .filterHash(filterHash)
+                        .endTime(endTime)
+                        .nodes(next)
+                        .build());
+            } catch (IOException e) {
+                log.warn("生成跨节点分页游标失败", e);
+            }
+        }
+        return LogQueryResult.builder()
+                .total(logs.size())
+                .hasMore(nextCursor != null)
+                .nextCursor(nextCursor)
+                .logs(logs)
+                .nodes(statuses)
+                .partial(!failed.isEmpty() || !truncated.isEmpty())
+                .message(partialMessage(failed, truncated))
+                .build();
+    }
+
+    private static String partialMessage(List<String> failed, List<String> truncated) {
+        List<String> messages = new ArrayList<>();
+        if (!failed.isEmpty()) {
+            messages.add("以下节点未返回结果，本页不含其记录：" + String.join(", ", failed));
+        }
+        if (!truncated.isEmpty()) {
+            messages.add("以下节点扫描超时，只返回了较新的部分记录：" + String.join(", ", truncated));
+        }
+        return messages.isEmpty() ? null : String.join("；", messages);
+    }
+
+    // 并行请求各节点，所有节点共用一个截止时间
+    private List<NodeResult> fetchAll(Map<String, FederatedCursor.NodePosition> positions, Long startTime,
+                                      String query, int pageSize) {
+        long begin = System.nanoTime();
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, Future<NodeResponse>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, FederatedCursor.NodePosition> entry : positions.entrySet()) {
+            String node = entry.getKey();
+            FederatedCursor.NodePosition position = entry.getValue();
+            int limit = pageSize + position.getSkip();
+            futures.put(node, executor.submit(() -> fetch(node, startTime, position.getTime(), query, limit)));
+        }
+
+        List<NodeResult> results = new ArrayList<>(futures.size());
+        for (Map.Entry<String, Future<NodeResponse>> entry : futures.entrySet()) {
+            String node = entry.getKey();
+            FederatedCursor.NodePosition position = positions.get(node);
+            NodeResult result = new NodeResult(node, position);
+            NodeQueryStatus.NodeQueryStatusBuilder status = NodeQueryStatus.builder().node(node);
+            try {
+                NodeResponse returned = entry.getValue().get(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                result.accept(returned, pageSize + position.getSkip());
+                status.success(true).partial(returned.isPartial()).returned(result.logs.size());
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                status.timedOut(true).error("超过" + timeoutMs + "毫秒未返回");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("查询节点失败: {}, {}", node, cause.getMessage());
+                status.error(cause.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                status.error("查询被中断");
+            }
+            status.elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+            result.status = status.build();
+            results.add(result);
+        }
+        return results;
+    }
+
+    // 按请求时间从新到旧k路归并，同一时间按节点顺序
+    private List<ApiLog> merge(List<NodeResult> results, int pageSize) {
+        PriorityQueue<NodeResult> heads = new PriorityQueue<>(Math.max(1, results.size()),
+                Comparator.comparingLong((NodeResult result) -> -result.headTime())
+                        .thenComparingInt(result -> nodes.indexOf(result.node)));
+        for (NodeResult result : results) {
+            if (result.status.isSuccess() && !result.logs.isEmpty()) {
+                heads.add(result);
+            }
+        }
+        List<ApiLog> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && !heads.isEmpty()) {
+            NodeResult result = heads.poll();
+            page.add(result.logs.get(result.next++));
+            if (result.next < result.logs.size()) {
+                heads.add(result);
+            }
+        }
+        return page;
+    }
+
+    private NodeResponse fetch(String node, Long startTime, long endTime, String query, int limit) throws IOException {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(node + QUERY_PATH)
+                .queryParam("endTime", endTime)
+                .queryParam("limit", limit);
+        if (startTime != null) {
+            builder.queryParam("startTime", startTime);
+        }
+        // 查询语句作为URI变量展开，按严格规则编码（含+、&等字符）
+        URI uri;
+        if (query.isEmpty()) {
+            uri = builder.build().toUri();
+        } else {
+            uri = builder.queryParam("query", "{query}").encode().buildAndExpand(query).toUri();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (token != null && !token.isEmpty()) {
+            headers.set(LogQueryEndpoint.TOKEN_HEADER, token);
+        }
+        byte[] body;
+        try {
+            ResponseEntity<byte[]> response = restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers),
+                    byte[].class);
+            body = response.getBody();
+        } catch (HttpStatusCodeException e) {
+            String message = null;
+            try {
+                message = readResponse(e.getResponseBodyAsByteArray()).getMessage();
+            } catch (IOException ignored) {
+                // 响应体不是查询端点的格式
+            }
+            throw new IOException("HTTP " + e.getRawStatusCode() + (message != null ? "：" + message : ""));
+        }
+        NodeResponse response = body != null ? readResponse(body) : new NodeResponse();
+        if (response.getLogs() == null) {
+            response.setLogs(Collections.emptyList());
+        }
+        return response;
+    }
+
+    private NodeResponse readResponse(byte[] body) throws IOException {
+        return objectMapper.readerFor(NodeResponse.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(body);
+    }
+
+    private String encodeCursor(FederatedCursor cursor) throws IOException {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+    }
+
+    // 无法解析时返回null
+    private FederatedCursor decodeCursor(String token) {
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(token), FederatedCursor.class);
+        } catch (Exception e) {
+            log.warn("解析跨节点分页游标失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static LogQueryResult failure(String message) {
+        return LogQueryResult.builder()
+                .total(0)
+                .logs(new ArrayList<>())
+                .message(message)
+                .build();
+    }
+
+    private long timeOf(ApiLog apiLog) {
+        return apiLog.getRequestTime().atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 节点查询端点的响应
+     */
+    @Data
+    static class NodeResponse {
+
+        private List<ApiLog> logs;
+
+        // 节点扫描超过时间预算，只返回了已扫描部分的记录
+        private boolean partial;
+
+        private String message;
+
+        private long elapsedMillis;
+    }
+
+    /**
+     * 单个节点本页的结果和归并进度
+     */
+    private final class NodeResult {
+
+        private final String node;
+        private final FederatedCursor.NodePosition position;
+        private List<ApiLog> logs = Collections.emptyList();
+        // 节点完整扫描且返回的记录少于请求条数，说明已没有更早的记录
+        private boolean exhausted;
+        // 下一条待归并的记录
+        private int next;
+        private NodeQueryStatus status;
+
+        private NodeResult(String node, FederatedCursor.NodePosition position) {
+            this.node = node;
+            this.position = position;
+        }
+
+        // 跳过上一页已返回的、请求时间等于续读时间的前skip条
+        private void accept(NodeResponse response, int limit) {
+            List<ApiLog> returned = response.getLogs();
+            exhausted = !response.isPartial() && returned.size() < limit;
+            int skipped = 0;
+            while (skipped < position.getSkip() && skipped < returned.size()
+                    && timeOf(returned.get(skipped)) == position.getTime()) {
+                skipped++;
+            }
+            logs = new ArrayList<>(returned.subList(skipped, returned.size()));
+        }
+
+        private long headTime() {
+            return timeOf(logs.get(next));
+        }
+
+        // 本页归并到的位置：最后一条的请求时间，以及该时间已返回的条数
+        private FederatedCursor.NodePosition nextPosition() {
+            if (next == 0) {
+                return position;
+            }
+            long lastTime = timeOf(logs.get(next - 1));
+            int same = 0;
+            for (int i = next - 1; i >= 0 && timeOf(logs.get(i)) == lastTime; i--) {
+                same++;
+            }
+            if (lastTime == position.getTime()) {
+                same += position.getSkip();
+            }
+            return new FederatedCursor.NodePosition(lastTime, same);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QuerySyntaxException;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.serializer.LogRecordProbe;
+import com.oem.log.viewer.model.LiveTailEvent;
+import com.oem.log.viewer.model.LogQueryRequest;
+import com.oem.log.viewer.query.QueryCompiler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实时跟踪服务
+ * 单个轮询线程按主机跟随最新的数据文件：写入端先写数据再追加索引项，索引中已有的记录即可读取，
+ * 每次轮询从上次的索引位置继续，把新记录按各订阅者的过滤条件分发，通过SSE推送到浏览器。
+ * 每个订阅者有有界缓冲，客户端消费过慢时丢弃最旧的记录并计数；推送按最小间隔合并成一批，
+ * 由发送线程完成，同一订阅者同一时刻最多一个发送任务，慢客户端不会阻塞轮询
+ */
+@Slf4j
+@Service
+public class LiveTailService {
+
+    // 单次轮询每个文件最多读取的记录数，剩余的下次继续
+    private static final int MAX_RECORDS_PER_POLL = 10000;
+
+    // 没有新日志时发送心跳的间隔，用于及时发现断开的连接
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15000;
+
+    private static final int SENDER_THREADS = 4;
+
+    @Value("${oem.log.query.search-dir}")
+    private String searchDir;
+
+    /**
+     * 轮询新记录的间隔（毫秒）
+     */
+    @Value("${oem.log.tail.poll-interval-ms:500}")
+    private long pollIntervalMs = 500;
+
+    /**
+     * 同一连接两次推送的最小间隔（毫秒），期间的新记录合并成一批
+     */
+    @Value("${oem.log.tail.min-send-interval-ms:1000}")
+    private long minSendIntervalMs = 1000;
+
+    /**
+     * 每个连接最多缓冲的待推送记录数，超出时丢弃最旧的
+     */
+    @Value("${oem.log.tail.max-buffered:500}")
+    private int maxBuffered = 500;
+
+    /**
+     * 同时跟踪的连接数上限
+     */
+    @Value("${oem.log.tail.max-subscribers:50}")
+    private int maxSubscribers = 50;
+
+    /**
+     * 连接超时（毫秒），超时后浏览器会自动重连
+     */
+    @Value("${oem.log.tail.timeout-ms:1800000}")
+    private long timeoutMs = 1800000;
+
+    @Autowired(required = false)
+    private MappedSegmentPool segmentPool;
+
+    private final JsonLogSerializer serializer = new JsonLogSerializer();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // 以下字段只由轮询线程访问
+    private final LogRecordProbe probe = new LogRecordProbe(true);
+    private final Map<String, SegmentTail> tails = new HashMap<>();
+
+    private ScheduledExecutorService poller;
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void start() {
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-tail");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIndex = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+            Thread thread = new Thread(r, "log-tail-send-" + senderIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅新写入的日志，只推送订阅之后写入且匹配过滤条件的记录，时间范围条件不生效
+     */
+    public SseEmitter subscribe(LogQueryRequest filter) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        if (subscribers.size() >= maxSubscribers) {
+            reject(emitter, "实时跟踪连接数已达上限");
+            return emitter;
+        }
+        LogPredicate predicate;
+        try {
+            predicate = QueryCompiler.compile(filter);
+        } catch (QuerySyntaxException e) {
+            reject(emitter, e.getMessage());
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(emitter, predicate);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    private static void reject(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("rejected").data(message));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void poll() {
+        try {
+            // 没有订阅者时不读文件，下次有订阅者时从各文件的当前末尾开始
+            if (subscribers.isEmpty()) {
+                tails.clear();
+                return;
+            }
+            File[] dataFiles = new File(searchDir).listFiles(file -> file.getName().endsWith(".data"));
+            if (dataFiles != null) {
+                Map<String, File> current = newestPerHost(dataFiles);
+                for (Map.Entry<String, File> entry : current.entrySet()) {
+                    follow(entry.getKey(), entry.getValue());
+                }
+                tails.keySet().retainAll(current.keySet());
+            }
+            flush();
+        } catch (Exception e) {
+            log.error("实时跟踪轮询失败", e);
+        }
+    }
+
+    private void follow(String host, File dataFile) {
+        SegmentTail tail = tails.get(host);
+        if (tail == null) {
+            tail = new SegmentTail(dataFile, true);
+            tails.put(host, tail);
+        } else if (!tail.dataFile.equals(dataFile)) {
+            // 写入端切换到新文件：先读完旧文件剩余的记录，新文件从头开始
+            read(tail);
+            tail = new SegmentTail(dataFile, false);
+            tails.put(host, tail);
+        }
+        read(tail);
+    }
+
+    // 从上次的位置读取新记录并分发，记录尚未完整可见时停在该处，下次轮询重试
+    private void read(SegmentTail tail) {
+        MappedSegment data = null;
+        MappedSegment index = null;
+        try {
+            data = mapSegment(tail.dataFile);
+            ByteBuffer buffer = data.buffer();
+            if (tail.indexFile != null) {
+                index = mapSegment(tail.indexFile);
+                ByteBuffer entries = index.buffer();
+                int count = DataFileCursor.countIndexEntries(entries);
+                if (tail.fromEnd) {
+                    tail.fromEnd = false;
+                    tail.nextEntry = count;
+                    return;
+                }
+                int limit = Math.min(count, tail.nextEntry + MAX_RECORDS_PER_POLL);
+                while (tail.nextEntry < limit) {
+                    int offset = tail.nextEntry * DataFileCursor.INDEX_ENTRY_SIZE;
+                    long position = entries.getLong(offset);
+                    int size = entries.getInt(offset + 8);
+                    if (!isVisible(buffer, position, size)) {
+                        break;
+                    }
+                    dispatch(tail.dataFile, buffer, (int) position, size);
+                    tail.nextEntry++;
+                }
+            } else {
+                // 没有索引时沿长度前缀前进，遇到长度为0（预分配的尾部）时停止
+                int read = 0;
+                while (read < MAX_RECORDS_PER_POLL && tail.nextOffset + 4 <= buffer.capacity()) {
+                    int length = buffer.getInt(tail.nextOffset);
+                    if (length <= 0 || (long) tail.nextOffset + 4 + length > buffer.capacity()) {
+                        break;
+                    }
+                    if (!tail.fromEnd) {
+                        dispatch(tail.dataFile, buffer, tail.nextOffset, length + 4);
+                        read++;
+                    }
+                    tail.nextOffset += 4 + length;
+                }
+                tail.fromEnd = false;
+            }
+        } catch (IOException e) {
+            log.warn("实时跟踪读取日志文件失败: {}", tail.dataFile.getName(), e);
+        } finally {
+            if (index != null) {
+                index.release();
+            }
+            if (data != null) {
+                data.release();
+            }
+        }
+    }
+
+    private static boolean isVisible(ByteBuffer data, long position, int size) {
+        return position >= 0 && size > 4 && position + size <= data.capacity()
+                && data.getInt((int) position) == size - 4;
+    }
+
+    // 先只解析过滤字段，有订阅者匹配时才完整解码，解码结果由所有匹配的订阅者共享
+    private void dispatch(File dataFile, ByteBuffer data, int position, int size) {
+        ApiLog full = null;
+        try {
+            ApiLog fields = probe.read(data, position, size);
+            for (Subscriber subscriber : subscribers) {
+                // 请求头、参数和响应体等不在探测范围内，条件用到它们时先完整解码
+                boolean needsFull = subscriber.predicate.level() == DecodeLevel.FULL;
+                if (!needsFull && !LogQueryService.matches(fields, subscriber.predicate, null, null)) {
+                    continue;
+                }
+                if (full == null) {
+                    ByteBuffer record = data.duplicate();
+                    record.position(position);
+                    record.limit(position + size);
+                    full = serializer.deserialize(record);
+                }
+                if (!needsFull || LogQueryService.matches(full, subscriber.predicate, null, null)) {
+                    subscriber.offer(full);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("实时跟踪解析日志记录失败: {}, 位置: {}", dataFile.getName(), position, e);
+        }
+    }
+
+    // 到达推送间隔的订阅者交给发送线程，上一次发送未完成的跳过，等下次轮询
+    private void flush() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            long elapsed = now - subscriber.lastSentAt;
+            if (elapsed < minSendIntervalMs) {
+                continue;
+            }
+            if (!subscriber.hasPending() && elapsed < HEARTBEAT_INTERVAL_MILLIS) {
+                continue;
+            }
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            subscriber.lastSentAt = now;
+            sender.execute(subscriber::send);
+        }
+    }
+
+    private MappedSegment mapSegment(File file) throws IOException {
+        return segmentPool != null ? segmentPool.acquire(file) : MappedSegment.map(file, null);
+    }
+
+    /**
+     * 按主机分组，取每个主机最新的数据文件。
+     * 文件名格式为{主机名}_{yyyyMMddHHmmss}_{序号}.data，主机名本身可能含下划线，从末尾解析；
+     * 不符合格式的文件各自单独跟踪
+     */
+    private static Map<String, File> newestPerHost(File[] dataFiles) {
+        Map<String, File> newest = new HashMap<>();
+        Map<String, long[]> versions = new HashMap<>();
+        for (File file : dataFiles) {
+            String name = file.getName();
+            String stem = name.substring(0, name.length() - ".data".length());
+            int seqStart = stem.lastIndexOf('_');
+            int timeStart = seqStart > 0 ? stem.lastIndexOf('_', seqStart - 1) : -1;
+            String host = stem;
+            long[] version = {0, 0};
+            if (timeStart > 0) {
+                try {
+                    version[0] = Long.parseLong(stem.substring(timeStart + 1, seqStart));
+                    version[1] = Long.parseLong(stem.substring(seqStart + 1));
+                    host = stem.substring(0, timeStart);
+                } catch (NumberFormatException e) {
+                    version[0] = 0;
+                    version[1] = 0;
+                }
+            }
+            long[] known = versions.get(host);
+            if (known == null || version[0] > known[0] || (version[0] == known[0] && version[1] > known[1])) {
+                versions.put(host, version);
+                newest.put(host, file);
+            }
+        }
+        return newest;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 跟随中的数据文件
+     */
+    private static final class SegmentTail {
+
+        private final File dataFile;
+        // 写入端同时创建数据和索引文件，开始跟随时确定，避免中途从长度前缀切换到索引
+        private final File indexFile;
+
+        // 首次读取时只定位到末尾，不推送已有的记录
+        private boolean fromEnd;
+        private int nextEntry;
+        private int nextOffset;
+
+        private SegmentTail(File dataFile, boolean fromEnd) {
+            this.dataFile = dataFile;
+            this.indexFile = DataFileCursor.indexFileFor(dataFile);
+            this.fromEnd = fromEnd;
+        }
+    }
+
+    /**
+     * 一个SSE连接
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final LogPredicate predicate;
+
+        // 由自身加锁访问
+        private final ArrayDeque<ApiLog> pending = new ArrayDeque<>();
+        private int dropped;
+
+        // 只由轮询线程访问
+        private long lastSentAt;
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, LogPredicate predicate) {
+            this.emitter = emitter;
+            this.predicate = predicate;
+        }
+
+        private synchronized void offer(ApiLog log) {
+            if (pending.size() >= maxBuffered) {
+                pending.pollFirst();
+                dropped++;
+            }
+            pending.addLast(log);
+        }
+
+        private synchronized boolean hasPending() {
+            return !pending.isEmpty() || dropped > 0;
+        }
+
+        private synchronized LiveTailEvent drain() {
+            if (pending.isEmpty() && dropped == 0) {
+                return null;
+            }
+            LiveTailEvent event = LiveTailEvent.builder()
+                    .logs(new ArrayList<>(pending))
+                    .dropped(dropped)
+                    .build();
+            pending.clear();
+            dropped = 0;
+            return event;
+        }
+
+        // 在发送线程执行，发送失败说明连接已断开
+        private void send() {
+            try {
+                LiveTailEvent event = drain();
+                if (event != null) {
+                    emitter.send(SseEmitter.event().name("logs").data(event, MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (Exception e) {
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+        }
+    }
+}
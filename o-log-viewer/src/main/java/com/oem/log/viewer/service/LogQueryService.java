@@ -2,27 +2,37 @@ package com.oem.log.viewer.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QuerySyntaxException;
+import com.oem.log.core.rollup.RollupAccumulator;
+import com.oem.log.core.rollup.RollupKey;
 import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.viewer.model.LogAggregateRequest;
+import com.oem.log.viewer.model.LogAggregateResult;
 import com.oem.log.viewer.model.LogQueryRequest;
 import com.oem.log.viewer.model.LogQueryResult;
+import com.oem.log.viewer.model.QueryCursor;
+import com.oem.log.viewer.model.QueryExplain;
+import com.oem.log.viewer.query.QueryCompiler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 
 /**
  * 日志查询服务
@@ -37,83 +47,257 @@ public class LogQueryService {
     @Autowired
     private ObjectMapper objectMapper;
     
-    private final ExecutorService queryExecutor = Executors.newFixedThreadPool(4);
+    @Autowired
+    private SegmentMatchCache matchCache;
+    
+    @Autowired
+    private MappedSegmentPool segmentPool;
+    
+    @Autowired
+    private SegmentScanExecutor scanExecutor;
+    
+    @Autowired
+    private QueryScheduler scheduler;
+    
+    @Autowired
+    private SegmentCatalog catalog;
+    
+    /**
+     * 聚合查询的分组数上限，超出的分组归并到_other_
+     */
+    @Value("${oem.log.query.aggregate.max-groups:2000}")
+    private int maxAggregateGroups = 2000;
+    
+    // 按请求时间从新到旧排列各文件的当前记录
+    private static final Comparator<DataFileCursor> NEWEST_FIRST =
+            (a, b) -> b.current().getRequestTime().compareTo(a.current().getRequestTime());
+    
     private final JsonLogSerializer serializer = new JsonLogSerializer();
     
+    private final QueryPlanner planner = new QueryPlanner();
+    
     /**
      * 查询日志
+     * 先经过准入控制：并发查询数有上限，其余排队，排队已满或等待超时直接返回提示；
+     * 执行中按超时时间和客户端取消请求在扫描循环里终止，返回结果超过内存预算时提前截断
      * @param request 查询请求
      * @return 查询结果
      */
     public LogQueryResult queryLogs(LogQueryRequest request) {
+        long parseBegin = System.nanoTime();
+        LogPredicate predicate;
         try {
-            // 查找时间范围内的日志文件
-            File dir = new File(searchDir);
-            if (!dir.exists() || !dir.isDirectory()) {
-                return LogQueryResult.builder()
-                        .total(0)
-                        .logs(new ArrayList<>())
-                        .message("日志目录不存在")
-                        .build();
-            }
-            
-            // 获取符合条件的日志文件
-            File[] dataFiles = dir.listFiles(file -> {
-                return file.getName().endsWith(".data") && isFileInTimeRange(file.getName(), request);
-            });
-            
-            if (dataFiles == null || dataFiles.length == 0) {
+            predicate = QueryCompiler.compile(request);
+        } catch (QuerySyntaxException e) {
+            return LogQueryResult.builder()
+                    .total(0)
+                    .logs(new ArrayList<>())
+                    .message(e.getMessage())
+                    .build();
+        }
+        long parseNanos = System.nanoTime() - parseBegin;
+        
+        if (scheduler == null) {
+            return executeQuery(request, predicate, parseNanos, null, Long.MAX_VALUE);
+        }
+        request.setPageSize(scheduler.clampPageSize(request.getPageSize()));
+        
+        QueryContext context;
+        try {
+            context = scheduler.admit(request.getQueryId());
+        } catch (QueryCancelledException e) {
+            return LogQueryResult.builder()
+                    .total(0)
+                    .logs(new ArrayList<>())
+                    .message(e.getMessage())
+                    .build();
+        }
+        try {
+            return executeQuery(request, predicate, parseNanos, context, scheduler.getMaxResultBytes());
+        } finally {
+            scheduler.release(context);
+        }
+    }
+    
+    /**
+     * 执行查询
+     * 每个文件一个倒序游标，用按请求时间从新到旧排列的堆（堆大小等于文件数）做k路归并，
+     * 只取到当前页的最后一条为止，内存与页大小和文件数相关而与匹配总数无关。
+     * 带游标的请求从各文件记录的序号直接续读，不再重复扫描前面的页。
+     * 打开文件前先由查询计划决定跳过、按词元索引候选访问还是扫描
+     * @param predicate 编译后的条件树
+     * @param parseNanos 解析查询语句的耗时，用于EXPLAIN
+     * @param context 取消标记，为null时不检查
+     * @param maxResultBytes 当前页记录的序列化大小之和超过该值时提前结束本页
+     */
+    private LogQueryResult executeQuery(LogQueryRequest request, LogPredicate predicate, long parseNanos,
+                                        QueryContext context, long maxResultBytes) {
+        long begin = System.nanoTime();
+        // 查找时间范围内的日志文件
+        File dir = new File(searchDir);
+        if (!dir.exists() || !dir.isDirectory()) {
+            return LogQueryResult.builder()
+                    .total(0)
+                    .logs(new ArrayList<>())
+                    .message("日志目录不存在")
+                    .build();
+        }
+        
+        // 获取日志文件，是否需要扫描由查询计划逐个判断
+        File[] dataFiles = listDataFiles(dir);
+        
+        if (dataFiles == null || dataFiles.length == 0) {
+            return LogQueryResult.builder()
+                    .total(0)
+                    .logs(new ArrayList<>())
+                    .message("未找到符合条件的日志文件")
+                    .build();
+        }
+        
+        LocalDateTime startTime = toLocalDateTime(request.getStartTime());
+        LocalDateTime endTime = toLocalDateTime(request.getEndTime());
+        String filterKey = filterKey(request, predicate);
+        int filterHash = filterHash(request, predicate);
+        QueryCursor resume = null;
+        if (request.getCursor() != null && !request.getCursor().isEmpty()) {
+            resume = decodeCursor(request.getCursor());
+            if (resume == null || resume.getFilterHash() != filterHash || resume.getSegments() == null) {
                 return LogQueryResult.builder()
                         .total(0)
                         .logs(new ArrayList<>())
-                        .message("未找到符合条件的日志文件")
+                        .message("分页游标无效或与查询条件不匹配，请重新查询")
                         .build();
             }
-            
-            // 并行处理每个文件
-            List<CompletableFuture<List<ApiLog>>> futures = new ArrayList<>();
+        }
+        
+        // 带游标时从游标位置开始取一页，不再按页码跳过
+        int offset = resume != null ? 0 : (Math.max(1, request.getPage()) - 1) * request.getPageSize();
+        int wanted = offset + request.getPageSize();
+        List<DataFileCursor> cursors = new ArrayList<>(dataFiles.length);
+        List<SegmentPlan> cursorPlans = new ArrayList<>(dataFiles.length);
+        List<SegmentPlan> skippedPlans = new ArrayList<>();
+        Map<String, Integer> segments = new LinkedHashMap<>();
+        long planNanos = 0;
+        long executeBegin = 0;
+        try {
+            // 先生成各文件的计划，跳过的文件记为已读完，不再打开
+            List<File> scanFiles = new ArrayList<>(dataFiles.length);
+            List<SegmentPlan> scanPlans = new ArrayList<>(dataFiles.length);
             for (File dataFile : dataFiles) {
-                CompletableFuture<List<ApiLog>> future = CompletableFuture.supplyAsync(
-                        () -> searchLogsInFile(dataFile, request),
-                        queryExecutor
-                );
-                futures.add(future);
+                if (resume != null) {
+                    Integer entry = resume.getSegments().get(dataFile.getName());
+                    if (entry != null && entry < 0) {
+                        segments.put(dataFile.getName(), -1);
+                        continue;
+                    }
+                }
+                long planBegin = System.nanoTime();
+                SegmentPlan plan = planner.plan(dataFile, predicate, startTime, endTime, segmentPool, scanExecutor,
+                        catalog);
+                planNanos += System.nanoTime() - planBegin;
+                if (plan.strategy.isSkip()) {
+                    segments.put(dataFile.getName(), -1);
+                    skippedPlans.add(plan);
+                } else {
+                    scanFiles.add(dataFile);
+                    scanPlans.add(plan);
+                }
             }
             
-            // 等待所有查询完成并合并结果
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                    futures.toArray(new CompletableFuture[0])
-            );
-            
-            CompletableFuture<List<ApiLog>> resultFuture = allFutures.thenApply(v -> {
-                return futures.stream()
-                        .flatMap(f -> f.join().stream())
-                        .collect(Collectors.toList());
-            });
-            
-            List<ApiLog> allLogs = resultFuture.get();
+            // 后台预读需要扫描的文件，翻页和重复查询时不再缺页
+            if (segmentPool != null && !scanFiles.isEmpty()) {
+                segmentPool.prefetch(scanFiles.toArray(new File[0]));
+            }
             
-            // 按时间倒序排序
-            allLogs.sort((o1, o2) -> o2.getRequestTime().compareTo(o1.getRequestTime()));
+            // 每个文件先取出第一条匹配记录作为堆顶候选
+            executeBegin = System.nanoTime();
+            PriorityQueue<DataFileCursor> heads = new PriorityQueue<>(Math.max(1, scanFiles.size()), NEWEST_FIRST);
+            for (int i = 0; i < scanFiles.size(); i++) {
+                File dataFile = scanFiles.get(i);
+                int resumeEntry = DataFileCursor.FROM_END;
+                LocalDateTime before = null;
+                if (resume != null) {
+                    Integer entry = resume.getSegments().get(dataFile.getName());
+                    if (entry == null) {
+                        // 游标生成后新出现的文件，只取早于上一页最后一条的记录
+                        before = LocalDateTime.parse(resume.getLastRequestTime());
+                    } else {
+                        resumeEntry = entry;
+                    }
+                }
+                
+                DataFileCursor cursor = openCursor(scanPlans.get(i), predicate, startTime, endTime, filterKey,
+                        resumeEntry, before, context);
+                cursors.add(cursor);
+                cursorPlans.add(scanPlans.get(i));
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
             
-            // 应用分页
-            int startIndex = (request.getPage() - 1) * request.getPageSize();
-            int endIndex = Math.min(startIndex + request.getPageSize(), allLogs.size());
+            // 归并到当前页填满即停止，其余记录不再解码
+            List<ApiLog> pagedLogs = new ArrayList<>(request.getPageSize());
+            int merged = 0;
+            long resultBytes = 0;
+            boolean truncated = false;
+            ApiLog last = null;
+            while (merged < wanted && !heads.isEmpty()) {
+                DataFileCursor cursor = heads.poll();
+                last = cursor.current();
+                if (merged >= offset) {
+                    pagedLogs.add(last);
+                    resultBytes += cursor.currentSize();
+                }
+                merged++;
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+                // 超出内存预算时提前结束本页，剩余记录通过游标继续读取
+                if (resultBytes > maxResultBytes && merged < wanted && !heads.isEmpty()) {
+                    truncated = true;
+                    break;
+                }
+            }
+            if (truncated && scheduler != null) {
+                scheduler.recordTruncated();
+            }
             
-            if (startIndex >= allLogs.size()) {
-                return LogQueryResult.builder()
-                        .total(allLogs.size())
-                        .logs(new ArrayList<>())
-                        .build();
+            // 各文件的堆顶记录尚未返回，下一页从它开始；已读完的文件记为-1
+            String nextCursor = null;
+            if (!heads.isEmpty()) {
+                for (DataFileCursor cursor : cursors) {
+                    segments.put(cursor.getFileName(), cursor.currentEntry());
+                }
+                nextCursor = encodeCursor(QueryCursor.builder()
+                        .lastRequestTime(last.getRequestTime().toString())
+                        .filterHash(filterHash)
+                        .segments(segments)
+                        .build());
             }
             
-            List<ApiLog> pagedLogs = allLogs.subList(startIndex, endIndex);
+            QueryExplain explain = null;
+            if (request.isExplain()) {
+                long now = System.nanoTime();
+                explain = buildExplain(predicate, skippedPlans, cursorPlans, cursors, merged, parseNanos, planNanos,
+                        now - executeBegin, now - begin + parseNanos);
+            }
             
             return LogQueryResult.builder()
-                    .total(allLogs.size())
+                    .total(merged)
+                    .hasMore(!heads.isEmpty())
+                    .nextCursor(nextCursor)
                     .logs(pagedLogs)
+                    .message(truncated ? "本页结果超过内存预算，已提前截断，可继续翻页" : null)
+                    .explain(explain)
                     .build();
             
+        } catch (QueryCancelledException e) {
+            log.info("查询终止: {}", e.getMessage());
+            return LogQueryResult.builder()
+                    .total(0)
+                    .logs(new ArrayList<>())
+                    .message(e.getMessage())
+                    .build();
         } catch (Exception e) {
             log.error("查询日志失败", e);
             return LogQueryResult.builder()
@@ -121,100 +305,286 @@ public class LogQueryService {
                     .logs(new ArrayList<>())
                     .message("查询日志失败: " + e.getMessage())
                     .build();
+        } finally {
+            for (DataFileCursor cursor : cursors) {
+                cursor.close();
+            }
         }
     }
     
     /**
-     * 从单个文件中查询日志
+     * 聚合日志
+     * 按路径、方法、状态码、主机名分组（可叠加时间桶），统计请求数、错误率和耗时百分位。
+     * 与查询共用准入控制、超时和取消；每个文件一遍扫描得到部分结果，文件间并行后合并，
+     * 耗时分布用与写入端汇总相同的对数线性直方图累加，内存只与分组数相关
      */
-    private List<ApiLog> searchLogsInFile(File dataFile, LogQueryRequest request) {
-        List<ApiLog> result = new ArrayList<>();
+    public LogAggregateResult aggregateLogs(LogAggregateRequest request) {
+        long parseBegin = System.nanoTime();
+        LogPredicate predicate;
+        try {
+            predicate = QueryCompiler.compile(request);
+        } catch (QuerySyntaxException e) {
+            return LogAggregateResult.builder()
+                    .groups(new ArrayList<>())
+                    .message(e.getMessage())
+                    .build();
+        }
+        long parseNanos = System.nanoTime() - parseBegin;
         
-        try (FileInputStream fis = new FileInputStream(dataFile);
-             FileChannel channel = fis.getChannel()) {
+        if (scheduler == null) {
+            return executeAggregate(request, predicate, parseNanos, null);
+        }
+        QueryContext context;
+        try {
+            context = scheduler.admit(request.getQueryId());
+        } catch (QueryCancelledException e) {
+            return LogAggregateResult.builder()
+                    .groups(new ArrayList<>())
+                    .message(e.getMessage())
+                    .build();
+        }
+        try {
+            return executeAggregate(request, predicate, parseNanos, context);
+        } finally {
+            scheduler.release(context);
+        }
+    }
+    
+    private LogAggregateResult executeAggregate(LogAggregateRequest request, LogPredicate predicate, long parseNanos,
+                                                QueryContext context) {
+        long begin = System.currentTimeMillis();
+        long beginNanos = System.nanoTime();
+        File dir = new File(searchDir);
+        File[] dataFiles = dir.isDirectory() ? listDataFiles(dir) : null;
+        if (dataFiles == null || dataFiles.length == 0) {
+            return LogAggregateResult.builder()
+                    .groups(new ArrayList<>())
+                    .bucketSeconds(request.getBucketSeconds())
+                    .message("未找到符合条件的日志文件")
+                    .build();
+        }
+        
+        SegmentAggregator aggregator = new SegmentAggregator(predicate,
+                toLocalDateTime(request.getStartTime()), toLocalDateTime(request.getEndTime()),
+                request.getGroupBy(), request.getBucketSeconds(), maxAggregateGroups, segmentPool, catalog, context,
+                serializer, planner, request.isExplain());
+        try {
+            SegmentAggregator.Partial partial = aggregator.aggregate(dataFiles, scanExecutor);
+            if (context != null) {
+                context.check();
+            }
             
-            // 使用内存映射读取文件提高性能
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<LogAggregateResult.GroupStats> groups = new ArrayList<>();
+            for (Map.Entry<SegmentAggregator.GroupKey, RollupAccumulator> entry : partial.groups.entrySet()) {
+                groups.add(toGroupStats(entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<Long, RollupAccumulator> entry : partial.others.entrySet()) {
+                groups.add(toGroupStats(SegmentAggregator.Partial.otherKey(entry.getKey()), entry.getValue()));
+            }
+            groups.sort(Comparator.comparing(LogAggregateResult.GroupStats::getBucketStart,
+                            Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+                    .thenComparing(Comparator.comparingLong(LogAggregateResult.GroupStats::getCount).reversed()));
             
-            while (buffer.hasRemaining()) {
-                // 读取记录长度
-                int length = buffer.getInt();
-                
-                // 读取日志数据
-                byte[] data = new byte[length];
-                buffer.get(data);
-                
-                // 反序列化
-                ByteBuffer logBuffer = ByteBuffer.allocateDirect(4 + length);
-                logBuffer.putInt(length);
-                logBuffer.put(data);
-                logBuffer.flip();
-                
-                ApiLog log = serializer.deserialize(logBuffer);
-                
-                // 应用过滤条件
-                if (matchesFilter(log, request)) {
-                    result.add(log);
+            QueryExplain explain = null;
+            if (request.isExplain()) {
+                long elapsed = System.nanoTime() - beginNanos;
+                partial.segments.sort(Comparator.comparing(QueryExplain.SegmentExplain::getFile));
+                long decoded = 0;
+                for (QueryExplain.SegmentExplain segment : partial.segments) {
+                    decoded += segment.getDecodedRecords();
                 }
+                explain = QueryExplain.builder()
+                        .predicate(predicate.toString())
+                        .decodeLevel(predicate.level().name())
+                        .totalSegments(dataFiles.length)
+                        .skippedSegments(dataFiles.length - partial.scannedFiles)
+                        .scannedSegments(partial.scannedFiles)
+                        .scannedRecords(partial.scanned)
+                        .decodedRecords(decoded)
+                        .matchedRecords(partial.matched)
+                        .parseMicros(parseNanos / 1000)
+                        .planMicros(partial.planNanos / 1000)
+                        .executeMicros(elapsed / 1000)
+                        .totalMicros((elapsed + parseNanos) / 1000)
+                        .segments(partial.segments)
+                        .build();
             }
             
-        } catch (Exception e) {
-            log.error("读取日志文件失败: " + dataFile.getName(), e);
+            return LogAggregateResult.builder()
+                    .groups(groups)
+                    .bucketSeconds(Math.max(request.getBucketSeconds(), 0))
+                    .scannedFiles(partial.scannedFiles)
+                    .scannedRecords(partial.scanned)
+                    .matchedRecords(partial.matched)
+                    .truncated(!partial.others.isEmpty())
+                    .elapsedMillis(System.currentTimeMillis() - begin)
+                    .message(partial.others.isEmpty() ? null : "分组数超过上限，超出部分已归并到" + RollupKey.OTHER_PATH)
+                    .explain(explain)
+                    .build();
+        } catch (QueryCancelledException e) {
+            log.info("聚合终止: {}", e.getMessage());
+            return LogAggregateResult.builder()
+                    .groups(new ArrayList<>())
+                    .bucketSeconds(request.getBucketSeconds())
+                    .message(e.getMessage())
+                    .build();
         }
-        
-        return result;
+    }
+    
+    private static LogAggregateResult.GroupStats toGroupStats(SegmentAggregator.GroupKey key, RollupAccumulator stats) {
+        return LogAggregateResult.GroupStats.builder()
+                .bucketStart(key.getBucketStart())
+                .path(key.getPath())
+                .method(key.getMethod())
+                .statusCode(key.getStatusCode())
+                .hostname(key.getHostname())
+                .count(stats.getCount())
+                .errorCount(stats.getErrorCount())
+                .errorRate(stats.getErrorRate())
+                .avgMillis(stats.getAvgMillis())
+                .p50Millis(stats.getPercentile(50))
+                .p90Millis(stats.getPercentile(90))
+                .p99Millis(stats.getPercentile(99))
+                .maxMillis(stats.getMaxMillis())
+                .build();
     }
     
     /**
-     * 判断日志是否匹配过滤条件
+     * 按计划打开游标：按条件所需的解码程度设置探测方式，附加词元索引候选或并行扫描
+     * @param before 不为null时只返回请求时间早于该时间的记录
+     * @param context 取消标记，为null时不检查
      */
-    private boolean matchesFilter(ApiLog log, LogQueryRequest request) {
-        // 时间范围过滤
-        LocalDateTime startTime = LocalDateTime.ofInstant(request.getStartTime().toInstant(), ZoneId.systemDefault());
-        LocalDateTime endTime = LocalDateTime.ofInstant(request.getEndTime().toInstant(), ZoneId.systemDefault());
-        
-        if (log.getRequestTime().isBefore(startTime) || log.getRequestTime().isAfter(endTime)) {
-            return false;
+    private DataFileCursor openCursor(SegmentPlan plan, LogPredicate predicate, LocalDateTime startTime,
+                                      LocalDateTime endTime, String filterKey, int resumeEntry,
+                                      LocalDateTime before, QueryContext context) throws IOException {
+        File dataFile = plan.dataFile;
+        File indexFile = DataFileCursor.indexFileFor(dataFile);
+        MappedSegment data = mapSegment(dataFile);
+        MappedSegment index;
+        try {
+            index = indexFile != null ? mapSegment(indexFile) : null;
+        } catch (IOException e) {
+            data.release();
+            throw e;
         }
-        
-        // 路径过滤
-        if (request.getPath() != null && !request.getPath().isEmpty()) {
-            if (log.getPath() == null || !log.getPath().contains(request.getPath())) {
-                return false;
-            }
+        DataFileCursor cursor = new DataFileCursor(dataFile, data, index, serializer,
+                log -> matches(log, predicate, startTime, endTime)
+                        && (before == null || log.getRequestTime().isBefore(before)),
+                startTime, plan.maxWriteLagMillis, resumeEntry);
+        // 附加了时间上限的过滤结果与查询条件不对应，不进缓存
+        if (matchCache != null && matchCache.isEnabled() && before == null) {
+            cursor.attachCache(matchCache, filterKey);
         }
-        
-        // 状态码过滤
-        if (request.getStatusCode() > 0) {
-            if (log.getStatusCode() != request.getStatusCode()) {
-                return false;
-            }
+        if (context != null) {
+            cursor.attachContext(context);
         }
-        
-        // 执行时间过滤
-        if (request.getMinDuration() > 0 && log.getExecutionTime() < request.getMinDuration()) {
-            return false;
+        if (predicate.level() == DecodeLevel.FULL) {
+            cursor.requireFullDecode();
+        } else if (predicate.level() == DecodeLevel.DIMENSION) {
+            cursor.requireDimensions();
         }
-        if (request.getMaxDuration() > 0 && log.getExecutionTime() > request.getMaxDuration()) {
-            return false;
+        // 词元索引的候选序号对应计划时的记录数，文件已封存时与游标一致；内存索引的候选之后的新记录逐条过滤
+        if (plan.strategy == SegmentPlan.Strategy.MEMORY_INDEX && plan.covered <= cursor.entryCount()) {
+            cursor.attachCandidates(plan.candidates, plan.covered);
+        } else if (plan.candidates != null && plan.strategy != SegmentPlan.Strategy.MEMORY_INDEX
+                && plan.records == cursor.entryCount()) {
+            cursor.attachCandidates(plan.candidates);
+        } else if (plan.strategy == SegmentPlan.Strategy.PARALLEL_SCAN) {
+            cursor.attachExecutor(scanExecutor);
         }
-        
-        // 异常信息过滤
-        if (request.getErrorKeyword() != null && !request.getErrorKeyword().isEmpty()) {
-            if (log.getExceptionMsg() == null || !log.getExceptionMsg().contains(request.getErrorKeyword())) {
-                return false;
-            }
+        return cursor;
+    }
+    
+    private static QueryExplain buildExplain(LogPredicate predicate, List<SegmentPlan> skippedPlans,
+                                             List<SegmentPlan> cursorPlans, List<DataFileCursor> cursors, long merged,
+                                             long parseNanos, long planNanos, long executeNanos, long totalNanos) {
+        List<QueryExplain.SegmentExplain> segments = new ArrayList<>();
+        long scanned = 0;
+        long decoded = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+            DataFileCursor cursor = cursors.get(i);
+            scanned += cursor.scannedCount();
+            decoded += cursor.decodedCount();
+            segments.add(cursorPlans.get(i).toExplain()
+                    .scannedRecords(cursor.scannedCount())
+                    .decodedRecords(cursor.decodedCount())
+                    .matchedRecords(cursor.matchedCount())
+                    .scanMicros(cursor.scanNanos() / 1000)
+                    .build());
+        }
+        for (SegmentPlan plan : skippedPlans) {
+            segments.add(plan.toExplain().build());
+        }
+        segments.sort(Comparator.comparing(QueryExplain.SegmentExplain::getFile));
+        return QueryExplain.builder()
+                .predicate(predicate.toString())
+                .decodeLevel(predicate.level().name())
+                .totalSegments(segments.size())
+                .skippedSegments(skippedPlans.size())
+                .scannedSegments(cursors.size())
+                .scannedRecords(scanned)
+                .decodedRecords(decoded)
+                .matchedRecords(merged)
+                .parseMicros(parseNanos / 1000)
+                .planMicros(planNanos / 1000)
+                .executeMicros(executeNanos / 1000)
+                .totalMicros(totalNanos / 1000)
+                .segments(segments)
+                .build();
+    }
+    
+    // 优先取常驻索引登记的文件，常驻索引未启用时列目录
+    private File[] listDataFiles(File dir) {
+        File[] dataFiles = catalog != null ? catalog.dataFiles() : null;
+        return dataFiles != null ? dataFiles : dir.listFiles(file -> file.getName().endsWith(".data"));
+    }
+    
+    // 优先复用映射池中的映射，没有映射池时单独映射，用完即解除
+    private MappedSegment mapSegment(File file) throws IOException {
+        return segmentPool != null ? segmentPool.acquire(file) : MappedSegment.map(file, null);
+    }
+    
+    // 规范化的过滤条件，不含分页参数：时间范围加条件树的规范形式
+    private static String filterKey(LogQueryRequest request, LogPredicate predicate) {
+        return (request.getStartTime() != null ? request.getStartTime().getTime() : "") + "|"
+                + (request.getEndTime() != null ? request.getEndTime().getTime() : "") + "|"
+                + predicate;
+    }
+    
+    // 查询条件指纹，不含分页参数
+    private static int filterHash(LogQueryRequest request, LogPredicate predicate) {
+        return Objects.hash(request.getStartTime(), request.getEndTime(), predicate.toString(), request.getPageSize());
+    }
+    
+    private String encodeCursor(QueryCursor cursor) throws IOException {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+    }
+    
+    // 无法解析时返回null
+    private QueryCursor decodeCursor(String token) {
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(token), QueryCursor.class);
+        } catch (Exception e) {
+            log.warn("解析分页游标失败: {}", e.getMessage());
+            return null;
         }
-        
-        return true;
     }
     
     /**
-     * 判断文件是否在时间范围内（基于文件名）
+     * 判断日志是否在时间范围内且满足条件树，起止时间为null时不限
      */
-    private boolean isFileInTimeRange(String fileName, LogQueryRequest request) {
-        // 简单实现：假设任何文件都可能包含时间范围内的日志
-        // 实际生产中可以从文件名解析时间戳做更精确的筛选
-        return true;
+    static boolean matches(ApiLog log, LogPredicate predicate, LocalDateTime startTime, LocalDateTime endTime) {
+        if (log.getRequestTime() == null) {
+            return false;
+        }
+        if ((startTime != null && log.getRequestTime().isBefore(startTime))
+                || (endTime != null && log.getRequestTime().isAfter(endTime))) {
+            return false;
+        }
+        return predicate.test(log);
+    }
+    
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
     }
-} 
\ No newline at end of file
+}
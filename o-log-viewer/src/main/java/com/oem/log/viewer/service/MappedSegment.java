@@ -0,0 +1,105 @@
+package com.oem.log.viewer.service;
+
+import jdk.internal.ref.Cleaner;
+import lombok.extern.slf4j.Slf4j;
+import sun.nio.ch.DirectBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 只读映射的日志文件（数据文件或索引文件）
+ * 只使用绝对位置读取，解码时另取duplicate，可以被多个查询同时使用。
+ * 由池管理时引用计数归零且被淘汰后才解除映射；不由池管理时release直接解除映射
+ */
+@Slf4j
+final class MappedSegment {
+
+    private static final int PAGE_SIZE = 4096;
+
+    // 防止预读循环被优化掉
+    private static volatile byte sink;
+
+    private final String path;
+    private final long length;
+    private final MappedByteBuffer buffer;
+    private final MappedSegmentPool pool;
+
+    // 以下字段由池加锁访问
+    int refCount;
+    boolean retired;
+    boolean prefetched;
+
+    private MappedSegment(String path, long length, MappedByteBuffer buffer, MappedSegmentPool pool) {
+        this.path = path;
+        this.length = length;
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    /**
+     * 映射整个文件，映射在通道关闭后仍然有效
+     * @param pool 管理该映射的池，为null时由使用方自行释放
+     */
+    static MappedSegment map(File file, MappedSegmentPool pool) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            return new MappedSegment(file.getAbsolutePath(), size,
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size), pool);
+        }
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * 使用完毕，与acquire或map成对调用
+     */
+    void release() {
+        if (pool != null) {
+            pool.release(this);
+        } else {
+            unmap();
+        }
+    }
+
+    /**
+     * 逐页读取前length字节，把已写入的部分提前载入页缓存。
+     * 文件是预分配的，尾部为0，只预读已写入部分，避免整文件load
+     */
+    void touch(long length) {
+        long limit = Math.min(length, buffer.capacity());
+        byte value = 0;
+        for (long position = 0; position < limit; position += PAGE_SIZE) {
+            value ^= buffer.get((int) position);
+        }
+        sink = value;
+    }
+
+    /**
+     * 立即解除映射，之后不能再访问buffer
+     */
+    void unmap() {
+        try {
+            Cleaner cleaner = ((DirectBuffer) buffer).cleaner();
+            if (cleaner != null) {
+                cleaner.clean();
+            }
+        } catch (Exception e) {
+            log.error("解除文件映射失败: " + path, e);
+        }
+    }
+}
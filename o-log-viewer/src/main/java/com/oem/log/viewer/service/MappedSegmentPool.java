@@ -0,0 +1,234 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.viewer.model.SegmentPoolStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查看器常驻的文件映射池
+ * 数据文件和索引文件都是预分配的定长文件，写入端追加的内容通过共享映射可见，
+ * 同一文件的映射可以跨查询复用，不必每次查询重新mmap并重新缺页。
+ * 映射按引用计数管理：总映射字节数超过上限时按LRU淘汰空闲映射并立即解除映射，
+ * 仍在使用的映射只标记淘汰，最后一个使用者释放时再解除
+ */
+@Slf4j
+@Component
+public class MappedSegmentPool {
+
+    // 预读队列长度，排不上的预读请求直接丢弃
+    private static final int PREFETCH_QUEUE_SIZE = 64;
+
+    @Value("${oem.log.query.segment-pool.max-mapped-bytes:2147483648}")
+    private long maxMappedBytes = 2L * 1024 * 1024 * 1024;
+
+    @Value("${oem.log.query.segment-pool.prefetch:true}")
+    private boolean prefetchEnabled = true;
+
+    private final LinkedHashMap<String, MappedSegment> segments = new LinkedHashMap<>(64, 0.75f, true);
+    private long mappedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE), r -> {
+                Thread thread = new Thread(r, "log-segment-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * 获取文件映射并增加引用计数，使用完毕后调用MappedSegment.release
+     */
+    MappedSegment acquire(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        synchronized (segments) {
+            MappedSegment segment = segments.get(path);
+            if (segment != null && segment.getLength() == length) {
+                segment.refCount++;
+                hits.increment();
+                return segment;
+            }
+            // 文件被替换为不同长度的新文件时，旧映射不再复用
+            if (segment != null) {
+                retire(segment);
+            }
+            misses.increment();
+            evictDeleted();
+
+            segment = MappedSegment.map(file, this);
+            segment.refCount = 1;
+            segments.put(path, segment);
+            mappedBytes += segment.getLength();
+            evictIdle();
+            return segment;
+        }
+    }
+
+    /**
+     * 释放一次引用
+     */
+    void release(MappedSegment segment) {
+        synchronized (segments) {
+            segment.refCount--;
+            if (segment.refCount > 0) {
+                return;
+            }
+            if (segment.retired) {
+                segment.unmap();
+            } else {
+                evictIdle();
+            }
+        }
+    }
+
+    /**
+     * 后台预读查询时间窗口内的文件：按索引确定已写入的范围，把索引和数据的已写入部分载入页缓存。
+     * 每个映射只预读一次，没有索引的文件不预读（查询时会顺序扫描一遍）
+     */
+    void prefetch(File[] dataFiles) {
+        if (!prefetchEnabled) {
+            return;
+        }
+        for (File dataFile : dataFiles) {
+            File indexFile = DataFileCursor.indexFileFor(dataFile);
+            if (indexFile == null) {
+                continue;
+            }
+            prefetchExecutor.execute(() -> prefetch(dataFile, indexFile));
+        }
+    }
+
+    private void prefetch(File dataFile, File indexFile) {
+        MappedSegment data = null;
+        MappedSegment index = null;
+        try {
+            data = acquire(dataFile);
+            index = acquire(indexFile);
+            synchronized (segments) {
+                if (data.prefetched) {
+                    return;
+                }
+                data.prefetched = true;
+            }
+
+            int entries = DataFileCursor.countIndexEntries(index.buffer());
+            index.touch((long) entries * DataFileCursor.INDEX_ENTRY_SIZE);
+            if (entries > 0) {
+                int last = (entries - 1) * DataFileCursor.INDEX_ENTRY_SIZE;
+                data.touch(index.buffer().getLong(last) + index.buffer().getInt(last + 8));
+            }
+        } catch (Exception e) {
+            log.warn("预读日志文件失败: {}", dataFile.getName(), e);
+        } finally {
+            if (index != null) {
+                index.release();
+            }
+            if (data != null) {
+                data.release();
+            }
+        }
+    }
+
+    // 从池中移除，空闲时立即解除映射，否则等最后一个使用者释放
+    private void retire(MappedSegment segment) {
+        segments.remove(segment.getPath());
+        mappedBytes -= segment.getLength();
+        segment.retired = true;
+        if (segment.refCount == 0) {
+            segment.unmap();
+        }
+    }
+
+    // 已被清理的文件仍被映射时磁盘空间不会释放，新建映射前先移除这些空闲映射
+    private void evictDeleted() {
+        Iterator<Map.Entry<String, MappedSegment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            MappedSegment segment = iterator.next().getValue();
+            if (segment.refCount == 0 && !new File(segment.getPath()).exists()) {
+                iterator.remove();
+                mappedBytes -= segment.getLength();
+                segment.retired = true;
+                segment.unmap();
+            }
+        }
+    }
+
+    // 超出映射上限时按访问顺序淘汰空闲映射，全部在用时允许暂时超出
+    private void evictIdle() {
+        Iterator<Map.Entry<String, MappedSegment>> iterator = segments.entrySet().iterator();
+        while (mappedBytes > maxMappedBytes && iterator.hasNext()) {
+            MappedSegment eldest = iterator.next().getValue();
+            if (eldest.refCount > 0) {
+                continue;
+            }
+            iterator.remove();
+            mappedBytes -= eldest.getLength();
+            eldest.retired = true;
+            eldest.unmap();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 获取映射池统计
+     */
+    public SegmentPoolStats getStats() {
+        int count;
+        int inUse = 0;
+        long bytes;
+        synchronized (segments) {
+            count = segments.size();
+            bytes = mappedBytes;
+            for (MappedSegment segment : segments.values()) {
+                if (segment.refCount > 0) {
+                    inUse++;
+                }
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return SegmentPoolStats.builder()
+                .segments(count)
+                .inUse(inUse)
+                .mappedBytes(bytes)
+                .maxMappedBytes(maxMappedBytes)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount))
+                .evictions(evictions.sum())
+                .build();
+    }
+
+    /**
+     * 关闭时解除所有空闲映射，仍在使用的映射在释放时解除
+     */
+    @PreDestroy
+    public void close() {
+        prefetchExecutor.shutdownNow();
+        synchronized (segments) {
+            for (MappedSegment segment : segments.values()) {
+                segment.retired = true;
+                if (segment.refCount == 0) {
+                    segment.unmap();
+                }
+            }
+            segments.clear();
+            mappedBytes = 0;
+        }
+    }
+}
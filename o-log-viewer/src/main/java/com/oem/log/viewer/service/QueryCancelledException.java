@@ -0,0 +1,13 @@
+package com.oem.log.viewer.service;
+
+/**
+ * 查询被取消或超时，由扫描循环抛出并在查询入口处转换为提示信息
+ */
+class QueryCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    QueryCancelledException(String message) {
+        super(message, null, false, false);
+    }
+}
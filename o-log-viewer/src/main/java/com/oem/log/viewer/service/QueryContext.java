@@ -0,0 +1,66 @@
+package com.oem.log.viewer.service;
+
+/**
+ * 单次查询的取消标记和截止时间
+ * 扫描循环每隔若干条记录调用check，浏览器取消或超过超时时间后抛出QueryCancelledException，
+ * 并行扫描的叶子任务调用isCancelled提前结束
+ */
+final class QueryContext {
+
+    // 每扫描这么多条记录检查一次，避免逐条读取时钟
+    static final int CHECK_INTERVAL = 64;
+
+    private final String queryId;
+    private volatile long deadlineNanos;
+    private volatile boolean deadlineSet;
+    private volatile boolean timedOut;
+    private volatile String cancelReason;
+
+    QueryContext(String queryId) {
+        this.queryId = queryId;
+    }
+
+    /**
+     * 开始执行时设置超时，排队时间不计入
+     * @param timeoutMillis 超时时间，不大于0表示不限
+     */
+    void startTimer(long timeoutMillis) {
+        if (timeoutMillis > 0) {
+            deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+            deadlineSet = true;
+        }
+    }
+
+    String getQueryId() {
+        return queryId;
+    }
+
+    void cancel(String reason) {
+        cancelReason = reason;
+    }
+
+    boolean isCancelled() {
+        if (cancelReason != null) {
+            return true;
+        }
+        if (deadlineSet && System.nanoTime() - deadlineNanos > 0) {
+            timedOut = true;
+            cancelReason = "查询超时，请缩小时间范围或增加过滤条件";
+            return true;
+        }
+        return false;
+    }
+
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * 已取消或超时时抛出QueryCancelledException
+     */
+    void check() {
+        if (isCancelled()) {
+            throw new QueryCancelledException(cancelReason);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.oem.log.viewer.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogField;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.summary.SegmentSummary;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 查询计划
+ * 对每个数据文件依次尝试：按文件摘要的请求时间范围跳过；按摘要中的状态码/路径/方法/耗时分布估算条件的命中比例，
+ * 上限为0时跳过；文件在常驻索引中时按内存列的请求时间、路径和状态码找出候选，为0时跳过，候选占比低时只校验候选；
+ * 条件能用词元索引时按倒排表长度估算候选数，为0时跳过，否则比较按候选随机访问与顺序扫描的代价；
+ * 都不适用时顺序扫描，记录数多且不需要完整解码时并行扫描。
+ * 摘要和词元索引只在记录数与索引文件一致（文件已封存）时使用；常驻索引也跟随正在写入的文件，尚未建立内存列的新记录总是过滤
+ */
+@Slf4j
+final class QueryPlanner {
+
+    // 单条记录的相对代价：字段探测、带维度的字段探测、完整反序列化
+    private static final double PROBE_COST = 1.0;
+    private static final double DIMENSION_COST = 1.2;
+    private static final double DECODE_COST = 6.0;
+
+    // 按候选序号跳跃访问相对顺序访问的额外代价，以及每个候选分摊的倒排表解码代价
+    private static final double RANDOM_ACCESS_PENALTY = 1.5;
+    private static final double POSTING_COST = 0.1;
+
+    // 已读取的文件摘要，封存后不再变化
+    private static final int MAX_CACHED_SUMMARIES = 4096;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, SegmentSummary> summaries = new LinkedHashMap<String, SegmentSummary>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SegmentSummary> eldest) {
+            return size() > MAX_CACHED_SUMMARIES;
+        }
+    };
+
+    /**
+     * 生成单个文件的扫描计划
+     * @param startTime 查询起点，为null时不限
+     * @param endTime 查询终点，为null时不限
+     * @param pool 映射池，为null时单独映射
+     * @param executor 并行扫描线程池，为null时不并行
+     * @param catalog 常驻索引，为null时不使用
+     */
+    SegmentPlan plan(File dataFile, LogPredicate predicate, LocalDateTime startTime, LocalDateTime endTime,
+                     MappedSegmentPool pool, SegmentScanExecutor executor, SegmentCatalog catalog) {
+        File indexFile = DataFileCursor.indexFileFor(dataFile);
+        if (indexFile == null) {
+            return scan(dataFile, -1, predicate, executor, -1, -1, "没有索引文件");
+        }
+        int records;
+        try {
+            records = countEntries(indexFile, pool);
+        } catch (IOException e) {
+            log.warn("读取索引文件失败: {}", indexFile.getName(), e);
+            return scan(dataFile, -1, predicate, executor, -1, -1, "读取索引文件失败");
+        }
+
+        long estimated = records;
+        String reason = "没有文件摘要";
+        SegmentSummary summary = summaryFor(indexFile, records);
+        long writeLag = summary != null ? summary.getMaxWriteLagMillis() : -1;
+        if (summary != null) {
+            long startMillis = startTime != null ? toMillis(startTime) : Long.MIN_VALUE;
+            long endMillis = endTime != null ? toMillis(endTime) : Long.MAX_VALUE;
+            if (summary.getMaxRequestTime() < startMillis || summary.getMinRequestTime() > endMillis) {
+                return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.SKIP_TIME,
+                        "文件请求时间" + describeRange(summary) + "与查询范围不相交", 0, null);
+            }
+            double[] bounds = bounds(predicate, summary);
+            estimated = (long) Math.ceil(bounds[1] * records);
+            if (estimated == 0) {
+                return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.SKIP_SUMMARY,
+                        "文件摘要中没有满足条件的记录", 0, null);
+            }
+            reason = "文件摘要估算命中比例" + percent(bounds[0]) + "~" + percent(bounds[1]);
+        }
+
+        SegmentCatalog.Candidates memory = catalog != null
+                ? catalog.candidates(dataFile, predicate, startTime, endTime) : null;
+        if (memory != null) {
+            long uncovered = Math.max(0, records - memory.covered);
+            long candidates = memory.ordinals.length + uncovered;
+            estimated = Math.min(estimated, candidates);
+            if (candidates == 0) {
+                return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.SKIP_MEMORY,
+                        "内存索引中没有满足时间范围和条件的记录", 0, null);
+            }
+            if (candidates * RANDOM_ACCESS_PENALTY < records) {
+                return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.MEMORY_INDEX,
+                        "内存索引给出候选" + memory.ordinals.length + "条，另有" + uncovered + "条新记录待过滤",
+                        estimated, memory.ordinals, memory.covered, writeLag);
+            }
+            reason = "内存索引给出候选" + candidates + "条，占比过高，顺序扫描代价更低";
+        }
+
+        if (TokenIndex.isIndexable(predicate)) {
+            try (TokenIndex index = TokenIndex.open(dataFile, records, pool)) {
+                if (index != null) {
+                    long indexed = Math.min(index.estimate(predicate), records);
+                    estimated = Math.min(estimated, indexed);
+                    if (indexed == 0) {
+                        return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.SKIP_INDEX,
+                                "词元索引中没有候选记录", 0, null);
+                    }
+                    double recordCost = recordCost(predicate.level());
+                    double scanCost = records * recordCost;
+                    double indexCost = indexed * (recordCost * RANDOM_ACCESS_PENALTY + POSTING_COST);
+                    if (indexCost < scanCost) {
+                        int[] candidates = index.candidates(predicate);
+                        if (candidates.length == 0) {
+                            return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.SKIP_INDEX,
+                                    "词元索引中没有候选记录", 0, null);
+                        }
+                        return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.TOKEN_INDEX,
+                                "词元索引估算候选" + indexed + "条，代价低于顺序扫描",
+                                Math.min(estimated, candidates.length), candidates, records, writeLag);
+                    }
+                    reason = "词元索引估算候选" + indexed + "条，占比过高，顺序扫描代价更低";
+                }
+            }
+        }
+        return scan(dataFile, records, predicate, executor, estimated, writeLag, reason);
+    }
+
+    private static SegmentPlan scan(File dataFile, int records, LogPredicate predicate, SegmentScanExecutor executor,
+                                    long estimated, long writeLag, String reason) {
+        // 并行扫描的叶子任务只做字段探测，需要完整解码的条件顺序扫描
+        if (executor != null && records >= 0 && predicate.level() != DecodeLevel.FULL
+                && executor.shouldParallelize(records)) {
+            return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.PARALLEL_SCAN, reason, estimated, null,
+                    records, writeLag);
+        }
+        return new SegmentPlan(dataFile, records, SegmentPlan.Strategy.FULL_SCAN, reason, estimated, null,
+                records, writeLag);
+    }
+
+    private static int countEntries(File indexFile, MappedSegmentPool pool) throws IOException {
+        MappedSegment index = pool != null ? pool.acquire(indexFile) : MappedSegment.map(indexFile, null);
+        try {
+            return DataFileCursor.countIndexEntries(index.buffer());
+        } finally {
+            index.release();
+        }
+    }
+
+    // 读取文件摘要，没有摘要或记录数与索引不一致时返回null
+    private SegmentSummary summaryFor(File indexFile, int records) {
+        File file = SegmentSummary.fileFor(indexFile);
+        String key = file.getPath();
+        SegmentSummary summary;
+        synchronized (summaries) {
+            summary = summaries.get(key);
+        }
+        if (summary == null) {
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                summary = SegmentSummary.read(file, objectMapper);
+            } catch (IOException e) {
+                log.warn("读取文件摘要失败: {}", file.getName(), e);
+                return null;
+            }
+            synchronized (summaries) {
+                summaries.put(key, summary);
+            }
+        }
+        return summary.getRecords() == records ? summary : null;
+    }
+
+    /**
+     * 按文件摘要估算条件命中比例的下限和上限
+     */
+    static double[] bounds(LogPredicate predicate, SegmentSummary summary) {
+        if (summary.getRecords() == 0) {
+            return new double[]{0, 0};
+        }
+        if (predicate instanceof LogPredicate.Match) {
+            return matchBounds((LogPredicate.Match) predicate, summary);
+        }
+        if (predicate instanceof LogPredicate.And) {
+            double missing = 0;
+            double upper = 1;
+            for (LogPredicate child : ((LogPredicate.And) predicate).getChildren()) {
+                double[] bounds = bounds(child, summary);
+                missing += 1 - bounds[0];
+                upper = Math.min(upper, bounds[1]);
+            }
+            return new double[]{Math.max(0, 1 - missing), upper};
+        }
+        if (predicate instanceof LogPredicate.Or) {
+            double lower = 0;
+            double upper = 0;
+            for (LogPredicate child : ((LogPredicate.Or) predicate).getChildren()) {
+                double[] bounds = bounds(child, summary);
+                lower = Math.max(lower, bounds[0]);
+                upper += bounds[1];
+            }
+            return new double[]{lower, Math.min(1, upper)};
+        }
+        if (predicate instanceof LogPredicate.Not) {
+            double[] bounds = bounds(((LogPredicate.Not) predicate).getChild(), summary);
+            return new double[]{1 - bounds[1], 1 - bounds[0]};
+        }
+        return new double[]{1, 1};
+    }
+
+    private static double[] matchBounds(LogPredicate.Match match, SegmentSummary summary) {
+        double records = summary.getRecords();
+        LogField field = match.getField();
+        if (field == LogField.PATH || field == LogField.METHOD) {
+            Map<String, Long> counts = field == LogField.PATH ? summary.getPathCounts() : summary.getMethodCounts();
+            if (counts == null) {
+                return new double[]{0, 1};
+            }
+            long matched = 0;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                if (match.matchesText(entry.getKey())) {
+                    matched += entry.getValue();
+                }
+            }
+            return exact(matched / records);
+        }
+        if (field == LogField.STATUS && summary.getStatusCounts() != null) {
+            long matched = 0;
+            for (Map.Entry<Integer, Long> entry : summary.getStatusCounts().entrySet()) {
+                if (entry.getKey() >= match.getLow() && entry.getKey() <= match.getHigh()) {
+                    matched += entry.getValue();
+                }
+            }
+            return exact(matched / records);
+        }
+        if (field == LogField.DURATION) {
+            if (match.getHigh() < summary.getMinExecutionTime() || match.getLow() > summary.getMaxExecutionTime()) {
+                return exact(0);
+            }
+            if (match.getLow() <= summary.getMinExecutionTime() && match.getHigh() >= summary.getMaxExecutionTime()) {
+                return exact(1);
+            }
+            return new double[]{0, 1};
+        }
+        if (field == LogField.EXCEPTION) {
+            // 异常信息为空的记录不可能匹配文本条件
+            return new double[]{0, summary.getExceptionCount() / records};
+        }
+        return new double[]{0, 1};
+    }
+
+    private static double[] exact(double fraction) {
+        return new double[]{fraction, fraction};
+    }
+
+    private static double recordCost(DecodeLevel level) {
+        switch (level) {
+            case FULL:
+                return DECODE_COST;
+            case DIMENSION:
+                return DIMENSION_COST;
+            default:
+                return PROBE_COST;
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String describeRange(SegmentSummary summary) {
+        if (summary.getMinRequestTime() > summary.getMaxRequestTime()) {
+            return "（无记录）";
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(summary.getMinRequestTime()), zone) + " ~ "
+                + LocalDateTime.ofInstant(Instant.ofEpochMilli(summary.getMaxRequestTime()), zone);
+    }
+
+    private static String percent(double fraction) {
+        return String.format("%.1f%%", fraction * 100);
+    }
+}
@@ -0,0 +1,181 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.viewer.model.QueryStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查询准入控制
+ * 同时执行的查询数受信号量限制，其余查询公平排队；排队数已满或等待超时的查询直接拒绝。
+ * 每个查询登记一个QueryContext，客户端可按queryId取消排队中或执行中的查询
+ */
+@Slf4j
+@Component
+public class QueryScheduler {
+
+    // 排队时检查取消标记的间隔
+    private static final long QUEUE_POLL_MILLIS = 100;
+
+    @Value("${oem.log.query.max-concurrent:4}")
+    private int maxConcurrent = 4;
+
+    @Value("${oem.log.query.max-queued:32}")
+    private int maxQueued = 32;
+
+    @Value("${oem.log.query.queue-timeout-ms:10000}")
+    private long queueTimeoutMs = 10000;
+
+    @Value("${oem.log.query.timeout-ms:30000}")
+    private long timeoutMs = 30000;
+
+    @Value("${oem.log.query.max-page-size:1000}")
+    private int maxPageSize = 1000;
+
+    @Value("${oem.log.query.max-result-bytes:67108864}")
+    private long maxResultBytes = 64L * 1024 * 1024;
+
+    private Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, QueryContext> active = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder queueWaitMillis = new LongAdder();
+    private final AtomicLong maxQueueWaitMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, maxConcurrent), true);
+    }
+
+    /**
+     * 等待执行许可，成功后开始计时
+     * @param queryId 客户端生成的查询标识，为空时自动生成
+     * @throws QueryCancelledException 排队已满、等待超时或排队期间被取消
+     */
+    QueryContext admit(String queryId) {
+        String id = queryId != null && !queryId.isEmpty() ? queryId : UUID.randomUUID().toString();
+        QueryContext context = new QueryContext(id);
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new QueryCancelledException("查询繁忙，请稍后重试");
+        }
+
+        active.put(id, context);
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+            while (!acquired) {
+                if (context.isCancelled()) {
+                    cancelled.increment();
+                    throw new QueryCancelledException("查询已取消");
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new QueryCancelledException("查询繁忙，排队超时，请稍后重试");
+                }
+                acquired = permits.tryAcquire(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(QUEUE_POLL_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException("查询已取消");
+        } finally {
+            queued.decrementAndGet();
+            if (!acquired) {
+                active.remove(id, context);
+            }
+        }
+
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        queueWaitMillis.add(waited);
+        maxQueueWaitMillis.accumulateAndGet(waited, Math::max);
+        admitted.increment();
+        context.startTimer(timeoutMs);
+        return context;
+    }
+
+    /**
+     * 查询结束，归还许可并按结果计数
+     */
+    void release(QueryContext context) {
+        active.remove(context.getQueryId(), context);
+        permits.release();
+        if (context.isTimedOut()) {
+            timedOut.increment();
+        } else if (context.isCancelled()) {
+            cancelled.increment();
+        }
+    }
+
+    /**
+     * 记录一次因超出内存预算而截断的查询
+     */
+    void recordTruncated() {
+        truncated.increment();
+    }
+
+    /**
+     * 取消排队中或执行中的查询
+     * @return 查询不存在或已结束时返回false
+     */
+    public boolean cancel(String queryId) {
+        QueryContext context = queryId != null ? active.get(queryId) : null;
+        if (context == null) {
+            return false;
+        }
+        context.cancel("查询已取消");
+        log.info("取消查询: {}", queryId);
+        return true;
+    }
+
+    /**
+     * 每页记录数上限
+     */
+    int clampPageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, maxPageSize));
+    }
+
+    /**
+     * 单次查询返回结果的字节预算（按记录序列化大小估算）
+     */
+    long getMaxResultBytes() {
+        return maxResultBytes;
+    }
+
+    /**
+     * 获取调度统计
+     */
+    public QueryStats getStats() {
+        long admittedCount = admitted.sum();
+        return QueryStats.builder()
+                .maxConcurrent(maxConcurrent)
+                .running(Math.max(0, maxConcurrent - permits.availablePermits()))
+                .queued(queued.get())
+                .admitted(admittedCount)
+                .rejected(rejected.sum())
+                .cancelled(cancelled.sum())
+                .timedOut(timedOut.sum())
+                .truncated(truncated.sum())
+                .avgQueueWaitMs(admittedCount == 0 ? 0 : (double) queueWaitMillis.sum() / admittedCount)
+                .maxQueueWaitMs(maxQueueWaitMillis.get())
+                .build();
+    }
+}
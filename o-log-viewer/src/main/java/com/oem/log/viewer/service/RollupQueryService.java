@@ -0,0 +1,148 @@
+package com.oem.log.viewer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.rollup.RollupAccumulator;
+import com.oem.log.core.rollup.RollupFiles;
+import com.oem.log.core.rollup.RollupKey;
+import com.oem.log.core.rollup.RollupRecord;
+import com.oem.log.viewer.model.DashboardRequest;
+import com.oem.log.viewer.model.DashboardResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 接口看板查询服务
+ * 只读取写入端生成的.rollup汇总文件并合并直方图，不扫描原始日志
+ */
+@Service
+@Slf4j
+public class RollupQueryService {
+
+    // 查询范围不超过该值时使用10秒粒度，否则使用1分钟粒度
+    private static final long FINE_RESOLUTION_MAX_RANGE_MS = 60 * 60 * 1000L;
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    @Value("${oem.log.query.search-dir}")
+    private String searchDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 查询接口RED指标
+     */
+    public DashboardResult queryDashboard(DashboardRequest request) {
+        long begin = System.currentTimeMillis();
+        long startTime = request.getStartTime().getTime();
+        long endTime = request.getEndTime().getTime();
+        int resolution = endTime - startTime <= FINE_RESOLUTION_MAX_RANGE_MS ? 10 : 60;
+
+        File dir = new File(searchDir);
+        File[] rollupFiles = dir.listFiles(file -> {
+            if (!RollupFiles.isRollupFile(file.getName(), resolution)) {
+                return false;
+            }
+            // 按文件名中的小时裁剪，无法解析时保守读取
+            long hourStart = RollupFiles.parseHourStart(file.getName());
+            return hourStart < 0 || (hourStart < endTime && hourStart + HOUR_MS > startTime);
+        });
+
+        if (rollupFiles == null || rollupFiles.length == 0) {
+            return DashboardResult.builder()
+                    .resolutionSeconds(resolution)
+                    .endpoints(new ArrayList<>())
+                    .series(new ArrayList<>())
+                    .message("未找到汇总文件，请确认写入端已开启oem.log.rollup.enabled")
+                    .elapsedMillis(System.currentTimeMillis() - begin)
+                    .build();
+        }
+
+        Map<RollupKey, RollupAccumulator> byEndpoint = new HashMap<>();
+        TreeMap<Long, RollupAccumulator> byWindow = new TreeMap<>();
+
+        for (File file : rollupFiles) {
+            try {
+                for (RollupRecord record : RollupFiles.read(file, objectMapper)) {
+                    if (!matches(record, request, startTime, endTime)) {
+                        continue;
+                    }
+                    RollupKey key = new RollupKey(record.getPath(), record.getMethod(), record.getStatusClass());
+                    byEndpoint.computeIfAbsent(key, k -> new RollupAccumulator()).merge(record);
+                    byWindow.computeIfAbsent(record.getWindowStart(), k -> new RollupAccumulator()).merge(record);
+                }
+            } catch (Exception e) {
+                log.error("读取汇总文件失败: " + file.getName(), e);
+            }
+        }
+
+        double rangeSeconds = Math.max(1, (endTime - startTime) / 1000.0);
+        List<DashboardResult.EndpointStats> endpoints = new ArrayList<>();
+        for (Map.Entry<RollupKey, RollupAccumulator> entry : byEndpoint.entrySet()) {
+            RollupKey key = entry.getKey();
+            RollupAccumulator stats = entry.getValue();
+            endpoints.add(DashboardResult.EndpointStats.builder()
+                    .path(key.getPath())
+                    .method(key.getMethod())
+                    .statusClass(key.getStatusClass())
+                    .count(stats.getCount())
+                    .errorCount(stats.getErrorCount())
+                    .errorRate(stats.getErrorRate())
+                    .ratePerSecond(stats.getCount() / rangeSeconds)
+                    .avgMillis(stats.getAvgMillis())
+                    .p50Millis(stats.getPercentile(50))
+                    .p90Millis(stats.getPercentile(90))
+                    .p99Millis(stats.getPercentile(99))
+                    .maxMillis(stats.getMaxMillis())
+                    .build());
+        }
+        endpoints.sort((o1, o2) -> Long.compare(o2.getCount(), o1.getCount()));
+
+        List<DashboardResult.SeriesPoint> series = new ArrayList<>();
+        for (Map.Entry<Long, RollupAccumulator> entry : byWindow.entrySet()) {
+            series.add(DashboardResult.SeriesPoint.builder()
+                    .windowStart(entry.getKey())
+                    .count(entry.getValue().getCount())
+                    .errorCount(entry.getValue().getErrorCount())
+                    .p99Millis(entry.getValue().getPercentile(99))
+                    .build());
+        }
+
+        return DashboardResult.builder()
+                .resolutionSeconds(resolution)
+                .endpoints(endpoints)
+                .series(series)
+                .scannedFiles(rollupFiles.length)
+                .elapsedMillis(System.currentTimeMillis() - begin)
+                .build();
+    }
+
+    /**
+     * 判断汇总记录是否匹配过滤条件
+     */
+    private boolean matches(RollupRecord record, DashboardRequest request, long startTime, long endTime) {
+        if (record.getWindowStart() + record.getWindowSeconds() * 1000L <= startTime
+                || record.getWindowStart() >= endTime) {
+            return false;
+        }
+
+        if (request.getPath() != null && !request.getPath().isEmpty()) {
+            if (record.getPath() == null || !record.getPath().contains(request.getPath())) {
+                return false;
+            }
+        }
+
+        if (request.getMethod() != null && !request.getMethod().isEmpty()) {
+            return request.getMethod().equalsIgnoreCase(record.getMethod());
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,325 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.DecodeLevel;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.rollup.RollupAccumulator;
+import com.oem.log.core.rollup.RollupKey;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.serializer.LogRecordProbe;
+import com.oem.log.viewer.model.QueryExplain;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 聚合查询的文件扫描
+ * 每个数据文件单独扫描一遍，只解析过滤和分组需要的字段，累加成该文件的部分结果（分组 -> 累加器），
+ * 各文件的部分结果在fork/join线程池中并行计算后两两合并；每个文件先由查询计划决定跳过、只访问词元索引或内存索引的候选记录或顺序扫描。
+ * 分组数达到上限后新出现的分组归并到_other_分组，内存只与分组上限相关，与记录数无关
+ */
+@Slf4j
+final class SegmentAggregator {
+
+    private final LogPredicate predicate;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final boolean byPath;
+    private final boolean byMethod;
+    private final boolean byStatus;
+    private final boolean byHost;
+    private final long bucketMillis;
+    private final int maxGroups;
+    private final MappedSegmentPool pool;
+    private final SegmentCatalog catalog;
+    private final QueryContext context;
+    private final JsonLogSerializer serializer;
+    private final boolean fullDecode;
+    private final QueryPlanner planner;
+    private final boolean explain;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * @param groupBy 逗号分隔的分组维度：path、method、status、host
+     * @param bucketSeconds 时间桶宽度，不大于0时不分桶
+     * @param pool 映射池，为null时每个文件单独映射
+     * @param catalog 常驻索引，为null时不使用
+     * @param context 取消标记，为null时不检查
+     * @param serializer 过滤条件用到请求参数或响应体时用于完整解码
+     * @param explain 是否收集各文件的计划和统计
+     */
+    SegmentAggregator(LogPredicate predicate, LocalDateTime startTime, LocalDateTime endTime, String groupBy,
+                      int bucketSeconds, int maxGroups, MappedSegmentPool pool, SegmentCatalog catalog,
+                      QueryContext context, JsonLogSerializer serializer, QueryPlanner planner, boolean explain) {
+        this.predicate = predicate;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        String dimensions = groupBy == null ? "" : "," + groupBy.replace(" ", "").toLowerCase() + ",";
+        this.byPath = dimensions.contains(",path,");
+        this.byMethod = dimensions.contains(",method,");
+        this.byStatus = dimensions.contains(",status,");
+        this.byHost = dimensions.contains(",host,");
+        this.bucketMillis = bucketSeconds > 0 ? bucketSeconds * 1000L : 0;
+        this.maxGroups = maxGroups;
+        this.pool = pool;
+        this.catalog = catalog;
+        this.context = context;
+        this.serializer = serializer;
+        this.fullDecode = predicate.level() == DecodeLevel.FULL;
+        this.planner = planner;
+        this.explain = explain;
+    }
+
+    /**
+     * 聚合所有文件，executor为null或只有一个文件时顺序扫描
+     */
+    Partial aggregate(File[] dataFiles, SegmentScanExecutor executor) {
+        if (executor != null && dataFiles.length > 1) {
+            return executor.invoke(new FileRangeTask(dataFiles, 0, dataFiles.length));
+        }
+        Partial result = new Partial();
+        for (File dataFile : dataFiles) {
+            result.merge(aggregate(dataFile), maxGroups);
+        }
+        return result;
+    }
+
+    // 按计划扫描单个文件，解析失败时保留已累加的部分并结束该文件
+    private Partial aggregate(File dataFile) {
+        Partial partial = new Partial();
+        if (isCancelled()) {
+            return partial;
+        }
+        long planBegin = System.nanoTime();
+        // 文件级并行已占满线程池，文件内不再并行
+        SegmentPlan plan = planner.plan(dataFile, predicate, startTime, endTime, pool, null, catalog);
+        long scanBegin = System.nanoTime();
+        partial.planNanos = scanBegin - planBegin;
+        if (plan.strategy.isSkip()) {
+            if (explain) {
+                partial.segments.add(plan.toExplain().build());
+            }
+            return partial;
+        }
+        partial.scannedFiles = 1;
+        LogRecordProbe probe = new LogRecordProbe(true);
+        MappedSegment data = null;
+        MappedSegment index = null;
+        try {
+            data = map(dataFile);
+            ByteBuffer buffer = data.buffer();
+            File indexFile = DataFileCursor.indexFileFor(dataFile);
+            if (indexFile != null) {
+                index = map(indexFile);
+                ByteBuffer entries = index.buffer();
+                int count = DataFileCursor.countIndexEntries(entries);
+                // 词元索引的候选序号对应计划时的记录数，文件仍在写入时按实际记录数扫描；内存索引的候选之后的新记录逐条扫描
+                int[] candidates = null;
+                int from = 0;
+                if (plan.strategy == SegmentPlan.Strategy.MEMORY_INDEX && plan.covered <= count) {
+                    candidates = plan.candidates;
+                    from = plan.covered;
+                } else if (plan.candidates != null && plan.strategy != SegmentPlan.Strategy.MEMORY_INDEX
+                        && plan.records == count) {
+                    candidates = plan.candidates;
+                    from = count;
+                }
+                int selected = candidates != null ? candidates.length : 0;
+                int total = selected + count - from;
+                for (int i = 0; i < total; i++) {
+                    int entry = i < selected ? candidates[i] : from + i - selected;
+                    long position = entries.getLong(entry * DataFileCursor.INDEX_ENTRY_SIZE);
+                    int size = entries.getInt(entry * DataFileCursor.INDEX_ENTRY_SIZE + 8);
+                    if (position < 0 || size <= 4 || position + size > buffer.capacity()
+                            || buffer.getInt((int) position) != size - 4) {
+                        continue;
+                    }
+                    if (!visit(read(probe, buffer, (int) position, size), partial)) {
+                        break;
+                    }
+                }
+            } else {
+                for (int position : DataFileCursor.scanOffsets(buffer)) {
+                    if (!visit(read(probe, buffer, position, 4 + buffer.getInt(position)), partial)) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("聚合日志文件失败: " + dataFile.getName(), e);
+        } finally {
+            if (index != null) {
+                index.release();
+            }
+            if (data != null) {
+                data.release();
+            }
+        }
+        if (explain) {
+            partial.segments.add(plan.toExplain()
+                    .scannedRecords(partial.scanned)
+                    .decodedRecords(fullDecode ? partial.scanned : 0)
+                    .matchedRecords(partial.matched)
+                    .scanMicros((System.nanoTime() - scanBegin) / 1000)
+                    .build());
+        }
+        return partial;
+    }
+
+    // 只解析过滤和分组字段，过滤条件用到请求参数或响应体时完整解码
+    private ApiLog read(LogRecordProbe probe, ByteBuffer buffer, int position, int size) throws IOException {
+        if (!fullDecode) {
+            return probe.read(buffer, position, size);
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        record.limit(position + size);
+        return serializer.deserialize(record);
+    }
+
+    // 累加一条记录，需要结束扫描时返回false
+    private boolean visit(ApiLog fields, Partial partial) {
+        partial.scanned++;
+        if (partial.scanned % QueryContext.CHECK_INTERVAL == 0 && isCancelled()) {
+            return false;
+        }
+        if (!LogQueryService.matches(fields, predicate, startTime, endTime)) {
+            return true;
+        }
+        partial.matched++;
+
+        Long bucketStart = null;
+        if (bucketMillis > 0) {
+            long millis = fields.getRequestTime().atZone(zone).toInstant().toEpochMilli();
+            bucketStart = Math.floorDiv(millis, bucketMillis) * bucketMillis;
+        }
+        GroupKey key = new GroupKey(bucketStart,
+                byPath ? fields.getPath() : null,
+                byMethod ? fields.getMethod() : null,
+                byStatus ? fields.getStatusCode() : null,
+                byHost ? fields.getHostname() : null);
+        // 与写入端汇总的错误口径一致
+        boolean error = fields.getStatusCode() >= 500 || fields.getExceptionMsg() != null;
+        partial.accumulatorFor(key, maxGroups).record(fields.getExecutionTime(), error);
+        return true;
+    }
+
+    private boolean isCancelled() {
+        return context != null && context.isCancelled();
+    }
+
+    private MappedSegment map(File file) throws IOException {
+        return pool != null ? pool.acquire(file) : MappedSegment.map(file, null);
+    }
+
+    /**
+     * 分组维度，未参与分组的维度为null
+     */
+    @Data
+    @AllArgsConstructor
+    static final class GroupKey {
+
+        private final Long bucketStart;
+
+        private final String path;
+
+        private final String method;
+
+        private final Integer statusCode;
+
+        private final String hostname;
+    }
+
+    /**
+     * 部分聚合结果
+     */
+    static final class Partial {
+
+        final Map<GroupKey, RollupAccumulator> groups = new HashMap<>();
+        // 超出分组上限的记录，按时间桶归并
+        final Map<Long, RollupAccumulator> others = new HashMap<>();
+        long scanned;
+        long matched;
+        int scannedFiles;
+        // 各文件生成计划的耗时之和
+        long planNanos;
+        // 各文件的计划和统计，不需要EXPLAIN时为空
+        final List<QueryExplain.SegmentExplain> segments = new ArrayList<>();
+
+        private RollupAccumulator accumulatorFor(GroupKey key, int maxGroups) {
+            RollupAccumulator accumulator = groups.get(key);
+            if (accumulator != null) {
+                return accumulator;
+            }
+            if (groups.size() < maxGroups) {
+                accumulator = new RollupAccumulator();
+                groups.put(key, accumulator);
+                return accumulator;
+            }
+            return others.computeIfAbsent(key.getBucketStart(), k -> new RollupAccumulator());
+        }
+
+        private void merge(Partial other, int maxGroups) {
+            scanned += other.scanned;
+            matched += other.matched;
+            scannedFiles += other.scannedFiles;
+            planNanos += other.planNanos;
+            segments.addAll(other.segments);
+            for (Map.Entry<GroupKey, RollupAccumulator> entry : other.groups.entrySet()) {
+                accumulatorFor(entry.getKey(), maxGroups).merge(entry.getValue());
+            }
+            for (Map.Entry<Long, RollupAccumulator> entry : other.others.entrySet()) {
+                others.computeIfAbsent(entry.getKey(), k -> new RollupAccumulator()).merge(entry.getValue());
+            }
+        }
+
+        /**
+         * 超出上限的记录使用的分组
+         */
+        static GroupKey otherKey(Long bucketStart) {
+            return new GroupKey(bucketStart, RollupKey.OTHER_PATH, null, null, null);
+        }
+    }
+
+    /**
+     * 按文件区间二分的聚合任务，叶子为单个文件
+     */
+    private final class FileRangeTask extends RecursiveTask<Partial> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File[] dataFiles;
+        private final int from;
+        private final int to;
+
+        private FileRangeTask(File[] dataFiles, int from, int to) {
+            this.dataFiles = dataFiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from == 1) {
+                return aggregate(dataFiles[from]);
+            }
+            int mid = (from + to) >>> 1;
+            FileRangeTask upper = new FileRangeTask(dataFiles, mid, to);
+            upper.fork();
+            Partial result = new FileRangeTask(dataFiles, from, mid).compute();
+            result.merge(upper.join(), maxGroups);
+            return result;
+        }
+    }
+}
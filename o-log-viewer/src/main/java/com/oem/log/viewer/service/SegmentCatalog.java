@@ -0,0 +1,659 @@
+package com.oem.log.viewer.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.LogField;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.serializer.LogRecordProbe;
+import com.oem.log.core.summary.SegmentSummary;
+import com.oem.log.viewer.model.SegmentCatalogStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查看器常驻的文件目录和记录索引
+ * 启动时列出search-dir登记数据文件，按文件摘要中的请求时间从新到旧，沿索引文件逐条读取请求时间、路径和状态码，
+ * 建立按记录序号排列的内存列；按新旧顺序累计的条数超过max-entries后，更早的文件不建立或释放内存列，查询时按原方式扫描。
+ * 之后由WatchService感知数据文件的创建和删除，后台线程每隔poll-interval-ms跟随各主机正在写入的索引文件追加新记录，
+ * 文件摘要出现或同一主机有了更新的文件后不再跟随。
+ * 查询从这里取得文件列表，不再每次列目录；查询计划按内存列给出候选序号，只校验候选记录
+ */
+@Slf4j
+@Component
+public class SegmentCatalog {
+
+    // 路径字典的上限，超出后的路径记为未知
+    private static final char UNKNOWN_PATH = 0xFFFF;
+
+    // 没有请求时间或读取失败的记录，查询时总是作为候选
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+    private static final short UNKNOWN_STATUS = -1;
+
+    // 兜底重新列目录的间隔，WatchService在网络文件系统上收不到其他主机写入的文件
+    private static final long RESCAN_INTERVAL_MS = 60_000;
+
+    // 条件在内存列上的判断结果：不命中、命中、无法判断（用到内存列以外的字段）
+    private static final int NO = 0;
+    private static final int YES = 1;
+    private static final int MAYBE = 2;
+
+    @Value("${oem.log.query.search-dir}")
+    private String searchDir;
+
+    @Value("${oem.log.query.catalog.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${oem.log.query.catalog.max-entries:4000000}")
+    private long maxEntries = 4_000_000;
+
+    @Value("${oem.log.query.catalog.poll-interval-ms:500}")
+    private long pollIntervalMs = 500;
+
+    @Autowired(required = false)
+    private MappedSegmentPool segmentPool;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // 按数据文件名登记，查询线程读取，后台线程修改
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile long indexedEntries;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rescans = new LongAdder();
+
+    private File dir;
+    private WatchService watchService;
+    private Thread worker;
+
+    // 以下只由后台线程访问
+    private final LogRecordProbe probe = new LogRecordProbe();
+    private long lastRescan;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        dir = new File(searchDir).getAbsoluteFile();
+        if (!dir.isDirectory()) {
+            log.warn("日志目录不存在，不建立常驻索引: {}", dir);
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("监听日志目录失败，不建立常驻索引: {}", dir, e);
+            return;
+        }
+        rescan();
+        running = true;
+        worker = new Thread(this::run, "log-segment-catalog");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        log.info("常驻索引已启动，登记文件数: {}", segments.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("关闭目录监听失败", e);
+            }
+        }
+    }
+
+    /**
+     * 当前登记的数据文件，未启用或未启动时返回null，由调用方自行列目录
+     */
+    File[] dataFiles() {
+        if (!running) {
+            return null;
+        }
+        List<File> files = new ArrayList<>(segments.size());
+        for (Segment segment : segments.values()) {
+            files.add(segment.dataFile);
+        }
+        return files.toArray(new File[0]);
+    }
+
+    /**
+     * 按内存列找出可能满足条件和时间范围的记录序号
+     * @param startTime 查询起点，为null时不限
+     * @param endTime 查询终点，为null时不限
+     * @return 文件不在内存索引中时返回null
+     */
+    Candidates candidates(File dataFile, LogPredicate predicate, LocalDateTime startTime, LocalDateTime endTime) {
+        if (!running) {
+            return null;
+        }
+        Segment segment = segments.get(dataFile.getName());
+        Columns columns = segment != null && segment.dataFile.equals(dataFile.getAbsoluteFile()) ? segment.columns : null;
+        if (columns == null) {
+            return null;
+        }
+        // 记录时间和查询边界都取毫秒下取整，只会多出候选
+        long start = startTime != null ? toMillis(startTime) : Long.MIN_VALUE;
+        long end = endTime != null ? toMillis(endTime) : Long.MAX_VALUE;
+        Verdict verdict = compile(predicate, columns);
+        int[] ordinals = new int[Math.min(columns.count, 1024)];
+        int found = 0;
+        for (int entry = 0; entry < columns.count; entry++) {
+            long time = columns.times[entry];
+            if (time != UNKNOWN_TIME && (time < start || time > end)) {
+                continue;
+            }
+            if (verdict.eval(entry) == NO) {
+                continue;
+            }
+            if (found == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+            }
+            ordinals[found++] = entry;
+        }
+        return new Candidates(Arrays.copyOf(ordinals, found), columns.count);
+    }
+
+    public SegmentCatalogStats getStats() {
+        int indexedFiles = 0;
+        for (Segment segment : segments.values()) {
+            if (segment.columns != null) {
+                indexedFiles++;
+            }
+        }
+        long entries = indexedEntries;
+        return SegmentCatalogStats.builder()
+                .running(running)
+                .files(segments.size())
+                .indexedFiles(indexedFiles)
+                .indexedEntries(entries)
+                .maxEntries(maxEntries)
+                .approxBytes(entries * Columns.BYTES_PER_ENTRY)
+                .evictions(evictions.sum())
+                .rescans(rescans.sum())
+                .build();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleEvents(key);
+                    key = watchService.poll();
+                }
+                if (System.currentTimeMillis() - lastRescan >= RESCAN_INTERVAL_MS) {
+                    rescan();
+                }
+                refresh();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.warn("更新常驻索引失败", e);
+            }
+        }
+        running = false;
+        log.info("常驻索引已停止");
+    }
+
+    private void handleEvents(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan();
+                continue;
+            }
+            String name = ((Path) event.context()).getFileName().toString();
+            if (!name.endsWith(".data")) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                register(new File(dir, name));
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                segments.remove(name);
+            }
+        }
+        key.reset();
+    }
+
+    // 重新列目录，补登漏掉的文件并移除已删除的文件
+    private void rescan() {
+        lastRescan = System.currentTimeMillis();
+        rescans.increment();
+        File[] dataFiles = dir.listFiles(file -> file.getName().endsWith(".data"));
+        if (dataFiles == null) {
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        for (File dataFile : dataFiles) {
+            names.add(dataFile.getName());
+            if (!segments.containsKey(dataFile.getName())) {
+                register(dataFile);
+            }
+        }
+        segments.keySet().retainAll(names);
+    }
+
+    private void register(File dataFile) {
+        segments.putIfAbsent(dataFile.getName(), new Segment(dataFile.getAbsoluteFile()));
+    }
+
+    /**
+     * 按新旧顺序跟随各文件：累计条数未超过上限的文件建立或追加内存列，之后更早的文件释放内存列
+     */
+    private void refresh() {
+        List<Segment> ordered = new ArrayList<>(segments.values());
+        Map<String, Segment> newest = new HashMap<>();
+        for (Segment segment : ordered) {
+            if (segment.summaryRecords < 0) {
+                readSummary(segment);
+            }
+            newest.merge(segment.host, segment, (a, b) -> a.compareSequence(b) >= 0 ? a : b);
+        }
+        ordered.sort(Comparator.comparingLong(Segment::recency).thenComparing(segment -> segment.dataFile.getName())
+                .reversed());
+
+        long used = 0;
+        for (Segment segment : ordered) {
+            if (!running) {
+                return;
+            }
+            if (used >= maxEntries) {
+                if (segment.columns != null) {
+                    segment.evictedMaxTime = segment.columns.maxTime;
+                    segment.columns = null;
+                    segment.builder = null;
+                    segment.complete = false;
+                    evictions.increment();
+                }
+                continue;
+            }
+            if (!segment.complete) {
+                try {
+                    follow(segment, newest.get(segment.host) != segment);
+                } catch (IOException e) {
+                    log.debug("读取索引文件失败: {}", segment.dataFile.getName(), e);
+                }
+            }
+            Columns columns = segment.columns;
+            if (columns != null) {
+                used += columns.count;
+            }
+        }
+        indexedEntries = used;
+    }
+
+    /**
+     * 从已建立的条数开始读取新增的索引项
+     * @param superseded 同一主机已有更新的文件，说明该文件已封存
+     */
+    private void follow(Segment segment, boolean superseded) throws IOException {
+        File indexFile = DataFileCursor.indexFileFor(segment.dataFile);
+        if (indexFile == null) {
+            return;
+        }
+        MappedSegment index = acquire(indexFile);
+        MappedSegment data = null;
+        try {
+            ByteBuffer entries = index.buffer();
+            int count = DataFileCursor.countIndexEntries(entries);
+            boolean sealed = superseded || segment.summaryRecords == count;
+            ColumnsBuilder builder = segment.builder;
+            if (builder == null) {
+                builder = new ColumnsBuilder();
+                segment.builder = builder;
+            }
+            if (count > builder.count) {
+                data = acquire(segment.dataFile);
+                ByteBuffer buffer = data.buffer();
+                for (int entry = builder.count; entry < count; entry++) {
+                    long position = entries.getLong(entry * DataFileCursor.INDEX_ENTRY_SIZE);
+                    int size = entries.getInt(entry * DataFileCursor.INDEX_ENTRY_SIZE + 8);
+                    if (position < 0 || size <= 4 || position + size > buffer.capacity()
+                            || buffer.getInt((int) position) != size - 4) {
+                        // 正在写入的文件的索引项可能先于数据可见，下一轮再读；已封存的文件记为未知
+                        if (!sealed) {
+                            break;
+                        }
+                        builder.append(null, zone);
+                        continue;
+                    }
+                    ApiLog fields;
+                    try {
+                        fields = probe.read(buffer, (int) position, size);
+                    } catch (IOException e) {
+                        fields = null;
+                    }
+                    builder.append(fields, zone);
+                }
+            }
+            if (sealed && builder.count == count) {
+                builder.trim();
+                segment.complete = true;
+            }
+            if (segment.columns == null || segment.columns.count != builder.count) {
+                segment.columns = builder.snapshot();
+            }
+            if (segment.complete) {
+                segment.builder = null;
+            }
+        } finally {
+            if (data != null) {
+                data.release();
+            }
+            index.release();
+        }
+    }
+
+    // 文件摘要在封存时写出，只用其中的记录数判断封存和请求时间上限排序
+    private void readSummary(Segment segment) {
+        File indexFile = DataFileCursor.indexFileFor(segment.dataFile);
+        File file = indexFile != null ? SegmentSummary.fileFor(indexFile) : null;
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try {
+            SegmentSummary summary = SegmentSummary.read(file, objectMapper);
+            segment.summaryMaxTime = summary.getMaxRequestTime();
+            segment.summaryRecords = summary.getRecords();
+        } catch (IOException e) {
+            log.debug("读取文件摘要失败: {}", file.getName(), e);
+        }
+    }
+
+    private MappedSegment acquire(File file) throws IOException {
+        return segmentPool != null ? segmentPool.acquire(file) : MappedSegment.map(file, null);
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 把条件编译为在内存列上按序号判断的三值函数，用到内存列以外的字段时为无法判断
+     */
+    private static Verdict compile(LogPredicate predicate, Columns columns) {
+        if (predicate == LogPredicate.ALL) {
+            return entry -> YES;
+        }
+        if (predicate instanceof LogPredicate.Match) {
+            LogPredicate.Match match = (LogPredicate.Match) predicate;
+            if (match.getField() == LogField.PATH) {
+                // 每个不同的路径只判断一次
+                byte[] verdicts = new byte[columns.pathCount];
+                for (int id = 0; id < columns.pathCount; id++) {
+                    verdicts[id] = (byte) (match.matchesText(columns.pathNames[id]) ? YES : NO);
+                }
+                return entry -> {
+                    char id = columns.paths[entry];
+                    return id == UNKNOWN_PATH ? MAYBE : verdicts[id];
+                };
+            }
+            if (match.getField() == LogField.STATUS && match.getOp() == LogPredicate.Match.Op.RANGE) {
+                long low = match.getLow();
+                long high = match.getHigh();
+                return entry -> {
+                    short status = columns.statuses[entry];
+                    return status == UNKNOWN_STATUS ? MAYBE : (status >= low && status <= high ? YES : NO);
+                };
+            }
+            return entry -> MAYBE;
+        }
+        if (predicate instanceof LogPredicate.And) {
+            Verdict[] children = compileAll(((LogPredicate.And) predicate).getChildren(), columns);
+            return entry -> {
+                int result = YES;
+                for (Verdict child : children) {
+                    int value = child.eval(entry);
+                    if (value == NO) {
+                        return NO;
+                    }
+                    if (value == MAYBE) {
+                        result = MAYBE;
+                    }
+                }
+                return result;
+            };
+        }
+        if (predicate instanceof LogPredicate.Or) {
+            Verdict[] children = compileAll(((LogPredicate.Or) predicate).getChildren(), columns);
+            return entry -> {
+                int result = NO;
+                for (Verdict child : children) {
+                    int value = child.eval(entry);
+                    if (value == YES) {
+                        return YES;
+                    }
+                    if (value == MAYBE) {
+                        result = MAYBE;
+                    }
+                }
+                return result;
+            };
+        }
+        if (predicate instanceof LogPredicate.Not) {
+            Verdict child = compile(((LogPredicate.Not) predicate).getChild(), columns);
+            return entry -> {
+                int value = child.eval(entry);
+                return value == MAYBE ? MAYBE : (value == YES ? NO : YES);
+            };
+        }
+        return entry -> MAYBE;
+    }
+
+    private static Verdict[] compileAll(List<LogPredicate> predicates, Columns columns) {
+        Verdict[] verdicts = new Verdict[predicates.size()];
+        for (int i = 0; i < verdicts.length; i++) {
+            verdicts[i] = compile(predicates.get(i), columns);
+        }
+        return verdicts;
+    }
+
+    private interface Verdict {
+        int eval(int entry);
+    }
+
+    /**
+     * 内存列给出的候选序号（升序），covered及之后的记录尚未建立索引，都视为候选
+     */
+    static final class Candidates {
+
+        final int[] ordinals;
+        final int covered;
+
+        Candidates(int[] ordinals, int covered) {
+            this.ordinals = ordinals;
+            this.covered = covered;
+        }
+    }
+
+    /**
+     * 单个数据文件的登记信息，内存列以不可变快照发布给查询线程
+     */
+    private static final class Segment {
+
+        final File dataFile;
+        final String host;
+        final String stamp;
+        final long sequence;
+
+        volatile Columns columns;
+
+        // 以下只由后台线程访问
+        ColumnsBuilder builder;
+        boolean complete;
+        long summaryMaxTime = Long.MAX_VALUE;
+        int summaryRecords = -1;
+        long evictedMaxTime = Long.MAX_VALUE;
+
+        Segment(File dataFile) {
+            this.dataFile = dataFile;
+            // 文件名为{主机名}_{yyyyMMddHHmmss}_{序号}.data，解析失败时整个文件名作为主机名
+            String stem = dataFile.getName().substring(0, dataFile.getName().length() - ".data".length());
+            int last = stem.lastIndexOf('_');
+            int previous = last > 0 ? stem.lastIndexOf('_', last - 1) : -1;
+            long parsed = -1;
+            if (previous > 0) {
+                try {
+                    parsed = Long.parseLong(stem.substring(last + 1));
+                } catch (NumberFormatException e) {
+                    parsed = -1;
+                }
+            }
+            if (parsed >= 0) {
+                this.host = stem.substring(0, previous);
+                this.stamp = stem.substring(previous + 1, last);
+                this.sequence = parsed;
+            } else {
+                this.host = stem;
+                this.stamp = "";
+                this.sequence = 0;
+            }
+        }
+
+        // 同一主机的文件按时间戳、再按序号比较新旧
+        int compareSequence(Segment other) {
+            int byStamp = stamp.compareTo(other.stamp);
+            return byStamp != 0 ? byStamp : Long.compare(sequence, other.sequence);
+        }
+
+        // 已建立或曾建立内存列时取其中最新的请求时间，否则取文件摘要中的，都没有时视为最新
+        long recency() {
+            Columns current = columns;
+            if (current != null && current.count > 0) {
+                return current.maxTime;
+            }
+            return evictedMaxTime != Long.MAX_VALUE ? evictedMaxTime : summaryMaxTime;
+        }
+    }
+
+    /**
+     * 内存列的不可变快照：请求时间（毫秒）、状态码、路径编号，按记录序号排列
+     * 追加只写快照记录数之后的位置，扩容时复制，已发布的快照不受影响
+     */
+    private static final class Columns {
+
+        // 时间8字节、状态码2字节、路径编号2字节
+        static final int BYTES_PER_ENTRY = 12;
+
+        final int count;
+        final long[] times;
+        final short[] statuses;
+        final char[] paths;
+        final String[] pathNames;
+        final int pathCount;
+        final long maxTime;
+
+        Columns(int count, long[] times, short[] statuses, char[] paths, String[] pathNames, int pathCount,
+                long maxTime) {
+            this.count = count;
+            this.times = times;
+            this.statuses = statuses;
+            this.paths = paths;
+            this.pathNames = pathNames;
+            this.pathCount = pathCount;
+            this.maxTime = maxTime;
+        }
+    }
+
+    private static final class ColumnsBuilder {
+
+        int count;
+        long[] times = new long[1024];
+        short[] statuses = new short[1024];
+        char[] paths = new char[1024];
+        String[] pathNames = new String[16];
+        int pathCount;
+        long maxTime = Long.MIN_VALUE;
+        final Map<String, Character> pathIds = new HashMap<>();
+
+        void append(ApiLog fields, ZoneId zone) {
+            if (count == times.length) {
+                int capacity = times.length * 2;
+                times = Arrays.copyOf(times, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                paths = Arrays.copyOf(paths, capacity);
+            }
+            if (fields == null) {
+                times[count] = UNKNOWN_TIME;
+                statuses[count] = UNKNOWN_STATUS;
+                paths[count] = UNKNOWN_PATH;
+            } else {
+                long time = fields.getRequestTime() != null
+                        ? fields.getRequestTime().atZone(zone).toInstant().toEpochMilli() : UNKNOWN_TIME;
+                times[count] = time;
+                maxTime = Math.max(maxTime, time);
+                int status = fields.getStatusCode();
+                statuses[count] = status >= 0 && status <= Short.MAX_VALUE ? (short) status : UNKNOWN_STATUS;
+                paths[count] = pathId(fields.getPath());
+            }
+            count++;
+        }
+
+        private char pathId(String path) {
+            Character id = pathIds.get(path);
+            if (id != null) {
+                return id;
+            }
+            if (pathCount >= UNKNOWN_PATH) {
+                return UNKNOWN_PATH;
+            }
+            if (pathCount == pathNames.length) {
+                pathNames = Arrays.copyOf(pathNames, pathNames.length * 2);
+            }
+            char assigned = (char) pathCount;
+            pathNames[pathCount++] = path;
+            pathIds.put(path, assigned);
+            return assigned;
+        }
+
+        // 文件封存后截去多余容量
+        void trim() {
+            times = Arrays.copyOf(times, count);
+            statuses = Arrays.copyOf(statuses, count);
+            paths = Arrays.copyOf(paths, count);
+            pathNames = Arrays.copyOf(pathNames, pathCount);
+        }
+
+        Columns snapshot() {
+            return new Columns(count, times, statuses, paths, pathNames, pathCount, maxTime);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.viewer.model.QueryCacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按数据文件缓存查询匹配结果的LRU缓存，按估算字节数限制内存
+ * 键为规范化的查询条件、文件名和文件当前记录数：已封存的文件记录数不变，结果可以一直复用；
+ * 仍在写入的文件每次查询记录数都会变化，只有它需要重新扫描，旧的结果随LRU淘汰
+ */
+@Component
+public class SegmentMatchCache {
+
+    @Value("${oem.log.query.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${oem.log.query.cache.max-bytes:33554432}")
+    private long maxBytes = 32L * 1024 * 1024;
+
+    private final LinkedHashMap<String, SegmentMatches> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 生成缓存键
+     * @param filterKey 规范化的查询条件
+     * @param segment 数据文件名
+     * @param generation 文件当前记录数
+     */
+    static String key(String filterKey, String segment, int generation) {
+        return filterKey + '\u0000' + segment + '#' + generation;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找缓存并计入命中/未命中
+     */
+    SegmentMatches get(String key) {
+        SegmentMatches matches;
+        synchronized (entries) {
+            matches = entries.get(key);
+        }
+        if (matches != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return matches;
+    }
+
+    /**
+     * 写入缓存，已有结果覆盖范围更大时保留已有结果
+     */
+    void put(String key, SegmentMatches matches) {
+        long bytes = matches.estimatedBytes();
+        if (bytes > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            SegmentMatches existing = entries.get(key);
+            if (existing != null) {
+                if (existing.frontier <= matches.frontier) {
+                    return;
+                }
+                usedBytes -= existing.estimatedBytes();
+            }
+            entries.put(key, matches);
+            usedBytes += bytes;
+
+            // 按访问顺序淘汰最久未使用的结果
+            Iterator<Map.Entry<String, SegmentMatches>> iterator = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, SegmentMatches> eldest = iterator.next();
+                if (eldest.getValue() == matches) {
+                    continue;
+                }
+                usedBytes -= eldest.getValue().estimatedBytes();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public QueryCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int entryCount;
+        long used;
+        synchronized (entries) {
+            entryCount = entries.size();
+            used = usedBytes;
+        }
+        return QueryCacheStats.builder()
+                .enabled(enabled)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount))
+                .evictions(evictions.sum())
+                .entries(entryCount)
+                .usedBytes(used)
+                .maxBytes(maxBytes)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.oem.log.viewer.service;
+
+/**
+ * 单个数据文件在某个查询条件下的匹配结果，创建后不再修改，可在并发查询间共享
+ * 只记录匹配记录的序号，不缓存解码后的日志；覆盖范围为[frontier+1, top]
+ */
+final class SegmentMatches {
+
+    // 对象头、字段和数组头的估算开销
+    private static final int OVERHEAD_BYTES = 64;
+
+    /**
+     * 生成时文件的最后一条序号
+     */
+    final int top;
+
+    /**
+     * 下一条尚未扫描的序号，-1表示已扫描到文件开头或到达查询起点
+     */
+    final int frontier;
+
+    /**
+     * 覆盖范围内匹配记录的序号，降序
+     */
+    final int[] ordinals;
+
+    SegmentMatches(int top, int frontier, int[] ordinals) {
+        this.top = top;
+        this.frontier = frontier;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * 是否已覆盖整个文件
+     */
+    boolean isComplete() {
+        return frontier < 0;
+    }
+
+    long estimatedBytes() {
+        return OVERHEAD_BYTES + 4L * ordinals.length;
+    }
+}
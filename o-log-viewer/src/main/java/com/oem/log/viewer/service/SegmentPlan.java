@@ -0,0 +1,83 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.viewer.model.QueryExplain;
+
+import java.io.File;
+
+/**
+ * 单个数据文件的扫描计划
+ */
+final class SegmentPlan {
+
+    /**
+     * 扫描方式
+     */
+    enum Strategy {
+        // 文件摘要的请求时间范围与查询不相交
+        SKIP_TIME,
+        // 文件摘要表明没有记录能满足条件
+        SKIP_SUMMARY,
+        // 词元索引表明没有候选记录
+        SKIP_INDEX,
+        // 常驻索引的内存列中没有满足时间范围和条件的记录
+        SKIP_MEMORY,
+        // 只校验词元索引给出的候选记录
+        TOKEN_INDEX,
+        // 只校验常驻索引的内存列给出的候选记录，之后尚未建立内存列的记录顺序过滤
+        MEMORY_INDEX,
+        // 按序号区间并行过滤
+        PARALLEL_SCAN,
+        // 逐条顺序过滤
+        FULL_SCAN;
+
+        boolean isSkip() {
+            return this == SKIP_TIME || this == SKIP_SUMMARY || this == SKIP_INDEX || this == SKIP_MEMORY;
+        }
+    }
+
+    final File dataFile;
+    final int records;
+    final Strategy strategy;
+    final String reason;
+    final long estimated;
+    final int[] candidates;
+
+    /**
+     * 候选序号覆盖的记录数，之后的记录都需要过滤
+     */
+    final int covered;
+
+    /**
+     * 文件摘要记录的最大写入延迟（毫秒），-1表示未知，游标据此判断何时停止倒序扫描
+     */
+    final long maxWriteLagMillis;
+
+    SegmentPlan(File dataFile, int records, Strategy strategy, String reason, long estimated, int[] candidates) {
+        this(dataFile, records, strategy, reason, estimated, candidates, records, -1);
+    }
+
+    SegmentPlan(File dataFile, int records, Strategy strategy, String reason, long estimated, int[] candidates,
+                int covered, long maxWriteLagMillis) {
+        this.dataFile = dataFile;
+        this.records = records;
+        this.strategy = strategy;
+        this.reason = reason;
+        this.estimated = estimated;
+        this.candidates = candidates;
+        this.covered = covered;
+        this.maxWriteLagMillis = maxWriteLagMillis;
+    }
+
+    /**
+     * 转换为EXPLAIN输出，扫描统计由调用方补充
+     */
+    QueryExplain.SegmentExplain.SegmentExplainBuilder toExplain() {
+        return QueryExplain.SegmentExplain.builder()
+                .file(dataFile.getName())
+                .records(records)
+                .strategy(strategy.name())
+                .reason(reason)
+                .estimatedRecords(estimated)
+                .candidates(candidates != null ? candidates.length : null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.oem.log.viewer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 文件内并行扫描的fork/join线程池
+ * 单个查询同一时刻只有一个文件块在扫描，块被拆成不超过每查询并行预算的叶子任务，
+ * 空闲线程通过工作窃取分担较低序号的区间；记录数少于阈值的文件仍顺序扫描
+ */
+@Component
+public class SegmentScanExecutor {
+
+    /**
+     * 线程池大小，0表示CPU核数
+     */
+    @Value("${oem.log.query.scan-threads:0}")
+    private int threads;
+
+    /**
+     * 每个查询最多同时占用的线程数，0表示与线程池大小相同
+     */
+    @Value("${oem.log.query.parallelism-per-query:0}")
+    private int parallelismPerQuery;
+
+    /**
+     * 记录数达到该值的文件才并行扫描
+     */
+    @Value("${oem.log.query.parallel-min-entries:8192}")
+    private int minEntries = 8192;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(size, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("log-scan-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        if (parallelismPerQuery <= 0 || parallelismPerQuery > size) {
+            parallelismPerQuery = size;
+        }
+    }
+
+    /**
+     * 是否对该文件并行扫描
+     */
+    boolean shouldParallelize(int entryCount) {
+        return pool != null && parallelismPerQuery > 1 && entryCount >= minEntries;
+    }
+
+    /**
+     * 每个查询的并行预算
+     */
+    int getParallelism() {
+        return parallelismPerQuery;
+    }
+
+    <T> T invoke(ForkJoinTask<T> task) {
+        return pool.invoke(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
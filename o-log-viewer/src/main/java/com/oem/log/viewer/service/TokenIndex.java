@@ -0,0 +1,404 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.query.LogField;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.textindex.TokenIndexFiles;
+import com.oem.log.core.textindex.TokenIndexFiles.TokenQuery;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 读取写入端生成的词元索引（.tokens），把条件树中的关键词条件转换为候选记录序号
+ * 按块二分查找词项、解码倒排表后按条件树求交/并，得到可能命中的记录（升序）；候选记录仍由游标按原条件校验，
+ * 索引只用于跳过不可能命中的记录。只有包含/相等匹配异常信息、请求参数、响应体的条件能用索引，
+ * 与条件取能用索引的子条件之交，或条件要求所有子条件都能用索引，非条件不能用索引。
+ * 索引的记录数与游标打开时的记录数不一致（文件仍在写入）时不使用
+ */
+@Slf4j
+final class TokenIndex implements Closeable {
+
+    private final MappedSegment segment;
+    private final ByteBuffer buffer;
+    private final boolean ngrams;
+
+    // 每个关键词条件对应的索引约束，按条件对象缓存
+    private final Map<LogPredicate.Match, TokenQuery> queries = new IdentityHashMap<>();
+
+    private TokenIndex(MappedSegment segment) {
+        this.segment = segment;
+        this.buffer = segment.buffer();
+        this.ngrams = (buffer.getInt(12) & TokenIndexFiles.FLAG_NGRAMS) != 0;
+    }
+
+    /**
+     * 打开数据文件的词元索引，没有可用的索引时返回null，用完需关闭
+     * @param entryCount 游标打开时的记录数
+     * @param pool 映射池，为null时单独映射
+     */
+    static TokenIndex open(File dataFile, int entryCount, MappedSegmentPool pool) {
+        File indexFile = DataFileCursor.indexFileFor(dataFile);
+        if (indexFile == null) {
+            return null;
+        }
+        File tokenFile = TokenIndexFiles.fileFor(indexFile);
+        if (!tokenFile.isFile()) {
+            return null;
+        }
+        MappedSegment segment = null;
+        try {
+            segment = pool != null ? pool.acquire(tokenFile) : MappedSegment.map(tokenFile, null);
+            ByteBuffer buffer = segment.buffer();
+            if (buffer.capacity() >= TokenIndexFiles.HEADER_SIZE && buffer.getInt(0) == TokenIndexFiles.MAGIC
+                    && buffer.getInt(4) == TokenIndexFiles.VERSION && buffer.getInt(8) == entryCount) {
+                TokenIndex index = new TokenIndex(segment);
+                segment = null;
+                return index;
+            }
+        } catch (Exception e) {
+            log.warn("读取词元索引失败: {}", tokenFile.getName(), e);
+        } finally {
+            if (segment != null) {
+                segment.release();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 条件树中是否有能用索引的条件，不读取索引文件
+     */
+    static boolean isIndexable(LogPredicate predicate) {
+        if (predicate instanceof LogPredicate.Match) {
+            return indexField((LogPredicate.Match) predicate) >= 0;
+        }
+        if (predicate instanceof LogPredicate.And) {
+            for (LogPredicate child : ((LogPredicate.And) predicate).getChildren()) {
+                if (isIndexable(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (predicate instanceof LogPredicate.Or) {
+            for (LogPredicate child : ((LogPredicate.Or) predicate).getChildren()) {
+                if (!isIndexable(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按词项表中的倒排表长度估算候选记录数上限，不解码倒排表；条件不能用索引时返回-1
+     */
+    long estimate(LogPredicate predicate) {
+        if (!isIndexable(predicate)) {
+            return -1;
+        }
+        long total = 0;
+        int blockCount = buffer.getInt(16);
+        for (int block = 0; block < blockCount; block++) {
+            long count = block(block).estimate(predicate);
+            total += count >= 0 ? count : buffer.getInt(blockEntry(block) + 4);
+        }
+        return total;
+    }
+
+    /**
+     * 计算候选记录序号（升序），条件不能用索引时返回null
+     */
+    int[] candidates(LogPredicate predicate) {
+        if (!isIndexable(predicate)) {
+            return null;
+        }
+        int blockCount = buffer.getInt(16);
+        int[] result = new int[16];
+        int count = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int entry = blockEntry(block);
+            int firstRecord = buffer.getInt(entry);
+            int[] matches = block(block).evaluate(predicate);
+            if (matches == null) {
+                // 关键词无法转换为索引约束（如过短），本块全部记录都是候选
+                matches = new int[buffer.getInt(entry + 4)];
+                for (int i = 0; i < matches.length; i++) {
+                    matches[i] = i;
+                }
+            }
+            if (count + matches.length > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, count + matches.length));
+            }
+            for (int local : matches) {
+                result[count++] = firstRecord + local;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Override
+    public void close() {
+        segment.release();
+    }
+
+    private int blockEntry(int block) {
+        return (int) (buffer.getLong(20) + (long) block * TokenIndexFiles.BLOCK_ENTRY_SIZE);
+    }
+
+    private Block block(int block) {
+        int entry = blockEntry(block);
+        return new Block((int) buffer.getLong(entry + 8), buffer.getInt(entry + 16));
+    }
+
+    // 能用索引的条件对应的字段分组，不能用索引时返回-1
+    private static int indexField(LogPredicate.Match match) {
+        if (match.getOp() != LogPredicate.Match.Op.CONTAINS && match.getOp() != LogPredicate.Match.Op.EQUALS) {
+            return -1;
+        }
+        LogField field = match.getField();
+        if (field == LogField.EXCEPTION) {
+            return TokenIndexFiles.FIELD_EXCEPTION;
+        }
+        if (field == LogField.BODY || field == LogField.PARAMS || field == LogField.RESPONSE) {
+            return TokenIndexFiles.FIELD_BODY;
+        }
+        return -1;
+    }
+
+    // 关键词条件对应的索引约束，关键词中没有可用的词时为null
+    private TokenQuery queryFor(LogPredicate.Match match) {
+        if (queries.containsKey(match)) {
+            return queries.get(match);
+        }
+        TokenQuery query = TokenIndexFiles.query(indexField(match), match.getValue(), ngrams);
+        queries.put(match, query);
+        return query;
+    }
+
+    /**
+     * 索引中的一块：按词键升序的词项表和各词项的倒排表
+     */
+    private final class Block {
+
+        private final int offset;
+        private final int termCount;
+        private final int postingsStart;
+
+        Block(int offset, int termCount) {
+            this.offset = offset;
+            this.termCount = termCount;
+            this.postingsStart = offset + termCount * TokenIndexFiles.TERM_ENTRY_SIZE;
+        }
+
+        // 按条件树求出块内候选序号，条件不约束候选时返回null
+        int[] evaluate(LogPredicate predicate) {
+            if (predicate instanceof LogPredicate.Match) {
+                LogPredicate.Match match = (LogPredicate.Match) predicate;
+                TokenQuery query = indexField(match) >= 0 ? queryFor(match) : null;
+                return query != null ? evaluate(query) : null;
+            }
+            if (predicate instanceof LogPredicate.And) {
+                int[] matches = null;
+                for (LogPredicate child : ((LogPredicate.And) predicate).getChildren()) {
+                    int[] list = evaluate(child);
+                    if (list != null) {
+                        matches = matches != null ? intersect(matches, list) : list;
+                        if (matches.length == 0) {
+                            break;
+                        }
+                    }
+                }
+                return matches;
+            }
+            if (predicate instanceof LogPredicate.Or) {
+                int[] matches = new int[0];
+                for (LogPredicate child : ((LogPredicate.Or) predicate).getChildren()) {
+                    int[] list = evaluate(child);
+                    if (list == null) {
+                        return null;
+                    }
+                    matches = union(matches, list);
+                }
+                return matches;
+            }
+            return null;
+        }
+
+        // 按倒排表长度估算块内候选数上限，条件不约束候选时返回-1
+        long estimate(LogPredicate predicate) {
+            if (predicate instanceof LogPredicate.Match) {
+                LogPredicate.Match match = (LogPredicate.Match) predicate;
+                TokenQuery query = indexField(match) >= 0 ? queryFor(match) : null;
+                return query != null ? estimate(query) : -1;
+            }
+            if (predicate instanceof LogPredicate.And) {
+                long min = -1;
+                for (LogPredicate child : ((LogPredicate.And) predicate).getChildren()) {
+                    long count = estimate(child);
+                    if (count >= 0 && (min < 0 || count < min)) {
+                        min = count;
+                    }
+                }
+                return min;
+            }
+            if (predicate instanceof LogPredicate.Or) {
+                long sum = 0;
+                for (LogPredicate child : ((LogPredicate.Or) predicate).getChildren()) {
+                    long count = estimate(child);
+                    if (count < 0) {
+                        return -1;
+                    }
+                    sum += count;
+                }
+                return sum;
+            }
+            return -1;
+        }
+
+        // 全部整词求交，再与（全部三元组求交 ∪ 长词标记）求交
+        private int[] evaluate(TokenQuery query) {
+            int[] matches = null;
+            for (long word : query.getWords()) {
+                int[] list = postings(word);
+                matches = matches != null ? intersect(matches, list) : list;
+                if (matches.length == 0) {
+                    return matches;
+                }
+            }
+
+            int[] grams = null;
+            if (query.isLongOnly()) {
+                grams = postings(query.getLongTokenKey());
+            } else if (query.getGrams().length > 0) {
+                for (long gram : query.getGrams()) {
+                    int[] list = postings(gram);
+                    grams = grams != null ? intersect(grams, list) : list;
+                    if (grams.length == 0) {
+                        break;
+                    }
+                }
+                grams = union(grams, postings(query.getLongTokenKey()));
+            }
+            if (grams == null) {
+                return matches;
+            }
+            return matches != null ? intersect(matches, grams) : grams;
+        }
+
+        // 与evaluate对应：整词取最短倒排表，三元组取最短倒排表加长词标记数
+        private long estimate(TokenQuery query) {
+            long min = -1;
+            for (long word : query.getWords()) {
+                min = minCount(min, postingCount(word));
+            }
+            long grams = -1;
+            if (query.isLongOnly()) {
+                grams = postingCount(query.getLongTokenKey());
+            } else if (query.getGrams().length > 0) {
+                for (long gram : query.getGrams()) {
+                    grams = minCount(grams, postingCount(gram));
+                }
+                grams += postingCount(query.getLongTokenKey());
+            }
+            return grams >= 0 ? minCount(min, grams) : min;
+        }
+
+        private long minCount(long current, long count) {
+            return current < 0 ? count : Math.min(current, count);
+        }
+
+        // 二分查找词项，返回词项表中的位置，不存在时返回-1
+        private int find(long key) {
+            int low = 0;
+            int high = termCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int entry = offset + mid * TokenIndexFiles.TERM_ENTRY_SIZE;
+                long midKey = buffer.getLong(entry);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        private int postingCount(long key) {
+            int entry = find(key);
+            return entry >= 0 ? buffer.getInt(entry + 12) : 0;
+        }
+
+        // 解码词项的倒排表（块内序号升序），词项不存在时返回空数组
+        private int[] postings(long key) {
+            int entry = find(key);
+            return entry >= 0 ? decode(postingsStart + buffer.getInt(entry + 8), buffer.getInt(entry + 12)) : new int[0];
+        }
+
+        // 序号差值的变长编码，每字节7位，最高位表示后续还有字节
+        private int[] decode(int position, int count) {
+            int[] values = new int[count];
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+                values[i] = value;
+            }
+            return values;
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[count++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,170 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.summary.SegmentSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataFileCursorTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    // 查询起点在积压记录的完成时间之后、其之前写入的记录的完成时间之前
+    private static final LocalDateTime START = T0.plusSeconds(50);
+
+    @TempDir
+    Path dir;
+
+    private final List<ApiLog> logs = new ArrayList<>();
+    private final SegmentSummary summary = new SegmentSummary();
+
+    @Test
+    void delayedRecordDoesNotStopScanEarly() throws IOException {
+        File dataFile = writeOutOfOrderSegment();
+        assertEquals(101_000 - 40_005, summary.getMaxWriteLagMillis());
+
+        List<String> expected = new ArrayList<>();
+        for (int i = logs.size() - 1; i >= 0; i--) {
+            if (!logs.get(i).getRequestTime().isBefore(START)) {
+                expected.add(logs.get(i).getId());
+            }
+        }
+        assertEquals(200, expected.size());
+
+        // 按摘要中的写入延迟提前停止：不漏记录，且不扫描到文件开头
+        try (DataFileCursor cursor = open(dataFile, summary.getMaxWriteLagMillis())) {
+            assertEquals(expected, drain(cursor));
+            assertTrue(cursor.scannedCount() < logs.size(), "scanned=" + cursor.scannedCount());
+        }
+        // 延迟未知时扫描到文件开头
+        try (DataFileCursor cursor = open(dataFile, -1)) {
+            assertEquals(expected, drain(cursor));
+            assertEquals(logs.size(), cursor.scannedCount());
+        }
+    }
+
+    @Test
+    void delayedRecordDoesNotStopParallelScanEarly() throws IOException {
+        File dataFile = writeOutOfOrderSegment();
+        long expected = logs.stream().filter(log -> !log.getRequestTime().isBefore(START)).count();
+
+        SegmentScanExecutor executor = new SegmentScanExecutor();
+        executor.start();
+        try (DataFileCursor cursor = open(dataFile, summary.getMaxWriteLagMillis())) {
+            cursor.attachExecutor(executor);
+            assertEquals(expected, drain(cursor).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void writeLagIsUnknownWithoutWriteTime() {
+        SegmentSummary summary = new SegmentSummary();
+        summary.record(log(0, T0, 10));
+        assertEquals(-1, summary.getMaxWriteLagMillis());
+
+        // 写入时间早于完成时间（时钟回拨）按0计
+        summary.record(log(1, T0, 10), millis(T0));
+        assertEquals(0, summary.getMaxWriteLagMillis());
+        summary.record(log(2, T0, 10), millis(T0) + 510);
+        assertEquals(500, summary.getMaxWriteLagMillis());
+    }
+
+    private DataFileCursor open(File dataFile, long maxWriteLagMillis) throws IOException {
+        File indexFile = DataFileCursor.indexFileFor(dataFile);
+        Predicate<ApiLog> filter = log -> !log.getRequestTime().isBefore(START);
+        return new DataFileCursor(dataFile, MappedSegment.map(dataFile, null), MappedSegment.map(indexFile, null),
+                new JsonLogSerializer(), filter, START, maxWriteLagMillis, DataFileCursor.FROM_END);
+    }
+
+    private static List<String> drain(DataFileCursor cursor) {
+        List<String> ids = new ArrayList<>();
+        while (cursor.advance()) {
+            ids.add(cursor.current().getId());
+        }
+        return ids;
+    }
+
+    // 文件顺序即写入顺序：很早的记录、早于查询起点的记录、查询起点之后的记录、积压到最后才写入的早期请求、之后的记录
+    private File writeOutOfOrderSegment() throws IOException {
+        for (int i = 0; i < 2000; i++) {
+            append(T0.minusSeconds(300).plusNanos(i * 10_000_000L), 0);
+        }
+        for (int i = 0; i < 2000; i++) {
+            append(T0.plusNanos(i * 10_000_000L), 0);
+        }
+        for (int i = 0; i < 100; i++) {
+            append(T0.plusSeconds(100).plusNanos(i * 1_000_000L), 0);
+        }
+        ApiLog delayed = log(logs.size(), T0.plusSeconds(40), 5);
+        logs.add(delayed);
+        summary.record(delayed, millis(T0.plusSeconds(101)));
+        for (int i = 0; i < 100; i++) {
+            append(T0.plusSeconds(102).plusNanos(i * 1_000_000L), 0);
+        }
+        return writeSegment("api-log");
+    }
+
+    // 按完成时间写入的记录
+    private void append(LocalDateTime requestTime, long executionTime) {
+        ApiLog log = log(logs.size(), requestTime, executionTime);
+        logs.add(log);
+        summary.record(log, millis(requestTime) + executionTime);
+    }
+
+    private static ApiLog log(int id, LocalDateTime requestTime, long executionTime) {
+        return ApiLog.builder()
+                .id(String.valueOf(id))
+                .requestTime(requestTime)
+                .executionTime(executionTime)
+                .path("/api/orders")
+                .method("GET")
+                .statusCode(200)
+                .build();
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private File writeSegment(String name) throws IOException {
+        File dataFile = dir.resolve(name + ".data").toFile();
+        File indexFile = dir.resolve(name + ".index").toFile();
+        JsonLogSerializer serializer = new JsonLogSerializer();
+        try (RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "rw");
+             RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "rw")) {
+            FileChannel data = dataRaf.getChannel();
+            FileChannel index = indexRaf.getChannel();
+            ByteBuffer entry = ByteBuffer.allocate(DataFileCursor.INDEX_ENTRY_SIZE);
+            for (ApiLog log : logs) {
+                ByteBuffer record = serializer.serialize(log);
+                entry.clear();
+                entry.putLong(data.position()).putInt(record.remaining()).flip();
+                while (record.hasRemaining()) {
+                    data.write(record);
+                }
+                while (entry.hasRemaining()) {
+                    index.write(entry);
+                }
+            }
+        }
+        return dataFile;
+    }
+}
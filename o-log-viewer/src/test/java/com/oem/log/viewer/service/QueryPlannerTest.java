@@ -0,0 +1,166 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QueryParser;
+import com.oem.log.core.summary.SegmentSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryPlannerTest {
+
+    private static final String[] PATHS = {"/api/a", "/api/b", "/api/order/1", null};
+    private static final String[] METHODS = {"GET", "POST", null};
+    private static final int[] STATUSES = {200, 201, 404, 500, 503};
+
+    // 叶子条件：摘要能精确计数的路径、方法、状态码，只能给出范围的耗时、异常，以及摘要不涉及的字段
+    private static final String[] LEAVES = {
+            "path:/api/a",
+            "path:=/api/b",
+            "path:/api/*",
+            "path:/missing",
+            "method:=GET",
+            "method:PUT",
+            "status:5xx",
+            "status:[200..299]",
+            "status:=404",
+            "duration:[50..*]",
+            "duration:<1000",
+            "duration:>5000",
+            "exception:timeout",
+            "ip:10.0.0.1",
+    };
+
+    @Test
+    void boundsContainActualMatchFraction() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            List<ApiLog> logs = randomLogs(random, 1 + random.nextInt(300));
+            SegmentSummary summary = summarize(logs);
+            for (int i = 0; i < 40; i++) {
+                assertBoundsHold(QueryParser.parse(randomQuery(random, 3)), logs, summary);
+            }
+        }
+    }
+
+    @Test
+    void negationCountsRecordsWithoutPath() {
+        List<ApiLog> logs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            logs.add(log(i < 7 ? null : "/api/a", "GET", 200, 10, null));
+        }
+        SegmentSummary summary = summarize(logs);
+
+        // 路径为空的记录不计入pathCounts，但满足NOT path
+        assertBoundsHold(QueryParser.parse("NOT path:/api/a"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT path:/api/b"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT (path:/api/a OR method:=POST)"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT exception:timeout AND NOT path:/api/*"), logs, summary);
+    }
+
+    @Test
+    void allPathsNull() {
+        List<ApiLog> logs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            logs.add(log(null, null, 500, i, i % 2 == 0 ? "timeout" : null));
+        }
+        SegmentSummary summary = summarize(logs);
+
+        assertEquals(0, estimate(QueryParser.parse("path:/api"), summary));
+        assertEquals(5, estimate(QueryParser.parse("NOT path:/api"), summary));
+        assertBoundsHold(QueryParser.parse("path:/api OR exception:timeout"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT (path:/api AND status:5xx)"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT method:=GET OR NOT status:5xx"), logs, summary);
+    }
+
+    @Test
+    void pathOverflowFallsBackToUnknown() {
+        List<ApiLog> logs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            logs.add(log("/api/" + i, "GET", 200, 1, null));
+        }
+        SegmentSummary summary = summarize(logs);
+        assertNull(summary.getPathCounts());
+
+        assertBoundsHold(QueryParser.parse("path:/api/299"), logs, summary);
+        assertBoundsHold(QueryParser.parse("NOT path:/api/1"), logs, summary);
+        assertBoundsHold(QueryParser.parse("path:/api/299 OR NOT path:/api/*"), logs, summary);
+    }
+
+    @Test
+    void emptySummaryMatchesNothing() {
+        double[] bounds = QueryPlanner.bounds(QueryParser.parse("NOT path:/api"), new SegmentSummary());
+        assertEquals(0.0, bounds[0]);
+        assertEquals(0.0, bounds[1]);
+    }
+
+    // 下限不超过实际命中比例，上限换算成记录数后不少于实际命中数，有命中的文件不会被估算为0条
+    private static void assertBoundsHold(LogPredicate predicate, List<ApiLog> logs, SegmentSummary summary) {
+        long actual = logs.stream().filter(predicate::test).count();
+        double[] bounds = QueryPlanner.bounds(predicate, summary);
+        String message = predicate + " actual=" + actual + "/" + logs.size()
+                + " bounds=[" + bounds[0] + ", " + bounds[1] + "]";
+
+        assertTrue(bounds[0] <= bounds[1] + 1e-9, message);
+        assertTrue(bounds[0] * logs.size() <= actual + 1e-6, message);
+        assertTrue(estimate(predicate, summary) >= actual, message);
+        if (actual > 0) {
+            assertTrue(estimate(predicate, summary) > 0, message);
+        }
+    }
+
+    // 与QueryPlanner.plan中跳过文件的判断一致
+    private static long estimate(LogPredicate predicate, SegmentSummary summary) {
+        return (long) Math.ceil(QueryPlanner.bounds(predicate, summary)[1] * summary.getRecords());
+    }
+
+    private static String randomQuery(Random random, int depth) {
+        int kind = depth == 0 ? 0 : random.nextInt(4);
+        switch (kind) {
+            case 1:
+                return "NOT " + randomQuery(random, depth - 1);
+            case 2:
+                return "(" + randomQuery(random, depth - 1) + " OR " + randomQuery(random, depth - 1) + ")";
+            case 3:
+                return "(" + randomQuery(random, depth - 1) + " AND " + randomQuery(random, depth - 1) + ")";
+            default:
+                return LEAVES[random.nextInt(LEAVES.length)];
+        }
+    }
+
+    private static List<ApiLog> randomLogs(Random random, int count) {
+        List<ApiLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(log(PATHS[random.nextInt(PATHS.length)], METHODS[random.nextInt(METHODS.length)],
+                    STATUSES[random.nextInt(STATUSES.length)], random.nextInt(2000),
+                    random.nextInt(4) == 0 ? "read timeout" : null));
+        }
+        return logs;
+    }
+
+    private static ApiLog log(String path, String method, int status, long duration, String exception) {
+        return ApiLog.builder()
+                .requestTime(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .path(path)
+                .method(method)
+                .statusCode(status)
+                .executionTime(duration)
+                .exceptionMsg(exception)
+                .clientIp("10.0.0.1")
+                .build();
+    }
+
+    private static SegmentSummary summarize(List<ApiLog> logs) {
+        SegmentSummary summary = new SegmentSummary();
+        logs.forEach(summary::record);
+        return summary;
+    }
+}
@@ -0,0 +1,213 @@
+package com.oem.log.viewer.service;
+
+import com.oem.log.core.model.ApiLog;
+import com.oem.log.core.query.LogPredicate;
+import com.oem.log.core.query.QueryParser;
+import com.oem.log.core.serializer.JsonLogSerializer;
+import com.oem.log.core.textindex.TokenIndexBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenIndexTest {
+
+    // 超过两个索引块（每块8192条）
+    private static final int RECORDS = 10000;
+
+    private static final String LONG_TOKEN = "x" + repeat("A", 40) + "Bcd";
+
+    private static final String[] EXCEPTIONS = {
+            null,
+            "java.net.SocketTimeoutException: Read timed out",
+            "NullPointerException at OrderService.create(OrderService.java:42)",
+            "Timeout waiting for connection from pool",
+            LONG_TOKEN + " failure",
+            "数据库连接失败 db-01",
+    };
+
+    // 整词、词的前后缀片段、跨词片段、过短关键词、长词的片段与整词、大小写混合、中文
+    private static final String[] KEYWORDS = {
+            "timeout", "Timeout", "Read", "timed out", "ed ou", "imeo", "Exception",
+            "OrderService.java:4", "java:42)", "at", "e", "42", ".", " ",
+            LONG_TOKEN, LONG_TOKEN.substring(5, 30), "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAB", "Bcd fail",
+            "连接失败", "失败", "db-0",
+            "orderNo=1234", "orderNo=12345&", "=u7", "&user", "sku-12", "库存不足", "code\":1",
+            "zebra", "quokka zebra", " quokka ", " timed ", " at ", "user=u1 ", "zzzqqq",
+    };
+
+    private static final String[] FIELDS = {"exception", "params", "response", "body"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void candidatesCoverSubstringMatchesWithNgrams() throws IOException {
+        assertCandidatesCoverMatches(true);
+    }
+
+    @Test
+    void candidatesCoverSubstringMatchesWithoutNgrams() throws IOException {
+        assertCandidatesCoverMatches(false);
+    }
+
+    @Test
+    void rareWordPrunesRecords() throws IOException {
+        List<ApiLog> logs = randomLogs(new Random(7));
+        for (boolean ngrams : new boolean[]{true, false}) {
+            File dataFile = writeSegment(logs, ngrams ? "gram" : "word", ngrams);
+            try (TokenIndex index = TokenIndex.open(dataFile, logs.size(), null)) {
+                assertNotNull(index);
+                // 两侧有分隔符的整词在两种索引中都能过滤
+                assertPrunes(index, "body:\" quokka \"", ngrams);
+                assertPrunes(index, "response:\"the quokka zebra\"", ngrams);
+                if (ngrams) {
+                    // 关键词首尾的词可能是原文中某个词的片段，只有三元组能过滤
+                    assertPrunes(index, "body:zebra", true);
+                    assertPrunes(index, "exception:\"" + LONG_TOKEN.substring(0, 36) + "\"", true);
+                } else {
+                    int[] candidates = index.candidates(QueryParser.parse("body:zebra"));
+                    assertTrue(candidates.length == logs.size(), "candidates=" + candidates.length);
+                }
+            }
+        }
+    }
+
+    private static void assertPrunes(TokenIndex index, String query, boolean ngrams) {
+        int[] candidates = index.candidates(QueryParser.parse(query));
+        assertNotNull(candidates, query);
+        assertTrue(candidates.length < RECORDS / 4, query + " ngrams=" + ngrams + " candidates=" + candidates.length);
+    }
+
+    @Test
+    void unindexablePredicatesAndStaleIndex() throws IOException {
+        List<ApiLog> logs = randomLogs(new Random(11));
+        File dataFile = writeSegment(logs, "stale", true);
+
+        // 记录数不一致（文件仍在写入）时不使用索引
+        assertNull(TokenIndex.open(dataFile, logs.size() - 1, null));
+        try (TokenIndex index = TokenIndex.open(dataFile, logs.size(), null)) {
+            assertNotNull(index);
+            assertNull(index.candidates(QueryParser.parse("path:/api/a")));
+            assertNull(index.candidates(QueryParser.parse("NOT exception:timeout")));
+            assertNull(index.candidates(QueryParser.parse("exception:timeout OR path:/api/a")));
+            assertNull(index.candidates(QueryParser.parse("exception:~\"time.*out\"")));
+        }
+    }
+
+    private void assertCandidatesCoverMatches(boolean ngrams) throws IOException {
+        Random random = new Random(ngrams ? 1 : 2);
+        List<ApiLog> logs = randomLogs(random);
+        File dataFile = writeSegment(logs, "segment", ngrams);
+
+        try (TokenIndex index = TokenIndex.open(dataFile, logs.size(), null)) {
+            assertNotNull(index);
+            for (String keyword : KEYWORDS) {
+                for (String field : FIELDS) {
+                    assertCovers(index, logs, field + ":" + quote(keyword));
+                    assertCovers(index, logs, field + ":=" + quote(keyword));
+                }
+            }
+            for (int i = 0; i < 200; i++) {
+                String left = FIELDS[random.nextInt(FIELDS.length)] + ":" + quote(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+                String right = FIELDS[random.nextInt(FIELDS.length)] + ":" + quote(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+                assertCovers(index, logs, left + " AND " + right);
+                assertCovers(index, logs, left + " OR " + right);
+                assertCovers(index, logs, left + " AND status:5xx");
+                assertCovers(index, logs, "(" + left + " OR " + right + ") AND NOT path:/api/a");
+            }
+        }
+    }
+
+    // 按原条件命中的每条记录都必须在候选中
+    private static void assertCovers(TokenIndex index, List<ApiLog> logs, String query) {
+        LogPredicate predicate = QueryParser.parse(query);
+        int[] candidates = index.candidates(predicate);
+        assertNotNull(candidates, query);
+        for (int i = 1; i < candidates.length; i++) {
+            assertTrue(candidates[i - 1] < candidates[i], query + " 候选序号未升序");
+        }
+        for (int i = 0; i < logs.size(); i++) {
+            if (predicate.test(logs.get(i))) {
+                assertTrue(Arrays.binarySearch(candidates, i) >= 0, query + " 漏掉记录" + i);
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static List<ApiLog> randomLogs(Random random) {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<ApiLog> logs = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            String response = random.nextBoolean() ? "{\"code\":0,\"msg\":\"成功\"}"
+                    : "{\"code\":1,\"msg\":\"库存不足 sku-" + random.nextInt(999) + "\"}";
+            if (random.nextInt(1000) == 0) {
+                response = "the quokka zebra";
+            }
+            logs.add(ApiLog.builder()
+                    .id(String.valueOf(i))
+                    .requestTime(start.plusSeconds(i))
+                    .path(i % 3 == 0 ? "/api/a" : "/api/b")
+                    .method("GET")
+                    .statusCode(i % 7 == 0 ? 500 : 200)
+                    .executionTime(random.nextInt(20))
+                    .exceptionMsg(EXCEPTIONS[random.nextInt(EXCEPTIONS.length)])
+                    .requestParams(random.nextInt(10) == 0 ? null
+                            : "orderNo=" + random.nextInt(50000) + "&user=u" + random.nextInt(100))
+                    .responseBody(response)
+                    .build());
+        }
+        return logs;
+    }
+
+    // 与写入端一致：数据文件为[int 长度][JSON]，索引文件每条为[long 位置][int 长度]，随后建词元索引
+    private File writeSegment(List<ApiLog> logs, String name, boolean ngrams) throws IOException {
+        File dataFile = dir.resolve(name + ".data").toFile();
+        File indexFile = dir.resolve(name + ".index").toFile();
+        JsonLogSerializer serializer = new JsonLogSerializer();
+        try (RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "rw");
+             RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "rw")) {
+            FileChannel data = dataRaf.getChannel();
+            FileChannel index = indexRaf.getChannel();
+            ByteBuffer entry = ByteBuffer.allocate(12);
+            for (ApiLog log : logs) {
+                ByteBuffer record = serializer.serialize(log);
+                entry.clear();
+                entry.putLong(data.position()).putInt(record.remaining()).flip();
+                while (record.hasRemaining()) {
+                    data.write(record);
+                }
+                while (entry.hasRemaining()) {
+                    index.write(entry);
+                }
+            }
+        }
+        new TokenIndexBuilder(serializer, ngrams).build(dataFile, indexFile);
+        return dataFile;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}